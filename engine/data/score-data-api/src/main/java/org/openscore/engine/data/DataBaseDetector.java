@@ -30,6 +30,9 @@ public class DataBaseDetector {
 
 	private final static String MSSQL_PRODUCT_NAME = "Microsoft SQL Server";
 	private final static String ORACLE_PRODUCT_NAME = "Oracle";
+	private final static String POSTGRES_PRODUCT_NAME = "PostgreSQL";
+	private final static String MYSQL_PRODUCT_NAME = "MySQL";
+	private final static String H2_PRODUCT_NAME = "H2";
 
 	@Autowired
 	private DataSource dataSource;
@@ -42,6 +45,18 @@ public class DataBaseDetector {
 		return isDataBaseMatch(ORACLE_PRODUCT_NAME);
 	}
 
+	public boolean isPostgres() {
+		return isDataBaseMatch(POSTGRES_PRODUCT_NAME);
+	}
+
+	public boolean isMysql() {
+		return isDataBaseMatch(MYSQL_PRODUCT_NAME);
+	}
+
+	public boolean isH2() {
+		return isDataBaseMatch(H2_PRODUCT_NAME);
+	}
+
 	private boolean isDataBaseMatch(String databaseName){
 		boolean match = false;
 		try (Connection conn = dataSource.getConnection()) {
@@ -23,6 +23,13 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -31,6 +38,11 @@ import java.util.concurrent.locks.ReentrantLock;
  * User: froelica
  * Date: 4/25/13
  * Time: 11:03 AM
+ *
+ * Ids are handed out from a chunk of CHUNK_SIZE ids with a single atomic add, a bulk is a contiguous range.
+ * The next chunk is fetched in the background before the current chunk is exhausted.
+ * When hilo.thread.range.size is set, every thread takes its ids from a range of its own,
+ * ids of different threads are then not ordered by the time they were generated.
  */
 public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, IdentityGenerator {
 
@@ -41,15 +53,19 @@ public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, Ident
 	static final String SQL_UPDATE = "UPDATE " + TABLE_NAME + " SET NEXT_HI = NEXT_HI+1";
     static final String SQL_LOCK = "UPDATE " + TABLE_NAME + " SET NEXT_HI = NEXT_HI";
 	static final long CHUNK_SIZE = 100000L;
+	static final long PREFETCH_OFFSET = CHUNK_SIZE * 8 / 10;
+
+	private static final int THREAD_RANGE_SIZE = (int) Math.min(Integer.getInteger("hilo.thread.range.size", 1), CHUNK_SIZE);
 
 	private static DataSource dataSource;
-    private int currentChunk;
-    private long currentId;
+    private volatile Chunk currentChunk;
+    private Future<Integer> nextChunk;
     private Lock lock = new ReentrantLock();
+    private final ThreadLocal<Range> threadRange = new ThreadLocal<>();
 
     // been initialized by Hibernate
     public SimpleHiloIdentifierGenerator() {
-        updateCurrentChunk();
+        currentChunk = new Chunk(fetchChunk());
     }
 
     public static void setDataSource(DataSource injectedDataSource) {
@@ -58,35 +74,97 @@ public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, Ident
 
     @Override
     public Long next() {
-        return (Long) generate(null, null);
+        if (THREAD_RANGE_SIZE <= 1) {
+            return reserve(1);
+        }
+        Range range = threadRange.get();
+        if (range == null || !range.hasNext()) {
+            range = new Range(reserve(THREAD_RANGE_SIZE), THREAD_RANGE_SIZE);
+            threadRange.set(range);
+        }
+        return range.next();
     }
 
     @Override
     public List<Long> bulk(int bulkSize) {
-        List <Long> idsList = new ArrayList<>();
-        for (int i = 0; i < bulkSize; i++) {
-            idsList.add(next());
+        List <Long> idsList = new ArrayList<>(bulkSize);
+        int left = bulkSize;
+        while (left > 0) {
+            int size = (int) Math.min(left, CHUNK_SIZE);
+            long first = reserve(size);
+            for (int i = 0; i < size; i++) {
+                idsList.add(first + i);
+            }
+            left -= size;
         }
         return idsList;
     }
 
     @Override
     public Serializable generate(SessionImplementor session, Object object) throws HibernateException {
+        return next();
+    }
+
+    // returns the first id of a contiguous range, the range never crosses a chunk
+    long reserve(int size) {
+        while (true) {
+            Chunk chunk = currentChunk;
+            long offset = chunk.offset.getAndAdd(size);
+            if (offset + size <= CHUNK_SIZE) {
+                if (offset < PREFETCH_OFFSET && offset + size >= PREFETCH_OFFSET) {
+                    prefetch();
+                }
+                return chunk.hi * CHUNK_SIZE + offset + 1;
+            }
+            if (logger.isDebugEnabled()) logger.debug("ID has reached chunk size");
+            roll(chunk);
+        }
+    }
+
+    private void prefetch() {
         lock.lock();
         try {
-            long id = ++currentId;
-            if (id > CHUNK_SIZE) {
-                if (logger.isDebugEnabled()) logger.debug("ID has reached chunk size");
-                updateCurrentChunk();
-                id = ++currentId;
+            if (nextChunk == null) {
+                nextChunk = Prefetcher.EXECUTOR.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return fetchChunk();
+                    }
+                });
             }
-            return currentChunk * CHUNK_SIZE + id;
         } finally {
             lock.unlock();
         }
     }
 
-    private void updateCurrentChunk() {
+    private void roll(Chunk exhausted) {
+        lock.lock();
+        try {
+            if (currentChunk != exhausted) {
+                // another thread already rolled it
+                return;
+            }
+            Future<Integer> prefetched = nextChunk;
+            nextChunk = null;
+            currentChunk = new Chunk(prefetched == null ? fetchChunk() : getPrefetched(prefetched));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getPrefetched(Future<Integer> prefetched) {
+        try {
+            return prefetched.get();
+        } catch (ExecutionException e) {
+            logger.warn("Failed to prefetch the next chunk, fetching it again", e.getCause());
+            return fetchChunk();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the next chunk");
+        }
+    }
+
+    private int fetchChunk() {
         if (logger.isDebugEnabled()) {
             logger.debug("Updating HILO chunk...");
         }
@@ -97,19 +175,58 @@ public class SimpleHiloIdentifierGenerator implements IdentifierGenerator, Ident
             JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(conn, true));
 
             jdbcTemplate.update(SQL_LOCK);
-            currentChunk = jdbcTemplate.queryForInt(SQL_SELECT);
+            int chunk = jdbcTemplate.queryForInt(SQL_SELECT);
             if (logger.isDebugEnabled())
-                logger.debug("Current chunk: " + currentChunk);
+                logger.debug("Current chunk: " + chunk);
             jdbcTemplate.execute(SQL_UPDATE);
             jdbcTemplate.execute("commit");
 
             if (logger.isDebugEnabled()) {
                 logger.debug("Updating HILO chunk done in " + (System.currentTimeMillis() - t) + " ms");
             }
-            currentId = 0;
+            return chunk;
         } catch (SQLException e) {
             logger.error("Unable to update current chunk", e);
             throw new IllegalStateException("Unable to update current chunk");
         }
     }
+
+    private static class Chunk {
+        private final long hi;
+        private final AtomicLong offset = new AtomicLong();
+
+        Chunk(long hi) {
+            this.hi = hi;
+        }
+    }
+
+    private static class Range {
+        private long next;
+        private final long end;
+
+        Range(long first, int size) {
+            this.next = first;
+            this.end = first + size;
+        }
+
+        boolean hasNext() {
+            return next < end;
+        }
+
+        long next() {
+            return next++;
+        }
+    }
+
+    // created on first use, the thread does not keep the JVM alive
+    private static class Prefetcher {
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "hilo-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
 }
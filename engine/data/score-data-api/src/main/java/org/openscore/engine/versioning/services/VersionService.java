@@ -24,6 +24,12 @@ public interface VersionService {
      */
     public static final String MSG_RECOVERY_VERSION_COUNTER_NAME = "MSG_RECOVERY_VERSION";
 
+    /**
+     * Incremented on every change of the cached worker nodes state
+     *
+     */
+    public static final String WORKERS_VERSION_COUNTER_NAME = "WORKERS_VERSION";
+
     /**
      * Given the counter name (key) returns the current version of it.
      * @param counterName : the counter name (key)
@@ -0,0 +1,117 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.data;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Date: 18/10/26
+ */
+public class SimpleHiloIdentifierGeneratorTest {
+
+	private static EmbeddedDatabase dataSource;
+
+	private SimpleHiloIdentifierGenerator generator;
+
+	@BeforeClass
+	public static void createDataSource() {
+		dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE OO_HILO (NEXT_HI INT)");
+		jdbcTemplate.execute("INSERT INTO OO_HILO VALUES (0)");
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		dataSource.shutdown();
+	}
+
+	@Before
+	public void init() {
+		SimpleHiloIdentifierGenerator.setDataSource(dataSource);
+		generator = new SimpleHiloIdentifierGenerator();
+	}
+
+	@Test
+	public void testBulkIsContiguous() {
+		Long first = generator.next();
+		List<Long> ids = generator.bulk(1000);
+		assertEquals(1000, ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			assertEquals(first + 1 + i, ids.get(i).longValue());
+		}
+		assertEquals(first + 1001, generator.next().longValue());
+	}
+
+	@Test
+	public void testBulkLargerThanChunk() {
+		int size = (int) (SimpleHiloIdentifierGenerator.CHUNK_SIZE + SimpleHiloIdentifierGenerator.CHUNK_SIZE / 2);
+		List<Long> ids = generator.bulk(size);
+		assertEquals(size, ids.size());
+		assertEquals(size, new HashSet<>(ids).size());
+	}
+
+	@Test
+	public void testUniqueIdsFromSeveralThreads() throws Exception {
+		final int threads = 4;
+		final int idsPerThread = (int) SimpleHiloIdentifierGenerator.CHUNK_SIZE / 2;
+		final Set<Long> ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					for (int i = 0; i < idsPerThread; i++) {
+						assertTrue(ids.add(generator.next()));
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		assertEquals(threads * idsPerThread, ids.size());
+	}
+
+	@Test
+	public void testSeveralGeneratorsDoNotOverlap() {
+		SimpleHiloIdentifierGenerator other = new SimpleHiloIdentifierGenerator();
+		List<Long> ids = generator.bulk(100);
+		List<Long> otherIds = other.bulk(100);
+		assertTrue(ids.get(99) < otherIds.get(0) || otherIds.get(99) < ids.get(0));
+	}
+}
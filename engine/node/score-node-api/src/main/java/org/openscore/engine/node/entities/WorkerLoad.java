@@ -0,0 +1,110 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.node.entities;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.ToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Date: 18/10/26
+ *
+ * The load a worker reports with its keep alive.
+ */
+@Embeddable
+public class WorkerLoad implements Serializable {
+
+	private static final long serialVersionUID = -3641186427205378221L;
+
+	@Column(name = "LOAD_RUNNING_TASKS")
+	private int runningTasks;
+
+	@Column(name = "LOAD_IN_BUFFER_SIZE")
+	private int inBufferSize;
+
+	@Column(name = "LOAD_EXECUTION_THREADS")
+	private int executionThreads;
+
+	// percents of the out buffer capacity in use
+	@Column(name = "LOAD_OUT_BUFFER_FILL")
+	private int outBufferFill;
+
+	public WorkerLoad() {
+	}
+
+	public WorkerLoad(int runningTasks, int inBufferSize, int executionThreads, int outBufferFill) {
+		this.runningTasks = runningTasks;
+		this.inBufferSize = inBufferSize;
+		this.executionThreads = executionThreads;
+		this.outBufferFill = outBufferFill;
+	}
+
+	public int getRunningTasks() {
+		return runningTasks;
+	}
+
+	public int getInBufferSize() {
+		return inBufferSize;
+	}
+
+	public int getExecutionThreads() {
+		return executionThreads;
+	}
+
+	public int getOutBufferFill() {
+		return outBufferFill;
+	}
+
+	/**
+	 * the tasks waiting or running per execution thread, a full out buffer counts as one more task per thread
+	 * since the threads of that worker block until the buffer is drained
+	 *
+	 * @param assignedTasks tasks assigned to the worker since it reported this load
+	 */
+	public double loadFactor(int assignedTasks) {
+		return (double) (runningTasks + inBufferSize + assignedTasks) / Math.max(executionThreads, 1) + outBufferFill / 100.0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof WorkerLoad)) return false;
+
+		WorkerLoad that = (WorkerLoad) o;
+
+		return new EqualsBuilder()
+				.append(this.runningTasks, that.runningTasks)
+				.append(this.inBufferSize, that.inBufferSize)
+				.append(this.executionThreads, that.executionThreads)
+				.append(this.outBufferFill, that.outBufferFill)
+				.isEquals();
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(runningTasks, inBufferSize, executionThreads, outBufferFill);
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+				.append("runningTasks", runningTasks)
+				.append("inBufferSize", inBufferSize)
+				.append("executionThreads", executionThreads)
+				.append("outBufferFill", outBufferFill)
+				.toString();
+	}
+}
@@ -22,6 +22,7 @@ import org.hibernate.annotations.SelectBeforeUpdate;
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
@@ -105,6 +106,10 @@ public class WorkerNode extends AbstractIdentifiable implements Worker {
     @Column(name = "WRV", length = 48)
     private String workerRecoveryVersion;
 
+    // the load of the last keep alive, null until the worker reports one
+    @Embedded
+    private WorkerLoad load;
+
     @Override
 	public String getUuid() {
 		return uuid;
@@ -244,6 +249,14 @@ public class WorkerNode extends AbstractIdentifiable implements Worker {
         this.workerRecoveryVersion = workerRecoveryVersion;
     }
 
+    public WorkerLoad getLoad() {
+        return load;
+    }
+
+    public void setLoad(WorkerLoad load) {
+        this.load = load;
+    }
+
     @Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -12,9 +12,11 @@ package org.openscore.engine.node.services;
 
 import com.google.common.collect.Multimap;
 import org.openscore.api.nodes.WorkerStatus;
+import org.openscore.engine.node.entities.WorkerLoad;
 import org.openscore.engine.node.entities.WorkerNode;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by IntelliJ IDEA.
@@ -33,6 +35,14 @@ public interface WorkerNodeService {
      */
 	String keepAlive(String uuid);
 
+    /**
+     * Update the Worker Node entity with the current ack version and the load the worker reports
+     * @param uuid worker's unique identifier
+     * @param load the current load of the worker, or null to keep the last reported one
+     * @return the worker's recovery version (WRV)
+     */
+	String keepAlive(String uuid, WorkerLoad load);
+
     /**
      * Create a new worker
      * @param uuid  worker's unique identifier
@@ -192,6 +202,15 @@ public interface WorkerNodeService {
      */
 	Multimap<String, String> readGroupWorkersMapActiveAndRunning();
 
+    /**
+     *
+     * Reads the last load reported by the active and running workers
+     *
+     * @return a Map of worker uuid to its {@link org.openscore.engine.node.entities.WorkerLoad},
+     * workers that did not report a load yet are not in the map
+     */
+    Map<String, WorkerLoad> readWorkersLoadActiveAndRunning();
+
     /**
      *
      * adds group to be associated with a worker
@@ -228,6 +247,17 @@ public interface WorkerNodeService {
      */
     void updateBulkNumber(String workerUuid, String bulkNumber);
 
+    /**
+     *
+     * updates the worker recovery bulk number in one statement, without reading the worker
+     *
+     * @param workerUuid the uuid of the worker to update
+     * @param wrv the worker recovery version the bulk was sent with
+     * @param bulkNumber the new recovery bulk number
+     * @return false if the worker already has this bulk number or a different worker recovery version
+     */
+    boolean updateBulkNumberIfNew(String workerUuid, String wrv, String bulkNumber);
+
     /**
      *
      * updates the worker recovery version of a given worker
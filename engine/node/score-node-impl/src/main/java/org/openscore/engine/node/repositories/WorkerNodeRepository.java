@@ -52,4 +52,8 @@ public interface WorkerNodeRepository extends JpaRepository<WorkerNode,Long> {
 
 	@Modifying @Query("update WorkerNode w set w.uuid = w.uuid where w.uuid = ?1")
 	void lockByUuid(String uuid);
+
+	@Modifying
+	@Query("update WorkerNode w set w.bulkNumber = ?3 where w.uuid = ?1 and w.deleted = false and w.workerRecoveryVersion = ?2 and (w.bulkNumber is null or w.bulkNumber <> ?3)")
+	int updateBulkNumberIfNew(String uuid, String wrv, String bulkNumber);
 }
\ No newline at end of file
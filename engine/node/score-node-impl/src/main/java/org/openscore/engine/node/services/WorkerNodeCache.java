@@ -0,0 +1,260 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.node.services;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimap;
+import org.apache.log4j.Logger;
+import org.openscore.api.nodes.WorkerStatus;
+import org.openscore.engine.node.entities.WorkerLoad;
+import org.openscore.engine.node.entities.WorkerNode;
+import org.openscore.engine.node.repositories.WorkerNodeRepository;
+import org.openscore.engine.versioning.services.VersionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Date: 18/10/26
+ *
+ * Keeps the groups of the active and running workers in memory, so assigning workers does not scan the workers table on every enqueue.
+ *
+ * Every write that changes the cached state increments the WORKERS_VERSION counter in its transaction.
+ * A snapshot is used for at most worker.cache.max.staleness ms, then the counter is read again and the snapshot is reloaded
+ * only if the counter moved, so the orchestrator nodes see each other's changes within that bound.
+ * The writes of this node drop the snapshot when they are made and again when they commit.
+ *
+ * The loads the workers report with their keep alive do not move the counter, they are read again
+ * once they are older than worker.cache.load.max.staleness ms.
+ */
+public class WorkerNodeCache {
+
+	private static final Logger logger = Logger.getLogger(WorkerNodeCache.class);
+
+	private static final long NO_VERSION = -1;
+
+	private final boolean enabled = Boolean.valueOf(System.getProperty("worker.cache.enabled", "true"));
+
+	private final long maxStaleness = Long.getLong("worker.cache.max.staleness", 1000L);
+
+	private final long loadMaxStaleness = Long.getLong("worker.cache.load.max.staleness", 5000L);
+
+	@Autowired
+	private WorkerNodeRepository workerNodeRepository;
+
+	@Autowired
+	private VersionService versionService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private volatile Snapshot snapshot;
+
+	private volatile Loads workerLoads;
+
+	// null until checked, a missing counter would mark the calling transaction for rollback
+	private volatile Boolean versionCounterExists;
+
+	private final Object loadLock = new Object();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong versionChecks = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong workerLoadReads = new AtomicLong();
+
+	/**
+	 * must be called inside a transaction
+	 *
+	 * @return group name to the uuids of the active and running workers in it
+	 */
+	public Multimap<String, String> readGroupWorkersMapActiveAndRunning() {
+		if (!enabled) {
+			return load(NO_VERSION, 0).groupWorkers;
+		}
+
+		long now = System.currentTimeMillis();
+		Snapshot current = snapshot;
+		if (current != null && now - current.checkedAt < maxStaleness) {
+			hits.incrementAndGet();
+			return current.groupWorkers;
+		}
+		synchronized (loadLock) {
+			current = snapshot;
+			if (current != null && now - current.checkedAt < maxStaleness) {
+				hits.incrementAndGet();
+				return current.groupWorkers;
+			}
+			long version = readVersion();
+			if (current != null && version != NO_VERSION && current.version == version) {
+				current.checkedAt = now;
+				return current.groupWorkers;
+			}
+			current = load(version, now);
+			snapshot = current;
+			return current.groupWorkers;
+		}
+	}
+
+	/**
+	 * must be called inside a transaction
+	 *
+	 * @return worker uuid to the last load reported by the active and running workers
+	 */
+	public Map<String, WorkerLoad> readWorkersLoadActiveAndRunning() {
+		long now = System.currentTimeMillis();
+		Loads current = workerLoads;
+		if (enabled && current != null && now - current.loadedAt < loadMaxStaleness) {
+			return current.loads;
+		}
+		synchronized (loadLock) {
+			current = workerLoads;
+			if (enabled && current != null && now - current.loadedAt < loadMaxStaleness) {
+				return current.loads;
+			}
+			workerLoadReads.incrementAndGet();
+			current = new Loads(now, readLoads(workerNodeRepository.findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false)));
+			workerLoads = current;
+			return current.loads;
+		}
+	}
+
+	/**
+	 * called by a write that changes a cached worker, inside the write transaction
+	 */
+	public void changed() {
+		if (versionCounterExists()) {
+			versionService.incrementVersion(VersionService.WORKERS_VERSION_COUNTER_NAME);
+		}
+		// the writing transaction reads its own change, the other threads may reload the old state until the commit
+		invalidate();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					invalidate();
+				}
+			});
+		}
+	}
+
+	public void invalidate() {
+		snapshot = null;
+		workerLoads = null;
+	}
+
+	private long readVersion() {
+		if (!versionCounterExists())
+			return NO_VERSION;
+		versionChecks.incrementAndGet();
+		return versionService.getCurrentVersion(VersionService.WORKERS_VERSION_COUNTER_NAME);
+	}
+
+	private boolean versionCounterExists() {
+		Boolean exists = versionCounterExists;
+		if (exists == null) {
+			TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+			transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			exists = transactionTemplate.execute(new TransactionCallback<Boolean>() {
+				@Override
+				public Boolean doInTransaction(TransactionStatus status) {
+					try {
+						versionService.getCurrentVersion(VersionService.WORKERS_VERSION_COUNTER_NAME);
+						return true;
+					} catch (IllegalStateException ex) {
+						// without the counter the snapshot is reloaded whenever it gets stale
+						logger.warn("Workers version counter is missing, the workers cache is reloaded every " + maxStaleness + " ms", ex);
+						status.setRollbackOnly();
+						return false;
+					}
+				}
+			});
+			versionCounterExists = exists;
+		}
+		return exists;
+	}
+
+	private Snapshot load(long version, long now) {
+		loads.incrementAndGet();
+		ImmutableListMultimap.Builder<String, String> groupWorkers = ImmutableListMultimap.builder();
+		List<WorkerNode> workers = workerNodeRepository.findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false);
+		for (WorkerNode worker : workers) {
+			for (String groupName : worker.getGroups()) {
+				groupWorkers.put(groupName, worker.getUuid());
+			}
+		}
+		// the same rows hold the loads, so they are refreshed for free
+		workerLoads = new Loads(now, readLoads(workers));
+		if (logger.isDebugEnabled()) logger.debug("Loaded " + workers.size() + " active and running workers at version " + version);
+		return new Snapshot(version, now, groupWorkers.build());
+	}
+
+	private static Map<String, WorkerLoad> readLoads(List<WorkerNode> workers) {
+		ImmutableMap.Builder<String, WorkerLoad> workerLoads = ImmutableMap.builder();
+		for (WorkerNode worker : workers) {
+			if (worker.getLoad() != null) {
+				workerLoads.put(worker.getUuid(), worker.getLoad());
+			}
+		}
+		return workerLoads.build();
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getVersionChecks() {
+		return versionChecks.get();
+	}
+
+	public long getLoads() {
+		return loads.get();
+	}
+
+	public long getWorkerLoadReads() {
+		return workerLoadReads.get();
+	}
+
+	private static class Snapshot {
+		private final long version;
+		private volatile long checkedAt;
+		private final Multimap<String, String> groupWorkers;
+
+		Snapshot(long version, long checkedAt, Multimap<String, String> groupWorkers) {
+			this.version = version;
+			this.checkedAt = checkedAt;
+			this.groupWorkers = groupWorkers;
+		}
+	}
+
+	private static class Loads {
+		private final long loadedAt;
+		private final Map<String, WorkerLoad> loads;
+
+		Loads(long loadedAt, Map<String, WorkerLoad> loads) {
+			this.loadedAt = loadedAt;
+			this.loads = loads;
+		}
+	}
+}
@@ -13,6 +13,7 @@ package org.openscore.engine.node.services;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import org.openscore.api.nodes.WorkerStatus;
+import org.openscore.engine.node.entities.WorkerLoad;
 import org.openscore.engine.node.entities.WorkerNode;
 import org.openscore.engine.node.repositories.WorkerNodeRepository;
 import org.openscore.engine.versioning.services.VersionService;
@@ -25,7 +26,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author
@@ -47,17 +50,29 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 	private VersionService versionService;
 	@Autowired(required = false)
 	private List<LoginListener> loginListeners;
+	@Autowired(required = false)
+	private WorkerNodeCache workerNodeCache;
 
 	@Override
 	@Transactional
 	public String keepAlive(String uuid) {
+		return keepAlive(uuid, null);
+	}
+
+	@Override
+	@Transactional
+	public String keepAlive(String uuid, WorkerLoad load) {
 		WorkerNode worker = readByUUID(uuid);
 		worker.setAckTime(new Date());
+		if(load != null) {
+			worker.setLoad(load);
+		}
 		String wrv = worker.getWorkerRecoveryVersion();
 		long version = versionService.getCurrentVersion(MSG_RECOVERY_VERSION_NAME);
 		worker.setAckVersion(version);
-		if(!worker.getStatus().equals(WorkerStatus.IN_RECOVERY)) {
+		if(!worker.getStatus().equals(WorkerStatus.IN_RECOVERY) && !worker.getStatus().equals(WorkerStatus.RUNNING)) {
 			worker.setStatus(WorkerStatus.RUNNING);
+			workersChanged();
 		}
 		logger.debug("Got keepAlive for Worker with uuid=" + uuid + " and update its ackVersion to " + version);
 		return wrv;
@@ -77,6 +92,7 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		worker.setGroups(Arrays.asList(WorkerNode.DEFAULT_WORKER_GROUPS));
 		workerNodeRepository.save(worker);
 		workerLockService.create(uuid);
+		workersChanged();
 	}
 
 	@Override
@@ -87,6 +103,7 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 			worker.setActive(false);
 			worker.setDeleted(true);
 			worker.setStatus(WorkerStatus.IN_RECOVERY);
+			workersChanged();
 		}
 	}
 
@@ -169,6 +186,7 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 	public void activate(String uuid) {
 		WorkerNode worker = readByUUID(uuid);
 		worker.setActive(true);
+		workersChanged();
 	}
 
 	@Override
@@ -176,6 +194,7 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 	public void deactivate(String uuid) {
 		WorkerNode worker = readByUUID(uuid);
 		worker.setActive(false);
+		workersChanged();
 	}
 
 	@Override
@@ -194,7 +213,10 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		if(worker == null) {
 			throw new IllegalStateException("no worker was found by the specified UUID:" + uuid);
 		}
-		worker.setStatus(status);
+		if(worker.getStatus() != status) {
+			worker.setStatus(status);
+			workersChanged();
+		}
 	}
 
 	@Override
@@ -204,7 +226,10 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		if(worker == null) {
 			throw new IllegalStateException("no worker was found by the specified UUID:" + uuid);
 		}
-		worker.setStatus(status);
+		if(worker.getStatus() != status) {
+			worker.setStatus(status);
+			workersChanged();
+		}
 	}
 
 	@Override
@@ -228,11 +253,15 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		WorkerNode worker = readByUUID(uuid);
 		List<String> groups = groupNames != null ? Arrays.asList(groupNames) : Collections.<String> emptyList();
 		worker.setGroups(groups);
+		workersChanged();
 	}
 
 	@Override
 	@Transactional(readOnly = true)
 	public Multimap<String, String> readGroupWorkersMapActiveAndRunning() {
+		if(workerNodeCache != null) {
+			return workerNodeCache.readGroupWorkersMapActiveAndRunning();
+		}
 		Multimap<String, String> result = ArrayListMultimap.create();
 		List<WorkerNode> workers;
 		workers = workerNodeRepository.findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false);
@@ -244,6 +273,21 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		return result;
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public Map<String, WorkerLoad> readWorkersLoadActiveAndRunning() {
+		if(workerNodeCache != null) {
+			return workerNodeCache.readWorkersLoadActiveAndRunning();
+		}
+		Map<String, WorkerLoad> result = new HashMap<>();
+		for(WorkerNode worker : workerNodeRepository.findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false)) {
+			if(worker.getLoad() != null) {
+				result.put(worker.getUuid(), worker.getLoad());
+			}
+		}
+		return result;
+	}
+
 	@Override
 	@Transactional
 	public void addGroupToWorker(String workerUuid, String group) {
@@ -251,6 +295,7 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		List<String> groups = new ArrayList<>(worker.getGroups());
 		groups.add(group);
 		worker.setGroups(groups);
+		workersChanged();
 	}
 
 	@Override
@@ -261,6 +306,7 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		groups.remove(group);
 		if(groups.size() == 0) throw new IllegalStateException("Can't leave worker without any group !");
 		worker.setGroups(groups);
+		workersChanged();
 	}
 
 	@Override
@@ -276,6 +322,12 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		worker.setBulkNumber(bulkNumber);
 	}
 
+	@Override
+	@Transactional
+	public boolean updateBulkNumberIfNew(String workerUuid, String wrv, String bulkNumber) {
+		return workerNodeRepository.updateBulkNumberIfNew(workerUuid, wrv, bulkNumber) == 1;
+	}
+
 	@Override
 	@Transactional
 	public void updateWRV(String workerUuid, String wrv) {
@@ -283,4 +335,9 @@ public final class WorkerNodeServiceImpl implements WorkerNodeService {
 		worker.setWorkerRecoveryVersion(wrv);
 	}
 
+	private void workersChanged() {
+		if(workerNodeCache != null) {
+			workerNodeCache.changed();
+		}
+	}
 }
@@ -0,0 +1,130 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.node.services;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openscore.api.nodes.WorkerStatus;
+import org.openscore.engine.node.entities.WorkerLoad;
+import org.openscore.engine.node.entities.WorkerNode;
+import org.openscore.engine.node.repositories.WorkerNodeRepository;
+import org.openscore.engine.versioning.services.VersionService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Date: 18/10/26
+ */
+public class WorkerNodeCacheTest {
+
+	@Mock
+	private WorkerNodeRepository workerNodeRepository;
+
+	@Mock
+	private VersionService versionService;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@InjectMocks
+	private WorkerNodeCache workerNodeCache;
+
+	@Before
+	public void setUp() {
+		// every read checks the version
+		System.setProperty("worker.cache.max.staleness", "0");
+		workerNodeCache = new WorkerNodeCache();
+		MockitoAnnotations.initMocks(this);
+		when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(new SimpleTransactionStatus());
+		when(workerNodeRepository.findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false)).thenReturn(Arrays.asList(createWorker("w1", "group1")));
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty("worker.cache.max.staleness");
+	}
+
+	@Test
+	public void testReloadOnlyWhenVersionMoves() {
+		when(versionService.getCurrentVersion(VersionService.WORKERS_VERSION_COUNTER_NAME)).thenReturn(1L);
+		Assert.assertEquals(Arrays.asList("w1"), workerNodeCache.readGroupWorkersMapActiveAndRunning().get("group1"));
+		workerNodeCache.readGroupWorkersMapActiveAndRunning();
+		verify(workerNodeRepository, times(1)).findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false);
+
+		//another orchestrator changed the workers
+		when(versionService.getCurrentVersion(VersionService.WORKERS_VERSION_COUNTER_NAME)).thenReturn(2L);
+		when(workerNodeRepository.findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false)).thenReturn(Arrays.asList(createWorker("w2", "group1")));
+		Assert.assertEquals(Arrays.asList("w2"), workerNodeCache.readGroupWorkersMapActiveAndRunning().get("group1"));
+		Assert.assertEquals(2, workerNodeCache.getLoads());
+	}
+
+	@Test
+	public void testLocalChangeIncrementsVersionAndInvalidates() {
+		when(versionService.getCurrentVersion(VersionService.WORKERS_VERSION_COUNTER_NAME)).thenReturn(1L);
+		workerNodeCache.readGroupWorkersMapActiveAndRunning();
+
+		workerNodeCache.changed();
+		verify(versionService).incrementVersion(VersionService.WORKERS_VERSION_COUNTER_NAME);
+
+		workerNodeCache.readGroupWorkersMapActiveAndRunning();
+		Assert.assertEquals(2, workerNodeCache.getLoads());
+	}
+
+	@Test
+	public void testMissingVersionCounter() {
+		when(versionService.getCurrentVersion(VersionService.WORKERS_VERSION_COUNTER_NAME)).thenThrow(new IllegalStateException("No VersionCounter"));
+		workerNodeCache.readGroupWorkersMapActiveAndRunning();
+		workerNodeCache.readGroupWorkersMapActiveAndRunning();
+		workerNodeCache.changed();
+
+		Assert.assertEquals(2, workerNodeCache.getLoads());
+		verify(versionService, times(0)).incrementVersion(VersionService.WORKERS_VERSION_COUNTER_NAME);
+	}
+
+	@Test
+	public void testWorkerLoadsReadWithTheWorkers() {
+		WorkerNode worker = createWorker("w1", "group1");
+		worker.setLoad(new WorkerLoad(4, 2, 8, 0));
+		when(workerNodeRepository.findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false)).thenReturn(Arrays.asList(worker));
+		when(versionService.getCurrentVersion(VersionService.WORKERS_VERSION_COUNTER_NAME)).thenReturn(1L);
+		workerNodeCache.readGroupWorkersMapActiveAndRunning();
+
+		Assert.assertEquals(new WorkerLoad(4, 2, 8, 0), workerNodeCache.readWorkersLoadActiveAndRunning().get("w1"));
+		Assert.assertEquals(0, workerNodeCache.getWorkerLoadReads());
+		verify(workerNodeRepository, times(1)).findByActiveAndStatusAndDeleted(true, WorkerStatus.RUNNING, false);
+
+		// a local change drops the loads too
+		workerNodeCache.changed();
+		workerNodeCache.readWorkersLoadActiveAndRunning();
+		Assert.assertEquals(1, workerNodeCache.getWorkerLoadReads());
+	}
+
+	private WorkerNode createWorker(String uuid, String group) {
+		WorkerNode worker = new WorkerNode();
+		worker.setUuid(uuid);
+		worker.setGroups(Collections.singletonList(group));
+		return worker;
+	}
+}
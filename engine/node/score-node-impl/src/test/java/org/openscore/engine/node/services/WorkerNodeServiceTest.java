@@ -10,8 +10,10 @@
 
 package org.openscore.engine.node.services;
 
+import com.google.common.collect.Multimap;
 import org.openscore.api.nodes.WorkerStatus;
 import org.openscore.engine.data.SimpleHiloIdentifierGenerator;
+import org.openscore.engine.node.entities.WorkerLoad;
 import org.openscore.engine.node.entities.WorkerNode;
 import org.openscore.engine.node.repositories.WorkerNodeRepository;
 import org.openscore.engine.versioning.services.VersionService;
@@ -105,6 +107,17 @@ public class WorkerNodeServiceTest {
 
 	}
 
+	@Test
+	public void keepAliveWithLoad() throws Exception {
+        when(versionService.getCurrentVersion(anyString())).thenReturn(5L);
+
+		workerNodeService.keepAlive("H1", new WorkerLoad(3, 1, 4, 10));
+		workerNodeService.keepAlive("H1");
+		workerNodeRepository.flush();
+		WorkerNode worker = workerNodeService.readByUUID("H1");
+		Assert.assertEquals(new WorkerLoad(3, 1, 4, 10), worker.getLoad());
+	}
+
 	@Test
 	public void createNode() throws Exception {
 		workerNodeService.create("H3", "H3", "amit.levin", "c:/dir");
@@ -248,6 +261,32 @@ public class WorkerNodeServiceTest {
         Assert.assertEquals("123", worker.getBulkNumber());
     }
 
+    @Test
+    public void updateBulkNumberIfNew() {
+        workerNodeService.updateWRV("H1", "1");
+
+        Assert.assertTrue(workerNodeService.updateBulkNumberIfNew("H1", "1", "123"));
+        Assert.assertFalse(workerNodeService.updateBulkNumberIfNew("H1", "1", "123"));
+        Assert.assertFalse(workerNodeService.updateBulkNumberIfNew("H1", "0", "124"));
+        Assert.assertTrue(workerNodeService.updateBulkNumberIfNew("H1", "1", "124"));
+    }
+
+	@Test
+	public void readGroupWorkersMapFollowsChanges() {
+		workerNodeService.activate("H1");
+		workerNodeService.updateStatus("H1", WorkerStatus.RUNNING);
+		workerNodeService.updateWorkerGroups("H1", "group 1");
+		Assert.assertEquals(Arrays.asList("H1"), workerNodeService.readGroupWorkersMapActiveAndRunning().get("group 1"));
+
+		workerNodeService.updateWorkerGroups("H1", "group 2");
+		Multimap<String, String> groupWorkers = workerNodeService.readGroupWorkersMapActiveAndRunning();
+		Assert.assertTrue(groupWorkers.get("group 1").isEmpty());
+		Assert.assertEquals(Arrays.asList("H1"), groupWorkers.get("group 2"));
+
+		workerNodeService.deactivate("H1");
+		Assert.assertTrue(workerNodeService.readGroupWorkersMapActiveAndRunning().isEmpty());
+	}
+
 	@Test
 	public void readAllWorkerGroups() {
 		List<String> groups = workerNodeService.readAllWorkerGroups();
@@ -359,6 +398,11 @@ public class WorkerNodeServiceTest {
 			return new WorkerNodeServiceImpl();
 		}
 
+		@Bean
+		WorkerNodeCache workerNodeCache(){
+			return new WorkerNodeCache();
+		}
+
         @Bean
         WorkerLockService workerLockService() {
             return mock(WorkerLockService.class);
@@ -0,0 +1,80 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.entities;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.openscore.engine.data.AbstractIdentifiable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * Date: 18/10/26
+ *
+ * One stripe of a counter of the admission control, the value of the counter is the sum of its stripes.
+ */
+@Entity
+@Table(name = "OO_ADMISSION_COUNTERS", uniqueConstraints = @UniqueConstraint(columnNames = {"COUNTER_NAME", "STRIPE"}))
+public class AdmissionCounter extends AbstractIdentifiable {
+
+    @Column(name = "COUNTER_NAME", nullable = false)
+    private String counterName;
+
+    @Column(name = "STRIPE", nullable = false)
+    private int stripe;
+
+    @Column(name = "COUNTER_VALUE", nullable = false)
+    private long counterValue;
+
+    private AdmissionCounter() {
+    }
+
+    public AdmissionCounter(String counterName, int stripe) {
+        this.counterName = counterName;
+        this.stripe = stripe;
+    }
+
+    public String getCounterName() {
+        return counterName;
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+
+    public long getCounterValue() {
+        return counterValue;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        AdmissionCounter that = (AdmissionCounter) o;
+        return new EqualsBuilder()
+                .append(this.counterName, that.counterName)
+                .append(this.stripe, that.stripe)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(counterName)
+                .append(stripe)
+                .toHashCode();
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.entities;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.openscore.engine.data.AbstractIdentifiable;
+import org.openscore.facade.entities.Execution;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Table;
+
+/**
+ * Date: 18/10/26
+ *
+ * A triggered execution that waits for the admission control to let it into the queue.
+ */
+@Entity
+@Table(name = "OO_PARKED_TRIGGERS")
+public class ParkedTrigger extends AbstractIdentifiable {
+
+    @Column(name = "EXECUTION_ID", nullable = false)
+    private Long executionId;
+
+    @Column(name = "FLOW_UUID")
+    private String flowUuid;
+
+    @Basic(fetch = FetchType.LAZY)
+    @Embedded
+    private ExecutionObjEntity executionObj;
+
+    private ParkedTrigger() {
+    }
+
+    public ParkedTrigger(String flowUuid, Execution executionObj) {
+        this.executionId = executionObj.getExecutionId();
+        this.flowUuid = flowUuid;
+        this.executionObj = new ExecutionObjEntity(executionObj);
+    }
+
+    public Long getExecutionId() {
+        return executionId;
+    }
+
+    public String getFlowUuid() {
+        return flowUuid;
+    }
+
+    public Execution getExecutionObj() {
+        return executionObj != null ? executionObj.getExecutionObj() : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ParkedTrigger that = (ParkedTrigger) o;
+        return new EqualsBuilder()
+                .append(this.executionId, that.executionId)
+                .append(this.flowUuid, that.flowUuid)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(executionId)
+                .append(flowUuid)
+                .toHashCode();
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.entities;
+
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.hibernate.annotations.Immutable;
+import org.openscore.engine.data.AbstractIdentifiable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Date: 18/10/26
+ *
+ * An item of a streaming split, the branch of the item is created from it when the split starts it.
+ */
+@Entity
+@Immutable
+@Table(name = "OO_SPLIT_BRANCH_ITEMS")
+public class SplitBranchItem extends AbstractIdentifiable {
+
+    @Column(name = "SPLIT_ID", nullable = false, updatable = false)
+    private String splitId;
+
+    @Column(name = "ITEM_INDEX", nullable = false, updatable = false)
+    private int itemIndex;
+
+    @Lob
+    @Column(name = "ITEM", nullable = false, updatable = false)
+    private Serializable item;
+
+    private SplitBranchItem() {
+    }
+
+    public SplitBranchItem(String splitId, int itemIndex, Serializable item) {
+        this.splitId = splitId;
+        this.itemIndex = itemIndex;
+        this.item = item;
+    }
+
+    public String getSplitId() {
+        return splitId;
+    }
+
+    public int getItemIndex() {
+        return itemIndex;
+    }
+
+    public Serializable getItem() {
+        return item;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SplitBranchItem that = (SplitBranchItem) o;
+        return new EqualsBuilder()
+                .append(this.splitId, that.splitId)
+                .append(this.itemIndex, that.itemIndex)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(splitId)
+                .append(itemIndex)
+                .toHashCode();
+    }
+}
@@ -44,6 +44,23 @@ public class SplitMessage implements Message {
         this.children = new ArrayList<>(children);
     }
 
+    /**
+     * a streaming split, the orchestrator creates the children from the branch source of the parent
+     */
+    public SplitMessage(String splitId, Execution parent) {
+        Validate.notNull(splitId, "splitId cannot be null");
+        Validate.notNull(parent, "parent cannot be null");
+        Validate.notNull(parent.getSystemContext().getBranchSource(), "cannot create a streaming split message without a branch source");
+
+        this.splitId = splitId;
+        this.parent = parent;
+        this.children = new ArrayList<>();
+    }
+
+    public boolean isStreaming() {
+        return children.isEmpty();
+    }
+
     public Execution getParent() {
         return parent;
     }
@@ -58,7 +75,8 @@ public class SplitMessage implements Message {
 
 	@Override
 	public int getWeight() {
-		return children.size() * basicSplitWeight;
+		// the children of a streaming split are not carried by the message
+		return Math.max(children.size(), 1) * basicSplitWeight;
 	}
 
 	@Override
@@ -10,10 +10,12 @@
 
 package org.openscore.orchestrator.entities;
 
+import org.openscore.api.BranchSourceDataContainer;
 import org.openscore.facade.entities.Execution;
 import org.openscore.engine.data.AbstractIdentifiable;
 
 import javax.persistence.*;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -38,6 +40,26 @@ public class SuspendedExecution extends AbstractIdentifiable {
     @Column(name= "NUMBER_OF_BRANCHES", nullable = false)
     private Integer numberOfBranches;
 
+    // decremented by the finished branches, the split is joined by the branch that takes it to 0
+    @Column(name= "REMAINING_BRANCHES", nullable = false)
+    private int remainingBranches;
+
+    // the branches of a streaming split are started as the earlier ones finish, any other split starts them all at once
+    @Column(name= "STARTED_BRANCHES", nullable = false)
+    private int startedBranches;
+
+    // the result the branch result reducer of the split folded so far, null for a split without a reducer
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "BRANCHES_RESULT")
+    private Serializable branchesResult;
+
+    // the branch source of a streaming split without its items, the items are kept in SplitBranchItem rows
+    @Lob
+    @Basic(fetch = FetchType.LAZY)
+    @Column(name = "BRANCH_SOURCE")
+    private BranchSourceDataContainer branchSource;
+
     @Basic(fetch = FetchType.LAZY)
     @Embedded
     private ExecutionObjEntity executionObj;
@@ -52,6 +74,8 @@ public class SuspendedExecution extends AbstractIdentifiable {
         this.executionId = executionId;
         this.splitId = splitId;
         this.numberOfBranches = numberOfBranches;
+        this.remainingBranches = numberOfBranches;
+        this.startedBranches = numberOfBranches;
         this.executionObj = new ExecutionObjEntity(executionObj);
     }
 
@@ -79,6 +103,38 @@ public class SuspendedExecution extends AbstractIdentifiable {
         this.numberOfBranches = numberOfBranches;
     }
 
+    public int getRemainingBranches() {
+        return remainingBranches;
+    }
+
+    public void setRemainingBranches(int remainingBranches) {
+        this.remainingBranches = remainingBranches;
+    }
+
+    public int getStartedBranches() {
+        return startedBranches;
+    }
+
+    public void setStartedBranches(int startedBranches) {
+        this.startedBranches = startedBranches;
+    }
+
+    public Serializable getBranchesResult() {
+        return branchesResult;
+    }
+
+    public void setBranchesResult(Serializable branchesResult) {
+        this.branchesResult = branchesResult;
+    }
+
+    public BranchSourceDataContainer getBranchSource() {
+        return branchSource;
+    }
+
+    public void setBranchSource(BranchSourceDataContainer branchSource) {
+        this.branchSource = branchSource;
+    }
+
     public Execution getExecutionObj() {
         if  (executionObj == null)
             return null;
@@ -0,0 +1,59 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.services;
+
+import org.openscore.facade.entities.Execution;
+
+/**
+ * Date: 18/10/26
+ *
+ * Limits the executions score runs and the steps it holds in its queue, globally and per flow.
+ * A trigger over the limits is rejected, waits for capacity, or is parked until capacity frees up,
+ * as the admission.policy property selects.
+ */
+public interface AdmissionControlService {
+
+    /**
+     *
+     * @return true if any of the admission limits is set, with no limits every execution is admitted
+     */
+    boolean isEnabled();
+
+    /**
+     *
+     * admits a new execution, the admitted execution is counted as running until it finishes
+     *
+     * @param execution the execution of the trigger, its parent execution state already exists
+     * @param flowUuid the uuid of the triggered flow
+     * @return true if the execution is admitted and can be enqueued, false if it was parked
+     * @throws org.openscore.exceptions.TriggerRejectedException if the execution is over the limits and cannot wait
+     */
+    boolean admit(Execution execution, String flowUuid);
+
+    /**
+     *
+     * stops counting a finished execution as running
+     *
+     * @param executionId the id of the finished parent execution
+     * @param admittedFlowUuid the flow uuid the execution was counted for when admitted, null if it was not counted
+     */
+    void executionFinished(Long executionId, String admittedFlowUuid);
+
+    /**
+     *
+     * enqueues the oldest parked executions that fit in the limits
+     *
+     * @param maxSize max number of parked executions to go over
+     * @return the number of parked executions that were gone over
+     */
+    int releaseParkedTriggers(int maxSize);
+}
@@ -63,6 +63,13 @@ public interface ExecutionStateService {
      */
     public ExecutionState createParentExecution(Long executionId);
 
+    /**
+     * Creates new parent executions with the specified execution ids, in one batch
+     *
+     * @param executionIds ids of the executions
+     */
+    public void createParentExecutions(List<Long> executionIds);
+
     /**
      * Creates a new execution state object
      *
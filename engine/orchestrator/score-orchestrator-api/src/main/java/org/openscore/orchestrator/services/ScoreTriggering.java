@@ -12,6 +12,8 @@ package org.openscore.orchestrator.services;
 
 import org.openscore.api.TriggeringProperties;
 
+import java.util.List;
+
 /**
  * User: wahnonm
  * Date: 27/01/14
@@ -35,4 +37,15 @@ interface ScoreTriggering {
      * @return the execution ID
      */
     Long trigger(Long executionId, TriggeringProperties triggeringProperties);
+
+    /**
+     * Trigger many flows in one batch & return their execution IDs.
+     * With no admission limits the bulk is triggered in one transaction, as before.
+     * With admission limits each trigger is admitted on its own, a trigger rejected by the limits does not fail the others.
+     * Note that its execution ID is null, before the admission limits every returned ID was set.
+     *
+     * @param triggeringPropertiesList the properties of each of the triggers, the triggers of the same execution plan object resolve it once
+     * @return the execution IDs, in the order of the triggering properties, null for a rejected trigger
+     */
+    List<Long> triggerBulk(List<TriggeringProperties> triggeringPropertiesList);
 }
@@ -0,0 +1,31 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.repositories;
+
+import org.openscore.orchestrator.entities.AdmissionCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Date: 18/10/26
+ */
+public interface AdmissionCounterRepository extends JpaRepository<AdmissionCounter, Long> {
+
+    @Modifying
+    @Query("update AdmissionCounter c set c.counterValue=c.counterValue+:delta where c.counterName = :counterName and c.stripe = :stripe")
+    int addToCounter(@Param("counterName") String counterName, @Param("stripe") int stripe, @Param("delta") long delta);
+
+    @Query("select coalesce(sum(c.counterValue), 0) from AdmissionCounter c where c.counterName = :counterName")
+    long sumCounter(@Param("counterName") String counterName);
+}
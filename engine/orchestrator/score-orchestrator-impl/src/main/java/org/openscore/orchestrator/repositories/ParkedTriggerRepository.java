@@ -0,0 +1,35 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.repositories;
+
+import org.openscore.orchestrator.entities.ParkedTrigger;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ */
+public interface ParkedTriggerRepository extends JpaRepository<ParkedTrigger, Long> {
+
+    @Query("select p.id from ParkedTrigger p order by p.id")
+    List<Long> findOldestIds(Pageable pageRequest);
+
+    // the trigger is released by the orchestrator that deleted it
+    @Modifying
+    @Query("delete from ParkedTrigger p where p.id = :id")
+    int deleteParkedTrigger(@Param("id") Long id);
+}
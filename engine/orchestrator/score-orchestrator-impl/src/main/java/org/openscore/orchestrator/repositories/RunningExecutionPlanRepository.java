@@ -39,6 +39,9 @@ public interface RunningExecutionPlanRepository extends JpaRepository<RunningExe
 	RunningExecutionPlan getExecution(@Param("flowId") String flowId, @Param("exeId") Long exeId);
 
 
+	@Query("select r.id from RunningExecutionPlan r where r.fingerprint = :fingerprint order by r.id")
+	List<Long> findIdsByFingerprint(@Param("fingerprint") String fingerprint);
+
 	@Query("select executionPlanZipped from RunningExecutionPlan r where r.id = :exeId")
 	byte[] getZippedExecutionPlan(@Param("exeId") Long exeId);
 }
@@ -0,0 +1,35 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.repositories;
+
+import org.openscore.orchestrator.entities.SplitBranchItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ */
+public interface SplitBranchItemRepository extends JpaRepository<SplitBranchItem, Long> {
+
+    // the items of the branches from the given index until the end index (exclusive)
+    @Query("select i.item from SplitBranchItem i where i.splitId = :splitId and i.itemIndex >= :fromIndex and i.itemIndex < :toIndex order by i.itemIndex")
+    List<Serializable> findItems(@Param("splitId") String splitId, @Param("fromIndex") int fromIndex, @Param("toIndex") int toIndex);
+
+    @Modifying
+    @Query("delete from SplitBranchItem i where i.splitId in :splitIds")
+    int deleteBySplitIdIn(@Param("splitIds") List<String> splitIds);
+}
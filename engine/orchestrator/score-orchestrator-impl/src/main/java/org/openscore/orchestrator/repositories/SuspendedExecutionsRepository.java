@@ -13,7 +13,9 @@ package org.openscore.orchestrator.repositories;
 import org.openscore.orchestrator.entities.SuspendedExecution;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -28,4 +30,8 @@ public interface SuspendedExecutionsRepository extends JpaRepository<SuspendedEx
 
     @Query("from SuspendedExecution se where se.numberOfBranches=size(se.finishedBranches)")
     public List<SuspendedExecution> findFinishedSuspendedExecutions(Pageable pageRequest);
+
+    @Modifying
+    @Query("update SuspendedExecution se set se.remainingBranches=se.remainingBranches-:finishedBranches where se.splitId = :splitId")
+    public int decrementRemainingBranches(@Param("splitId") String splitId, @Param("finishedBranches") int finishedBranches);
 }
@@ -0,0 +1,350 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.services;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.openscore.engine.node.entities.WorkerNode;
+import org.openscore.engine.queue.entities.ExecStatus;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.services.ExecutionQueueService;
+import org.openscore.engine.queue.services.QueueDispatcherService;
+import org.openscore.exceptions.TriggerRejectedException;
+import org.openscore.facade.entities.Execution;
+import org.openscore.orchestrator.entities.AdmissionCounter;
+import org.openscore.orchestrator.entities.ParkedTrigger;
+import org.openscore.orchestrator.repositories.AdmissionCounterRepository;
+import org.openscore.orchestrator.repositories.ParkedTriggerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Date: 18/10/26
+ *
+ * The running executions are counted in striped rows, so triggers and finished executions on many orchestrators
+ * do not queue up on a single row, and the queue depth is the one the queue tracks on every enqueue.
+ * The limits are checked before the execution is counted, so concurrent triggers may pass a limit by a few executions.
+ * The counters are updated in short transactions of their own, so the stripe rows are not locked for the rest of the
+ * caller transaction, and the update is undone if the caller transaction rolls back.
+ */
+public final class AdmissionControlServiceImpl implements AdmissionControlService {
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    enum Policy {REJECT, BLOCK, PARK}
+
+    static final String RUNNING_COUNTER = "RUNNING";
+
+    static final String FLOW_RUNNING_COUNTER = "RUNNING:";
+
+    private static final int COUNTER_STRIPES = 8;
+
+    @Autowired
+    private AdmissionCounterRepository counterRepository;
+
+    @Autowired
+    private ParkedTriggerRepository parkedTriggerRepository;
+
+    @Autowired
+    private ExecutionQueueService executionQueueService;
+
+    @Autowired
+    private QueueDispatcherService queueDispatcher;
+
+    @Autowired
+    private ExecutionMessageConverter executionMessageConverter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long runningMax;
+
+    private long flowRunningMax;
+
+    private Map<String, Long> flowRunningLimits;
+
+    private long queueDepthMax;
+
+    private Policy policy;
+
+    private long blockTimeout;
+
+    private long blockInterval;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        runningMax = Long.getLong("admission.running.max", 0L);
+        flowRunningMax = Long.getLong("admission.flow.running.max", 0L);
+        flowRunningLimits = parseLimits(System.getProperty("admission.flow.running.limits", ""));
+        queueDepthMax = Long.getLong("admission.queue.depth.max", 0L);
+        policy = Policy.valueOf(System.getProperty("admission.policy", Policy.REJECT.name()).toUpperCase());
+        blockTimeout = Long.getLong("admission.block.timeout", 30000L);
+        blockInterval = Long.getLong("admission.block.interval", 200L);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (queueDepthMax > 0 && !Boolean.getBoolean("queue.depth.tracking")) {
+            logger.warn("admission.queue.depth.max is ignored, the queue depth is tracked only when queue.depth.tracking is set");
+        }
+    }
+
+    // flow uuid=max running executions, separated by commas
+    static Map<String, Long> parseLimits(String limits) {
+        Map<String, Long> result = new HashMap<>();
+        for (String limit : StringUtils.split(limits, ',')) {
+            String[] pair = StringUtils.split(limit, '=');
+            if (pair.length == 2) {
+                result.put(pair[0].trim(), Long.valueOf(pair[1].trim()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return runningMax > 0 || flowRunningMax > 0 || !flowRunningLimits.isEmpty() || queueDepthMax > 0;
+    }
+
+    @Override
+    public boolean admit(final Execution execution, final String flowUuid) {
+        if (!isEnabled())
+            return true;
+        if (tryAdmit(execution, flowUuid))
+            return true;
+
+        switch (policy) {
+            case PARK:
+                park(execution, flowUuid);
+                return false;
+            case BLOCK:
+                waitForCapacity(execution, flowUuid);
+                return true;
+            default:
+                throw new TriggerRejectedException("Execution " + execution.getExecutionId() + " of flow " + flowUuid + " is over the admission limits");
+        }
+    }
+
+    private boolean tryAdmit(final Execution execution, final String flowUuid) {
+        boolean admitted = transactionTemplate.execute(new TransactionCallback<Boolean>() {
+            @Override
+            public Boolean doInTransaction(TransactionStatus status) {
+                return countRunning(execution, flowUuid);
+            }
+        });
+        if (admitted) {
+            final String admittedFlowUuid = execution.getSystemContext().getAdmittedFlowUuid();
+            afterRollback(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    addToRunning(admittedFlowUuid, -1);
+                }
+            });
+        }
+        return admitted;
+    }
+
+    private boolean countRunning(Execution execution, String flowUuid) {
+        if (!hasCapacity(flowUuid))
+            return false;
+
+        String admittedFlowUuid = flowUuid != null ? flowUuid : "";
+        addToRunning(admittedFlowUuid, 1);
+        execution.getSystemContext().setAdmittedFlowUuid(admittedFlowUuid);
+        return true;
+    }
+
+    private void addToRunning(String admittedFlowUuid, long delta) {
+        addToCounter(RUNNING_COUNTER, delta);
+        if (!admittedFlowUuid.isEmpty()) {
+            addToCounter(FLOW_RUNNING_COUNTER + admittedFlowUuid, delta);
+        }
+    }
+
+    private boolean hasCapacity(String flowUuid) {
+        if (runningMax > 0 && counterRepository.sumCounter(RUNNING_COUNTER) >= runningMax)
+            return false;
+
+        long flowMax = flowRunningMax(flowUuid);
+        if (flowMax > 0 && counterRepository.sumCounter(FLOW_RUNNING_COUNTER + flowUuid) >= flowMax)
+            return false;
+
+        return queueDepthMax <= 0 || executionQueueService.getQueueDepth() < queueDepthMax;
+    }
+
+    private long flowRunningMax(String flowUuid) {
+        if (flowUuid == null)
+            return 0;
+        Long flowMax = flowRunningLimits.get(flowUuid);
+        return flowMax != null ? flowMax : flowRunningMax;
+    }
+
+    private void waitForCapacity(Execution execution, String flowUuid) {
+        long deadline = System.currentTimeMillis() + blockTimeout;
+        try {
+            do {
+                Thread.sleep(blockInterval);
+                if (tryAdmit(execution, flowUuid))
+                    return;
+            } while (System.currentTimeMillis() < deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new TriggerRejectedException("Execution " + execution.getExecutionId() + " of flow " + flowUuid + " waited " + blockTimeout + " ms for the admission limits");
+    }
+
+    private void park(final Execution execution, final String flowUuid) {
+        final Long parkedTriggerId = transactionTemplate.execute(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                return parkedTriggerRepository.save(new ParkedTrigger(flowUuid, execution)).getId();
+            }
+        });
+        // the parent execution state of a rolled back trigger does not exist
+        afterRollback(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                parkedTriggerRepository.deleteParkedTrigger(parkedTriggerId);
+            }
+        });
+        if (logger.isDebugEnabled()) logger.debug("Execution " + execution.getExecutionId() + " of flow " + flowUuid + " is parked");
+    }
+
+    @Override
+    public void executionFinished(Long executionId, final String admittedFlowUuid) {
+        if (admittedFlowUuid == null)
+            return;
+
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                addToRunning(admittedFlowUuid, -1);
+            }
+        });
+        // the finished message is handled again after a rollback
+        afterRollback(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                addToRunning(admittedFlowUuid, 1);
+            }
+        });
+        if (logger.isDebugEnabled()) logger.debug("Execution " + executionId + " of flow " + admittedFlowUuid + " is no longer counted as running");
+    }
+
+    private void afterRollback(final TransactionCallbackWithoutResult compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK)
+                    return;
+                try {
+                    transactionTemplate.execute(compensation);
+                } catch (RuntimeException ex) {
+                    logger.error("Failed to undo the admission of a rolled back transaction", ex);
+                }
+            }
+        });
+    }
+
+    @Override
+    public int releaseParkedTriggers(final int maxSize) {
+        List<Long> ids = transactionTemplate.execute(new TransactionCallback<List<Long>>() {
+            @Override
+            public List<Long> doInTransaction(TransactionStatus status) {
+                return parkedTriggerRepository.findOldestIds(new PageRequest(0, maxSize));
+            }
+        });
+
+        // a flow at its limit does not hold back the parked executions of other flows
+        int released = 0;
+        for (Long id : ids) {
+            if (releaseParkedTrigger(id)) released++;
+        }
+        if (logger.isDebugEnabled() && released > 0) logger.debug("Released " + released + " of " + ids.size() + " parked executions");
+        return ids.size();
+    }
+
+    private boolean releaseParkedTrigger(final Long id) {
+        return transactionTemplate.execute(new TransactionCallback<Boolean>() {
+            @Override
+            public Boolean doInTransaction(TransactionStatus status) {
+                ParkedTrigger parkedTrigger = parkedTriggerRepository.findOne(id);
+                // released by another orchestrator
+                if (parkedTrigger == null || parkedTriggerRepository.deleteParkedTrigger(id) != 1)
+                    return false;
+
+                Execution execution = parkedTrigger.getExecutionObj();
+                if (!countRunning(execution, parkedTrigger.getFlowUuid())) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                queueDispatcher.dispatch(Arrays.asList(createExecutionMessage(execution)));
+                return true;
+            }
+        });
+    }
+
+    private ExecutionMessage createExecutionMessage(Execution execution) {
+        return new ExecutionMessage(ExecutionMessage.EMPTY_EXEC_STATE_ID,
+                ExecutionMessage.EMPTY_WORKER,
+                WorkerNode.DEFAULT_WORKER_GROUPS[0],
+                String.valueOf(execution.getExecutionId()),
+                ExecStatus.PENDING,
+                executionMessageConverter.createPayload(execution),
+                0).setPriority(execution.getSystemContext().getPriority());
+    }
+
+    private void addToCounter(String counterName, long delta) {
+        int stripe = ThreadLocalRandom.current().nextInt(COUNTER_STRIPES);
+        if (counterRepository.addToCounter(counterName, stripe, delta) == 0) {
+            createCounter(counterName);
+            counterRepository.addToCounter(counterName, stripe, delta);
+        }
+    }
+
+    // the stripes are created in their own transaction, so a counter created by another orchestrator does not fail this one
+    private void createCounter(final String counterName) {
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    for (int stripe = 0; stripe < COUNTER_STRIPES; stripe++) {
+                        counterRepository.save(new AdmissionCounter(counterName, stripe));
+                    }
+                    counterRepository.flush();
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (logger.isDebugEnabled()) logger.debug("Counter " + counterName + " was created by another orchestrator");
+        }
+    }
+}
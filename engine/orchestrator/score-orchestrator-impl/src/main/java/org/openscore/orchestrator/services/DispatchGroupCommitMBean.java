@@ -0,0 +1,83 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.orchestrator.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Date: 18/10/26
+ */
+@ManagedResource(description = "Group commit of worker dispatches")
+public class DispatchGroupCommitMBean {
+
+	@Autowired
+	private DispatchGroupCommitter groupCommitter;
+
+	@ManagedAttribute(description = "True when the dispatches are committed in groups")
+	public boolean isEnabled() {
+		return groupCommitter.isEnabled();
+	}
+
+	@ManagedAttribute(description = "Milliseconds a group waits for more dispatches")
+	public long getWindowMillis() {
+		return groupCommitter.getWindowMillis();
+	}
+
+	@ManagedAttribute(description = "Max number of dispatches that are committed in one group")
+	public int getMaxRequests() {
+		return groupCommitter.getMaxRequests();
+	}
+
+	@ManagedAttribute(description = "Number of dispatches that wait for a group")
+	public int getPendingRequests() {
+		return groupCommitter.getPendingRequests();
+	}
+
+	@ManagedAttribute(description = "Number of committed groups")
+	public long getGroups() {
+		return groupCommitter.getGroups();
+	}
+
+	@ManagedAttribute(description = "Average number of dispatches in a group")
+	public double getAverageGroupSize() {
+		long groups = groupCommitter.getGroups();
+		return groups == 0 ? 0 : (double) groupCommitter.getRequests() / groups;
+	}
+
+	@ManagedAttribute(description = "Largest group that was committed")
+	public long getMaxGroupSize() {
+		return groupCommitter.getMaxGroupSize();
+	}
+
+	@ManagedAttribute(description = "Average group commit time in microseconds")
+	public long getAverageCommitMicros() {
+		long groups = groupCommitter.getGroups();
+		return groups == 0 ? 0 : groupCommitter.getCommitNanos() / groups / 1000;
+	}
+
+	@ManagedAttribute(description = "Max group commit time in microseconds")
+	public long getMaxCommitMicros() {
+		return groupCommitter.getMaxCommitNanos() / 1000;
+	}
+
+	@ManagedAttribute(description = "Number of groups that failed and were committed one dispatch at a time")
+	public long getFailedGroups() {
+		return groupCommitter.getFailedGroups();
+	}
+
+	@ManagedOperation(description = "Resets the group commit statistics")
+	public void resetStatistics() {
+		groupCommitter.resetStatistics();
+	}
+}
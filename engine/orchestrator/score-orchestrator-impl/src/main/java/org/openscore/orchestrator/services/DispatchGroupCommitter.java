@@ -0,0 +1,279 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.orchestrator.services;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Date: 18/10/26
+ *
+ * Coalesces the dispatches of many workers that arrive within a short window into one transaction.
+ *
+ * A dispatching thread that gets a commit permit becomes the leader of a group: it waits for the window,
+ * takes up to max requests from the pending ones and commits them together, while the other threads wait for their request to be done.
+ * The requests of a group are handled in worker order so that two groups lock the workers in the same order.
+ * If the group transaction fails every request of the group is committed again on its own, so one bad bulk does not fail the others.
+ */
+public class DispatchGroupCommitter {
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    private final boolean enabled = Boolean.getBoolean("orchestrator.dispatch.group.commit");
+
+    private final long windowMillis = Long.getLong("orchestrator.dispatch.group.window", 5L);
+
+    private final int maxRequests = Integer.getInteger("orchestrator.dispatch.group.max.requests", 64);
+
+    // number of groups that can be committed at the same time
+    private final Semaphore committers = new Semaphore(Integer.getInteger("orchestrator.dispatch.group.committers", 2));
+
+    private final ConcurrentLinkedQueue<DispatchRequest> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicLong groups = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong maxGroupSize = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final AtomicLong maxCommitNanos = new AtomicLong();
+    private final AtomicLong failedGroups = new AtomicLong();
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * dispatches the request in a group, returns when the group that holds it is committed
+     */
+    public void dispatch(DispatchRequest request, GroupHandler handler) {
+        pending.add(request);
+        pendingCount.incrementAndGet();
+        try {
+            while (!request.isDone()) {
+                if (committers.tryAcquire()) {
+                    try {
+                        if (!request.isDone()) {
+                            commitGroup(handler);
+                        }
+                    } finally {
+                        committers.release();
+                    }
+                } else {
+                    request.await(Math.max(windowMillis, 1));
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the dispatch of worker " + request.getWorkerUuid(), ex);
+        }
+        request.rethrow();
+    }
+
+    private void commitGroup(GroupHandler handler) throws InterruptedException {
+        // let the other workers join the group
+        if (pendingCount.get() < maxRequests && windowMillis > 0) {
+            Thread.sleep(windowMillis);
+        }
+        List<DispatchRequest> group = new ArrayList<>(maxRequests);
+        DispatchRequest request;
+        while (group.size() < maxRequests && (request = pending.poll()) != null) {
+            pendingCount.decrementAndGet();
+            group.add(request);
+        }
+        if (group.isEmpty())
+            return;
+
+        // stable, so the bulks of the same worker keep their order
+        Collections.sort(group, new Comparator<DispatchRequest>() {
+            @Override
+            public int compare(DispatchRequest r1, DispatchRequest r2) {
+                return r1.getWorkerUuid().compareTo(r2.getWorkerUuid());
+            }
+        });
+
+        long t = System.nanoTime();
+        try {
+            commit(group, handler);
+            for (DispatchRequest done : group) {
+                done.done(null);
+            }
+        } catch (RuntimeException ex) {
+            failedGroups.incrementAndGet();
+            logger.warn("Failed to commit a group of " + group.size() + " dispatches, committing them one by one", ex);
+            for (DispatchRequest single : group) {
+                try {
+                    commit(Collections.singletonList(single), handler);
+                    single.done(null);
+                } catch (RuntimeException singleEx) {
+                    single.done(singleEx);
+                }
+            }
+        } catch (Error err) {
+            for (DispatchRequest failed : group) {
+                failed.done(err);
+            }
+            throw err;
+        }
+        record(group.size(), System.nanoTime() - t);
+    }
+
+    private void commit(final List<DispatchRequest> group, final GroupHandler handler) {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                handler.dispatch(group);
+            }
+        });
+    }
+
+    private void record(int groupSize, long nanos) {
+        groups.incrementAndGet();
+        requests.addAndGet(groupSize);
+        commitNanos.addAndGet(nanos);
+        updateMax(maxGroupSize, groupSize);
+        updateMax(maxCommitNanos, nanos);
+        if (logger.isDebugEnabled()) logger.debug("Committed a group of " + groupSize + " dispatches in " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+        }
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public int getMaxRequests() {
+        return maxRequests;
+    }
+
+    public int getPendingRequests() {
+        return pendingCount.get();
+    }
+
+    public long getGroups() {
+        return groups.get();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getMaxGroupSize() {
+        return maxGroupSize.get();
+    }
+
+    public long getCommitNanos() {
+        return commitNanos.get();
+    }
+
+    public long getMaxCommitNanos() {
+        return maxCommitNanos.get();
+    }
+
+    public long getFailedGroups() {
+        return failedGroups.get();
+    }
+
+    public void resetStatistics() {
+        groups.set(0);
+        requests.set(0);
+        maxGroupSize.set(0);
+        commitNanos.set(0);
+        maxCommitNanos.set(0);
+        failedGroups.set(0);
+    }
+
+    /**
+     * handles the requests of a group inside the group transaction
+     */
+    public interface GroupHandler {
+        void dispatch(List<DispatchRequest> group);
+    }
+
+    /**
+     * one dispatch call of a worker
+     */
+    public static class DispatchRequest {
+        private final List<? extends Serializable> messages;
+        private final String bulkNumber;
+        private final String wrv;
+        private final String workerUuid;
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile Throwable error;
+
+        public DispatchRequest(List<? extends Serializable> messages, String bulkNumber, String wrv, String workerUuid) {
+            this.messages = messages;
+            this.bulkNumber = bulkNumber;
+            this.wrv = wrv;
+            this.workerUuid = workerUuid;
+        }
+
+        public List<? extends Serializable> getMessages() {
+            return messages;
+        }
+
+        public String getBulkNumber() {
+            return bulkNumber;
+        }
+
+        public String getWrv() {
+            return wrv;
+        }
+
+        public String getWorkerUuid() {
+            return workerUuid;
+        }
+
+        boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        void await(long millis) throws InterruptedException {
+            latch.await(millis, TimeUnit.MILLISECONDS);
+        }
+
+        void done(Throwable error) {
+            this.error = error;
+            latch.countDown();
+        }
+
+        void rethrow() {
+            if (error instanceof RuntimeException)
+                throw (RuntimeException) error;
+            if (error instanceof Error)
+                throw (Error) error;
+        }
+    }
+}
@@ -10,16 +10,9 @@
 
 package org.openscore.orchestrator.services;
 
+import org.openscore.engine.queue.entities.ExecutionMessageConverter;
 import org.openscore.facade.entities.Execution;
-import org.apache.commons.io.IOUtils;
-
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * Created with IntelliJ IDEA.
@@ -29,42 +22,16 @@ import java.io.ObjectOutputStream;
  */
 public class ExecutionSerializationUtil {
 
-    public Execution objFromBytes(byte[] bytes) {
-    		ObjectInputStream ois = null;
-    		try {
-    			//2 Buffers are added to increase performance
-    			ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-    			BufferedInputStream bis = new BufferedInputStream(is);
-    			ois = new ObjectInputStream(bis);
-    			//noinspection unchecked
-    			return (Execution) ois.readObject();
-    		}
-    		catch(IOException | ClassNotFoundException ex) {
-    			throw new RuntimeException("Failed to read execution from byte[]. Error: ", ex);
-    		}
-    		finally {
-    			IOUtils.closeQuietly(ois);
-    		}
-
-    	}
+    // execution states use the same payload codecs as the queue
+    @Autowired(required = false)
+    private ExecutionMessageConverter converter = new ExecutionMessageConverter();
 
-    	public byte[] objToBytes(Execution obj){
-    		ObjectOutputStream oos;
-    		try {
-    			ByteArrayOutputStream bout = new ByteArrayOutputStream();
-    			BufferedOutputStream bos = new BufferedOutputStream(bout);
-    			oos = new ObjectOutputStream(bos);
-
-    			oos.writeObject(obj);
-    			oos.close();
+    public Execution objFromBytes(byte[] bytes) {
+        return converter.fromBytes(bytes);
+    }
 
-    			@SuppressWarnings({"UnnecessaryLocalVariable"})
-    			byte[] bytes = bout.toByteArray();
-    			return bytes;
-    		}
-    		catch(IOException ex) {
-    			throw new RuntimeException("Failed to serialize execution . Error: ", ex);
-    		}
-    	}
+    public byte[] objToBytes(Execution obj) {
+        return converter.toBytes(obj);
+    }
 
 }
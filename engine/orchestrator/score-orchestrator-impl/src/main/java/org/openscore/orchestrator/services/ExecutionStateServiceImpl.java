@@ -21,6 +21,7 @@ import org.apache.commons.lang.Validate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -75,6 +76,21 @@ public class ExecutionStateServiceImpl implements ExecutionStateService {
         return executionStateRepository.save(executionState);
     }
 
+    @Override
+    @Transactional
+    public void createParentExecutions(List<Long> executionIds) {
+        List<ExecutionState> executionStates = new ArrayList<>(executionIds.size());
+        for (Long executionId : executionIds) {
+            validateExecutionId(executionId);
+            ExecutionState executionState = new ExecutionState();
+            executionState.setExecutionId(executionId);
+            executionState.setBranchId(ExecutionState.EMPTY_BRANCH);
+            executionState.setStatus(ExecutionStatus.RUNNING);
+            executionStates.add(executionState);
+        }
+        executionStateRepository.save(executionStates);
+    }
+
     @Override
     @Transactional
     public ExecutionState createExecutionState(Long executionId, String branchId) {
@@ -10,18 +10,25 @@
 
 package org.openscore.orchestrator.services;
 
+import org.openscore.engine.node.entities.WorkerNode;
 import org.openscore.engine.node.services.WorkerLockService;
 import org.openscore.engine.node.services.WorkerNodeService;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.services.QueueDispatcherService;
 import org.openscore.orchestrator.entities.SplitMessage;
+import org.openscore.orchestrator.services.DispatchGroupCommitter.DispatchRequest;
 import org.apache.commons.lang.Validate;
 import org.apache.log4j.Logger;
 import org.hamcrest.Matchers;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -47,28 +54,70 @@ public final class OrchestratorDispatcherServiceImpl implements OrchestratorDisp
     @Autowired
     private WorkerLockService workerLockService;
 
+    @Autowired(required = false)
+    private DispatchGroupCommitter groupCommitter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final DispatchGroupCommitter.GroupHandler groupHandler = new DispatchGroupCommitter.GroupHandler() {
+        @Override
+        public void dispatch(List<DispatchRequest> group) {
+            dispatchGroup(group);
+        }
+    };
+
     @Override
-    @Transactional
     public void dispatch(List<? extends Serializable> messages, String bulkNumber, String wrv, String workerUuid) {
-        //lock to synchronize with the recovery job
-        workerLockService.lock(workerUuid);
         Validate.notNull(messages, "Messages list is null");
+        final DispatchRequest request = new DispatchRequest(messages, bulkNumber, wrv, workerUuid);
+
+        if (groupCommitter != null && groupCommitter.isEnabled()) {
+            groupCommitter.dispatch(request, groupHandler);
+        } else {
+            new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    dispatchGroup(Collections.singletonList(request));
+                }
+            });
+        }
+    }
 
-        String currentBulkNumber = workerNodeService.readByUUID(workerUuid).getBulkNumber();
-        //can not be null at this point
-        String currentWRV = workerNodeService.readByUUID(workerUuid).getWorkerRecoveryVersion();
+    /**
+     * runs inside a transaction, the requests are in worker order
+     */
+    private void dispatchGroup(List<DispatchRequest> group) {
+        List<Serializable> messages = new ArrayList<>();
+        for (DispatchRequest request : group) {
+            String workerUuid = request.getWorkerUuid();
+            String bulkNumber = request.getBulkNumber();
+            String wrv = request.getWrv();
+
+            //lock to synchronize with the recovery job
+            workerLockService.lock(workerUuid);
+
+            //the bulk number and WRV are checked by the update itself, the worker is read only when the bulk is discarded
+            if (workerNodeService.updateBulkNumberIfNew(workerUuid, wrv, bulkNumber)) {
+                messages.addAll(request.getMessages());
+                continue;
+            }
 
-        //This is done in order to make sure that if we do retries in worker we won't insert same bulk twice
-        if(currentBulkNumber!=null && currentBulkNumber.equals(bulkNumber)){
-            logger.warn("Orchestrator got messages bulk with same bulk number: " + bulkNumber + " This bulk was inserted to DB before. Discarding...");
-        }
-        //This is done in order to make sure that we are not getting messages from worker that was already recovered and does not know about it yet
-        else if(!currentWRV.equals(wrv)){
-            logger.warn("Orchestrator got messages from worker: " + workerUuid + " with wrong WRV:" + wrv + " Current WRV is: " + currentWRV +  ". Discarding...");
+            WorkerNode worker = workerNodeService.readByUUID(workerUuid);
+            String currentBulkNumber = worker.getBulkNumber();
+            String currentWRV = worker.getWorkerRecoveryVersion();
+
+            //This is done in order to make sure that if we do retries in worker we won't insert same bulk twice
+            if(currentBulkNumber!=null && currentBulkNumber.equals(bulkNumber)){
+                logger.warn("Orchestrator got messages bulk with same bulk number: " + bulkNumber + " This bulk was inserted to DB before. Discarding...");
+            }
+            //This is done in order to make sure that we are not getting messages from worker that was already recovered and does not know about it yet
+            else {
+                logger.warn("Orchestrator got messages from worker: " + workerUuid + " with wrong WRV:" + wrv + " Current WRV is: " + currentWRV +  ". Discarding...");
+            }
         }
-        else {
+        if (!messages.isEmpty()) {
             dispatch(messages);
-            workerNodeService.updateBulkNumber(workerUuid, bulkNumber);
         }
     }
 
@@ -10,6 +10,7 @@
 
 package org.openscore.orchestrator.services;
 
+import org.openscore.facade.entities.ExecutionPlanFingerprintUtil;
 import org.openscore.facade.entities.RunningExecutionPlan;
 import org.openscore.api.ExecutionPlan;
 import org.openscore.orchestrator.repositories.RunningExecutionPlanRepository;
@@ -17,6 +18,8 @@ import org.openscore.facade.services.RunningExecutionPlanService;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.CollectionUtils;
 
 import java.lang.IllegalArgumentException;
@@ -24,6 +27,8 @@ import java.lang.Long;
 import java.lang.Override;
 import java.lang.String;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by IntelliJ IDEA.
@@ -36,6 +41,9 @@ public final class RunningExecutionPlanServiceImpl implements RunningExecutionPl
     @Autowired
     private RunningExecutionPlanRepository runningExecutionPlanRepository;
 
+    // the ids of the committed running execution plans by their content fingerprint, so triggering a known plan does not read the db
+    private final Map<String, Long> idsByFingerprint = new ConcurrentHashMap<>();
+
     @Override
     @Transactional
     public RunningExecutionPlan createRunningExecutionPlan(RunningExecutionPlan runningExecutionPlan) {
@@ -55,21 +63,30 @@ public final class RunningExecutionPlanServiceImpl implements RunningExecutionPl
     @Override
     @Transactional
     public Long getOrCreateRunningExecutionPlan(ExecutionPlan executionPlan) {
-        List<RunningExecutionPlan> existingRunningPlans = readByFlowId(executionPlan.getFlowUuid());
+        String fingerprint = ExecutionPlanFingerprintUtil.getFingerprint(executionPlan);
+        Long cachedId = idsByFingerprint.get(fingerprint);
+        if (cachedId != null) {
+            return cachedId;
+        }
 
-        //If no running execution plan existsByUuid for this UUID - create new
-        if (CollectionUtils.isEmpty(existingRunningPlans)) {
-            return createNewRunningExecutionPlan(executionPlan);
+        List<Long> ids = runningExecutionPlanRepository.findIdsByFingerprint(fingerprint);
+        if (!CollectionUtils.isEmpty(ids)) {
+            cacheAfterCommit(fingerprint, ids.get(0));
+            return ids.get(0);
         }
-        //If existsByUuid - check if the plans are equal
-        else {
+
+        //The plans created before the fingerprint are compared by their content, and get the fingerprint when found equal
+        List<RunningExecutionPlan> existingRunningPlans = readByFlowId(executionPlan.getFlowUuid());
+        if (existingRunningPlans != null) {
             for (RunningExecutionPlan existingRunningPlan : existingRunningPlans) {
-                if (existingRunningPlan.getExecutionPlan().equals(executionPlan)) {
+                if (existingRunningPlan.getFingerprint() == null && existingRunningPlan.getExecutionPlan().equals(executionPlan)) {
+                    existingRunningPlan.setFingerprint(fingerprint);
+                    cacheAfterCommit(fingerprint, existingRunningPlan.getId());
                     return existingRunningPlan.getId();
                 }
             }
-            return createNewRunningExecutionPlan(executionPlan);
         }
+        return createNewRunningExecutionPlan(executionPlan, fingerprint);
     }
 
     @Override
@@ -88,13 +105,31 @@ public final class RunningExecutionPlanServiceImpl implements RunningExecutionPl
         return runningExecutionPlanRepository.findByUuidCached(flowUuid);
     }
 
-    private Long createNewRunningExecutionPlan(ExecutionPlan executionPlan) {
+    private Long createNewRunningExecutionPlan(ExecutionPlan executionPlan, String fingerprint) {
         //Create new and save in DB
         RunningExecutionPlan runningExecutionPlan = new RunningExecutionPlan();
         runningExecutionPlan.setFlowUUID(executionPlan.getFlowUuid());
         runningExecutionPlan.setExecutionPlan(executionPlan);
+        runningExecutionPlan.setFingerprint(fingerprint);
         runningExecutionPlan = createRunningExecutionPlan(runningExecutionPlan);
 
+        cacheAfterCommit(fingerprint, runningExecutionPlan.getId());
         return runningExecutionPlan.getId();
     }
+
+    /*
+        a plan is cached only once it is committed, the plan of a transaction that rolls back is not there for the next triggers
+     */
+    private void cacheAfterCommit(final String fingerprint, final Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    idsByFingerprint.put(fingerprint, id);
+                }
+            });
+        } else {
+            idsByFingerprint.put(fingerprint, id);
+        }
+    }
 }
@@ -15,6 +15,7 @@ import org.openscore.api.TriggeringProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -38,6 +39,11 @@ public class ScoreImpl implements Score {
         return scoreTriggering.trigger(triggeringProperties);
     }
 
+    @Override
+    public List<Long> triggerBulk(List<TriggeringProperties> triggeringPropertiesList) {
+        return scoreTriggering.triggerBulk(triggeringPropertiesList);
+    }
+
     @Override
     public boolean pauseExecution(Long executionId) {
         return scorePauseResume.pauseExecution(executionId);
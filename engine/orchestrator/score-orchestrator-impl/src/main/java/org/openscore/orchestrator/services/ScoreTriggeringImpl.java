@@ -19,13 +19,24 @@ import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.entities.ExecutionMessageConverter;
 import org.openscore.engine.queue.entities.Payload;
 import org.openscore.engine.queue.services.QueueDispatcherService;
+import org.openscore.exceptions.TriggerRejectedException;
 import org.openscore.facade.entities.Execution;
+import org.openscore.facade.execution.ExecutionSummary;
 import org.openscore.facade.services.RunningExecutionPlanService;
 import org.openscore.lang.SystemContext;
+import org.apache.commons.lang.Validate;
+import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -35,6 +46,8 @@ import java.util.Map;
  */
 public class ScoreTriggeringImpl implements ScoreTriggering {
 
+    private final Logger logger = Logger.getLogger(getClass());
+
     @Autowired
     private RunningExecutionPlanService runningExecutionPlanService;
 
@@ -50,6 +63,12 @@ public class ScoreTriggeringImpl implements ScoreTriggering {
     @Autowired
     private ExecutionStateService executionStateService;
 
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @Override
     public Long trigger(TriggeringProperties triggeringProperties) {
         Long executionId = idGenerator.next();
@@ -58,28 +77,139 @@ public class ScoreTriggeringImpl implements ScoreTriggering {
 
     @Override
     public Long trigger(Long executionId, TriggeringProperties triggeringProperties) {
-        SystemContext scoreSystemContext = new SystemContext(triggeringProperties.getRuntimeValues());
-        Long runningExecutionPlanId = saveRunningExecutionPlans(triggeringProperties.getExecutionPlan(), triggeringProperties.getDependencies(), scoreSystemContext);
-        scoreSystemContext.setExecutionId(executionId);
-        Execution execution = new Execution(executionId, runningExecutionPlanId, triggeringProperties.getStartStep(), triggeringProperties.getContext(), scoreSystemContext);
+        Execution execution = createExecution(executionId, triggeringProperties, new IdentityHashMap<ExecutionPlan, Long>());
 
         // create execution record in ExecutionSummary table
         executionStateService.createParentExecution(execution.getExecutionId());
 
+        // a parked execution is enqueued when the admission limits allow it
+        if (!admit(execution, triggeringProperties.getExecutionPlan().getFlowUuid()))
+            return executionId;
+
         // create execution message
         ExecutionMessage message = createExecutionMessage(execution);
         enqueue(message);
         return executionId;
     }
 
-    private Long saveRunningExecutionPlans(ExecutionPlan executionPlan, Map<String, ExecutionPlan> dependencies, SystemContext systemContext) {
+    @Override
+    public List<Long> triggerBulk(List<TriggeringProperties> triggeringPropertiesList) {
+        Validate.notNull(triggeringPropertiesList, "triggering properties cannot be null");
+        if (triggeringPropertiesList.isEmpty())
+            return new ArrayList<>();
+
+        List<Long> executionIds = idGenerator.bulk(triggeringPropertiesList.size());
+
+        // the triggers of the same plan resolve its running execution plan once
+        Map<ExecutionPlan, Long> runningPlansIds = new IdentityHashMap<>();
+        List<Execution> executions = new ArrayList<>(triggeringPropertiesList.size());
+        for (int i = 0; i < triggeringPropertiesList.size(); i++) {
+            executions.add(createExecution(executionIds.get(i), triggeringPropertiesList.get(i), runningPlansIds));
+        }
+
+        if (!admissionControlService.isEnabled()) {
+            triggerInTransaction(executionIds, executions);
+            return executionIds;
+        }
+        return triggerAdmitted(executionIds, executions, triggeringPropertiesList);
+    }
+
+    // with no admission limits every trigger is admitted, so the bulk is saved and enqueued in one transaction as a whole
+    private void triggerInTransaction(final List<Long> executionIds, final List<Execution> executions) {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                // create the execution records in ExecutionSummary table in one batch
+                executionStateService.createParentExecutions(executionIds);
+                queueDispatcher.dispatch(createExecutionMessages(executions));
+            }
+        });
+    }
+
+    /*
+        the bulk is admitted out of any transaction, each trigger in short transactions of its own, so a blocked trigger
+        holds no locks while it waits and a rejected one does not fail the rest.
+        the execution states are saved before, since a parked execution is enqueued later by another transaction.
+        the admitted executions are then enqueued in one transaction. if anything fails, the executions that were
+        neither rejected nor parked stop counting as running and their states are deleted.
+     */
+    private List<Long> triggerAdmitted(final List<Long> executionIds, List<Execution> executions, List<TriggeringProperties> triggeringPropertiesList) {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                executionStateService.createParentExecutions(executionIds);
+            }
+        });
+
+        List<Long> triggeredIds = new ArrayList<>(executions.size());
+        final List<Execution> admittedExecutions = new ArrayList<>(executions.size());
+        int rejected = 0;
+        int next = 0;
+        try {
+            for (; next < executions.size(); next++) {
+                Execution execution = executions.get(next);
+                try {
+                    if (admit(execution, triggeringPropertiesList.get(next).getExecutionPlan().getFlowUuid())) {
+                        admittedExecutions.add(execution);
+                    }
+                    triggeredIds.add(execution.getExecutionId());
+                } catch (TriggerRejectedException ex) {
+                    triggeredIds.add(null);
+                    rejected++;
+                }
+            }
+            if (!admittedExecutions.isEmpty()) {
+                new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        queueDispatcher.dispatch(createExecutionMessages(admittedExecutions));
+                    }
+                });
+            }
+        } catch (RuntimeException ex) {
+            release(admittedExecutions, executions.subList(next, executions.size()));
+            throw ex;
+        }
+        if (rejected > 0) {
+            logger.warn(rejected + " of " + executions.size() + " triggers of the bulk were rejected by the admission limits");
+        }
+        return triggeredIds;
+    }
+
+    private void release(List<Execution> admittedExecutions, List<Execution> notAdmittedExecutions) {
+        for (Execution execution : admittedExecutions) {
+            try {
+                admissionControlService.executionFinished(execution.getExecutionId(), execution.getSystemContext().getAdmittedFlowUuid());
+                executionStateService.deleteExecutionState(execution.getExecutionId(), ExecutionSummary.EMPTY_BRANCH);
+            } catch (RuntimeException ex) {
+                logger.error("Failed to release the admission of execution " + execution.getExecutionId(), ex);
+            }
+        }
+        for (Execution execution : notAdmittedExecutions) {
+            try {
+                executionStateService.deleteExecutionState(execution.getExecutionId(), ExecutionSummary.EMPTY_BRANCH);
+            } catch (RuntimeException ex) {
+                logger.error("Failed to delete the state of execution " + execution.getExecutionId(), ex);
+            }
+        }
+    }
+
+    private Execution createExecution(Long executionId, TriggeringProperties triggeringProperties, Map<ExecutionPlan, Long> runningPlansIds) {
+        SystemContext scoreSystemContext = new SystemContext(triggeringProperties.getRuntimeValues());
+        Long runningExecutionPlanId = saveRunningExecutionPlans(triggeringProperties.getExecutionPlan(), triggeringProperties.getDependencies(), scoreSystemContext, runningPlansIds);
+        scoreSystemContext.setExecutionId(executionId);
+        scoreSystemContext.setPriority(triggeringProperties.getPriority());
+        return new Execution(executionId, runningExecutionPlanId, triggeringProperties.getStartStep(), triggeringProperties.getContext(), scoreSystemContext);
+    }
+
+    private Long saveRunningExecutionPlans(ExecutionPlan executionPlan, Map<String, ExecutionPlan> dependencies, SystemContext systemContext, Map<ExecutionPlan, Long> resolvedPlansIds) {
         Map<String, Long> runningPlansIds = new HashMap<>();
         Map<String, Long> beginStepsIds = new HashMap<>();
 
         if(dependencies != null) {
             for (ExecutionPlan dependencyExecutionPlan : dependencies.values()) {
                 String subFlowUuid = dependencyExecutionPlan.getFlowUuid();
-                Long subFlowRunningId = runningExecutionPlanService.getOrCreateRunningExecutionPlan(dependencyExecutionPlan);
+                Long subFlowRunningId = getOrCreateRunningExecutionPlan(dependencyExecutionPlan, resolvedPlansIds);
                 runningPlansIds.put(subFlowUuid, subFlowRunningId);
                 beginStepsIds.put(subFlowUuid, dependencyExecutionPlan.getBeginStep());
             }
@@ -87,7 +217,7 @@ public class ScoreTriggeringImpl implements ScoreTriggering {
 
         // Adding the ids of the running execution plan of the parent + its begin step
         // since this map should contain all the ids of the running plans
-        Long runningPlanId =  runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan);
+        Long runningPlanId = getOrCreateRunningExecutionPlan(executionPlan, resolvedPlansIds);
         runningPlansIds.put(executionPlan.getFlowUuid(), runningPlanId);
         beginStepsIds.put(executionPlan.getFlowUuid(), executionPlan.getBeginStep());
 
@@ -96,10 +226,36 @@ public class ScoreTriggeringImpl implements ScoreTriggering {
         return runningPlanId;
     }
 
+    private Long getOrCreateRunningExecutionPlan(ExecutionPlan executionPlan, Map<ExecutionPlan, Long> resolvedPlansIds) {
+        Long runningPlanId = resolvedPlansIds.get(executionPlan);
+        if (runningPlanId == null) {
+            runningPlanId = runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan);
+            resolvedPlansIds.put(executionPlan, runningPlanId);
+        }
+        return runningPlanId;
+    }
+
+    private boolean admit(Execution execution, String flowUuid) {
+        try {
+            return admissionControlService.admit(execution, flowUuid);
+        } catch (TriggerRejectedException ex) {
+            executionStateService.deleteExecutionState(execution.getExecutionId(), ExecutionSummary.EMPTY_BRANCH);
+            throw ex;
+        }
+    }
+
     private void enqueue(ExecutionMessage... messages) {
         queueDispatcher.dispatch(Arrays.asList(messages));
     }
 
+    private List<ExecutionMessage> createExecutionMessages(List<Execution> executions) {
+        List<ExecutionMessage> messages = new ArrayList<>(executions.size());
+        for (Execution execution : executions) {
+            messages.add(createExecutionMessage(execution));
+        }
+        return messages;
+    }
+
     private ExecutionMessage createExecutionMessage(Execution execution) {
         Payload payload = executionMessageConverter.createPayload(execution);
 
@@ -109,6 +265,6 @@ public class ScoreTriggeringImpl implements ScoreTriggering {
                 String.valueOf(execution.getExecutionId()),
                 ExecStatus.PENDING, //start new flow also in PENDING
                 payload,
-                0);
+                0).setPriority(execution.getSystemContext().getPriority());
     }
 }
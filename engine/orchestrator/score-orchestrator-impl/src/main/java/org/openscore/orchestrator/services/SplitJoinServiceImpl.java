@@ -11,7 +11,12 @@
 package org.openscore.orchestrator.services;
 
 import ch.lambdaj.function.convert.Converter;
+import org.openscore.api.BranchResultError;
+import org.openscore.api.BranchResultReducer;
+import org.openscore.api.BranchSourceDataContainer;
 import org.openscore.api.EndBranchDataContainer;
+import org.openscore.engine.node.entities.WorkerNode;
+import org.openscore.engine.queue.entities.ExecStatus;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.entities.ExecutionMessageConverter;
 import org.openscore.engine.queue.services.QueueDispatcherService;
@@ -19,36 +24,47 @@ import org.openscore.facade.entities.Execution;
 import org.openscore.facade.execution.ExecutionStatus;
 import org.openscore.orchestrator.entities.BranchContexts;
 import org.openscore.orchestrator.entities.FinishedBranch;
+import org.openscore.orchestrator.entities.SplitBranchItem;
 import org.openscore.orchestrator.entities.SplitMessage;
 import org.openscore.orchestrator.entities.SuspendedExecution;
 import org.openscore.orchestrator.repositories.FinishedBranchRepository;
+import org.openscore.orchestrator.repositories.SplitBranchItemRepository;
 import org.openscore.orchestrator.repositories.SuspendedExecutionsRepository;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 import static ch.lambdaj.Lambda.convert;
-import static ch.lambdaj.Lambda.extract;
-import static ch.lambdaj.Lambda.on;
 
 public final class SplitJoinServiceImpl implements SplitJoinService {
     private final Logger logger = Logger.getLogger(getClass());
 
     private final Integer BULK_SIZE = Integer.getInteger("splitjoin.job.bulk.size", 200);
 
+    // the branches of a streaming split that run at once, unless its branch source sets its own maximum
+    private final Integer STREAMING_MAX_IN_FLIGHT = Integer.getInteger("splitjoin.streaming.max.in.flight", 100);
+
     @Autowired
     private SuspendedExecutionsRepository suspendedExecutionsRepository;
 
     @Autowired
     private FinishedBranchRepository finishedBranchRepository;
 
+    @Autowired
+    private SplitBranchItemRepository splitBranchItemRepository;
+
     @Autowired
     private QueueDispatcherService queueDispatcherService;
 
@@ -62,7 +78,25 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         @Override
         public ExecutionMessage convert(Execution execution) {
             return new ExecutionMessage(execution.getExecutionId().toString(),
-                    converter.createPayload(execution));
+                    converter.createPayload(execution))
+                    .setPriority(execution.getSystemContext().getPriority());
+        }
+    };
+
+    /*
+        converts an execution to a terminated execution message, for a parent whose split failed
+     */
+    private final Converter<Execution, ExecutionMessage> executionToTerminatedExecutionMessage = new Converter<Execution, ExecutionMessage>() {
+        @Override
+        public ExecutionMessage convert(Execution execution) {
+            String group = !StringUtils.isEmpty(execution.getGroupName()) ? execution.getGroupName() : WorkerNode.DEFAULT_WORKER_GROUPS[0];
+            return new ExecutionMessage(ExecutionMessage.EMPTY_EXEC_STATE_ID,
+                    ExecutionMessage.EMPTY_WORKER,
+                    group,
+                    execution.getExecutionId().toString(),
+                    ExecStatus.TERMINATED,
+                    converter.createPayload(execution),
+                    0);
         }
     };
 
@@ -89,8 +123,30 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         List<ExecutionMessage> stepFinishMessages = new ArrayList<>();
         List<ExecutionMessage> branchTriggerMessages = new ArrayList<>();
         List<SuspendedExecution> suspendedParents = new ArrayList<>();
+        List<SplitBranchItem> splitBranchItems = new ArrayList<>();
 
         for (SplitMessage splitMessage : splitMessages) {
+            if (splitMessage.isStreaming()) {
+                // a streaming split starts its first branches only, the rest are started as these finish.
+                // the items are kept in rows of their own, so the parent and its branch source are stored without them
+                Execution parent = splitMessage.getParent();
+                BranchSourceDataContainer branchSource = parent.getSystemContext().removeBranchSource();
+                SuspendedExecution suspendedParent = new SuspendedExecution(parent.getExecutionId().toString(),
+                        splitMessage.getSplitId(),
+                        branchSource.size(),
+                        parent);
+                int branchesToStart = Math.min(branchSource.size(), maxInFlight(branchSource));
+                List<Serializable> items = branchSource.getItems();
+                branchTriggerMessages.addAll(convert(createBranches(parent.getExecutionId(), branchSource, items.subList(0, branchesToStart), 0), executionToStartExecutionMessage));
+                for (int i = branchesToStart; i < items.size(); i++) {
+                    splitBranchItems.add(new SplitBranchItem(splitMessage.getSplitId(), i, items.get(i)));
+                }
+                suspendedParent.setBranchSource(branchSource.withoutItems());
+                suspendedParent.setStartedBranches(branchesToStart);
+                suspendedParents.add(suspendedParent);
+                continue;
+            }
+
             // 1. trigger all the child branches
             List<ExecutionMessage> childExecutionMessages = convert(splitMessage.getChildren(), executionToStartExecutionMessage);
             branchTriggerMessages.addAll(childExecutionMessages);
@@ -111,6 +167,9 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
 
         // save the suspended parent entities
         suspendedExecutionsRepository.save(suspendedParents);
+        if (!splitBranchItems.isEmpty()) {
+            splitBranchItemRepository.save(splitBranchItems);
+        }
     }
 
     @Override
@@ -126,10 +185,21 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
                 logger.debug("finishing branch " + execution.getSystemContext().getBranchId() + " for execution " + execution.getExecutionId());
         }
 
-        // get the split id's for a batch query
-        List<String> splitIds = extract(executions, on(Execution.class).getSystemContext().getSplitId());
+        // the remaining branches of a split are decremented once per bulk, the update locks the parent
+        // until the branches are committed, so only the last branch sees 0 remaining.
+        // the parents are locked in the order of their split ids, so two bulks of the same splits do not deadlock
+        Map<String, Integer> branchesPerSplit = new TreeMap<>();
+        for (Execution execution : executions) {
+            String splitId = execution.getSystemContext().getSplitId();
+            Integer count = branchesPerSplit.get(splitId);
+            branchesPerSplit.put(splitId, count != null ? count + 1 : 1);
+        }
+        for (Map.Entry<String, Integer> entry : branchesPerSplit.entrySet()) {
+            suspendedExecutionsRepository.decrementRemainingBranches(entry.getKey(), entry.getValue());
+        }
 
-        // fetch all suspended executions
+        // fetch all suspended executions, after the decrement
+        List<String> splitIds = new ArrayList<>(branchesPerSplit.keySet());
         List<SuspendedExecution> suspendedExecutions = suspendedExecutionsRepository.findBySplitIdIn(splitIds);
         Map<String, SuspendedExecution> suspendedMap = new HashMap<>();
         for (SuspendedExecution se : suspendedExecutions) {
@@ -148,26 +218,127 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         // create a finished branch entity for each execution
         List<FinishedBranch> finishedBranches = convert(executions, executionToFinishedBranch);
 
-        List<SuspendedExecution> suspendedExecutionsWithOneBranch = new ArrayList<>();
+        List<FinishedBranch> finishedBranchesToSave = new ArrayList<>();
+        Set<SuspendedExecution> suspendedExecutionsToJoin = new LinkedHashSet<>();
 
         // add each finished branch to it's parent
-        for (FinishedBranch finishedBranch : finishedBranches) {
-            SuspendedExecution suspendedExecution = suspendedMap.get(finishedBranch.getSplitId());
+        for (FinishedBranch branch : finishedBranches) {
+            SuspendedExecution suspendedExecution = suspendedMap.get(branch.getSplitId());
             if (suspendedExecution != null) {
+                FinishedBranch finishedBranch = reduceBranchResult(suspendedExecution, branch);
                 finishedBranch.connectToSuspendedExecution(suspendedExecution);
 
                 //this is an optimization for subflow (also works for MI with one branch :) )
                 if (suspendedExecution.getNumberOfBranches() == 1) {
-                    suspendedExecutionsWithOneBranch.add(suspendedExecution);
+                    suspendedExecutionsToJoin.add(suspendedExecution);
                 } else {
-                    finishedBranchRepository.save(finishedBranch);
+                    finishedBranchesToSave.add(finishedBranch);
+                    if (suspendedExecution.getRemainingBranches() == 0) {
+                        suspendedExecutionsToJoin.add(suspendedExecution);
+                    }
                 }
             }
         }
 
-        if (!suspendedExecutionsWithOneBranch.isEmpty()) {
-            joinAndSendToQueue(suspendedExecutionsWithOneBranch);
+        if (!finishedBranchesToSave.isEmpty()) {
+            finishedBranchRepository.save(finishedBranchesToSave);
+        }
+
+        // start the next branches of the streaming splits in place of the finished ones, the parent is still locked by the decrement
+        List<ExecutionMessage> branchTriggerMessages = new ArrayList<>();
+        for (SuspendedExecution suspendedExecution : suspendedExecutions) {
+            if (suspendedExecution.getStartedBranches() < suspendedExecution.getNumberOfBranches()) {
+                branchTriggerMessages.addAll(startNextBranches(suspendedExecution));
+            }
+        }
+        if (!branchTriggerMessages.isEmpty()) {
+            queueDispatcherService.dispatch(branchTriggerMessages);
+        }
+
+        // the parent is joined in the transaction of its last branch, the join job only picks up what is left behind
+        List<SuspendedExecution> joinedSuspendedExecutions = new ArrayList<>(suspendedExecutionsToJoin.size());
+        for (SuspendedExecution suspendedExecution : suspendedExecutionsToJoin) {
+            if (suspendedExecution.getNumberOfBranches().equals(suspendedExecution.getFinishedBranches().size())) {
+                joinedSuspendedExecutions.add(suspendedExecution);
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("Split " + suspendedExecution.getSplitId() + " has no remaining branches but not all of its finished branches, it is left to the join job");
+            }
+        }
+        if (!joinedSuspendedExecutions.isEmpty()) {
+            joinAndSendToQueue(joinedSuspendedExecutions);
+        }
+    }
+
+    /*
+        folds the result of the branch into the result of its split, if the split has a reducer.
+        the branch is then kept without its contexts, the parent is still locked by the decrement.
+        this runs in the transaction that ends the branch, so a failing reducer is kept as the error of the split
+        rather than thrown - the branch would be ended again and again otherwise
+     */
+    private FinishedBranch reduceBranchResult(SuspendedExecution suspendedExecution, FinishedBranch finishedBranch) {
+        BranchResultReducer reducer = suspendedExecution.getExecutionObj().getSystemContext().getBranchResultReducer();
+        if (reducer == null) {
+            return finishedBranch;
+        }
+
+        BranchContexts branchContexts = finishedBranch.getBranchContexts();
+        EndBranchDataContainer branchResult = new EndBranchDataContainer(branchContexts.getContexts(), branchContexts.getSystemContext(), finishedBranch.getBranchException());
+        Serializable branchesResult = suspendedExecution.getBranchesResult();
+        if (!(branchesResult instanceof BranchResultError)) {
+            try {
+                branchesResult = reducer.reduce(branchesResult, branchResult);
+            } catch (RuntimeException ex) {
+                logger.error("Failed to reduce the result of branch " + finishedBranch.getBranchId() + " of split " + suspendedExecution.getSplitId(), ex);
+                branchesResult = new BranchResultError("failed to reduce the result of branch " + finishedBranch.getBranchId() + ": " + ex);
+            }
+            if (branchesResult instanceof BranchResultError) {
+                logger.error("Split " + suspendedExecution.getSplitId() + " of execution " + suspendedExecution.getExecutionId() + " will fail on join: " + ((BranchResultError) branchesResult).getMessage());
+            }
+        }
+        suspendedExecution.setBranchesResult(branchesResult);
+
+        return new FinishedBranch(finishedBranch.getExecutionId(), finishedBranch.getBranchId(), finishedBranch.getSplitId(), finishedBranch.getBranchException(),
+                new BranchContexts(branchContexts.isBranchCancelled(), new HashMap<String, Serializable>(), new HashMap<String, Serializable>()));
+    }
+
+    private List<ExecutionMessage> startNextBranches(SuspendedExecution suspendedExecution) {
+        BranchSourceDataContainer branchSource = suspendedExecution.getBranchSource();
+        int startedBranches = suspendedExecution.getStartedBranches();
+        int runningBranches = startedBranches - (suspendedExecution.getNumberOfBranches() - suspendedExecution.getRemainingBranches());
+        int branchesToStart = Math.min(suspendedExecution.getNumberOfBranches() - startedBranches, maxInFlight(branchSource) - runningBranches);
+        if (branchesToStart <= 0) {
+            return new ArrayList<>();
+        }
+
+        Long executionId = Long.valueOf(suspendedExecution.getExecutionId());
+        if (logger.isDebugEnabled())
+            logger.debug("Starting " + branchesToStart + " more branches of split " + suspendedExecution.getSplitId() + " for execution " + executionId);
+
+        // the started branches are the cursor of the split, only the items of the branches to start are read
+        List<Serializable> items = splitBranchItemRepository.findItems(suspendedExecution.getSplitId(), startedBranches, startedBranches + branchesToStart);
+        suspendedExecution.setStartedBranches(startedBranches + items.size());
+        return convert(createBranches(executionId, branchSource, items, startedBranches), executionToStartExecutionMessage);
+    }
+
+    /*
+        creates the branches of a streaming split from its branch source, one for each of the given items from the given index
+     */
+    private static List<Execution> createBranches(Long executionId, BranchSourceDataContainer branchSource, List<Serializable> items, int fromIndex) {
+        List<Execution> branches = new ArrayList<>(items.size());
+        String splitId = branchSource.getSplitId();
+        for (int i = 0; i < items.size(); i++) {
+            Execution branch = new Execution(executionId, branchSource.getExecutionPlanId(), branchSource.getStartPosition(),
+                    branchSource.createContexts(items.get(i)), branchSource.getSystemContext());
+
+            branch.getSystemContext().setSplitId(splitId);
+            branch.getSystemContext().setBranchId(splitId + ":" + (fromIndex + i + 1));
+            branches.add(branch);
         }
+        return branches;
+    }
+
+    private int maxInFlight(BranchSourceDataContainer branchSource) {
+        return branchSource.getMaxInFlight() > 0 ? branchSource.getMaxInFlight() : STREAMING_MAX_IN_FLIGHT;
     }
 
     private Long findExecutionId(List<Execution> executions, String splitId) {
@@ -210,9 +381,18 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         if (suspendedExecutions.isEmpty())
             return 0;
 
+        List<String> streamingSplitIds = new ArrayList<>();
         for (SuspendedExecution se : suspendedExecutions) {
             Execution exec = joinSplit(se);
-            messages.add(executionToStartExecutionMessage.convert(exec));
+            // a parent whose split failed goes back to the queue as terminated, it is ended the way a canceled one is
+            if (se.getBranchesResult() instanceof BranchResultError) {
+                messages.add(executionToTerminatedExecutionMessage.convert(exec));
+            } else {
+                messages.add(executionToStartExecutionMessage.convert(exec));
+            }
+            if (se.getBranchSource() != null) {
+                streamingSplitIds.add(se.getSplitId());
+            }
         }
 
         // 3. send the suspended execution back to the queue
@@ -220,6 +400,10 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
 
         // 4. delete the suspended execution from the suspended table
         suspendedExecutionsRepository.delete(suspendedExecutions);
+        // the items of the streaming splits were all started, they are not needed after the join
+        if (!streamingSplitIds.isEmpty()) {
+            splitBranchItemRepository.deleteBySplitIdIn(streamingSplitIds);
+        }
 
         return suspendedExecutions.size();
     }
@@ -235,10 +419,15 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
         if (logger.isDebugEnabled())
             logger.debug("Joining execution " + exec.getExecutionId());
 
+        // the branches of a split with a reducer were folded as they ended, the parent gets the reduced result only
+        BranchResultReducer reducer = exec.getSystemContext().removeBranchResultReducer();
+
         boolean wasExecutionCancelled = false;
         ArrayList<EndBranchDataContainer> finishedContexts = new ArrayList<>();
         for (FinishedBranch fb : finishedBranches) {
-            finishedContexts.add(new EndBranchDataContainer(fb.getBranchContexts().getContexts(), fb.getBranchContexts().getSystemContext(), fb.getBranchException()));
+            if (reducer == null) {
+                finishedContexts.add(new EndBranchDataContainer(fb.getBranchContexts().getContexts(), fb.getBranchContexts().getSystemContext(), fb.getBranchException()));
+            }
             if (fb.getBranchContexts().isBranchCancelled()) {
                 wasExecutionCancelled = true;
             }
@@ -246,6 +435,14 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
 
         // 2. insert all of the branches into the parent execution
         exec.getSystemContext().setFinishedChildBranchesData(finishedContexts);
+        if (reducer != null) {
+            Serializable branchesResult = suspendedExecution.getBranchesResult();
+            if (branchesResult instanceof BranchResultError) {
+                failSplit(exec, (BranchResultError) branchesResult);
+            } else {
+                exec.getSystemContext().setReducedBranchesResult(branchesResult);
+            }
+        }
 
         //mark cancelled on parent
         if (wasExecutionCancelled) {
@@ -254,4 +451,14 @@ public final class SplitJoinServiceImpl implements SplitJoinService {
 
         return exec;
     }
+
+    /*
+        fails the parent of a split whose branch results could not be reduced, the way the worker fails a step
+     */
+    private void failSplit(Execution exec, BranchResultError error) {
+        logger.error("Failing execution " + exec.getExecutionId() + ", the results of its branches could not be reduced: " + error.getMessage());
+        exec.getSystemContext().setStepErrorKey("Split failed: " + error.getMessage());
+        exec.getSystemContext().setFlowTerminationType(ExecutionStatus.SYSTEM_FAILURE);
+        exec.setPosition(null);
+    }
 }
@@ -13,6 +13,7 @@ package org.openscore.orchestrator.repositories;
 import org.openscore.facade.entities.Execution;
 import org.openscore.orchestrator.entities.BranchContexts;
 import org.openscore.orchestrator.entities.FinishedBranch;
+import org.openscore.orchestrator.entities.SplitBranchItem;
 import org.openscore.orchestrator.entities.SuspendedExecution;
 import org.openscore.orchestrator.services.ExecutionSerializationUtil;
 import org.openscore.engine.data.DataBaseDetector;
@@ -32,8 +33,11 @@ import org.springframework.test.context.transaction.TransactionConfiguration;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -56,9 +60,15 @@ public class SuspendedExecutionsRepositoryTest {
     @Autowired
     FinishedBranchRepository finishedBranchRepository;
 
+    @Autowired
+    SplitBranchItemRepository splitBranchItemRepository;
+
     @Autowired
     ExecutionSerializationUtil executionSerializationUtil;
 
+    @PersistenceContext
+    EntityManager entityManager;
+
     @Test
     public void simpleCreateAndReadTest(){
 
@@ -167,6 +177,38 @@ public class SuspendedExecutionsRepositoryTest {
     }
 
 
+    @Test
+    public void decrementRemainingBranchesTest(){
+
+        Map<String, String> contexts = new HashMap<>();
+        contexts.put("flowContext", "");
+        Execution exec = new Execution(2L, 0L, contexts);
+        repository.save(new SuspendedExecution("111", "888", 3, exec));
+
+        Assert.assertEquals(1, repository.decrementRemainingBranches("888", 2));
+        Assert.assertEquals(0, repository.decrementRemainingBranches("999", 1));
+        // the split is read again from the db, like a branch that finishes in a new transaction
+        entityManager.clear();
+
+        List<String> list = new ArrayList<>();
+        list.add("888");
+        Assert.assertEquals(1, repository.findBySplitIdIn(list).get(0).getRemainingBranches());
+    }
+
+    @Test
+    public void splitBranchItemsTest(){
+        List<SplitBranchItem> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(new SplitBranchItem("888", i, "item" + i));
+        }
+        items.add(new SplitBranchItem("999", 0, "other"));
+        splitBranchItemRepository.save(items);
+
+        Assert.assertEquals(Arrays.<Serializable>asList("item2", "item3"), splitBranchItemRepository.findItems("888", 2, 4));
+        Assert.assertEquals(5, splitBranchItemRepository.deleteBySplitIdIn(Arrays.asList("888")));
+        Assert.assertEquals(1, splitBranchItemRepository.count());
+    }
+
     @Configuration
     @EnableJpaRepositories("org.openscore.orchestrator")
     @EnableTransactionManagement
@@ -0,0 +1,220 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.orchestrator.services;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openscore.engine.data.DataBaseDetector;
+import org.openscore.engine.data.SqlUtils;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.services.ExecutionQueueService;
+import org.openscore.engine.queue.services.QueueDispatcherService;
+import org.openscore.exceptions.TriggerRejectedException;
+import org.openscore.facade.entities.Execution;
+import org.openscore.orchestrator.repositories.AdmissionCounterRepository;
+import org.openscore.orchestrator.repositories.ParkedTriggerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportResource;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Date: 18/10/26
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class AdmissionControlServiceTest {
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
+    @Autowired
+    private AdmissionCounterRepository counterRepository;
+
+    @Autowired
+    private ParkedTriggerRepository parkedTriggerRepository;
+
+    @Autowired
+    private QueueDispatcherService queueDispatcher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeClass
+    public static void setLimits() {
+        System.setProperty("admission.running.max", "2");
+        System.setProperty("admission.flow.running.limits", "flowA=1");
+        System.setProperty("admission.policy", "park");
+    }
+
+    @AfterClass
+    public static void clearLimits() {
+        System.clearProperty("admission.running.max");
+        System.clearProperty("admission.flow.running.limits");
+        System.clearProperty("admission.policy");
+    }
+
+    @Before
+    public void setUp() {
+        reset(queueDispatcher);
+    }
+
+    @After
+    public void cleanUp() {
+        counterRepository.deleteAll();
+        parkedTriggerRepository.deleteAll();
+    }
+
+    @Test
+    public void parkedOverTheLimits() {
+        assertTrue(admissionControlService.admit(createExecution(1L), "flowA"));
+        assertFalse("flowA runs as many executions as it may", admissionControlService.admit(createExecution(2L), "flowA"));
+        assertTrue(admissionControlService.admit(createExecution(3L), "flowB"));
+        assertFalse("score runs as many executions as it may", admissionControlService.admit(createExecution(4L), "flowB"));
+
+        assertEquals(2, counterRepository.sumCounter(AdmissionControlServiceImpl.RUNNING_COUNTER));
+        assertEquals(1, counterRepository.sumCounter(AdmissionControlServiceImpl.FLOW_RUNNING_COUNTER + "flowA"));
+        assertEquals(2, parkedTriggerRepository.count());
+    }
+
+    @Test
+    public void parkedReleasedAsExecutionsFinish() {
+        Execution first = createExecution(1L);
+        admissionControlService.admit(first, "flowA");
+        admissionControlService.admit(createExecution(2L), "flowA");
+        admissionControlService.admit(createExecution(3L), "flowB");
+        admissionControlService.admit(createExecution(4L), "flowB");
+
+        admissionControlService.executionFinished(1L, first.getSystemContext().getAdmittedFlowUuid());
+        assertEquals(2, admissionControlService.releaseParkedTriggers(10));
+
+        // the oldest parked execution takes the freed capacity
+        verify(queueDispatcher, times(1)).dispatch(anyListOf(ExecutionMessage.class));
+        assertEquals(1, parkedTriggerRepository.count());
+        assertEquals(Long.valueOf(4L), parkedTriggerRepository.findAll().get(0).getExecutionId());
+        assertEquals(2, counterRepository.sumCounter(AdmissionControlServiceImpl.RUNNING_COUNTER));
+    }
+
+    @Test
+    public void notCountedExecutionFinished() {
+        admissionControlService.executionFinished(1L, null);
+
+        assertEquals(0, counterRepository.sumCounter(AdmissionControlServiceImpl.RUNNING_COUNTER));
+    }
+
+    @Test
+    public void admissionUndoneWhenTriggerRollsBack() {
+        new TransactionTemplate(transactionManager).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                assertTrue(admissionControlService.admit(createExecution(1L), "flowA"));
+                assertFalse(admissionControlService.admit(createExecution(2L), "flowA"));
+                // the counter is committed in its own transaction, the trigger transaction does not lock it
+                assertEquals(1, counterRepository.sumCounter(AdmissionControlServiceImpl.RUNNING_COUNTER));
+                status.setRollbackOnly();
+            }
+        });
+
+        assertEquals(0, counterRepository.sumCounter(AdmissionControlServiceImpl.RUNNING_COUNTER));
+        assertEquals(0, counterRepository.sumCounter(AdmissionControlServiceImpl.FLOW_RUNNING_COUNTER + "flowA"));
+        assertEquals(0, parkedTriggerRepository.count());
+    }
+
+    @Test
+    public void parseLimits() {
+        Map<String, Long> limits = AdmissionControlServiceImpl.parseLimits("flowA=1, flowB=20,bad");
+
+        assertEquals(2, limits.size());
+        assertEquals(Long.valueOf(20), limits.get("flowB"));
+    }
+
+    @Test(expected = TriggerRejectedException.class)
+    public void rejectedOverTheLimits() {
+        System.setProperty("admission.policy", "reject");
+        try {
+            AdmissionControlServiceImpl rejecting = (AdmissionControlServiceImpl) admissionControlService;
+            rejecting.init();
+            rejecting.admit(createExecution(1L), "flowA");
+            rejecting.admit(createExecution(2L), "flowA");
+        } finally {
+            System.setProperty("admission.policy", "park");
+            ((AdmissionControlServiceImpl) admissionControlService).init();
+        }
+    }
+
+    private Execution createExecution(Long executionId) {
+        Map<String, Serializable> context = new HashMap<>();
+        return new Execution(executionId, 0L, 0L, context, null);
+    }
+
+    @Configuration
+    @EnableJpaRepositories("org.openscore.orchestrator")
+    @EnableTransactionManagement
+    @ImportResource("META-INF/spring/orchestratorEmfContext.xml")
+    static class Configurator {
+        @Bean
+        AdmissionControlService admissionControlService() {
+            return new AdmissionControlServiceImpl();
+        }
+
+        @Bean
+        ExecutionQueueService executionQueueService() {
+            return mock(ExecutionQueueService.class);
+        }
+
+        @Bean
+        QueueDispatcherService queueDispatcherService() {
+            return mock(QueueDispatcherService.class);
+        }
+
+        @Bean
+        ExecutionMessageConverter executionMessageConverter() {
+            return mock(ExecutionMessageConverter.class);
+        }
+
+        @Bean
+        SqlUtils sqlUtils() {
+            return new SqlUtils();
+        }
+
+        @Bean
+        DataBaseDetector dataBaseDetector() {
+            return new DataBaseDetector();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.orchestrator.services;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openscore.orchestrator.services.DispatchGroupCommitter.DispatchRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Date: 18/10/26
+ */
+public class DispatchGroupCommitterTest {
+
+    private static final int WORKERS = 20;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DispatchGroupCommitter groupCommitter;
+
+    private final List<List<String>> groups = Collections.synchronizedList(new ArrayList<List<String>>());
+
+    @Before
+    public void setUp() {
+        System.setProperty("orchestrator.dispatch.group.commit", "true");
+        System.setProperty("orchestrator.dispatch.group.window", "50");
+        System.setProperty("orchestrator.dispatch.group.committers", "1");
+        groupCommitter = new DispatchGroupCommitter();
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty("orchestrator.dispatch.group.commit");
+        System.clearProperty("orchestrator.dispatch.group.window");
+        System.clearProperty("orchestrator.dispatch.group.committers");
+    }
+
+    @Test
+    public void testConcurrentDispatchesAreGrouped() throws Exception {
+        List<Future<Object>> results = dispatchConcurrently(handler(null));
+
+        for (Future<Object> result : results) {
+            result.get();
+        }
+        List<String> workers = new ArrayList<>();
+        for (List<String> group : groups) {
+            workers.addAll(group);
+            List<String> sorted = new ArrayList<>(group);
+            Collections.sort(sorted);
+            assertEquals("the group is in worker order", sorted, group);
+        }
+        assertEquals(WORKERS, workers.size());
+        assertEquals(WORKERS, groupCommitter.getRequests());
+        assertEquals(groups.size(), groupCommitter.getGroups());
+        assertTrue("expected fewer transactions than dispatches but got " + groups.size(), groups.size() < WORKERS);
+    }
+
+    @Test
+    public void testFailedGroupIsCommittedOneByOne() throws Exception {
+        List<Future<Object>> results = dispatchConcurrently(handler("worker-07"));
+
+        int failed = 0;
+        for (Future<Object> result : results) {
+            try {
+                result.get();
+            } catch (Exception ex) {
+                assertTrue(ex.getCause() instanceof IllegalStateException);
+                failed++;
+            }
+        }
+        assertEquals(1, failed);
+        assertTrue(groupCommitter.getFailedGroups() > 0);
+    }
+
+    private DispatchGroupCommitter.GroupHandler handler(final String badWorker) {
+        return new DispatchGroupCommitter.GroupHandler() {
+            @Override
+            public void dispatch(List<DispatchRequest> group) {
+                List<String> workers = new ArrayList<>();
+                for (DispatchRequest request : group) {
+                    if (request.getWorkerUuid().equals(badWorker))
+                        throw new IllegalStateException("Unknown worker uuid [" + badWorker + "]");
+                    workers.add(request.getWorkerUuid());
+                }
+                groups.add(workers);
+            }
+        };
+    }
+
+    private List<Future<Object>> dispatchConcurrently(final DispatchGroupCommitter.GroupHandler handler) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (int i = 0; i < WORKERS; i++) {
+            final String worker = String.format("worker-%02d", WORKERS - i);
+            tasks.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    groupCommitter.dispatch(new DispatchRequest(new ArrayList<Serializable>(), "1", "1", worker), handler);
+                    return null;
+                }
+            });
+        }
+        try {
+            return executor.invokeAll(tasks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
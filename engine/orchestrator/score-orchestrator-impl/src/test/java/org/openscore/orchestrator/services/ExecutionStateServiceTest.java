@@ -190,6 +190,12 @@ public class ExecutionStateServiceTest {
         assertThat(executionState.getExecutionId()).isEqualTo(executionId);
     }
 
+    @Test
+    public void testcreateParentExecutions() {
+        executionStateService.createParentExecutions(Arrays.asList(123L, 124L));
+        verify(executionStateRepository, times(1)).save(anyListOf(ExecutionState.class));
+    }
+
     @Test
     public void testCreateExecutionState_NullExecutionId() {
         expectedException.expect(IllegalArgumentException.class);
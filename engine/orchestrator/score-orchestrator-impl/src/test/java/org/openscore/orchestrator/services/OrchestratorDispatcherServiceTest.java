@@ -26,6 +26,7 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -62,6 +63,9 @@ public class OrchestratorDispatcherServiceTest {
     @Mock
     private SplitJoinService splitJoinService;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -80,11 +84,13 @@ public class OrchestratorDispatcherServiceTest {
         node.setWorkerRecoveryVersion("1");
 
         when(workerNodeService.readByUUID(anyString())).thenReturn(node);
+        when(workerNodeService.updateBulkNumberIfNew(uuid, "1", newBulkNumber)).thenReturn(true);
 
         orchestratorDispatcherService.dispatch(messages, newBulkNumber, "1", uuid);
         Mockito.verify(workerLockService, times(1)).lock(uuid);
         Mockito.verify(queueDispatcher, times(1)).dispatch(anyList());
-        Mockito.verify(workerNodeService, times(1)).updateBulkNumber(uuid, newBulkNumber);
+        Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "1", newBulkNumber);
+        Mockito.verify(workerNodeService, times(0)).readByUUID(uuid);
     }
 
     @Test
@@ -99,11 +105,13 @@ public class OrchestratorDispatcherServiceTest {
         node.setWorkerRecoveryVersion("1");
 
         when(workerNodeService.readByUUID(anyString())).thenReturn(node);
+        when(workerNodeService.updateBulkNumberIfNew(uuid, "1", newBulkNumber)).thenReturn(true);
 
         orchestratorDispatcherService.dispatch(messages, newBulkNumber, "1", uuid);
         Mockito.verify(workerLockService, times(1)).lock(uuid);
         Mockito.verify(queueDispatcher, times(1)).dispatch(anyList());
-        Mockito.verify(workerNodeService, times(1)).updateBulkNumber(uuid, newBulkNumber);
+        Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "1", newBulkNumber);
+        Mockito.verify(workerNodeService, times(0)).readByUUID(uuid);
     }
 
     @Test
@@ -124,6 +132,7 @@ public class OrchestratorDispatcherServiceTest {
         Mockito.verify(workerLockService, times(1)).lock(uuid);
         Mockito.verify(queueDispatcher, times(0)).dispatch(anyList());
         Mockito.verify(workerNodeService, times(0)).updateBulkNumber(uuid, newBulkNumber);
+        Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "1", newBulkNumber);
     }
     
     @Test
@@ -145,6 +154,7 @@ public class OrchestratorDispatcherServiceTest {
     
             Mockito.verify(queueDispatcher, times(0)).dispatch(anyList());
             Mockito.verify(workerNodeService, times(0)).updateBulkNumber(uuid, newBulkNumber);
+            Mockito.verify(workerNodeService, times(1)).updateBulkNumberIfNew(uuid, "0", newBulkNumber);
         }
 
     @Configuration
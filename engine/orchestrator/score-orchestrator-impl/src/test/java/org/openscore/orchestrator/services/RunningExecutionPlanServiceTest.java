@@ -29,6 +29,9 @@ import java.util.Arrays;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -76,4 +79,19 @@ public class RunningExecutionPlanServiceTest {
         Long id = runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan);
         Assert.assertEquals((Long) 5L, id);
     }
+
+    @Test
+    public void testKnownFingerprintIsCached() {
+        ExecutionPlan executionPlan = new ExecutionPlan();
+        executionPlan.setFlowUuid("uuid");
+
+        when(runningExecutionPlanRepository.findIdsByFingerprint(anyString())).thenReturn(Arrays.asList(7L));
+
+        Assert.assertEquals((Long) 7L, runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan));
+        Assert.assertEquals((Long) 7L, runningExecutionPlanService.getOrCreateRunningExecutionPlan(executionPlan));
+
+        // the second trigger of the plan does not read the db
+        verify(runningExecutionPlanRepository, times(1)).findIdsByFingerprint(anyString());
+        verify(runningExecutionPlanRepository, never()).findByUuidCached(anyString());
+    }
 }
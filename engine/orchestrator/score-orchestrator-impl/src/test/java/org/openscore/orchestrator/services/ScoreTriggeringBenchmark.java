@@ -0,0 +1,224 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.orchestrator.services;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.apache.commons.dbcp.BasicDataSource;
+import org.hibernate.ejb.HibernatePersistence;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.openscore.api.ExecutionPlan;
+import org.openscore.api.TriggeringProperties;
+import org.openscore.engine.data.IdentityGenerator;
+import org.openscore.engine.data.SimpleHiloIdentifierGenerator;
+import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.services.QueueDispatcherService;
+import org.openscore.facade.entities.Execution;
+import org.openscore.facade.services.RunningExecutionPlanService;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Date: 18/10/26
+ *
+ * Compares single triggers to bulk triggers of the same plan, with the execution states on H2.
+ * The queue is mocked, so it measures the orchestrator side of a trigger only.
+ * Not part of the regular build, run it with: mvn test -Dtest=ScoreTriggeringBenchmark
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration
+public class ScoreTriggeringBenchmark {
+
+    private static final int[] BULK_SIZES = {1, 10, 100, 1000};
+    private static final int TRIGGERS_PER_RUN = 20000;
+
+    @Autowired
+    private ScoreTriggering scoreTriggering;
+
+    @Test
+    public void benchmark() {
+        ExecutionPlan executionPlan = new ExecutionPlan();
+        executionPlan.setFlowUuid("benchmark");
+        executionPlan.setBeginStep(1L);
+
+        // the single triggers, then the bulks
+        for (int bulkSize : BULK_SIZES) {
+            // warm up
+            run(executionPlan, bulkSize, TRIGGERS_PER_RUN / 10);
+            long t = System.nanoTime();
+            run(executionPlan, bulkSize, TRIGGERS_PER_RUN);
+            t = System.nanoTime() - t;
+            System.out.println(String.format("%-12s bulk %5d: %,10d triggers/sec",
+                    bulkSize == 1 ? "trigger" : "triggerBulk", bulkSize, TRIGGERS_PER_RUN * 1000000000L / t));
+        }
+    }
+
+    private void run(ExecutionPlan executionPlan, int bulkSize, int totalTriggers) {
+        for (int done = 0; done < totalTriggers; done += bulkSize) {
+            if (bulkSize == 1) {
+                scoreTriggering.trigger(TriggeringProperties.create(executionPlan));
+                continue;
+            }
+            List<TriggeringProperties> triggers = new ArrayList<>(bulkSize);
+            for (int i = 0; i < bulkSize; i++) {
+                triggers.add(TriggeringProperties.create(executionPlan));
+            }
+            scoreTriggering.triggerBulk(triggers);
+        }
+    }
+
+    @Configuration
+    @EnableJpaRepositories("org.openscore")
+    @EnableTransactionManagement
+    static class ScoreTriggeringBenchmarkContext {
+
+        @Bean
+        ScoreTriggering scoreTriggering() {
+            return new ScoreTriggeringImpl();
+        }
+
+        @Bean
+        ExecutionStateService executionStateService() {
+            return new ExecutionStateServiceImpl();
+        }
+
+        @Bean
+        IdentityGenerator identityGenerator() {
+            return new IdentityGenerator() {
+                private final AtomicLong nextId = new AtomicLong();
+
+                @Override
+                public Long next() {
+                    return nextId.incrementAndGet();
+                }
+
+                @Override
+                public List<Long> bulk(int bulkSize) {
+                    List<Long> ids = new ArrayList<>(bulkSize);
+                    for (int i = 0; i < bulkSize; i++) {
+                        ids.add(next());
+                    }
+                    return ids;
+                }
+            };
+        }
+
+        @Bean
+        RunningExecutionPlanService runningExecutionPlanService() {
+            RunningExecutionPlanService runningExecutionPlanService = Mockito.mock(RunningExecutionPlanService.class);
+            when(runningExecutionPlanService.getOrCreateRunningExecutionPlan(any(ExecutionPlan.class))).thenReturn(1L);
+            return runningExecutionPlanService;
+        }
+
+        @Bean
+        AdmissionControlService admissionControlService() {
+            AdmissionControlService admissionControlService = Mockito.mock(AdmissionControlService.class);
+            when(admissionControlService.admit(any(Execution.class), anyString())).thenReturn(true);
+            return admissionControlService;
+        }
+
+        @Bean
+        QueueDispatcherService queueDispatcherService() {
+            return Mockito.mock(QueueDispatcherService.class);
+        }
+
+        @Bean
+        ExecutionMessageConverter executionMessageConverter() {
+            return Mockito.mock(ExecutionMessageConverter.class);
+        }
+
+        @Bean
+        ExecutionSerializationUtil executionSerializationUtil() {
+            return Mockito.mock(ExecutionSerializationUtil.class);
+        }
+
+        @Bean
+        DataSource dataSource() {
+            BasicDataSource ds = new BasicDataSource();
+            ds.setDriverClassName("org.h2.Driver");
+            ds.setUrl("jdbc:h2:mem:benchmark");
+            ds.setUsername("sa");
+            ds.setPassword("sa");
+            ds.setDefaultAutoCommit(false);
+            return ds;
+        }
+
+        @Bean(name = "entityManagerFactory")
+        @DependsOn({"liquibase", "dataSource"})
+        FactoryBean<EntityManagerFactory> emf(JpaVendorAdapter jpaVendorAdapter) {
+            SimpleHiloIdentifierGenerator.setDataSource(dataSource());
+            LocalContainerEntityManagerFactoryBean fb = new LocalContainerEntityManagerFactoryBean();
+            fb.setJpaProperties(hibernateProperties());
+            fb.setDataSource(dataSource());
+            fb.setPersistenceProviderClass(HibernatePersistence.class);
+            fb.setPackagesToScan("org.openscore");
+            fb.setJpaVendorAdapter(jpaVendorAdapter);
+            return fb;
+        }
+
+        @Bean
+        Properties hibernateProperties() {
+            return new Properties() {{
+                setProperty("hibernate.hbm2ddl.auto", "create-drop");
+                setProperty("hibernate.cache.use_query_cache", "false");
+                setProperty("hibernate.generate_statistics", "false");
+                setProperty("hibernate.cache.use_second_level_cache", "false");
+                setProperty("hibernate.order_updates", "true");
+                setProperty("hibernate.order_inserts", "true");
+                setProperty("hibernate.jdbc.batch_size", "30");
+            }};
+        }
+
+        @Bean
+        JpaVendorAdapter jpaVendorAdapter() {
+            HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
+            adapter.setGenerateDdl(true);
+            return adapter;
+        }
+
+        @Bean
+        SpringLiquibase liquibase() {
+            SpringLiquibase liquibase = new SpringLiquibase();
+            liquibase.setDataSource(dataSource());
+            liquibase.setChangeLog("classpath:/META-INF/database/test-changes.xml");
+            return liquibase;
+        }
+
+        @Bean
+        PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
+            return new JpaTransactionManager(emf);
+        }
+    }
+}
@@ -18,18 +18,33 @@ import org.openscore.engine.queue.services.QueueDispatcherService;
 import org.openscore.api.ExecutionPlan;
 import org.openscore.api.TriggeringProperties;
 import org.openscore.engine.data.IdentityGenerator;
+import org.openscore.exceptions.TriggerRejectedException;
+import org.openscore.facade.entities.Execution;
+import org.openscore.facade.execution.ExecutionSummary;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.mockito.Matchers.any;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -59,12 +74,19 @@ public class ScoreTriggeringTest {
     @Mock
     private ExecutionStateService executionStateService;
 
+    @Mock
+    private AdmissionControlService admissionControlService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Before
     public void resetMocks() {
         MockitoAnnotations.initMocks(this);
         RunningExecutionPlan runningExecutionPlan = mock(RunningExecutionPlan.class);
         when(runningExecutionPlan.getId()).thenReturn(2L);
         when(runningExecutionPlanService.createRunningExecutionPlan((any(RunningExecutionPlan.class)))).thenReturn(runningExecutionPlan);
+        when(admissionControlService.admit(any(Execution.class), anyString())).thenReturn(true);
     }
 
     @Test
@@ -99,4 +121,129 @@ public class ScoreTriggeringTest {
         verify(runningExecutionPlanService, times(2)).getOrCreateRunningExecutionPlan(any(ExecutionPlan.class));
     }
 
+    @Test
+    public void testParkedTriggerIsNotEnqueued() throws Exception {
+        when(admissionControlService.admit(any(Execution.class), anyString())).thenReturn(false);
+        ExecutionPlan ep = new ExecutionPlan();
+        ep.setBeginStep(1L);
+        scoreTrigger.trigger(TriggeringProperties.create(ep));
+
+        verify(executionStateService, times(1)).createParentExecution(anyLong());
+        verify(queueDispatcher, never()).dispatch(anyListOf(ExecutionMessage.class));
+    }
+
+    @Test
+    public void testRejectedTriggerDeletesItsExecution() throws Exception {
+        when(admissionControlService.admit(any(Execution.class), anyString())).thenThrow(new TriggerRejectedException("over the limits"));
+        ExecutionPlan ep = new ExecutionPlan();
+        ep.setBeginStep(1L);
+        try {
+            scoreTrigger.trigger(2L, TriggeringProperties.create(ep));
+            fail("the trigger should be rejected");
+        } catch (TriggerRejectedException ex) {
+            verify(executionStateService, times(1)).deleteExecutionState(2L, ExecutionSummary.EMPTY_BRANCH);
+            verify(queueDispatcher, never()).dispatch(anyListOf(ExecutionMessage.class));
+        }
+    }
+
+    @Test
+    public void testTriggerBulk() throws Exception {
+        when(idGenerator.bulk(3)).thenReturn(Arrays.asList(1L, 2L, 3L));
+        ExecutionPlan ep = new ExecutionPlan();
+        ep.setBeginStep(1L);
+        List<TriggeringProperties> triggers = Arrays.asList(TriggeringProperties.create(ep), TriggeringProperties.create(ep), TriggeringProperties.create(ep));
+
+        List<Long> executionIds = scoreTrigger.triggerBulk(triggers);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), executionIds);
+        // the plan of the bulk is resolved once
+        verify(runningExecutionPlanService, times(1)).getOrCreateRunningExecutionPlan(any(ExecutionPlan.class));
+        verify(executionStateService, times(1)).createParentExecutions(executionIds);
+        verify(executionStateService, never()).createParentExecution(anyLong());
+        ArgumentCaptor<List> messages = ArgumentCaptor.forClass(List.class);
+        verify(queueDispatcher, times(1)).dispatch(messages.capture());
+        assertEquals(3, messages.getValue().size());
+        // with no admission limits the bulk is one transaction
+        verify(admissionControlService, never()).admit(any(Execution.class), anyString());
+        verify(transactionManager, times(1)).commit(any(TransactionStatus.class));
+    }
+
+    @Test
+    public void testTriggerBulkWithoutAdmissionIsRolledBackAsAWhole() throws Exception {
+        when(idGenerator.bulk(2)).thenReturn(Arrays.asList(1L, 2L));
+        doThrow(new RuntimeException("queue is down")).when(queueDispatcher).dispatch(anyListOf(ExecutionMessage.class));
+        ExecutionPlan ep = new ExecutionPlan();
+        ep.setBeginStep(1L);
+        try {
+            scoreTrigger.triggerBulk(Arrays.asList(TriggeringProperties.create(ep), TriggeringProperties.create(ep)));
+            fail("the bulk should fail");
+        } catch (RuntimeException ex) {
+            verify(transactionManager, times(1)).rollback(any(TransactionStatus.class));
+            verify(executionStateService, never()).deleteExecutionState(anyLong(), anyString());
+        }
+    }
+
+    @Test
+    public void testTriggerBulkReleasesAdmissionWhenAdmitFails() throws Exception {
+        when(admissionControlService.isEnabled()).thenReturn(true);
+        when(idGenerator.bulk(4)).thenReturn(Arrays.asList(1L, 2L, 3L, 4L));
+        when(admissionControlService.admit(any(Execution.class), anyString()))
+                .thenReturn(true)
+                .thenReturn(false)
+                .thenThrow(new IllegalStateException("counters are down"));
+        ExecutionPlan ep = new ExecutionPlan();
+        ep.setBeginStep(1L);
+        List<TriggeringProperties> triggers = Arrays.asList(TriggeringProperties.create(ep), TriggeringProperties.create(ep),
+                TriggeringProperties.create(ep), TriggeringProperties.create(ep));
+        try {
+            scoreTrigger.triggerBulk(triggers);
+            fail("the bulk should fail");
+        } catch (IllegalStateException ex) {
+            verify(admissionControlService, times(1)).executionFinished(eq(1L), anyString());
+            verify(executionStateService, times(1)).deleteExecutionState(1L, ExecutionSummary.EMPTY_BRANCH);
+            // the parked execution is enqueued later
+            verify(executionStateService, never()).deleteExecutionState(2L, ExecutionSummary.EMPTY_BRANCH);
+            verify(executionStateService, times(1)).deleteExecutionState(3L, ExecutionSummary.EMPTY_BRANCH);
+            verify(executionStateService, times(1)).deleteExecutionState(4L, ExecutionSummary.EMPTY_BRANCH);
+            verify(queueDispatcher, never()).dispatch(anyListOf(ExecutionMessage.class));
+        }
+    }
+
+    @Test
+    public void testTriggerBulkRejectsItemByItem() throws Exception {
+        when(admissionControlService.isEnabled()).thenReturn(true);
+        when(idGenerator.bulk(3)).thenReturn(Arrays.asList(1L, 2L, 3L));
+        when(admissionControlService.admit(any(Execution.class), anyString()))
+                .thenReturn(true)
+                .thenThrow(new TriggerRejectedException("over the limits"))
+                .thenReturn(true);
+        ExecutionPlan ep = new ExecutionPlan();
+        ep.setBeginStep(1L);
+        List<TriggeringProperties> triggers = Arrays.asList(TriggeringProperties.create(ep), TriggeringProperties.create(ep), TriggeringProperties.create(ep));
+
+        List<Long> executionIds = scoreTrigger.triggerBulk(triggers);
+
+        assertEquals(Arrays.asList(1L, null, 3L), executionIds);
+        verify(executionStateService, times(1)).deleteExecutionState(2L, ExecutionSummary.EMPTY_BRANCH);
+        ArgumentCaptor<List> messages = ArgumentCaptor.forClass(List.class);
+        verify(queueDispatcher, times(1)).dispatch(messages.capture());
+        assertEquals(2, messages.getValue().size());
+    }
+
+    @Test
+    public void testTriggerBulkReleasesAdmissionWhenEnqueueFails() throws Exception {
+        when(admissionControlService.isEnabled()).thenReturn(true);
+        when(idGenerator.bulk(2)).thenReturn(Arrays.asList(1L, 2L));
+        doThrow(new RuntimeException("queue is down")).when(queueDispatcher).dispatch(anyListOf(ExecutionMessage.class));
+        ExecutionPlan ep = new ExecutionPlan();
+        ep.setBeginStep(1L);
+        try {
+            scoreTrigger.triggerBulk(Arrays.asList(TriggeringProperties.create(ep), TriggeringProperties.create(ep)));
+            fail("the bulk should fail");
+        } catch (RuntimeException ex) {
+            verify(admissionControlService, times(2)).executionFinished(anyLong(), anyString());
+            verify(executionStateService, times(1)).deleteExecutionState(1L, ExecutionSummary.EMPTY_BRANCH);
+            verify(executionStateService, times(1)).deleteExecutionState(2L, ExecutionSummary.EMPTY_BRANCH);
+        }
+    }
 }
@@ -10,17 +10,22 @@
 
 package org.openscore.orchestrator.services;
 
+import org.openscore.api.BranchResultError;
+import org.openscore.api.BranchResultReducers;
 import org.openscore.api.EndBranchDataContainer;
 import org.openscore.engine.queue.entities.ExecStatus;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.entities.ExecutionMessageConverter;
 import org.openscore.engine.queue.services.QueueDispatcherService;
 import org.openscore.facade.entities.Execution;
+import org.openscore.facade.execution.ExecutionStatus;
 import org.openscore.orchestrator.entities.BranchContexts;
 import org.openscore.orchestrator.entities.FinishedBranch;
+import org.openscore.orchestrator.entities.SplitBranchItem;
 import org.openscore.orchestrator.entities.SplitMessage;
 import org.openscore.orchestrator.entities.SuspendedExecution;
 import org.openscore.orchestrator.repositories.FinishedBranchRepository;
+import org.openscore.orchestrator.repositories.SplitBranchItemRepository;
 import org.openscore.orchestrator.repositories.SuspendedExecutionsRepository;
 import org.openscore.lang.SystemContext;
 import org.junit.Before;
@@ -29,6 +34,7 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -38,6 +44,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.data.domain.Pageable;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -48,6 +56,7 @@ import static ch.lambdaj.Lambda.having;
 import static ch.lambdaj.Lambda.on;
 import static ch.lambdaj.Lambda.select;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.any;
 
@@ -63,6 +72,9 @@ public class SplitJoinServiceTest {
     @Mock
     private FinishedBranchRepository finishedBranchRepository;
 
+    @Mock
+    private SplitBranchItemRepository splitBranchItemRepository;
+
     @Mock
     private QueueDispatcherService queueDispatcherService;
 
@@ -81,6 +93,9 @@ public class SplitJoinServiceTest {
     @Captor
     private ArgumentCaptor<Execution> converterCaptor;
 
+    @Captor
+    private ArgumentCaptor<List<SplitBranchItem>> splitBranchItemsSaveCaptor;
+
     @Configuration
     static class EmptyConfig {
     }
@@ -120,6 +135,29 @@ public class SplitJoinServiceTest {
         assertThat("suspended entity has incorrect execution object", value.get(0).getExecutionObj(), is(splitMessage.getParent()));
     }
 
+    @Test
+    public void streamingSplitStartsMaxInFlightBranchesTest() {
+        String splitId = UUID.randomUUID().toString();
+        SplitMessage splitMessage = new SplitMessage(splitId, createStreamingParent(splitId, 5, 2));
+
+        splitJoinService.split(Arrays.asList(splitMessage));
+
+        Mockito.verify(queueDispatcherService).dispatch(queueDispatcherDispatchCaptor.capture());
+        assertThat("only the max in flight branches should be triggered", queueDispatcherDispatchCaptor.getValue().size(), is(2));
+        Mockito.verify(suspendedExecutionsRepository).save(suspendedExecutionsSaveCaptor.capture());
+        SuspendedExecution suspendedExecution = suspendedExecutionsSaveCaptor.getValue().get(0);
+        assertThat(suspendedExecution.getNumberOfBranches(), is(5));
+        assertThat(suspendedExecution.getStartedBranches(), is(2));
+        // the parent is suspended without the items, the items of the branches that are not started are kept apart
+        assertThat(suspendedExecution.getExecutionObj().getSystemContext().getBranchSource(), nullValue());
+        assertThat(suspendedExecution.getBranchSource().size(), is(0));
+        Mockito.verify(splitBranchItemRepository).save(splitBranchItemsSaveCaptor.capture());
+        List<SplitBranchItem> items = splitBranchItemsSaveCaptor.getValue();
+        assertThat(items.size(), is(3));
+        assertThat(items.get(0).getItemIndex(), is(2));
+        assertThat(items.get(0).getItem(), is((Serializable) "item3"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void nullParamSplitTest() {
         splitJoinService.split(null);
@@ -148,6 +186,119 @@ public class SplitJoinServiceTest {
         splitJoinService.endBranch(Arrays.asList(branch1, branch2));
     }
 
+    @Test
+    public void lastBranchJoinsParentEndBranchTest() {
+        String splitId = UUID.randomUUID().toString();
+        SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 2);
+        suspendedExecution.getFinishedBranches().add(createFinishedBranch(splitId, splitId + "1", new HashMap<String, Serializable>(), new HashMap<String, Serializable>()));
+        // the decrement of the last branch left no remaining branches
+        suspendedExecution.setRemainingBranches(0);
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId))).thenReturn(Arrays.asList(suspendedExecution));
+
+        splitJoinService.endBranch(Arrays.asList(createBranchExecution(splitId)));
+
+        Mockito.verify(suspendedExecutionsRepository).decrementRemainingBranches(splitId, 1);
+        Mockito.verify(queueDispatcherService).dispatch(queueDispatcherDispatchCaptor.capture());
+        assertThat("the parent should be sent back to the queue", queueDispatcherDispatchCaptor.getValue().get(0).getMsgId(), is(suspendedExecution.getExecutionObj().getExecutionId().toString()));
+        Mockito.verify(suspendedExecutionsRepository).delete(Arrays.asList(suspendedExecution));
+    }
+
+    @Test
+    public void remainingBranchesEndBranchTest() {
+        String splitId = UUID.randomUUID().toString();
+        SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 3);
+        suspendedExecution.setRemainingBranches(1);
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId))).thenReturn(Arrays.asList(suspendedExecution));
+
+        splitJoinService.endBranch(Arrays.asList(createBranchExecution(splitId), createBranchExecution(splitId)));
+
+        // one decrement for the bulk of branches of the split
+        Mockito.verify(suspendedExecutionsRepository).decrementRemainingBranches(splitId, 2);
+        Mockito.verify(finishedBranchRepository).save(Mockito.anyListOf(FinishedBranch.class));
+        Mockito.verify(queueDispatcherService, Mockito.never()).dispatch(Mockito.anyListOf(ExecutionMessage.class));
+    }
+
+    @Test
+    public void splitsDecrementedInOrderEndBranchTest() {
+        splitJoinService.endBranch(Arrays.asList(createBranchExecution("c"), createBranchExecution("a"), createBranchExecution("b"), createBranchExecution("a")));
+
+        InOrder inOrder = Mockito.inOrder(suspendedExecutionsRepository);
+        inOrder.verify(suspendedExecutionsRepository).decrementRemainingBranches("a", 2);
+        inOrder.verify(suspendedExecutionsRepository).decrementRemainingBranches("b", 1);
+        inOrder.verify(suspendedExecutionsRepository).decrementRemainingBranches("c", 1);
+    }
+
+    @Test
+    public void streamingEndBranchStartsNextBranchesTest() {
+        String splitId = UUID.randomUUID().toString();
+        Execution parent = createStreamingParent(splitId, 5, 2);
+        SuspendedExecution suspendedExecution = new SuspendedExecution("1", splitId, 5, parent);
+        suspendedExecution.setBranchSource(parent.getSystemContext().removeBranchSource().withoutItems());
+        suspendedExecution.setStartedBranches(2);
+        Mockito.when(splitBranchItemRepository.findItems(splitId, 2, 3)).thenReturn(Arrays.<Serializable>asList("item3"));
+        // one of the two running branches finished
+        suspendedExecution.setRemainingBranches(4);
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId))).thenReturn(Arrays.asList(suspendedExecution));
+
+        splitJoinService.endBranch(Arrays.asList(createBranchExecution(splitId)));
+
+        Mockito.verify(converter).createPayload(converterCaptor.capture());
+        Execution branch = converterCaptor.getValue();
+        assertThat("the third branch should be started", branch.getSystemContext().getBranchId(), is(splitId + ":3"));
+        assertThat("the branch should get its item", branch.getContexts().get("item"), is((Serializable) "item3"));
+        assertThat(suspendedExecution.getStartedBranches(), is(3));
+        Mockito.verify(queueDispatcherService).dispatch(queueDispatcherDispatchCaptor.capture());
+        assertThat(queueDispatcherDispatchCaptor.getValue().size(), is(1));
+    }
+
+    @Test
+    public void reducedBranchResultEndBranchTest() {
+        String splitId = UUID.randomUUID().toString();
+        SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 2);
+        suspendedExecution.getExecutionObj().getSystemContext().setBranchResultReducer(BranchResultReducers.sumContext("count"));
+        suspendedExecution.getFinishedBranches().add(createFinishedBranch(splitId, splitId + "1", new HashMap<String, Serializable>(), new HashMap<String, Serializable>()));
+        suspendedExecution.setBranchesResult(new BigDecimal(2));
+        suspendedExecution.setRemainingBranches(0);
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId))).thenReturn(Arrays.asList(suspendedExecution));
+
+        Execution branch = createBranchExecution(splitId);
+        branch.getContexts().put("count", 3);
+        splitJoinService.endBranch(Arrays.asList(branch));
+
+        assertThat("the finished branch should be kept without its contexts", suspendedExecution.getFinishedBranches().get(1).getBranchContexts().getContexts().isEmpty(), is(true));
+        Mockito.verify(converter).createPayload(converterCaptor.capture());
+        Execution parent = converterCaptor.getValue();
+        assertThat("the parent should get the reduced result", parent.getSystemContext().getReducedBranchesResult(), is((Serializable) new BigDecimal(5)));
+        assertThat("the parent should not get the data of the branches", parent.getSystemContext().getFinishedChildBranchesData().isEmpty(), is(true));
+    }
+
+    @Test
+    public void badlyTypedBranchResultFailsParentEndBranchTest() {
+        String splitId = UUID.randomUUID().toString();
+        SuspendedExecution suspendedExecution = createSuspendedExecution(splitId, 2);
+        suspendedExecution.getExecutionObj().getSystemContext().setBranchResultReducer(BranchResultReducers.sumContext("count"));
+        suspendedExecution.getFinishedBranches().add(createFinishedBranch(splitId, splitId + "1", new HashMap<String, Serializable>(), new HashMap<String, Serializable>()));
+        suspendedExecution.setBranchesResult(new BigDecimal(2));
+        suspendedExecution.setRemainingBranches(0);
+        Mockito.when(suspendedExecutionsRepository.findBySplitIdIn(Arrays.asList(splitId))).thenReturn(Arrays.asList(suspendedExecution));
+
+        Execution branch = createBranchExecution(splitId);
+        branch.getContexts().put("count", "three");
+        splitJoinService.endBranch(Arrays.asList(branch));
+
+        assertThat("the split should keep the error instead of throwing", suspendedExecution.getBranchesResult() instanceof BranchResultError, is(true));
+        Mockito.verify(queueDispatcherService).dispatch(queueDispatcherDispatchCaptor.capture());
+        List<ExecutionMessage> messages = queueDispatcherDispatchCaptor.getValue();
+        assertThat(messages.size(), is(1));
+        assertThat("the parent should be sent back to the queue as terminated", messages.get(0).getStatus(), is(ExecStatus.TERMINATED));
+        Mockito.verify(converter).createPayload(converterCaptor.capture());
+        Execution parent = converterCaptor.getValue();
+        assertThat("the parent should fail", parent.getSystemContext().getFlowTerminationType(), is(ExecutionStatus.SYSTEM_FAILURE));
+        assertThat("the parent should end", parent.getPosition(), nullValue());
+        assertThat("the parent should get the error of the split", parent.getSystemContext().getStepErrorKey().contains("count"), is(true));
+        assertThat("the parent should not get a reduced result", parent.getSystemContext().getReducedBranchesResult(), nullValue());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void nullParamEndBranchTest() {
         splitJoinService.endBranch(null);
@@ -222,6 +373,27 @@ public class SplitJoinServiceTest {
         return res;
     }
 
+    private Execution createBranchExecution(String splitId) {
+        SystemContext systemContext = new SystemContext();
+        systemContext.setSplitId(splitId);
+        systemContext.setBranchId(UUID.randomUUID().toString());
+        return new Execution(2L, null, null, new HashMap<String, Serializable>(), systemContext);
+    }
+
+    private Execution createStreamingParent(String splitId, int numOfItems, int maxInFlight) {
+        Execution parent = createExecution(1L);
+        HashMap<String, Long> runningPlansIds = new HashMap<>();
+        runningPlansIds.put("flow", 3L);
+        parent.getSystemContext().setSubFlowsData(runningPlansIds, new HashMap<String, Long>());
+        List<String> items = new ArrayList<>();
+        for (int i = 1; i <= numOfItems; i++) {
+            items.add("item" + i);
+        }
+        parent.getSystemContext().addBranches(0L, "flow", new HashMap<String, Serializable>(), "item", items, maxInFlight);
+        parent.getSystemContext().getBranchSource().setSplitId(splitId);
+        return parent;
+    }
+
     private SplitMessage createSplitMessage(String splitId) {
         return new SplitMessage(splitId, createExecution(1L), Arrays.asList(createExecution(2L)));
     }
@@ -0,0 +1,115 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.openscore.facade.entities.Execution;
+import org.openscore.lang.SystemContext;
+
+/**
+ * Date: 18/10/26
+ *
+ * The attributes of an execution that are needed to route a finished or failed message,
+ * written in front of the payload so they can be read without decoding the execution.
+ */
+public class ExecutionHeader {
+
+    private final Long executionId;
+    private final String branchId;
+    private final String splitId;
+    private final String noWorkerGroup;
+    private final String admittedFlowUuid;
+
+    public ExecutionHeader(Long executionId, String branchId, String splitId, String noWorkerGroup) {
+        this(executionId, branchId, splitId, noWorkerGroup, null);
+    }
+
+    public ExecutionHeader(Long executionId, String branchId, String splitId, String noWorkerGroup, String admittedFlowUuid) {
+        this.executionId = executionId;
+        this.branchId = branchId;
+        this.splitId = splitId;
+        this.noWorkerGroup = noWorkerGroup;
+        this.admittedFlowUuid = admittedFlowUuid;
+    }
+
+    public static ExecutionHeader of(Execution execution) {
+        SystemContext systemContext = execution.getSystemContext();
+        return new ExecutionHeader(execution.getExecutionId(), systemContext.getBranchId(), systemContext.getSplitId(),
+                systemContext.getNoWorkerInGroupName(), systemContext.getAdmittedFlowUuid());
+    }
+
+    public Long getExecutionId() {
+        return executionId;
+    }
+
+    public String getBranchId() {
+        return branchId;
+    }
+
+    public String getSplitId() {
+        return splitId;
+    }
+
+    public String getNoWorkerGroup() {
+        return noWorkerGroup;
+    }
+
+    /**
+     * @return the flow uuid the execution was counted for by the admission control, null if it was not counted
+     */
+    public String getAdmittedFlowUuid() {
+        return admittedFlowUuid;
+    }
+
+    /**
+     * Returns true when the execution is a branch with the new branch mechanism
+     */
+    public boolean isBranch() {
+        return !StringUtils.isEmpty(branchId);
+    }
+
+    public boolean isFailedBecauseNoWorker() {
+        return !StringUtils.isEmpty(noWorkerGroup);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ExecutionHeader that = (ExecutionHeader) o;
+        return new EqualsBuilder()
+                .append(this.executionId, that.executionId)
+                .append(this.branchId, that.branchId)
+                .append(this.splitId, that.splitId)
+                .append(this.noWorkerGroup, that.noWorkerGroup)
+                .append(this.admittedFlowUuid, that.admittedFlowUuid)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(executionId)
+                .append(branchId)
+                .append(splitId)
+                .append(noWorkerGroup)
+                .append(admittedFlowUuid)
+                .toHashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionId:" + executionId + " BranchId:" + branchId + " SplitId:" + splitId + " NoWorkerGroup:" + noWorkerGroup + " AdmittedFlowUuid:" + admittedFlowUuid;
+    }
+}
@@ -33,6 +33,7 @@ public class ExecutionMessage implements Message, Cloneable {
 
 	public static final long EMPTY_EXEC_STATE_ID = -1L;
 	public static final String EMPTY_WORKER = "EMPTY";
+	public static final int DEFAULT_PRIORITY = 0;
 
 	private long execStateId;
 	private String workerId;
@@ -42,6 +43,10 @@ public class ExecutionMessage implements Message, Cloneable {
 	private int msgSeqId;
 	private String msgId;
     private Date createDate;
+	// higher priorities are claimed and executed first
+	private int priority = DEFAULT_PRIORITY;
+	// a pending message is assigned to a worker only from this time in millis, 0 if it is not delayed
+	private long notBefore;
 
 	private transient String workerKey;
 
@@ -136,6 +141,28 @@ public class ExecutionMessage implements Message, Cloneable {
         this.createDate = createDate;
     }
 
+	public int getPriority() {
+		return priority;
+	}
+
+	public ExecutionMessage setPriority(int priority) {
+		this.priority = priority;
+		return this;
+	}
+
+	public long getNotBefore() {
+		return notBefore;
+	}
+
+	public ExecutionMessage setNotBefore(long notBefore) {
+		this.notBefore = notBefore;
+		return this;
+	}
+
+	public boolean isDelayed(long now) {
+		return notBefore > now;
+	}
+
 	public long getExecStateId() {
 		return execStateId;
 	}
@@ -290,6 +317,8 @@ public class ExecutionMessage implements Message, Cloneable {
 				.append(this.workerGroup, that.workerGroup)
 				.append(this.workerId, that.workerId)
                 .append(this.createDate, that.createDate)
+				.append(this.priority, that.priority)
+				.append(this.notBefore, that.notBefore)
 				.isEquals();
 	}
 
@@ -303,7 +332,9 @@ public class ExecutionMessage implements Message, Cloneable {
 				payload,
 				msgSeqId,
 				execStateId,
-                createDate
+                createDate,
+				priority,
+				notBefore
 		);
 	}
 }
@@ -10,15 +10,15 @@
 
 package org.openscore.engine.queue.entities;
 
-import org.apache.commons.io.IOUtils;
+import org.openscore.engine.queue.entities.codec.BinaryPayloadCodec;
+import org.openscore.engine.queue.entities.codec.ExecutionHeaders;
+import org.openscore.engine.queue.entities.codec.JavaPayloadCodec;
+import org.openscore.engine.queue.entities.codec.PayloadCodec;
+import org.openscore.engine.queue.entities.codec.PayloadCompressor;
+import org.openscore.facade.entities.Execution;
+import org.springframework.beans.factory.annotation.Autowired;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 
 /**
  * Created with IntelliJ IDEA.
@@ -28,50 +28,53 @@ import java.io.ObjectOutputStream;
  */
 public class ExecutionMessageConverter {
 
+	// the payloads are java serialized unless set to "binary", which only the nodes that have the binary codec can read -
+	// it is switched on once all the workers and orchestrators were upgraded
+	private static final String CODEC_PROPERTY = "execution.payload.codec";
+
+	// the payloads of executions start with a routing header only if set, which only the nodes that have the header
+	// format can read - it is switched on once all the workers and orchestrators were upgraded, like the codec
+	private static final String HEADER_PROPERTY = "execution.payload.header";
+
+	private final boolean writeHeader = Boolean.getBoolean(HEADER_PROPERTY);
+
+	private final JavaPayloadCodec javaCodec = new JavaPayloadCodec();
+
+	private final BinaryPayloadCodec binaryCodec = new BinaryPayloadCodec();
+
+	@Autowired(required = false)
+	private PayloadCodec codec = "binary".equals(System.getProperty(CODEC_PROPERTY)) ? binaryCodec : javaCodec;
+
+	@Autowired(required = false)
+	private PayloadCompressor compressor = new PayloadCompressor();
+
 	public <T> T extractExecution(Payload payload) throws IOException {
-		return objFromBytes(payload.getData());
+		return fromBytes(payload.getData());
 	}
 
 	public Payload createPayload(Object execution) {
-		byte[] objBytes = objToBytes(execution);
-		return new Payload(true, false, objBytes);
-	}
-
-	private <T> T objFromBytes(byte[] bytes) {
-		ObjectInputStream ois = null;
-		try {
-			//2 Buffers are added to increase performance
-			ByteArrayInputStream is = new ByteArrayInputStream(bytes);
-			BufferedInputStream bis = new BufferedInputStream(is);
-			ois = new ObjectInputStream(bis);
-			//noinspection unchecked
-			return (T)ois.readObject();
-		}
-		catch(IOException | ClassNotFoundException ex) {
-			throw new RuntimeException("Failed to read execution plan from byte[]. Error: ", ex);
+		byte[] objBytes = toBytes(execution);
+		boolean compressed = PayloadCompressor.isCompressed(objBytes);
+		if (writeHeader && execution instanceof Execution) {
+			objBytes = ExecutionHeaders.write(ExecutionHeader.of((Execution) execution), objBytes);
 		}
-		finally {
-			IOUtils.closeQuietly(ois);
-		}
-
+		return new Payload(compressed, false, objBytes);
 	}
 
-	private byte[] objToBytes(Object obj){
-		ObjectOutputStream oos = null;
-		try {
-			ByteArrayOutputStream bout = new ByteArrayOutputStream();
-			BufferedOutputStream bos = new BufferedOutputStream(bout);
-			oos = new ObjectOutputStream(bos);
+	public <T> T fromBytes(byte[] bytes) {
+		bytes = compressor.decompress(ExecutionHeaders.body(bytes));
+		//noinspection unchecked
+		return (T) codecOf(bytes[0]).decode(bytes);
+	}
 
-			oos.writeObject(obj);
-			oos.flush();
+	public byte[] toBytes(Object obj) {
+		return compressor.compress(codec.canEncode(obj) ? codec.encode(obj) : javaCodec.encode(obj));
+	}
 
-			return bout.toByteArray();
-		}
-		catch(IOException ex) {
-			throw new RuntimeException("Failed to serialize execution plan. Error: ", ex);
-		} finally {
-			IOUtils.closeQuietly(oos);
-		}
+	private PayloadCodec codecOf(byte format) {
+		if (format == codec.getFormat()) return codec;
+		if (format == binaryCodec.getFormat()) return binaryCodec;
+		if (format == javaCodec.getFormat()) return javaCodec;
+		throw new RuntimeException("Failed to read execution from byte[]. Unknown payload format: " + format);
 	}
 }
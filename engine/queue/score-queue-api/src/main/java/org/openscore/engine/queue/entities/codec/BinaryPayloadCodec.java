@@ -0,0 +1,420 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.openscore.facade.entities.Execution;
+import org.openscore.lang.SystemContext;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Date: 18/10/26
+ *
+ * Compact binary encoding of an execution, without class descriptors and field names.
+ *
+ * Every value is written as a one byte tag followed by its data, numbers and lengths as var ints.
+ * The common JDK types, the collections and the SystemContext found in the contexts have their own tags,
+ * any other value is written with java serialization inside the payload.
+ */
+public class BinaryPayloadCodec implements PayloadCodec {
+
+    public static final byte FORMAT = 1;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte TRUE = 4;
+    private static final byte FALSE = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte FLOAT = 7;
+    private static final byte SHORT = 8;
+    private static final byte BYTE = 9;
+    private static final byte CHARACTER = 10;
+    private static final byte BYTES = 11;
+    private static final byte DATE = 12;
+    private static final byte HASH_MAP = 13;
+    private static final byte LINKED_HASH_MAP = 14;
+    private static final byte ARRAY_LIST = 15;
+    private static final byte LINKED_LIST = 16;
+    private static final byte HASH_SET = 17;
+    private static final byte LINKED_HASH_SET = 18;
+    private static final byte ARRAY_DEQUE = 19;
+    private static final byte SYSTEM_CONTEXT = 20;
+    private static final byte EXECUTION = 21;
+    private static final byte SERIALIZED = 22;
+
+    private final JavaPayloadCodec javaCodec = new JavaPayloadCodec();
+
+    @Override
+    public byte getFormat() {
+        return FORMAT;
+    }
+
+    // subclasses of Execution may carry fields this codec does not know
+    @Override
+    public boolean canEncode(Object obj) {
+        return obj != null && obj.getClass() == Execution.class;
+    }
+
+    @Override
+    public byte[] encode(Object obj) {
+        Output out = new Output();
+        out.writeByte(FORMAT);
+        writeValue(out, obj);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        if (bytes[0] != FORMAT) {
+            throw new IllegalArgumentException("Unknown payload format " + bytes[0]);
+        }
+        Input in = new Input(bytes, 1);
+        return readValue(in);
+    }
+
+    private void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INTEGER);
+            out.writeSignedVarLong((Integer) value);
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeSignedVarLong((Long) value);
+        } else if (type == Boolean.class) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeLong(Float.floatToRawIntBits((Float) value));
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeSignedVarLong((Short) value);
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(CHARACTER);
+            out.writeVarLong((Character) value);
+        } else if (type == byte[].class) {
+            out.writeByte(BYTES);
+            out.writeBytes((byte[]) value);
+        } else if (type == Date.class) {
+            out.writeByte(DATE);
+            out.writeSignedVarLong(((Date) value).getTime());
+        } else if (type == HashMap.class) {
+            out.writeByte(HASH_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (type == LinkedHashMap.class) {
+            out.writeByte(LINKED_HASH_MAP);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (type == SystemContext.class) {
+            out.writeByte(SYSTEM_CONTEXT);
+            writeMap(out, (Map<?, ?>) value);
+        } else if (type == ArrayList.class) {
+            out.writeByte(ARRAY_LIST);
+            writeCollection(out, (Collection<?>) value);
+        } else if (type == LinkedList.class) {
+            out.writeByte(LINKED_LIST);
+            writeCollection(out, (Collection<?>) value);
+        } else if (type == HashSet.class) {
+            out.writeByte(HASH_SET);
+            writeCollection(out, (Collection<?>) value);
+        } else if (type == LinkedHashSet.class) {
+            out.writeByte(LINKED_HASH_SET);
+            writeCollection(out, (Collection<?>) value);
+        } else if (type == ArrayDeque.class) {
+            out.writeByte(ARRAY_DEQUE);
+            writeCollection(out, (Collection<?>) value);
+        } else if (type == Execution.class) {
+            out.writeByte(EXECUTION);
+            writeExecution(out, (Execution) value);
+        } else {
+            out.writeByte(SERIALIZED);
+            out.writeBytes(javaCodec.encode(value));
+        }
+    }
+
+    private void writeMap(Output out, Map<?, ?> map) {
+        out.writeVarLong(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            writeValue(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private void writeCollection(Output out, Collection<?> collection) {
+        out.writeVarLong(collection.size());
+        for (Object element : collection) {
+            writeValue(out, element);
+        }
+    }
+
+    private void writeExecution(Output out, Execution execution) {
+        writeValue(out, execution.getExecutionId());
+        writeValue(out, execution.getRunningExecutionPlanId());
+        writeValue(out, execution.getPosition());
+        writeValue(out, execution.getGroupName());
+        writeValue(out, execution.getContexts());
+        writeValue(out, execution.getSystemContext());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readValue(Input in) {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return in.readString();
+            case INTEGER:
+                return (int) in.readSignedVarLong();
+            case LONG:
+                return in.readSignedVarLong();
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case FLOAT:
+                return Float.intBitsToFloat((int) in.readLong());
+            case SHORT:
+                return (short) in.readSignedVarLong();
+            case BYTE:
+                return in.readByte();
+            case CHARACTER:
+                return (char) in.readVarLong();
+            case BYTES:
+                return in.readBytes();
+            case DATE:
+                return new Date(in.readSignedVarLong());
+            case HASH_MAP: {
+                int size = in.readSize();
+                return readMap(in, size, new HashMap<>(size * 4 / 3 + 1));
+            }
+            case LINKED_HASH_MAP: {
+                int size = in.readSize();
+                return readMap(in, size, new LinkedHashMap<>(size * 4 / 3 + 1));
+            }
+            case SYSTEM_CONTEXT: {
+                SystemContext systemContext = new SystemContext();
+                readMap(in, in.readSize(), (Map) systemContext);
+                return systemContext;
+            }
+            case ARRAY_LIST: {
+                int size = in.readSize();
+                return readCollection(in, size, new ArrayList<>(size));
+            }
+            case LINKED_LIST:
+                return readCollection(in, in.readSize(), new LinkedList<>());
+            case HASH_SET: {
+                int size = in.readSize();
+                return readCollection(in, size, new HashSet<>(size * 4 / 3 + 1));
+            }
+            case LINKED_HASH_SET: {
+                int size = in.readSize();
+                return readCollection(in, size, new LinkedHashSet<>(size * 4 / 3 + 1));
+            }
+            case ARRAY_DEQUE: {
+                int size = in.readSize();
+                return readCollection(in, size, new ArrayDeque<>(Math.max(size, 1)));
+            }
+            case EXECUTION:
+                return readExecution(in);
+            case SERIALIZED: {
+                int length = in.readSize();
+                Object value = javaCodec.decode(in.bytes, in.position, length);
+                in.position += length;
+                return value;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag + " at position " + (in.position - 1));
+        }
+    }
+
+    private Map<Object, Object> readMap(Input in, int size, Map<Object, Object> map) {
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(in);
+            map.put(key, readValue(in));
+        }
+        return map;
+    }
+
+    private Collection<Object> readCollection(Input in, int size, Collection<Object> collection) {
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(in));
+        }
+        return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Execution readExecution(Input in) {
+        Long executionId = (Long) readValue(in);
+        Long runningExecutionPlanId = (Long) readValue(in);
+        Long position = (Long) readValue(in);
+        Execution execution = new Execution(executionId, runningExecutionPlanId, position, null, null);
+        execution.setGroupName((String) readValue(in));
+        execution.setContexts((Map<String, Serializable>) readValue(in));
+        SystemContext systemContext = (SystemContext) readValue(in);
+        if (systemContext != null) {
+            execution.getSystemContext().putAll(systemContext);
+        }
+        return execution;
+    }
+
+    private static class Output {
+        private byte[] buffer = new byte[256];
+        private int position;
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[position++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        // zig zag, so small negative numbers stay short
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeString(String value) {
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                if (value.charAt(i) >= 0x80) {
+                    writeBytes(value.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+            // ascii only, the chars are the utf-8 bytes
+            writeVarLong(length);
+            ensureCapacity(length);
+            for (int i = 0; i < length; i++) {
+                buffer[position++] = (byte) value.charAt(i);
+            }
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+    }
+
+    private static class Input {
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        byte readByte() {
+            return bytes[position++];
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed var long at position " + position);
+        }
+
+        long readSignedVarLong() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        int readSize() {
+            long size = readVarLong();
+            if (size < 0 || size > bytes.length - position) {
+                throw new IllegalArgumentException("Malformed size " + size + " at position " + position);
+            }
+            return (int) size;
+        }
+
+        byte[] readBytes() {
+            int length = readSize();
+            byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+            position += length;
+            return value;
+        }
+
+        String readString() {
+            int length = readSize();
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
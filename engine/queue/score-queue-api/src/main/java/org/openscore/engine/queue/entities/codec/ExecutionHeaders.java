@@ -0,0 +1,123 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.openscore.engine.queue.entities.ExecutionHeader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Date: 18/10/26
+ *
+ * Writes an ExecutionHeader in front of an encoded (and maybe compressed) payload:
+ * the format byte, the header length in two bytes, the header and then the payload as it was.
+ */
+public final class ExecutionHeaders {
+
+    public static final byte FORMAT = 3;
+
+    private static final int PREFIX_LENGTH = 3;
+
+    private static final int MAX_HEADER_LENGTH = 0xFFFF;
+
+    private static final int EXECUTION_ID = 1;
+    private static final int BRANCH_ID = 2;
+    private static final int SPLIT_ID = 4;
+    private static final int NO_WORKER_GROUP = 8;
+    private static final int ADMITTED_FLOW_UUID = 16;
+
+    private ExecutionHeaders() {
+    }
+
+    public static boolean hasHeader(byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == FORMAT;
+    }
+
+    /**
+     * @return the payload with the header in front, or the payload as it is if the header does not fit
+     */
+    public static byte[] write(ExecutionHeader header, byte[] body) {
+        try {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(headerBytes);
+            int flags = (header.getExecutionId() != null ? EXECUTION_ID : 0) |
+                    (header.getBranchId() != null ? BRANCH_ID : 0) |
+                    (header.getSplitId() != null ? SPLIT_ID : 0) |
+                    (header.getNoWorkerGroup() != null ? NO_WORKER_GROUP : 0) |
+                    (header.getAdmittedFlowUuid() != null ? ADMITTED_FLOW_UUID : 0);
+            out.writeByte(flags);
+            if (header.getExecutionId() != null) out.writeLong(header.getExecutionId());
+            if (header.getBranchId() != null) out.writeUTF(header.getBranchId());
+            if (header.getSplitId() != null) out.writeUTF(header.getSplitId());
+            if (header.getNoWorkerGroup() != null) out.writeUTF(header.getNoWorkerGroup());
+            if (header.getAdmittedFlowUuid() != null) out.writeUTF(header.getAdmittedFlowUuid());
+            out.flush();
+
+            int headerLength = headerBytes.size();
+            if (headerLength > MAX_HEADER_LENGTH) {
+                return body;
+            }
+            byte[] bytes = new byte[PREFIX_LENGTH + headerLength + body.length];
+            bytes[0] = FORMAT;
+            bytes[1] = (byte) (headerLength >>> 8);
+            bytes[2] = (byte) headerLength;
+            System.arraycopy(headerBytes.toByteArray(), 0, bytes, PREFIX_LENGTH, headerLength);
+            System.arraycopy(body, 0, bytes, PREFIX_LENGTH + headerLength, body.length);
+            return bytes;
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to write execution header. Error: ", ex);
+        }
+    }
+
+    public static ExecutionHeader read(byte[] bytes) {
+        if (!hasHeader(bytes)) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, PREFIX_LENGTH, headerLength(bytes)));
+            int flags = in.readUnsignedByte();
+            Long executionId = (flags & EXECUTION_ID) != 0 ? in.readLong() : null;
+            String branchId = (flags & BRANCH_ID) != 0 ? in.readUTF() : null;
+            String splitId = (flags & SPLIT_ID) != 0 ? in.readUTF() : null;
+            String noWorkerGroup = (flags & NO_WORKER_GROUP) != 0 ? in.readUTF() : null;
+            String admittedFlowUuid = (flags & ADMITTED_FLOW_UUID) != 0 ? in.readUTF() : null;
+            return new ExecutionHeader(executionId, branchId, splitId, noWorkerGroup, admittedFlowUuid);
+        } catch (IOException ex) {
+            throw new RuntimeException("Failed to read execution header. Error: ", ex);
+        }
+    }
+
+    /**
+     * @return the payload without the header, or the given bytes if they have no header
+     */
+    public static byte[] body(byte[] bytes) {
+        if (!hasHeader(bytes)) {
+            return bytes;
+        }
+        return Arrays.copyOfRange(bytes, bodyOffset(bytes), bytes.length);
+    }
+
+    /**
+     * @return the index the payload starts at, 0 if the bytes have no header
+     */
+    public static int bodyOffset(byte[] bytes) {
+        return hasHeader(bytes) ? PREFIX_LENGTH + headerLength(bytes) : 0;
+    }
+
+    private static int headerLength(byte[] bytes) {
+        return (bytes[1] & 0xFF) << 8 | (bytes[2] & 0xFF);
+    }
+}
@@ -0,0 +1,86 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+import java.io.Serializable;
+
+/**
+ * Date: 18/10/26
+ *
+ * Plain java serialization, the format of all the payloads written before the codecs were introduced.
+ * Its format byte is the first byte of the serialization stream magic, so those payloads are read as they are.
+ */
+public class JavaPayloadCodec implements PayloadCodec {
+
+    public static final byte FORMAT = (byte) (ObjectStreamConstants.STREAM_MAGIC >>> 8);
+
+    @Override
+    public byte getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public boolean canEncode(Object obj) {
+        return obj == null || obj instanceof Serializable;
+    }
+
+    @Override
+    public byte[] encode(Object obj) {
+        ObjectOutputStream oos = null;
+        try {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            BufferedOutputStream bos = new BufferedOutputStream(bout);
+            oos = new ObjectOutputStream(bos);
+
+            oos.writeObject(obj);
+            oos.flush();
+
+            return bout.toByteArray();
+        }
+        catch(IOException ex) {
+            throw new RuntimeException("Failed to serialize execution. Error: ", ex);
+        } finally {
+            IOUtils.closeQuietly(oos);
+        }
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        return decode(bytes, 0, bytes.length);
+    }
+
+    Object decode(byte[] bytes, int offset, int length) {
+        ObjectInputStream ois = null;
+        try {
+            //2 Buffers are added to increase performance
+            ByteArrayInputStream is = new ByteArrayInputStream(bytes, offset, length);
+            BufferedInputStream bis = new BufferedInputStream(is);
+            ois = new ObjectInputStream(bis);
+            return ois.readObject();
+        }
+        catch(IOException | ClassNotFoundException ex) {
+            throw new RuntimeException("Failed to read execution from byte[]. Error: ", ex);
+        }
+        finally {
+            IOUtils.closeQuietly(ois);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+/**
+ * Date: 18/10/26
+ *
+ * Turns the objects carried by the queue and the execution states (mostly executions) into bytes and back.
+ *
+ * The first byte of every encoded payload is the format of the codec that wrote it,
+ * so payloads written by one codec can still be read after another codec becomes the default.
+ *
+ */
+public interface PayloadCodec {
+
+    /**
+     *
+     * @return the format byte this codec writes at the start of its payloads
+     */
+    byte getFormat();
+
+    /**
+     *
+     * @param obj the object to encode
+     * @return true if this codec can encode the given object
+     */
+    boolean canEncode(Object obj);
+
+    /**
+     *
+     * encode the given object, the returned bytes start with the format byte
+     *
+     * @param obj the object to encode
+     * @return the encoded bytes
+     */
+    byte[] encode(Object obj);
+
+    /**
+     *
+     * decode bytes that were written by this codec
+     *
+     * @param bytes the encoded bytes, including the format byte
+     * @return the decoded object
+     */
+    Object decode(byte[] bytes);
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Date: 18/10/26
+ */
+@ManagedResource(description = "Execution payload compression statistics")
+public class PayloadCompressionMBean {
+
+	@Autowired
+	private PayloadCompressor compressor;
+
+	@ManagedAttribute(description = "Payloads smaller than this number of bytes are not compressed")
+	public int getThreshold() {
+		return compressor.getThreshold();
+	}
+
+	@ManagedAttribute(description = "Deflate level")
+	public int getLevel() {
+		return compressor.getLevel();
+	}
+
+	@ManagedAttribute(description = "Number of compressed payloads")
+	public long getCompressedPayloads() {
+		return compressor.getCompressedPayloads();
+	}
+
+	@ManagedAttribute(description = "Number of payloads above the threshold that did not get smaller")
+	public long getSkippedPayloads() {
+		return compressor.getSkippedPayloads();
+	}
+
+	@ManagedAttribute(description = "Compressed size / original size of the compressed payloads")
+	public double getCompressionRatio() {
+		long original = compressor.getOriginalBytes();
+		return original == 0 ? 1 : (double) compressor.getCompressedBytes() / original;
+	}
+
+	@ManagedAttribute(description = "Average compression time in microseconds")
+	public long getAverageCompressMicros() {
+		long count = compressor.getCompressedPayloads() + compressor.getSkippedPayloads();
+		return count == 0 ? 0 : compressor.getCompressNanos() / count / 1000;
+	}
+
+	@ManagedAttribute(description = "Average decompression time in microseconds")
+	public long getAverageDecompressMicros() {
+		long count = compressor.getDecompressedPayloads();
+		return count == 0 ? 0 : compressor.getDecompressNanos() / count / 1000;
+	}
+
+	@ManagedOperation(description = "Resets the compression statistics")
+	public void resetStatistics() {
+		compressor.resetStatistics();
+	}
+}
@@ -0,0 +1,188 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Date: 18/10/26
+ *
+ * Deflates encoded payloads that are larger than a threshold.
+ *
+ * A compressed payload starts with its own format byte and the length of the original payload,
+ * so compressed and uncompressed payloads can be mixed in the same table.
+ * The original payload keeps the format byte of the codec that wrote it.
+ */
+public class PayloadCompressor {
+
+    public static final byte FORMAT = 2;
+
+    private static final int HEADER_LENGTH = 5;
+
+    // payloads smaller than this are written as they are, compressing them costs more than it saves (e.g. 4096).
+    // only the nodes that have the compressor can read a compressed payload, so it is off (-1) until all the workers
+    // and orchestrators were upgraded, like execution.payload.codec
+    private final int threshold = Integer.getInteger("execution.payload.compression.threshold", -1);
+
+    private final int level = Integer.getInteger("execution.payload.compression.level", Deflater.BEST_SPEED);
+
+    private final ThreadLocal<Deflater> deflaters = new ThreadLocal<Deflater>() {
+        @Override
+        protected Deflater initialValue() {
+            return new Deflater(level);
+        }
+    };
+
+    private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    private final AtomicLong compressedPayloads = new AtomicLong();
+    private final AtomicLong skippedPayloads = new AtomicLong();
+    private final AtomicLong originalBytes = new AtomicLong();
+    private final AtomicLong compressedBytes = new AtomicLong();
+    private final AtomicLong compressNanos = new AtomicLong();
+    private final AtomicLong decompressedPayloads = new AtomicLong();
+    private final AtomicLong decompressNanos = new AtomicLong();
+
+    /**
+     * @return true if the payload, after its execution header if it has one, is compressed
+     */
+    public static boolean isCompressed(byte[] bytes) {
+        if (bytes == null) {
+            return false;
+        }
+        int offset = ExecutionHeaders.bodyOffset(bytes);
+        return bytes.length > offset && bytes[offset] == FORMAT;
+    }
+
+    /**
+     * @return the compressed payload, or the given payload if it is below the threshold or does not get smaller
+     */
+    public byte[] compress(byte[] bytes) {
+        if (threshold < 0 || bytes.length < threshold) {
+            return bytes;
+        }
+        long start = System.nanoTime();
+        Deflater deflater = deflaters.get();
+        byte[] result = new byte[HEADER_LENGTH + bytes.length];
+        int length;
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            length = deflater.deflate(result, HEADER_LENGTH, bytes.length);
+            if (!deflater.finished()) {
+                // did not fit in the original size
+                length = -1;
+            }
+        } finally {
+            deflater.reset();
+        }
+        compressNanos.addAndGet(System.nanoTime() - start);
+        if (length < 0 || HEADER_LENGTH + length >= bytes.length) {
+            skippedPayloads.incrementAndGet();
+            return bytes;
+        }
+        result[0] = FORMAT;
+        writeInt(result, 1, bytes.length);
+        compressedPayloads.incrementAndGet();
+        originalBytes.addAndGet(bytes.length);
+        compressedBytes.addAndGet(HEADER_LENGTH + length);
+        return Arrays.copyOf(result, HEADER_LENGTH + length);
+    }
+
+    public byte[] decompress(byte[] bytes) {
+        if (!isCompressed(bytes)) {
+            return bytes;
+        }
+        long start = System.nanoTime();
+        Inflater inflater = inflaters.get();
+        byte[] result = new byte[readInt(bytes, 1)];
+        try {
+            inflater.setInput(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+            int length = inflater.inflate(result);
+            if (length != result.length || !inflater.finished()) {
+                throw new RuntimeException("Failed to decompress payload. Expected " + result.length + " bytes, got " + length);
+            }
+        } catch (DataFormatException ex) {
+            throw new RuntimeException("Failed to decompress payload. Error: ", ex);
+        } finally {
+            inflater.reset();
+        }
+        decompressedPayloads.incrementAndGet();
+        decompressNanos.addAndGet(System.nanoTime() - start);
+        return result;
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getCompressedPayloads() {
+        return compressedPayloads.get();
+    }
+
+    public long getSkippedPayloads() {
+        return skippedPayloads.get();
+    }
+
+    public long getOriginalBytes() {
+        return originalBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public long getCompressNanos() {
+        return compressNanos.get();
+    }
+
+    public long getDecompressedPayloads() {
+        return decompressedPayloads.get();
+    }
+
+    public long getDecompressNanos() {
+        return decompressNanos.get();
+    }
+
+    public void resetStatistics() {
+        compressedPayloads.set(0);
+        skippedPayloads.set(0);
+        originalBytes.set(0);
+        compressedBytes.set(0);
+        compressNanos.set(0);
+        decompressedPayloads.set(0);
+        decompressNanos.set(0);
+    }
+}
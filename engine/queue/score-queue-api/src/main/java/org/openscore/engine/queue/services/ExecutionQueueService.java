@@ -58,6 +58,44 @@ public interface ExecutionQueueService {
      */
 	List<ExecutionMessage> poll(String workerId, int maxSize, ExecStatus... statuses);
 
+    /**
+     *
+     * atomically moves assigned messages of the worker to SENT and returns them,
+     * higher priorities first and otherwise in the order they were inserted to the queue
+     *
+     * @param workerId the id of the worker
+     * @param maxSize max size of the poll bulk
+     * @return a List of the claimed {@link org.openscore.engine.queue.entities.ExecutionMessage}, already in SENT status
+     */
+	List<ExecutionMessage> claim(String workerId, int maxSize);
+
+    /**
+     *
+     * assigns workers to the delayed messages whose not before time has come
+     *
+     * @param maxSize max size of the bulk
+     * @return the number of messages that were released to the workers
+     */
+	int releaseDueMessages(int maxSize);
+
+    /**
+     *
+     * the number of steps in the queue that did not finish yet, kept up to date by every enqueue
+     * when the queue.depth.tracking property is set
+     *
+     * @return the queue depth, 0 if it is not tracked
+     */
+    long getQueueDepth();
+
+    /**
+     *
+     * sets the queue depth to the number of steps that did not finish, correcting the drift of the counted depth,
+     * e.g. of finished messages that were enqueued again or of a queue that had steps before the tracking was set
+     *
+     * @return the queue depth, 0 if it is not tracked
+     */
+    long reconcileQueueDepth();
+
     /**
      *
      * polls messages that didn't receive ack yet
@@ -35,13 +35,25 @@ public interface QueueDispatcherService {
      */
 	void dispatch(List<ExecutionMessage> messages);
 
+    /**
+     *
+     * polls the messages assigned to the worker, each message is returned only once
+     *
+     * @param uuid the worker id
+     * @param maxSize max size of the poll bulk
+     * @return a list of {@link org.openscore.engine.queue.entities.ExecutionMessage}
+     */
+	List<ExecutionMessage> poll(String uuid, int maxSize);
+
     /**
      *
      * @param uuid the worker id
      * @param maxSize max size of the poll bulk
-     * @param createDate the first message create date
+     * @param createDate ignored, kept for workers of older versions
      * @return a list of {@link org.openscore.engine.queue.entities.ExecutionMessage}
+     * @deprecated use {@link #poll(String, int)}
      */
+	@Deprecated
 	List<ExecutionMessage> poll(String uuid, int maxSize, Date createDate);
 
     /**
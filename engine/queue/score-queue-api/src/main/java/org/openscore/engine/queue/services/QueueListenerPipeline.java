@@ -0,0 +1,44 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services;
+
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ *
+ * Runs the onFailed and onTerminated queue listeners after the enqueue transaction commits, on its own threads.
+ * Turned on by the queue.listeners.async system property.
+ */
+public interface QueueListenerPipeline {
+
+    /**
+     * @return true when the failed and terminated messages should be handed to the pipeline
+     */
+    boolean isEnabled();
+
+    /**
+     * writes the failed and terminated messages to the outbox, must be called inside the enqueue transaction.
+     * the listeners get them after the transaction commits.
+     *
+     * @param messages the enqueued messages, the other statuses are ignored
+     */
+    void submit(List<ExecutionMessage> messages);
+
+    /**
+     * handles one bulk of outbox rows that were not handled by the pipeline threads
+     *
+     * @return the number of messages that were handled
+     */
+    int recover();
+}
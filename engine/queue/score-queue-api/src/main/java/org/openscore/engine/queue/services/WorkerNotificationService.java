@@ -0,0 +1,46 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services;
+
+import java.util.Collection;
+
+/**
+ * Date: 18/10/26
+ *
+ * Notifies workers that new messages were assigned to them, so a worker
+ * can wait for work instead of polling the queue on a fixed interval.
+ *
+ * The default implementation notifies through a database table, so a worker is notified of the messages
+ * assigned by every engine node. A remote worker waits through the engine's "workerNotificationService" bean,
+ * the same way it polls through the "queueDispatcherService" bean.
+ *
+ */
+public interface WorkerNotificationService {
+
+    /**
+     *
+     * notify the given workers that messages were assigned to them
+     *
+     * @param workerUuids the uuids of the workers to notify
+     */
+    void notifyWorkers(Collection<String> workerUuids);
+
+    /**
+     *
+     * wait until the worker is notified or the timeout passes
+     *
+     * @param workerUuid the uuid of the waiting worker
+     * @param timeoutMillis max time to wait in milliseconds
+     * @return true if the worker was notified, false if the timeout passed
+     * @throws InterruptedException if the waiting thread was interrupted
+     */
+    boolean waitForWork(String workerUuid, long timeoutMillis) throws InterruptedException;
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.openscore.engine.node.entities.WorkerLoad;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Date: 18/10/26
+ *
+ * The loads of the workers during one assignment iteration: the load each worker reported last,
+ * plus the messages the iteration already assigned to it, so a batch is not sent to the worker that was idle at its last keep alive.
+ * A worker that did not report a load is taken as an idle worker with a single execution thread.
+ */
+public class AssignmentLoads {
+
+    private static final WorkerLoad NO_LOAD = new WorkerLoad(0, 0, 1, 0);
+
+    private final Map<String, WorkerLoad> reported;
+
+    private final Map<String, Integer> assigned = new HashMap<>();
+
+    public AssignmentLoads(Map<String, WorkerLoad> reported) {
+        this.reported = reported;
+    }
+
+    /**
+     * @return the tasks per execution thread the worker has, including the ones assigned in this iteration
+     */
+    public double loadFactor(String workerUuid) {
+        WorkerLoad load = reported.get(workerUuid);
+        Integer count = assigned.get(workerUuid);
+        return (load != null ? load : NO_LOAD).loadFactor(count != null ? count : 0);
+    }
+
+    public void assigned(String workerUuid) {
+        Integer count = assigned.get(workerUuid);
+        assigned.put(workerUuid, count != null ? count + 1 : 1);
+    }
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Date: 18/10/26
+ *
+ * Chooses the worker of a group that a pending message is assigned to.
+ * A bean of this type replaces the strategy selected by the queue.assignment.strategy property.
+ */
+public interface AssignmentStrategy {
+
+    /**
+     * @return true if the strategy needs the loads the workers report, false to skip reading them
+     */
+    boolean isLoadAware();
+
+    /**
+     *
+     * chooses a worker for one message
+     *
+     * @param message the pending message, assigned to a worker of its group
+     * @param workers the uuids of the active and running workers of the group, never empty and not to be modified
+     * @param loads the loads of the workers, null if the strategy is not load aware
+     * @param random the random generator of the current assignment iteration
+     * @return the uuid of the chosen worker, one of the given workers
+     */
+    String chooseWorker(ExecutionMessage message, List<String> workers, AssignmentLoads loads, Random random);
+}
@@ -29,6 +29,15 @@ public interface QueueCleanerService {
      */
     Set<Long> getFinishedExecStateIds();
 
+    /**
+     *
+     * get a bounded set of ids of finished executions
+     *
+     * @param maxSize the max number of ids to return
+     * @return Set of at most maxSize ids of finished executions
+     */
+    Set<Long> getFinishedExecStateIds(int maxSize);
+
     /**
      *
      * clean queues data for the given ids
@@ -0,0 +1,144 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.junit.Test;
+import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.entities.Payload;
+import org.openscore.facade.entities.Execution;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Date: 18/10/26
+ */
+public class BinaryPayloadCodecTest {
+
+    private BinaryPayloadCodec codec = new BinaryPayloadCodec();
+
+    private ExecutionMessageConverter converter = new ExecutionMessageConverter();
+
+    @Test
+    public void testRoundTrip() {
+        Execution execution = createExecution();
+
+        byte[] bytes = codec.encode(execution);
+        assertEquals(BinaryPayloadCodec.FORMAT, bytes[0]);
+
+        Execution decoded = (Execution) codec.decode(bytes);
+        assertEquals(execution, decoded);
+        assertEquals(execution.getGroupName(), decoded.getGroupName());
+        assertEquals(execution.getContexts(), decoded.getContexts());
+        assertEquals(execution.getSystemContext(), decoded.getSystemContext());
+        assertEquals(LinkedHashMap.class, decoded.getContexts().get("ordered").getClass());
+    }
+
+    @Test
+    public void testTypesWithoutEquals() {
+        Execution execution = new Execution(2L, 3L, null);
+        execution.getContexts().put("bytes", new byte[]{1, 2, 3});
+        execution.getSystemContext().put("events", new ArrayDeque<>(Arrays.asList("e1", "e2")));
+
+        Execution decoded = (Execution) codec.decode(codec.encode(execution));
+        assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) decoded.getContexts().get("bytes"));
+        ArrayDeque<?> events = (ArrayDeque<?>) decoded.getSystemContext().get("events");
+        assertEquals(Arrays.asList("e1", "e2"), new ArrayList<>(events));
+    }
+
+    @Test
+    public void testNullFields() {
+        Execution execution = new Execution(null, null, (Map<String, Serializable>) null);
+        execution.setContexts(null);
+
+        Execution decoded = (Execution) codec.decode(codec.encode(execution));
+        assertEquals(null, decoded.getExecutionId());
+        assertEquals(null, decoded.getContexts());
+        assertTrue(decoded.getSystemContext().isEmpty());
+    }
+
+    @Test
+    public void testLegacyPayloadIsDecoded() throws IOException {
+        Execution execution = createExecution();
+        Payload legacy = new Payload(true, false, new JavaPayloadCodec().encode(execution));
+
+        Execution decoded = converter.extractExecution(legacy);
+        assertEquals(execution, decoded);
+        assertEquals(execution.getContexts(), decoded.getContexts());
+        assertEquals(execution.getSystemContext(), decoded.getSystemContext());
+    }
+
+    @Test
+    public void testConverterWritesJavaByDefault() {
+        assertEquals(JavaPayloadCodec.FORMAT, converter.toBytes(createExecution())[0]);
+    }
+
+    @Test
+    public void testConverterWritesBinaryForExecutionsOnly() {
+        System.setProperty("execution.payload.codec", "binary");
+        try {
+            ExecutionMessageConverter binaryConverter = new ExecutionMessageConverter();
+            assertEquals(BinaryPayloadCodec.FORMAT, binaryConverter.toBytes(createExecution())[0]);
+            assertEquals(JavaPayloadCodec.FORMAT, binaryConverter.toBytes(new ArrayList<>())[0]);
+            assertFalse(codec.canEncode(new Execution() {}));
+        } finally {
+            System.clearProperty("execution.payload.codec");
+        }
+    }
+
+    @Test
+    public void testSmallerThanJavaSerialization() {
+        Execution execution = createExecution();
+        assertTrue(codec.encode(execution).length < new JavaPayloadCodec().encode(execution).length);
+    }
+
+    static Execution createExecution() {
+        Map<String, Serializable> contexts = new HashMap<>();
+        contexts.put("string", "value");
+        contexts.put("unicode", "שלום");
+        contexts.put("int", -17);
+        contexts.put("long", Long.MAX_VALUE);
+        contexts.put("double", 3.5d);
+        contexts.put("float", -1.25f);
+        contexts.put("short", (short) 7);
+        contexts.put("byte", (byte) -3);
+        contexts.put("char", 'x');
+        contexts.put("boolean", true);
+        contexts.put("date", new Date(1234567890L));
+        contexts.put("decimal", new BigDecimal("1.50"));
+        contexts.put("list", new ArrayList<>(Arrays.asList("a", null, 3L)));
+        contexts.put("set", new LinkedHashSet<>(Arrays.asList(1, 2)));
+        LinkedHashMap<String, Serializable> ordered = new LinkedHashMap<>();
+        ordered.put("b", 1);
+        ordered.put("a", new HashMap<>(contexts));
+        contexts.put("ordered", ordered);
+
+        Execution execution = new Execution(123L, 456L, 7L, contexts, null);
+        execution.setGroupName("group");
+        execution.getSystemContext().setBranchId("branch");
+        execution.getSystemContext().put("tags", new ArrayList<>(Arrays.asList("e1", "e2")));
+        return execution;
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.junit.Test;
+import org.openscore.engine.queue.entities.ExecutionHeader;
+import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.entities.Payload;
+import org.openscore.facade.entities.Execution;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Date: 18/10/26
+ */
+public class ExecutionHeadersTest {
+
+    private ExecutionMessageConverter converter = new ExecutionMessageConverter();
+
+    @Test
+    public void testRoundTrip() {
+        ExecutionHeader header = new ExecutionHeader(5L, "branch", null, "group");
+        byte[] body = {1, 2, 3};
+
+        byte[] bytes = ExecutionHeaders.write(header, body);
+        assertTrue(ExecutionHeaders.hasHeader(bytes));
+        assertEquals(header, ExecutionHeaders.read(bytes));
+        assertArrayEquals(body, ExecutionHeaders.body(bytes));
+    }
+
+    @Test
+    public void testRoundTripWithAdmittedFlow() {
+        ExecutionHeader header = new ExecutionHeader(5L, null, null, null, "flowA");
+
+        ExecutionHeader read = ExecutionHeaders.read(ExecutionHeaders.write(header, new byte[]{1}));
+        assertEquals(header, read);
+        assertEquals("flowA", read.getAdmittedFlowUuid());
+    }
+
+    @Test
+    public void testNoHeader() {
+        byte[] bytes = {BinaryPayloadCodec.FORMAT, 0};
+        assertNull(ExecutionHeaders.read(bytes));
+        assertArrayEquals(bytes, ExecutionHeaders.body(bytes));
+    }
+
+    @Test
+    public void testPayloadCarriesHeader() throws IOException {
+        Execution execution = new Execution(7L, 8L, 9L, null, null);
+        execution.getSystemContext().setBranchId("branch");
+        execution.getSystemContext().setSplitId("split");
+
+        System.setProperty("execution.payload.header", "true");
+        Payload payload;
+        try {
+            payload = new ExecutionMessageConverter().createPayload(execution);
+        } finally {
+            System.clearProperty("execution.payload.header");
+        }
+        ExecutionHeader header = ExecutionHeaders.read(payload.getData());
+        assertEquals(new ExecutionHeader(7L, "branch", "split", null), header);
+        assertTrue(header.isBranch());
+        assertFalse(header.isFailedBecauseNoWorker());
+        assertEquals(execution, converter.extractExecution(payload));
+    }
+
+    @Test
+    public void testNoHeaderByDefault() throws IOException {
+        Execution execution = new Execution(7L, 8L, 9L, null, null);
+        execution.getSystemContext().setNoWorkerInGroup("group");
+
+        //the nodes that were not upgraded read the payload as before
+        Payload payload = converter.createPayload(execution);
+        assertArrayEquals(new JavaPayloadCodec().encode(execution), payload.getData());
+        assertNull(ExecutionHeaders.read(payload.getData()));
+        assertEquals(new ExecutionHeader(7L, null, null, "group"), ExecutionHeader.of(converter.<Execution>extractExecution(payload)));
+    }
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.junit.Test;
+import org.openscore.facade.entities.Execution;
+
+/**
+ * Date: 18/10/26
+ *
+ * Compares the binary codec with java serialization on an execution with only the built in types.
+ * Not part of the regular build, run it with: mvn test -Dtest=PayloadCodecBenchmark
+ */
+public class PayloadCodecBenchmark {
+
+	private static final int ITERATIONS = 50000;
+
+	private volatile Object sink;
+
+	@Test
+	public void benchmark() {
+		Execution execution = BinaryPayloadCodecTest.createExecution();
+		execution.getContexts().remove("decimal");
+		PayloadCodec[] codecs = {new JavaPayloadCodec(), new BinaryPayloadCodec()};
+		for (PayloadCodec codec : codecs) {
+			byte[] bytes = codec.encode(execution);
+			// warm up
+			run(codec, execution, bytes, ITERATIONS / 10);
+
+			long encode = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				sink = codec.encode(execution);
+			}
+			encode = System.nanoTime() - encode;
+
+			long decode = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				sink = codec.decode(bytes);
+			}
+			decode = System.nanoTime() - decode;
+
+			System.out.println(String.format("%-18s %5d bytes, encode %6d ns/op, decode %6d ns/op",
+					codec.getClass().getSimpleName(), bytes.length, encode / ITERATIONS, decode / ITERATIONS));
+		}
+	}
+
+	private void run(PayloadCodec codec, Execution execution, byte[] bytes, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			sink = codec.encode(execution);
+			sink = codec.decode(bytes);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.entities.codec;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.entities.Payload;
+import org.openscore.facade.entities.Execution;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Date: 18/10/26
+ */
+public class PayloadCompressorTest {
+
+    private static final String THRESHOLD_PROPERTY = "execution.payload.compression.threshold";
+
+    private PayloadCompressor compressor;
+
+    @Before
+    public void init() {
+        System.setProperty(THRESHOLD_PROPERTY, "4096");
+        compressor = new PayloadCompressor();
+    }
+
+    @After
+    public void clear() {
+        System.clearProperty(THRESHOLD_PROPERTY);
+    }
+
+    @Test
+    public void testCompressionIsOffByDefault() {
+        System.clearProperty(THRESHOLD_PROPERTY);
+        PayloadCompressor defaultCompressor = new PayloadCompressor();
+        byte[] bytes = StringUtils.repeat("flow context value ", 1000).getBytes();
+        assertSame(bytes, defaultCompressor.compress(bytes));
+
+        //payloads that were compressed are still read
+        assertArrayEquals(bytes, defaultCompressor.decompress(compressor.compress(bytes)));
+    }
+
+    @Test
+    public void testSmallPayloadIsNotCompressed() {
+        byte[] bytes = new byte[compressor.getThreshold() - 1];
+        assertSame(bytes, compressor.compress(bytes));
+        assertEquals(0, compressor.getCompressedPayloads());
+    }
+
+    @Test
+    public void testLargePayloadRoundTrip() {
+        byte[] bytes = StringUtils.repeat("flow context value ", 1000).getBytes();
+
+        byte[] compressed = compressor.compress(bytes);
+        assertTrue(PayloadCompressor.isCompressed(compressed));
+        assertTrue(compressed.length < bytes.length);
+        assertArrayEquals(bytes, compressor.decompress(compressed));
+
+        assertEquals(1, compressor.getCompressedPayloads());
+        assertEquals(bytes.length, compressor.getOriginalBytes());
+        assertEquals(compressed.length, compressor.getCompressedBytes());
+        assertEquals(1, compressor.getDecompressedPayloads());
+    }
+
+    @Test
+    public void testIncompressiblePayloadIsKept() {
+        byte[] bytes = new byte[compressor.getThreshold() * 2];
+        new Random(7).nextBytes(bytes);
+
+        assertSame(bytes, compressor.compress(bytes));
+        assertEquals(1, compressor.getSkippedPayloads());
+    }
+
+    @Test
+    public void testConverterReadsCompressedAndPlainPayloads() throws IOException {
+        ExecutionMessageConverter converter = new ExecutionMessageConverter();
+        Execution execution = new Execution(1L, 2L, null);
+        execution.getContexts().put("big", StringUtils.repeat("a", 10000));
+
+        Payload compressed = converter.createPayload(execution);
+        assertTrue(compressed.isCompressed());
+        //the flag is set the same way when the payload is read back from the table
+        assertTrue(PayloadCompressor.isCompressed(compressed.getData()));
+        assertEquals(execution.getContexts(), converter.<Execution>extractExecution(compressed).getContexts());
+
+        Payload plain = converter.createPayload(new Execution(1L, 2L, null));
+        assertFalse(plain.isCompressed());
+        assertFalse(PayloadCompressor.isCompressed(plain.getData()));
+        assertEquals(new Execution(1L, 2L, null), converter.extractExecution(plain));
+    }
+}
@@ -14,6 +14,7 @@ import org.openscore.engine.queue.entities.ExecStatus;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.entities.Payload;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,14 @@ public interface ExecutionQueueRepository {
 
 	List<ExecutionMessage> poll(String workerId, int maxSize, ExecStatus... statuses);
 
+	List<ExecutionMessage> claim(String workerId, int maxSize, long version);
+
+	/**
+	 * clears the delay of the pending messages that are due, the messages are left out if another orchestrator cleared it first
+	 * @return the due messages, pending and no longer delayed
+	 */
+	List<ExecutionMessage> claimDueMessages(long now, int maxSize);
+
 	List<ExecutionMessage> pollMessagesWithoutAck(int maxSize,long minVersionAllowed);
 
     Integer countMessagesWithoutAckForWorker(int maxSize, long minVersionAllowed, String workerUuid);
@@ -40,11 +49,50 @@ public interface ExecutionQueueRepository {
 
 	void insertExecutionQueue(final List<ExecutionMessage> messages,long version);
 
+	/**
+	 * adds to the number of steps in the queue that did not finish yet
+	 */
+	void updateQueueDepth(long delta);
+
+	long getQueueDepth();
+
+	long countUnfinishedSteps();
+
+	/**
+	 * sets the queue depth to the given value, on the first stripe
+	 */
+	void resetQueueDepth(long depth);
+
 	Map<Long,Payload> findPayloadByExecutionIds(Long ... ids);
 
     void deleteFinishedSteps(Set<Long> ids);
 
     Set<Long> getFinishedExecStateIds();
 
+    Set<Long> getFinishedExecStateIds(int maxSize);
+
 	List<ExecutionMessage> findByStatuses(int maxSize, ExecStatus... statuses);
+
+	List<Long> insertListenerOutbox(List<ExecutionMessage> messages);
+
+	Map<Long, ExecutionMessage> findListenerOutbox(Date createdBefore, int maxAttempts, int maxSize);
+
+	/**
+	 * @return a count per id, 0 for a row that was already deleted and {@link java.sql.Statement#SUCCESS_NO_INFO} when the driver does not report it
+	 */
+	int[] deleteListenerOutbox(List<Long> ids);
+
+	int incrementListenerOutboxAttempts(long id);
+
+	/**
+	 * adds a notification to each of the given workers, a worker without a notifications row is left out
+	 */
+	int incrementWorkerNotifications(Collection<String> workerUuids);
+
+	void insertWorkerNotifications(String workerUuid);
+
+	/**
+	 * @return the number of notifications of every worker, by worker uuid
+	 */
+	Map<String, Long> findWorkerNotifications();
 }
@@ -13,9 +13,14 @@ package org.openscore.engine.queue.repositories;
 import org.openscore.engine.queue.entities.ExecStatus;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.entities.Payload;
+import org.openscore.engine.queue.entities.codec.PayloadCompressor;
+import org.openscore.engine.queue.repositories.bulk.BatchInsertWriter;
+import org.openscore.engine.queue.repositories.bulk.BulkInsertWriter;
+import org.openscore.engine.queue.repositories.bulk.MultiRowInsertWriter;
+import org.openscore.engine.queue.repositories.bulk.PostgresCopyInsertWriter;
 import org.openscore.engine.partitions.services.PartitionTemplate;
+import org.openscore.engine.data.DataBaseDetector;
 import org.openscore.engine.data.IdentityGenerator;
-import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -30,16 +35,19 @@ import javax.sql.DataSource;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * User:
@@ -51,13 +59,16 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 
     private Logger logger = Logger.getLogger(getClass());
 
-    final private String SELECT_FINISHED_STEPS_IDS =  " SELECT EXEC_STATE_ID FROM OO_EXECUTION_QUEUES_1 " +
+    final private String SELECT_FINISHED_STEPS_IDS =  " SELECT EXEC_STATE_ID FROM OO_EXECUTION_QUEUE_HEAD " +
                                                       " WHERE " +
                                                       "        (STATUS = "+ExecStatus.TERMINATED.getNumber()+") OR " +
                                                       "        (STATUS = "+ExecStatus.FAILED.getNumber()+") OR " +
                                                       "        (STATUS = "+ExecStatus.FINISHED.getNumber()+") ";
 
-	final private String QUERY_DELETE_FINISHED_STEPS = "DELETE FROM OO_EXECUTION_QUEUES_1 " +
+	final private String QUERY_DELETE_FINISHED_STEPS = "DELETE FROM :OO_EXECUTION_QUEUES " +
+			" WHERE EXEC_STATE_ID in (:ids)";
+
+	final private String QUERY_DELETE_FINISHED_HEADS = "DELETE FROM OO_EXECUTION_QUEUE_HEAD " +
 			" WHERE EXEC_STATE_ID in (:ids)";
 
 
@@ -67,31 +78,20 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 					"       EXEC_GROUP ,       " +
 					"       STATUS,       " +
 					"       MSG_SEQ_ID,   " +
+					"       PRIORITY,   " +
 					"      CREATE_TIME " +
-					"  FROM  OO_EXECUTION_QUEUES_1 q  " +
+					"  FROM  OO_EXECUTION_QUEUE_HEAD q  " +
 					"  WHERE " +
 					"      (q.STATUS  = ? ) AND " +
-					"     (NOT EXISTS (SELECT qq.MSG_SEQ_ID " +
-					"                  FROM OO_EXECUTION_QUEUES_1 qq " +
-					"                  WHERE (qq.EXEC_STATE_ID = q.EXEC_STATE_ID) AND " +
-					"                        qq.MSG_SEQ_ID > q.MSG_SEQ_ID" +
-					"                 )" +
-					"      ) AND " +
 					"      (q.MSG_VERSION < ?) ";
 
 
     final private String QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_SQL =
             "SELECT COUNT(*)  " +
-                        "  FROM  OO_EXECUTION_QUEUES_1  q  " +
+                        "  FROM  OO_EXECUTION_QUEUE_HEAD  q  " +
                         "  WHERE " +
                         "      (q.ASSIGNED_WORKER  = ? ) AND " +
                         "      (q.STATUS  = ? ) AND " +
-                        "     (NOT EXISTS (SELECT qq.MSG_SEQ_ID " +
-                        "                  FROM OO_EXECUTION_QUEUES_1 qq " +
-                        "                  WHERE (qq.EXEC_STATE_ID = q.EXEC_STATE_ID) AND " +
-                        "                        qq.MSG_SEQ_ID > q.MSG_SEQ_ID " +
-                        "                 )" +
-                        "      ) AND " +
                         "      (q.MSG_VERSION < ?)  ";
 
 
@@ -103,18 +103,16 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 					"       PAYLOAD,       " +
 					"       MSG_SEQ_ID ,      " +
 					"       MSG_ID," +
+					"       q.PRIORITY," +
 					"       q.CREATE_TIME " +
-					" FROM  OO_EXECUTION_QUEUES_1 q,  " +
+					" FROM  OO_EXECUTION_QUEUE_HEAD q,  " +
 					"      :OO_EXECUTION_STATES s   " +
 					" WHERE  " +
 					"      (q.CREATE_TIME >= ? ) AND " +
 					"      (q.ASSIGNED_WORKER =  ?)  AND " +
 					"      (q.STATUS IN (:status)) AND " +
-					" (q.EXEC_STATE_ID = s.ID) AND " +
-					" (NOT EXISTS (SELECT qq.MSG_SEQ_ID " +
-					"              FROM OO_EXECUTION_QUEUES_1 qq " +
-					"              WHERE (qq.EXEC_STATE_ID = q.EXEC_STATE_ID) AND qq.MSG_SEQ_ID > q.MSG_SEQ_ID)) " +
-					" ORDER BY q.CREATE_TIME  ";
+					" (q.EXEC_STATE_ID = s.ID) " +
+					" ORDER BY q.PRIORITY_ORDER, q.ID  ";
 
     final private String QUERY_WORKER_RECOVERY_SQL =
             "SELECT         EXEC_STATE_ID,      " +
@@ -124,16 +122,14 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
                     "       PAYLOAD,       " +
                     "       MSG_SEQ_ID,      " +
                     "       MSG_ID," +
+                    "       q.PRIORITY," +
                     "       q.CREATE_TIME " +
-                    " FROM  OO_EXECUTION_QUEUES_1 q,  " +
+                    " FROM  OO_EXECUTION_QUEUE_HEAD q,  " +
                     "       :OO_EXECUTION_STATES s1   " +
                     " WHERE  " +
                     "      (q.ASSIGNED_WORKER =  ?)  AND " +
                     "      (q.STATUS IN (:status)) AND " +
-                    " q.EXEC_STATE_ID = s1.ID AND" +
-                    " (NOT EXISTS (SELECT qq.MSG_SEQ_ID " +
-                    "              FROM OO_EXECUTION_QUEUES_1 qq " +
-                    "              WHERE (qq.EXEC_STATE_ID = q.EXEC_STATE_ID) AND qq.MSG_SEQ_ID > q.MSG_SEQ_ID)) ";
+                    " q.EXEC_STATE_ID = s1.ID ";
 
 	final private String QUERY_MESSAGES_BY_STATUSES =
 			"SELECT EXEC_STATE_ID, " +
@@ -141,27 +137,156 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 					"  EXEC_GROUP , " +
 					"  STATUS, " +
 					"  MSG_SEQ_ID, " +
+					"  PRIORITY, " +
 					"  CREATE_TIME " +
-					"FROM  OO_EXECUTION_QUEUES_1 q  " +
-					"WHERE STATUS IN (:status) AND " +
-					"  NOT EXISTS (" +
-					"     SELECT qq.MSG_SEQ_ID " +
-					"     FROM OO_EXECUTION_QUEUES_1 qq " +
-					"     WHERE" +
-					"         qq.EXEC_STATE_ID = q.EXEC_STATE_ID" +
-					"         AND qq.MSG_SEQ_ID > q.MSG_SEQ_ID" +
-					"  )";
+					"FROM  OO_EXECUTION_QUEUE_HEAD q  " +
+					"WHERE STATUS IN (:status) ";
+
+	final private String QUERY_CLAIM_SQL =
+			"SELECT q.EXEC_STATE_ID,      " +
+					"       q.ASSIGNED_WORKER,      " +
+					"       q.EXEC_GROUP ,       " +
+					"       q.STATUS,       " +
+					"       s.PAYLOAD,       " +
+					"       q.MSG_SEQ_ID ,      " +
+					"       s.MSG_ID," +
+					"       q.PRIORITY," +
+					"       q.CREATE_TIME " +
+					" FROM  OO_EXECUTION_QUEUE_HEAD q :headHint,  " +
+					"      :OO_EXECUTION_STATES s   " +
+					" WHERE  " +
+					"      (q.ASSIGNED_WORKER =  ?)  AND " +
+					"      (q.STATUS = ?) AND " +
+					" (q.EXEC_STATE_ID = s.ID) " +
+					" ORDER BY q.PRIORITY_ORDER, q.ID";
+
+	// oracle applies the row limit of a select only after it locked every row of the select, so the claim locks
+	// a limited batch of the worker's rows through an inner select, and concurrent pollers skip that batch only
+	final private String QUERY_CLAIM_ROW_LIMITED_SQL =
+			"SELECT q.EXEC_STATE_ID,      " +
+					"       q.ASSIGNED_WORKER,      " +
+					"       q.EXEC_GROUP ,       " +
+					"       q.STATUS,       " +
+					"       s.PAYLOAD,       " +
+					"       q.MSG_SEQ_ID ,      " +
+					"       s.MSG_ID," +
+					"       q.PRIORITY," +
+					"       q.CREATE_TIME " +
+					" FROM  OO_EXECUTION_QUEUE_HEAD q,  " +
+					"      :OO_EXECUTION_STATES s   " +
+					" WHERE  " +
+					"      q.EXEC_STATE_ID IN ( " +
+					"          SELECT EXEC_STATE_ID FROM ( " +
+					"              SELECT h.EXEC_STATE_ID FROM OO_EXECUTION_QUEUE_HEAD h " +
+					"              WHERE (h.ASSIGNED_WORKER = ?) AND (h.STATUS = ?) " +
+					"              ORDER BY h.PRIORITY_ORDER, h.ID) " +
+					"          WHERE ROWNUM <= ?) AND " +
+					"      (q.STATUS = ?) AND " +
+					" (q.EXEC_STATE_ID = s.ID) " +
+					" ORDER BY q.PRIORITY_ORDER, q.ID FOR UPDATE OF q.STATUS SKIP LOCKED";
+
+	// compare and set, a message that was claimed by another poller is left out
+	final private String UPDATE_CLAIMED_HEAD = "UPDATE OO_EXECUTION_QUEUE_HEAD SET STATUS = ?, MSG_SEQ_ID = ?, MSG_VERSION = ? " +
+			" WHERE EXEC_STATE_ID = ? AND STATUS = ? AND MSG_SEQ_ID = ?";
+
+	// postgres claims and returns the messages in a single statement
+	final private String QUERY_CLAIM_RETURNING_SQL =
+			"WITH claimed AS ( " +
+					"  UPDATE OO_EXECUTION_QUEUE_HEAD h SET STATUS = ?, MSG_SEQ_ID = h.MSG_SEQ_ID + 1, MSG_VERSION = ? " +
+					"  WHERE h.EXEC_STATE_ID IN ( " +
+					"      SELECT q.EXEC_STATE_ID FROM OO_EXECUTION_QUEUE_HEAD q " +
+					"      WHERE (q.ASSIGNED_WORKER = ?) AND (q.STATUS = ?) AND " +
+					"            EXISTS (SELECT s.ID FROM :OO_EXECUTION_STATES s WHERE s.ID = q.EXEC_STATE_ID) " +
+					"      ORDER BY q.PRIORITY_ORDER, q.ID LIMIT ? FOR UPDATE SKIP LOCKED) " +
+					"  RETURNING h.ID, h.EXEC_STATE_ID, h.ASSIGNED_WORKER, h.EXEC_GROUP, h.STATUS, h.MSG_SEQ_ID, h.PRIORITY, h.PRIORITY_ORDER, h.CREATE_TIME) " +
+					"SELECT c.EXEC_STATE_ID, c.ASSIGNED_WORKER, c.EXEC_GROUP, c.STATUS, s.PAYLOAD, c.MSG_SEQ_ID, s.MSG_ID, c.PRIORITY, c.CREATE_TIME " +
+					" FROM claimed c, :OO_EXECUTION_STATES s " +
+					" WHERE c.EXEC_STATE_ID = s.ID " +
+					" ORDER BY c.PRIORITY_ORDER, c.ID";
+
+	// the delayed messages that are due, in the order they became due
+	final private String QUERY_DUE_MESSAGES_SQL =
+			"SELECT q.EXEC_STATE_ID, " +
+					"       q.ASSIGNED_WORKER, " +
+					"       q.EXEC_GROUP, " +
+					"       q.STATUS, " +
+					"       s.PAYLOAD, " +
+					"       q.MSG_SEQ_ID, " +
+					"       s.MSG_ID, " +
+					"       q.PRIORITY, " +
+					"       q.CREATE_TIME " +
+					" FROM  OO_EXECUTION_QUEUE_HEAD q,  " +
+					"      :OO_EXECUTION_STATES s   " +
+					" WHERE  " +
+					"      (q.STATUS = ?) AND " +
+					"      (q.NOT_BEFORE > 0) AND " +
+					"      (q.NOT_BEFORE <= ?) AND " +
+					" (q.EXEC_STATE_ID = s.ID) " +
+					" ORDER BY q.NOT_BEFORE";
+
+	// compare and set, a delayed message that was released by another orchestrator is left out
+	final private String UPDATE_DUE_HEAD = "UPDATE OO_EXECUTION_QUEUE_HEAD SET NOT_BEFORE = 0 " +
+			" WHERE EXEC_STATE_ID = ? AND STATUS = ? AND MSG_SEQ_ID = ? AND NOT_BEFORE > 0";
+
+	final private String[] EXEC_STATE_COLUMNS = {"ID", "MSG_ID", "PAYLOAD", "CREATE_TIME"};
+
+	// the queue tables and the head share the same columns
+	final private String[] QUEUE_COLUMNS = {"ID", "EXEC_STATE_ID", "ASSIGNED_WORKER", "EXEC_GROUP", "STATUS", "MSG_SEQ_ID", "CREATE_TIME", "MSG_VERSION", "PRIORITY", "PRIORITY_ORDER", "NOT_BEFORE"};
+
+	final private String QUEUE_HEAD_TABLE = "OO_EXECUTION_QUEUE_HEAD";
+
+	// failed and terminated messages that wait for the asynchronous queue listeners
+	final private String LISTENER_OUTBOX_TABLE = "OO_QUEUE_LISTENER_OUTBOX";
+
+	final private String[] LISTENER_OUTBOX_COLUMNS = {"ID", "EXEC_STATE_ID", "ASSIGNED_WORKER", "EXEC_GROUP", "STATUS", "MSG_SEQ_ID", "MSG_ID", "PAYLOAD", "CREATE_TIME"};
+
+	final private String QUERY_LISTENER_OUTBOX = "SELECT ID, EXEC_STATE_ID, ASSIGNED_WORKER, EXEC_GROUP, STATUS, MSG_SEQ_ID, MSG_ID, PAYLOAD, CREATE_TIME " +
+			" FROM OO_QUEUE_LISTENER_OUTBOX WHERE CREATE_TIME < ? AND ATTEMPTS < ? ORDER BY ID";
+
+	final private String DELETE_LISTENER_OUTBOX = "DELETE FROM OO_QUEUE_LISTENER_OUTBOX WHERE ID = ?";
+
+	final private String INCREMENT_LISTENER_OUTBOX_ATTEMPTS = "UPDATE OO_QUEUE_LISTENER_OUTBOX SET ATTEMPTS = ATTEMPTS + 1 WHERE ID = ?";
+
+	// the head keeps the latest message of every exec state, an older message never overrides a newer one
+	// and a message with the same seq id never reopens a finished step
+	final private String UPDATE_QUEUE_HEAD = "UPDATE OO_EXECUTION_QUEUE_HEAD SET ID = ?, ASSIGNED_WORKER = ?, EXEC_GROUP = ?, STATUS = ?, MSG_SEQ_ID = ?, CREATE_TIME = CURRENT_TIMESTAMP, MSG_VERSION = ?, PRIORITY = ?, PRIORITY_ORDER = ?, NOT_BEFORE = ? " +
+			" WHERE EXEC_STATE_ID = ? AND (MSG_SEQ_ID < ? OR (MSG_SEQ_ID = ? AND STATUS NOT IN (" +
+			ExecStatus.FINISHED.getNumber() + "," + ExecStatus.TERMINATED.getNumber() + "," + ExecStatus.FAILED.getNumber() + ")))";
+
+	// the queue depth is spread over stripes, so concurrent enqueues do not queue up on a single row
+	final private String UPDATE_QUEUE_DEPTH = "UPDATE OO_EXECUTION_QUEUE_DEPTH SET DEPTH = DEPTH + ? WHERE STRIPE = ?";
+
+	final private String QUERY_QUEUE_DEPTH = "SELECT SUM(DEPTH) FROM OO_EXECUTION_QUEUE_DEPTH";
+
+	final private String RESET_QUEUE_DEPTH = "UPDATE OO_EXECUTION_QUEUE_DEPTH SET DEPTH = CASE WHEN STRIPE = 0 THEN ? ELSE 0 END";
 
-	final private String INSERT_EXEC_STATE = "INSERT INTO :OO_EXECUTION_STATES  (ID, MSG_ID,  PAYLOAD, CREATE_TIME) VALUES (?, ?, ?, CURRENT_TIMESTAMP)";
+	final private String QUERY_UNFINISHED_STEPS = "SELECT COUNT(*) FROM OO_EXECUTION_QUEUE_HEAD " +
+			" WHERE STATUS NOT IN (" + ExecStatus.TERMINATED.getNumber() + ", " + ExecStatus.FAILED.getNumber() + ", " + ExecStatus.FINISHED.getNumber() + ")";
 
-	final private String INSERT_QUEUE = "INSERT INTO OO_EXECUTION_QUEUES_1 (ID, EXEC_STATE_ID, ASSIGNED_WORKER, EXEC_GROUP, STATUS,MSG_SEQ_ID, CREATE_TIME,MSG_VERSION) VALUES (?, ?, ?, ?, ?, ?,CURRENT_TIMESTAMP,?)";
+	private static final int QUEUE_DEPTH_STRIPES = 16;
+
+	// a worker waits on one engine node, the other nodes wake it through its count of notifications
+	final private String UPDATE_WORKER_NOTIFICATIONS = "UPDATE OO_WORKER_NOTIFICATIONS SET NOTIFICATIONS = NOTIFICATIONS + 1 WHERE WORKER_UUID IN (:ids)";
+
+	final private String INSERT_WORKER_NOTIFICATIONS = "INSERT INTO OO_WORKER_NOTIFICATIONS (WORKER_UUID, NOTIFICATIONS) VALUES (?, 0)";
+
+	final private String QUERY_WORKER_NOTIFICATIONS = "SELECT WORKER_UUID, NOTIFICATIONS FROM OO_WORKER_NOTIFICATIONS";
+
+	final private String QUERY_EXISTING_HEADS = "SELECT EXEC_STATE_ID FROM OO_EXECUTION_QUEUE_HEAD WHERE EXEC_STATE_ID IN (:ids)";
+
+	private static final int IN_CLAUSE_LIMIT = 1000;
+
+	private static final int MAX_FINISHED_IDS = 1000000;
+
+	// a message waiting this many ms is claimed before a new message of one priority higher, so low priorities do not starve
+	private final long priorityAgingMillis = Long.getLong("queue.priority.aging", 10000L);
+
+	// when the queue tables are rolled the history of finished steps is truncated with its partition
+	private final boolean historyRolling = Boolean.valueOf(System.getProperty("queue.partitions.rolling", "true"));
 
 	private static final String QUERY_PAYLOAD_BY_EXECUTION_IDS = "SELECT ID, PAYLOAD FROM :OO_EXECUTION_STATES WHERE ID IN (:IDS)";
 
 	private JdbcTemplate jdbcTemplate;
-	private Map<Integer,JdbcTemplate> jdbcTemplateMap = new HashMap<>();
-	private Lock lock = new ReentrantLock();
-
 
 	@Autowired
 	private IdentityGenerator idGen;
@@ -170,12 +295,133 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 	@Qualifier("OO_EXECUTION_STATES")
 	private PartitionTemplate statePartitionTemplate;
 
+	@Autowired
+	@Qualifier("OO_EXECUTION_QUEUES")
+	private PartitionTemplate queuePartitionTemplate;
+
 	@Autowired
 	private DataSource dataSource;
 
+	@Autowired
+	private DataBaseDetector dataBaseDetector;
+
+	@Autowired
+	private SqlStatementRegistry statementRegistry;
+
+	private boolean claimWithReturning;
+
+	private boolean claimRowLimited;
+
+	private BulkInsertWriter bulkInsertWriter;
+
+	private SqlStatement finishedStepsIds;
+	private SqlStatement deleteFinishedSteps;
+	private SqlStatement deleteFinishedHeads;
+	private SqlStatement messagesWithoutAck;
+	private SqlStatement countMessagesWithoutAckForWorker;
+	private SqlStatement pollWorker;
+	private SqlStatement pollWorkerRecovery;
+	private SqlStatement messagesByStatuses;
+	private SqlStatement claim;
+	private SqlStatement updateClaimedHead;
+	private SqlStatement updateQueueHead;
+	private SqlStatement existingHeads;
+	private SqlStatement payloadByExecutionIds;
+	private SqlStatement insertExecStates;
+	private SqlStatement insertQueue;
+	private SqlStatement insertQueueHead;
+	private SqlStatement listenerOutbox;
+	private SqlStatement deleteListenerOutbox;
+	private SqlStatement insertListenerOutbox;
+	private SqlStatement incrementListenerOutboxAttempts;
+
+	// cleared when the driver answers a batch with SUCCESS_NO_INFO, the outbox rows are deleted one by one from then on
+	private volatile boolean batchDeleteCounts = true;
+	private SqlStatement dueMessages;
+	private SqlStatement updateDueHead;
+	private SqlStatement updateQueueDepth;
+	private SqlStatement queueDepth;
+	private SqlStatement resetQueueDepth;
+	private SqlStatement unfinishedSteps;
+	private SqlStatement updateWorkerNotifications;
+	private SqlStatement insertWorkerNotifications;
+	private SqlStatement workerNotifications;
+
 	@PostConstruct
 	public void init() {
 		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		initStatements();
+		initBulkInsertWriter();
+	}
+
+	private void initStatements() {
+		String statesTable = ":OO_EXECUTION_STATES";
+		finishedStepsIds = statementRegistry.register("SELECT_FINISHED_STEPS_IDS", SELECT_FINISHED_STEPS_IDS);
+		deleteFinishedSteps = statementRegistry.register("DELETE_FINISHED_STEPS", QUERY_DELETE_FINISHED_STEPS, ":OO_EXECUTION_QUEUES", ":ids");
+		deleteFinishedHeads = statementRegistry.register("DELETE_FINISHED_HEADS", QUERY_DELETE_FINISHED_HEADS, null, ":ids");
+		messagesWithoutAck = statementRegistry.register("MESSAGES_WITHOUT_ACK", QUERY_MESSAGES_WITHOUT_ACK_SQL);
+		countMessagesWithoutAckForWorker = statementRegistry.register("COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER", QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_SQL);
+		pollWorker = statementRegistry.register("POLL_WORKER", QUERY_WORKER_SQL, statesTable, ":status");
+		pollWorkerRecovery = statementRegistry.register("POLL_WORKER_RECOVERY", QUERY_WORKER_RECOVERY_SQL, statesTable, ":status");
+		messagesByStatuses = statementRegistry.register("MESSAGES_BY_STATUSES", QUERY_MESSAGES_BY_STATUSES, null, ":status");
+		claim = statementRegistry.register("CLAIM", claimSql(), statesTable, null);
+		updateClaimedHead = statementRegistry.register("UPDATE_CLAIMED_HEAD", UPDATE_CLAIMED_HEAD);
+		updateQueueHead = statementRegistry.register("UPDATE_QUEUE_HEAD", UPDATE_QUEUE_HEAD);
+		existingHeads = statementRegistry.register("EXISTING_HEADS", QUERY_EXISTING_HEADS, null, ":ids");
+		payloadByExecutionIds = statementRegistry.register("PAYLOAD_BY_EXECUTION_IDS", QUERY_PAYLOAD_BY_EXECUTION_IDS, statesTable, ":IDS");
+		// the inserts are built by the bulk insert writer, only their executions are counted
+		insertExecStates = statementRegistry.register("INSERT_EXEC_STATES", null);
+		insertQueue = statementRegistry.register("INSERT_QUEUE", null);
+		insertQueueHead = statementRegistry.register("INSERT_QUEUE_HEAD", null);
+		listenerOutbox = statementRegistry.register("LISTENER_OUTBOX", QUERY_LISTENER_OUTBOX);
+		deleteListenerOutbox = statementRegistry.register("DELETE_LISTENER_OUTBOX", DELETE_LISTENER_OUTBOX);
+		insertListenerOutbox = statementRegistry.register("INSERT_LISTENER_OUTBOX", null);
+		incrementListenerOutboxAttempts = statementRegistry.register("INCREMENT_LISTENER_OUTBOX_ATTEMPTS", INCREMENT_LISTENER_OUTBOX_ATTEMPTS);
+		dueMessages = statementRegistry.register("DUE_MESSAGES", QUERY_DUE_MESSAGES_SQL, statesTable, null);
+		updateDueHead = statementRegistry.register("UPDATE_DUE_HEAD", UPDATE_DUE_HEAD);
+		updateQueueDepth = statementRegistry.register("UPDATE_QUEUE_DEPTH", UPDATE_QUEUE_DEPTH);
+		queueDepth = statementRegistry.register("QUEUE_DEPTH", QUERY_QUEUE_DEPTH);
+		resetQueueDepth = statementRegistry.register("RESET_QUEUE_DEPTH", RESET_QUEUE_DEPTH);
+		unfinishedSteps = statementRegistry.register("UNFINISHED_STEPS", QUERY_UNFINISHED_STEPS);
+		updateWorkerNotifications = statementRegistry.register("UPDATE_WORKER_NOTIFICATIONS", UPDATE_WORKER_NOTIFICATIONS, null, ":ids");
+		insertWorkerNotifications = statementRegistry.register("INSERT_WORKER_NOTIFICATIONS", INSERT_WORKER_NOTIFICATIONS);
+		workerNotifications = statementRegistry.register("WORKER_NOTIFICATIONS", QUERY_WORKER_NOTIFICATIONS);
+
+		// every partition table is known up front, so rolling a partition does not build sql on the polling path
+		int statusArity = ExecStatus.values().length;
+		List<String> stateTables = statePartitionTemplate.reversedTables();
+		statementRegistry.precompute(pollWorker, stateTables, statusArity);
+		statementRegistry.precompute(pollWorkerRecovery, stateTables, statusArity);
+		statementRegistry.precompute(claim, stateTables, 0);
+		statementRegistry.precompute(dueMessages, stateTables, 0);
+		statementRegistry.precompute(deleteFinishedSteps, queuePartitionTemplate.reversedTables(), 0);
+	}
+
+	private void initBulkInsertWriter() {
+		if (dataBaseDetector.isPostgres()) {
+			bulkInsertWriter = new PostgresCopyInsertWriter(jdbcTemplate);
+		} else if (dataBaseDetector.isMysql() || dataBaseDetector.isMssql()) {
+			bulkInsertWriter = new MultiRowInsertWriter(jdbcTemplate);
+		} else {
+			// an embedded H2 has no round trips to save, a batch is faster there
+			bulkInsertWriter = new BatchInsertWriter(jdbcTemplate);
+		}
+		if (logger.isDebugEnabled()) logger.debug("Queue bulk inserts use " + bulkInsertWriter.getClass().getSimpleName());
+	}
+
+	private String claimSql() {
+		String headHint = "";
+		if (dataBaseDetector.isPostgres()) {
+			claimWithReturning = true;
+			return QUERY_CLAIM_RETURNING_SQL;
+		} else if (dataBaseDetector.isOracle()) {
+			claimRowLimited = true;
+			return QUERY_CLAIM_ROW_LIMITED_SQL;
+		} else if (dataBaseDetector.isMssql()) {
+			headHint = "WITH (UPDLOCK, READPAST, ROWLOCK)";
+		}
+		// other databases rely only on the compare and set of the claim update
+		return QUERY_CLAIM_SQL.replace(":headHint", headHint);
 	}
 
 	@Override
@@ -185,66 +431,151 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 
 	@Override
 	public void insertExecutionStates(final List<ExecutionMessage> stateMessages) {
-		String insertExecStateSQL = INSERT_EXEC_STATE;
-		insertExecStateSQL = insertExecStateSQL.replaceAll(":OO_EXECUTION_STATES", getExecStateTableName());
-		jdbcTemplate.batchUpdate(insertExecStateSQL, new BatchPreparedStatementSetter() {
-
-			@Override
-			public void setValues(PreparedStatement ps, int i) throws SQLException {
-				ExecutionMessage msg = stateMessages.get(i);
-				ps.setLong(1, msg.getExecStateId());
-				ps.setString(2, msg.getMsgId());
-				ps.setBytes(3, msg.getPayload().getData());
-			}
-
-			@Override
-			public int getBatchSize() {
-				return stateMessages.size();
-			}
-		});
+		List<Object[]> rows = new ArrayList<>(stateMessages.size());
+		for (ExecutionMessage msg : stateMessages) {
+			rows.add(new Object[]{
+					msg.getExecStateId(),
+					msg.getMsgId(),
+					msg.getPayload().getData(),
+					BulkInsertWriter.Expression.CURRENT_TIMESTAMP
+			});
+		}
+		long t = System.nanoTime();
+		bulkInsertWriter.insert(getExecStateTableName(), EXEC_STATE_COLUMNS, rows);
+		insertExecStates.record(System.nanoTime() - t);
 	}
 
 	@Override
 	public void insertExecutionQueue(final List<ExecutionMessage> messages, final long version) {
 		// insert execution queue table
 		// id, exec_state_id, assigned_worker, status, create_time
-		String insertQueueSQL = INSERT_QUEUE;
 
+		// the ids of the whole batch are reserved at once
+		List<Long> reservedIds = idGen.bulk(messages.size());
+		final long[] queueIds = new long[messages.size()];
+		for (int i = 0; i < queueIds.length; i++) {
+			queueIds[i] = reservedIds.get(i);
+		}
 
 		long t = System.currentTimeMillis();
-		jdbcTemplate.batchUpdate(insertQueueSQL, new BatchPreparedStatementSetter() {
+		List<Object[]> rows = new ArrayList<>(messages.size());
+		for (int i = 0; i < messages.size(); i++) {
+			rows.add(queueRow(queueIds[i], messages.get(i), version, t));
+		}
+		long insertTime = System.nanoTime();
+		bulkInsertWriter.insert(queuePartitionTemplate.activeTable(), QUEUE_COLUMNS, rows);
+		insertQueue.record(System.nanoTime() - insertTime);
+		updateQueueHead(messages, queueIds, version, t);
+		t = System.currentTimeMillis() - t;
+		if (logger.isDebugEnabled()) logger.debug("Insert to queue: " + messages.size() + "/" + t + " messages/ms");
+	}
+
+	private Object[] queueRow(long id, ExecutionMessage msg, long version, long enqueueTime) {
+		return new Object[]{
+				id,
+				msg.getExecStateId(),
+				msg.getWorkerId(),
+				msg.getWorkerGroup(),
+				msg.getStatus().getNumber(),
+				msg.getMsgSeqId(),
+				BulkInsertWriter.Expression.CURRENT_TIMESTAMP,
+				version,
+				msg.getPriority(),
+				priorityOrder(msg, enqueueTime),
+				msg.getNotBefore()
+		};
+	}
+
+	// the enqueue time moved back by the priority, claiming the lowest first serves higher priorities first and ages the lower ones
+	private long priorityOrder(ExecutionMessage msg, long enqueueTime) {
+		return enqueueTime - msg.getPriority() * priorityAgingMillis;
+	}
+
+	private void updateQueueHead(List<ExecutionMessage> messages, final long[] queueIds, final long version, final long enqueueTime) {
+		// only the latest message of every exec state in this bulk reaches the head
+		Map<Long, Integer> latestByExecState = new LinkedHashMap<>();
+		for (int i = 0; i < messages.size(); i++) {
+			ExecutionMessage msg = messages.get(i);
+			Integer prev = latestByExecState.get(msg.getExecStateId());
+			if (prev == null || messages.get(prev).getMsgSeqId() <= msg.getMsgSeqId()) {
+				latestByExecState.put(msg.getExecStateId(), i);
+			}
+		}
+		final List<Integer> heads = new ArrayList<>(latestByExecState.values());
+		final List<ExecutionMessage> headMessages = new ArrayList<>(heads.size());
+		for (Integer index : heads) {
+			headMessages.add(messages.get(index));
+		}
+
+		long t = System.nanoTime();
+		int[] updated = jdbcTemplate.batchUpdate(updateQueueHead.sql(), new BatchPreparedStatementSetter() {
 			@Override
 			public void setValues(PreparedStatement ps, int i) throws SQLException {
-				ExecutionMessage msg = messages.get(i);
-				ps.setLong(1, (Long)idGen.next());
-				ps.setLong(2, msg.getExecStateId());
-				ps.setString(3, msg.getWorkerId());
-				ps.setString(4, msg.getWorkerGroup());
-				ps.setInt(5, msg.getStatus().getNumber());
-				ps.setInt(6, msg.getMsgSeqId());
-				ps.setLong(7, version);
+				ExecutionMessage msg = headMessages.get(i);
+				ps.setLong(1, queueIds[heads.get(i)]);
+				ps.setString(2, msg.getWorkerId());
+				ps.setString(3, msg.getWorkerGroup());
+				ps.setInt(4, msg.getStatus().getNumber());
+				ps.setInt(5, msg.getMsgSeqId());
+				ps.setLong(6, version);
+				ps.setInt(7, msg.getPriority());
+				ps.setLong(8, priorityOrder(msg, enqueueTime));
+				ps.setLong(9, msg.getNotBefore());
+				ps.setLong(10, msg.getExecStateId());
+				ps.setInt(11, msg.getMsgSeqId());
+				ps.setInt(12, msg.getMsgSeqId());
 			}
 
 			@Override
 			public int getBatchSize() {
-				return messages.size();
+				return headMessages.size();
 			}
 		});
-		t = System.currentTimeMillis() - t;
-		if (logger.isDebugEnabled()) logger.debug("Insert to queue: " + messages.size() + "/" + t + " messages/ms");
+		updateQueueHead.record(System.nanoTime() - t);
+
+		// a message that updated nothing is either new or older than its head
+		final List<Integer> missing = new ArrayList<>();
+		for (int i = 0; i < updated.length; i++) {
+			if (updated[i] != 1) missing.add(i);
+		}
+		if (missing.isEmpty()) return;
+
+		Set<Long> existing = findExistingHeads(headMessages, missing);
+		final List<Integer> toInsert = new ArrayList<>(missing.size());
+		for (Integer i : missing) {
+			if (!existing.contains(headMessages.get(i).getExecStateId())) toInsert.add(i);
+		}
+		if (toInsert.isEmpty()) return;
+
+		List<Object[]> rows = new ArrayList<>(toInsert.size());
+		for (Integer index : toInsert) {
+			rows.add(queueRow(queueIds[heads.get(index)], headMessages.get(index), version, enqueueTime));
+		}
+		t = System.nanoTime();
+		bulkInsertWriter.insert(QUEUE_HEAD_TABLE, QUEUE_COLUMNS, rows);
+		insertQueueHead.record(System.nanoTime() - t);
+	}
+
+	private Set<Long> findExistingHeads(List<ExecutionMessage> headMessages, List<Integer> candidates) {
+		Set<Long> existing = new HashSet<>();
+		for (int from = 0; from < candidates.size(); from += IN_CLAUSE_LIMIT) {
+			List<Integer> chunk = candidates.subList(from, Math.min(from + IN_CLAUSE_LIMIT, candidates.size()));
+			Object[] ids = new Object[chunk.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = headMessages.get(chunk.get(i)).getExecStateId();
+			}
+			existing.addAll(doSelect(existingHeads, existingHeads.sql(null, ids.length), IN_CLAUSE_LIMIT, new SingleColumnRowMapper<>(Long.class), ids));
+		}
+		return existing;
 	}
 
 	@Override
 	public List<ExecutionMessage> poll(String workerId, int maxSize, ExecStatus... statuses) {
 
         // preapare the sql statment
-        String sqlStatPrvTable = QUERY_WORKER_RECOVERY_SQL
-                .replaceAll(":OO_EXECUTION_STATES", getPrvExecStateTableName())
-                .replaceAll(":status", StringUtils.repeat("?", ",", statuses.length));
+        String sqlStatPrvTable = pollWorkerRecovery.sql(getPrvExecStateTableName(), statuses.length);
 
-        String sqlStatActiveTable = QUERY_WORKER_RECOVERY_SQL
-                .replaceAll(":OO_EXECUTION_STATES", getExecStateTableName())
-                .replaceAll(":status", StringUtils.repeat("?", ",", statuses.length));
+        String sqlStatActiveTable = pollWorkerRecovery.sql(getExecStateTableName(), statuses.length);
 
         // prepare the argument
         java.lang.Object[] values;
@@ -256,9 +587,9 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
             values[i++] = status.getNumber();
         }
 
-        List<ExecutionMessage> resultPrvTable =  doSelect(sqlStatPrvTable, maxSize, new ExecutionMessageRowMapper(), values);
+        List<ExecutionMessage> resultPrvTable =  doSelect(pollWorkerRecovery, sqlStatPrvTable, maxSize, new ExecutionMessageRowMapper(), values);
 
-        List<ExecutionMessage> resultActiveTable =  doSelect(sqlStatActiveTable, maxSize, new ExecutionMessageRowMapper(), values);
+        List<ExecutionMessage> resultActiveTable =  doSelect(pollWorkerRecovery, sqlStatActiveTable, maxSize, new ExecutionMessageRowMapper(), values);
 
         Map<Long,ExecutionMessage> resultAsMap = new HashMap<>();
         for(ExecutionMessage executionMessage:resultPrvTable){ //remove duplications
@@ -274,9 +605,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 	@Override
 	public List<ExecutionMessage> poll(Date createTime, String workerId, int maxSize, ExecStatus... statuses) {
 		// preapare the sql statment
-		String sqlStat = QUERY_WORKER_SQL
-				.replaceAll(":OO_EXECUTION_STATES", getExecStateTableName())
-				.replaceAll(":status", StringUtils.repeat("?", ",", statuses.length));
+		String sqlStat = pollWorker.sql(getExecStateTableName(), statuses.length);
 
 		// prepare the argument
 		java.lang.Object[] values;
@@ -289,7 +618,123 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 			values[i++] = status.getNumber();
 		}
 
-		return doSelect(sqlStat, maxSize, new ExecutionMessageRowMapper(), values);
+		return doSelect(pollWorker, sqlStat, maxSize, new ExecutionMessageRowMapper(), values);
+	}
+
+	// the claim moves the head to SENT only, no SENT row is written to the queue history - nothing reads the history,
+	// and the head keeps the SENT version the recovery of messages without ack looks for
+	@Override
+	public List<ExecutionMessage> claim(String workerId, int maxSize, final long version) {
+		String sqlStat = claim.sql(getExecStateTableName());
+		if (claimWithReturning) {
+			Object[] values = {
+					ExecStatus.SENT.getNumber(),
+					version,
+					workerId,
+					ExecStatus.ASSIGNED.getNumber(),
+					maxSize
+			};
+			return doSelect(claim, sqlStat, maxSize, new ExecutionMessageRowMapper(), values);
+		}
+
+		Object[] values = claimRowLimited ?
+				new Object[]{workerId, ExecStatus.ASSIGNED.getNumber(), maxSize, ExecStatus.ASSIGNED.getNumber()} :
+				new Object[]{workerId, ExecStatus.ASSIGNED.getNumber()};
+		final List<ExecutionMessage> candidates = doSelect(claim, sqlStat, maxSize, new ExecutionMessageRowMapper(), values);
+		if (candidates.isEmpty()) return candidates;
+
+		long t = System.nanoTime();
+		int[] updated = jdbcTemplate.batchUpdate(updateClaimedHead.sql(), new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				ExecutionMessage msg = candidates.get(i);
+				ps.setInt(1, ExecStatus.SENT.getNumber());
+				ps.setInt(2, msg.getMsgSeqId() + 1);
+				ps.setLong(3, version);
+				ps.setLong(4, msg.getExecStateId());
+				ps.setInt(5, ExecStatus.ASSIGNED.getNumber());
+				ps.setInt(6, msg.getMsgSeqId());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return candidates.size();
+			}
+		});
+		updateClaimedHead.record(System.nanoTime() - t);
+
+		List<ExecutionMessage> result = new ArrayList<>(candidates.size());
+		for (int i = 0; i < updated.length; i++) {
+			if (updated[i] == 0) continue;
+			ExecutionMessage msg = candidates.get(i);
+			msg.setStatus(ExecStatus.SENT);
+			msg.incMsgSeqId();
+			result.add(msg);
+		}
+		if (logger.isDebugEnabled() && result.size() < candidates.size()) {
+			logger.debug("Claimed " + result.size() + " of " + candidates.size() + " messages for worker [" + workerId + "]");
+		}
+		return result;
+	}
+
+	@Override
+	public List<ExecutionMessage> claimDueMessages(long now, int maxSize) {
+		Object[] values = {
+				ExecStatus.PENDING.getNumber(),
+				now
+		};
+		final List<ExecutionMessage> candidates = doSelect(dueMessages, dueMessages.sql(getExecStateTableName()), maxSize, new ExecutionMessageRowMapper(), values);
+		if (candidates.isEmpty()) return candidates;
+
+		long t = System.nanoTime();
+		int[] updated = jdbcTemplate.batchUpdate(updateDueHead.sql(), new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				ExecutionMessage msg = candidates.get(i);
+				ps.setLong(1, msg.getExecStateId());
+				ps.setInt(2, ExecStatus.PENDING.getNumber());
+				ps.setInt(3, msg.getMsgSeqId());
+			}
+
+			@Override
+			public int getBatchSize() {
+				return candidates.size();
+			}
+		});
+		updateDueHead.record(System.nanoTime() - t);
+
+		List<ExecutionMessage> result = new ArrayList<>(candidates.size());
+		for (int i = 0; i < updated.length; i++) {
+			if (updated[i] != 0) result.add(candidates.get(i));
+		}
+		return result;
+	}
+
+	@Override
+	public void updateQueueDepth(long delta) {
+		if (delta == 0) return;
+		doUpdate(updateQueueDepth, updateQueueDepth.sql(), delta, ThreadLocalRandom.current().nextInt(QUEUE_DEPTH_STRIPES));
+	}
+
+	@Override
+	public long getQueueDepth() {
+		long t = System.nanoTime();
+		Long result = jdbcTemplate.queryForObject(queueDepth.sql(), Long.class);
+		queueDepth.record(System.nanoTime() - t);
+		return result != null ? result : 0;
+	}
+
+	@Override
+	public long countUnfinishedSteps() {
+		long t = System.nanoTime();
+		Long result = jdbcTemplate.queryForObject(unfinishedSteps.sql(), Long.class);
+		unfinishedSteps.record(System.nanoTime() - t);
+		return result != null ? result : 0;
+	}
+
+	@Override
+	public void resetQueueDepth(long depth) {
+		doUpdate(resetQueueDepth, resetQueueDepth.sql(), depth);
 	}
 
 	@Override
@@ -297,26 +742,31 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		if (ids == null || ids.size() == 0)
 			return;
 
-		String query = QUERY_DELETE_FINISHED_STEPS.replaceAll(":ids", StringUtils.repeat("?", ",", ids.size()));
-
         Object[] args = ids.toArray(new Object[ids.size()]);
-        logSQL(query,args);
-        jdbcTemplate.update(query, args);
+        if (!historyRolling) {
+            for (String table : new LinkedHashSet<>(queuePartitionTemplate.reversedTables())) {
+                doUpdate(deleteFinishedSteps, deleteFinishedSteps.sql(table, ids.size()), args);
+            }
+        }
+
+        doUpdate(deleteFinishedHeads, deleteFinishedHeads.sql(null, ids.size()), args);
 	}
 
 	@Override
 	public Set<Long> getFinishedExecStateIds() {
-		List<Long> result = doSelect(SELECT_FINISHED_STEPS_IDS, 1000000, new SingleColumnRowMapper<>(Long.class));
+		return getFinishedExecStateIds(MAX_FINISHED_IDS);
+	}
+
+	@Override
+	public Set<Long> getFinishedExecStateIds(int maxSize) {
+		List<Long> result = doSelect(finishedStepsIds, finishedStepsIds.sql(), maxSize, new SingleColumnRowMapper<>(Long.class));
 		return new HashSet<>(result);
 	}
 
 
 	public List<ExecutionMessage> pollMessagesWithoutAck(int maxSize, long minVersionAllowed) {
 
-		String sqlStat = QUERY_MESSAGES_WITHOUT_ACK_SQL.replaceAll(":OO_EXECUTION_STATES", getExecStateTableName());
-
-		jdbcTemplate.setMaxRows(maxSize);
-		jdbcTemplate.setFetchSize(maxSize);
+		String sqlStat = messagesWithoutAck.sql();
 
 		Object[] values = {
 				ExecStatus.SENT.getNumber(),
@@ -325,7 +775,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		};
 
 		long time = System.currentTimeMillis();
-		List<ExecutionMessage> result = jdbcTemplate.query(sqlStat, values, new ExecutionMessageWithoutPayloadRowMapper());
+		List<ExecutionMessage> result = doSelect(messagesWithoutAck, sqlStat, maxSize, new ExecutionMessageWithoutPayloadRowMapper(), values);
 
 		if (result.size() > 0) {
 			logger.warn("Pool " + result.size() + " messages without ack, version = " + minVersionAllowed);
@@ -344,9 +794,6 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 	}
 
     public Integer countMessagesWithoutAckForWorker(int maxSize, long minVersionAllowed, String workerUuid) {
-        jdbcTemplate.setMaxRows(maxSize);
-        jdbcTemplate.setFetchSize(maxSize);
-
         Object[] values = {
                 workerUuid,
                 ExecStatus.SENT.getNumber(),
@@ -354,11 +801,13 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 
         };
 
-        long time = System.currentTimeMillis();
-        Integer result = jdbcTemplate.queryForObject(QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_SQL, values,Integer.class);
+        long time = System.nanoTime();
+        Integer result = statementRegistry.template(maxSize).queryForObject(countMessagesWithoutAckForWorker.sql(), values,Integer.class);
+        time = System.nanoTime() - time;
+        countMessagesWithoutAckForWorker.record(time);
 
         if (logger.isTraceEnabled())
-            logger.trace("Query [" + QUERY_COUNT_MESSAGES_WITHOUT_ACK_FOR_WORKER_SQL + "] took " + (System.currentTimeMillis() - time) + " ms");
+            logger.trace("Query [" + countMessagesWithoutAckForWorker.sql() + "] took " + time / 1000000 + " ms");
 
         if (logger.isDebugEnabled()) {
             logger.debug("Got msg without ack :" + result + ",for version:" + minVersionAllowed + ",for worker:" + workerUuid);
@@ -368,20 +817,21 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 
 	@Override
 	public Map<Long, Payload> findPayloadByExecutionIds(Long... ids) {
-		String sqlStat = QUERY_PAYLOAD_BY_EXECUTION_IDS.replaceAll(":OO_EXECUTION_STATES", getExecStateTableName());
-		String qMarks = StringUtils.repeat("?", ",", ids.length);
-		sqlStat = sqlStat.replace(":IDS", qMarks);
+		String sqlStat = payloadByExecutionIds.sql(getExecStateTableName(), ids.length);
 
 		final Map<Long, Payload> result = new HashMap<>();
+		long t = System.nanoTime();
 		jdbcTemplate.query(sqlStat, ids, new RowCallbackHandler() {
 			@Override
 			public void processRow(ResultSet resultSet) throws SQLException {
+				byte[] payload = resultSet.getBytes("payload");
 				result.put(
 						resultSet.getLong(1),
-						new Payload(false, false, resultSet.getBytes("payload"))
+						new Payload(PayloadCompressor.isCompressed(payload), false, payload)
 				);
 			}
 		});
+		payloadByExecutionIds.record(System.nanoTime() - t);
 
 		return result;
 	}
@@ -389,9 +839,7 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 	@Override
 	public List<ExecutionMessage> findByStatuses(int maxSize, ExecStatus... statuses) {
 		// prepare the sql statement
-		String sqlStat = QUERY_MESSAGES_BY_STATUSES
-				.replaceAll(":OO_EXECUTION_STATES", getExecStateTableName()) // set the table name
-				.replaceAll(":status", StringUtils.repeat("?", ",", statuses.length)); // set ? according to the number of parameters
+		String sqlStat = messagesByStatuses.sql(null, statuses.length); // set ? according to the number of parameters
 
 		Object[] values = new Object[statuses.length];
 		int i = 0;
@@ -399,15 +847,112 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 			values[i++] = status.getNumber();
 		}
 
-		jdbcTemplate.setMaxRows(maxSize);
-		jdbcTemplate.setFetchSize(maxSize);
+		return doSelect(messagesByStatuses, sqlStat, maxSize, new ExecutionMessageWithoutPayloadRowMapper(), values);
+	}
 
-		try {
-			return doSelect(sqlStat, new ExecutionMessageWithoutPayloadRowMapper(), values);
-		} catch (RuntimeException ex) {
-			logger.error(sqlStat, ex);
-			throw ex;
+	@Override
+	public List<Long> insertListenerOutbox(List<ExecutionMessage> messages) {
+		List<Long> ids = idGen.bulk(messages.size());
+		List<Object[]> rows = new ArrayList<>(messages.size());
+		for (int i = 0; i < messages.size(); i++) {
+			ExecutionMessage msg = messages.get(i);
+			rows.add(new Object[]{
+					ids.get(i),
+					msg.getExecStateId(),
+					msg.getWorkerId(),
+					msg.getWorkerGroup(),
+					msg.getStatus().getNumber(),
+					msg.getMsgSeqId(),
+					msg.getMsgId(),
+					msg.getPayload().getData(),
+					BulkInsertWriter.Expression.CURRENT_TIMESTAMP
+			});
 		}
+		long t = System.nanoTime();
+		bulkInsertWriter.insert(LISTENER_OUTBOX_TABLE, LISTENER_OUTBOX_COLUMNS, rows);
+		insertListenerOutbox.record(System.nanoTime() - t);
+		return ids;
+	}
+
+	@Override
+	public Map<Long, ExecutionMessage> findListenerOutbox(Date createdBefore, int maxAttempts, int maxSize) {
+		final Map<Long, ExecutionMessage> result = new LinkedHashMap<>();
+		final RowMapper<ExecutionMessage> messageMapper = new ExecutionMessageRowMapper(false);
+		doSelect(listenerOutbox, listenerOutbox.sql(), maxSize, new RowMapper<Object>() {
+			@Override
+			public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+				result.put(rs.getLong("ID"), messageMapper.mapRow(rs, rowNum));
+				return null;
+			}
+		}, new java.sql.Timestamp(createdBefore.getTime()), maxAttempts);
+		return result;
+	}
+
+	@Override
+	public int[] deleteListenerOutbox(final List<Long> ids) {
+		long t = System.nanoTime();
+		if (!batchDeleteCounts) {
+			int[] deleted = new int[ids.size()];
+			for (int i = 0; i < ids.size(); i++) {
+				deleted[i] = jdbcTemplate.update(deleteListenerOutbox.sql(), ids.get(i));
+			}
+			deleteListenerOutbox.record(System.nanoTime() - t);
+			return deleted;
+		}
+		int[] deleted = jdbcTemplate.batchUpdate(deleteListenerOutbox.sql(), new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				ps.setLong(1, ids.get(i));
+			}
+
+			@Override
+			public int getBatchSize() {
+				return ids.size();
+			}
+		});
+		deleteListenerOutbox.record(System.nanoTime() - t);
+		for (int count : deleted) {
+			if (count == Statement.SUCCESS_NO_INFO) {
+				logger.warn("The driver does not report the batch update counts, the listener outbox rows are deleted one by one");
+				batchDeleteCounts = false;
+				break;
+			}
+		}
+		return deleted;
+	}
+
+	@Override
+	public int incrementListenerOutboxAttempts(long id) {
+		long t = System.nanoTime();
+		int updated = jdbcTemplate.update(incrementListenerOutboxAttempts.sql(), id);
+		incrementListenerOutboxAttempts.record(System.nanoTime() - t);
+		return updated;
+	}
+
+	@Override
+	public int incrementWorkerNotifications(Collection<String> workerUuids) {
+		if (workerUuids.isEmpty()) return 0;
+		Object[] args = workerUuids.toArray(new Object[workerUuids.size()]);
+		return doUpdate(updateWorkerNotifications, updateWorkerNotifications.sql(null, args.length), args);
+	}
+
+	@Override
+	public void insertWorkerNotifications(String workerUuid) {
+		doUpdate(insertWorkerNotifications, insertWorkerNotifications.sql(), workerUuid);
+	}
+
+	@Override
+	public Map<String, Long> findWorkerNotifications() {
+		final Map<String, Long> result = new HashMap<>();
+		long t = System.nanoTime();
+		jdbcTemplate.query(workerNotifications.sql(), new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet rs) throws SQLException {
+				result.put(rs.getString("WORKER_UUID"), rs.getLong("NOTIFICATIONS"));
+			}
+		});
+		workerNotifications.record(System.nanoTime() - t);
+		return result;
 	}
 
 	private String getExecStateTableName() {
@@ -419,23 +964,39 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
     }
 
 	private class ExecutionMessageRowMapper implements RowMapper<ExecutionMessage> {
+		// the listener outbox keeps no priority
+		private final boolean withPriority;
+
+		ExecutionMessageRowMapper() {
+			this(true);
+		}
+
+		ExecutionMessageRowMapper(boolean withPriority) {
+			this.withPriority = withPriority;
+		}
+
 		@Override
 		public ExecutionMessage mapRow(ResultSet rs, int rowNum) throws SQLException {
-			return new ExecutionMessage(rs.getLong("EXEC_STATE_ID"),
+			byte[] payload = rs.getBytes("PAYLOAD");
+			ExecutionMessage msg = new ExecutionMessage(rs.getLong("EXEC_STATE_ID"),
 					rs.getString("ASSIGNED_WORKER"),
 					rs.getString("EXEC_GROUP"),
 					rs.getString("MSG_ID"),
 					ExecStatus.find(rs.getInt("STATUS")),
-					new Payload(false, false, rs.getBytes("PAYLOAD")),
+					new Payload(PayloadCompressor.isCompressed(payload), false, payload),
 					rs.getInt("MSG_SEQ_ID"),
 					rs.getTimestamp("CREATE_TIME"));
+			if (withPriority) {
+				msg.setPriority(rs.getInt("PRIORITY"));
+			}
+			return msg;
 		}
 	}
 
 	private class ExecutionMessageWithoutPayloadRowMapper implements RowMapper<ExecutionMessage> {
 		@Override
 		public ExecutionMessage mapRow(ResultSet rs, int rowNum) throws SQLException {
-			return new ExecutionMessage(rs.getLong("EXEC_STATE_ID"),
+			ExecutionMessage msg = new ExecutionMessage(rs.getLong("EXEC_STATE_ID"),
 					rs.getString("ASSIGNED_WORKER"),
 					rs.getString("EXEC_GROUP"),
 					"-1",
@@ -443,34 +1004,20 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 					null,
 					rs.getInt("MSG_SEQ_ID"),
 					rs.getTimestamp("CREATE_TIME"));
+			msg.setPriority(rs.getInt("PRIORITY"));
+			return msg;
 		}
 	}
 
-	private <T> List<T> doSelect(String sql, RowMapper<T> rowMapper, Object... params) {
-		return doSelect0(jdbcTemplate, sql, rowMapper, params);
-	}
-
-	private <T> List<T> doSelect(String sql, int maxRows, RowMapper<T> rowMapper, Object... params) {
-		JdbcTemplate template = jdbcTemplateMap.get(maxRows);
-		if (template == null) try {
-			lock.lock();
-			template = new JdbcTemplate(dataSource);
-			template.setFetchSize(maxRows);
-			template.setMaxRows(maxRows);
-			jdbcTemplateMap.put(maxRows, template);
-		} finally{
-			lock.unlock();
-		}
-		return doSelect0(template, sql, rowMapper, params);
-	}
-
-	private <T> List<T> doSelect0(JdbcTemplate jdbcTemplate, String sql, RowMapper<T> rowMapper, Object... params) {
-        logSQL(sql,params);
+	private <T> List<T> doSelect(SqlStatement statement, String sql, int maxRows, RowMapper<T> rowMapper, Object... params) {
+		logSQL(sql,params);
 		try {
-			long t = System.currentTimeMillis();
-			List<T> result = jdbcTemplate.query(sql, params, rowMapper);
+			long t = System.nanoTime();
+			List<T> result = statementRegistry.template(maxRows).query(sql, params, rowMapper);
+			t = System.nanoTime() - t;
+			statement.record(t);
 			if (logger.isDebugEnabled())
-				logger.debug("Fetched result: " + result.size() + '/' + (System.currentTimeMillis() - t) + " rows/ms");
+				logger.debug("Fetched result: " + result.size() + '/' + t / 1000000 + " rows/ms");
 			return result;
 		} catch (RuntimeException ex) {
 			logger.error("Failed to execute query: " + sql, ex);
@@ -478,6 +1025,14 @@ public class ExecutionQueueRepositoryImpl implements ExecutionQueueRepository {
 		}
 	}
 
+	private int doUpdate(SqlStatement statement, String sql, Object... params) {
+		logSQL(sql,params);
+		long t = System.nanoTime();
+		int result = jdbcTemplate.update(sql, params);
+		statement.record(System.nanoTime() - t);
+		return result;
+	}
+
     private void logSQL(String query, Object... params) {
         if (logger.isDebugEnabled()) {
             logger.debug("Execute SQL: " + query);
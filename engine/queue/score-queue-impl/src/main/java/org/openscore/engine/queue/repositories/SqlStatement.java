@@ -0,0 +1,136 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Date: 18/10/26
+ *
+ * A sql template with its variants, a variant is the sql for a table and a number of list parameters.
+ * A variant is built once and then read without locking, together with the execution counters of the statement.
+ */
+public final class SqlStatement {
+
+    private static final String NO_TABLE = "";
+
+    // longer lists are built on every call, so a huge IN list does not stay in memory
+    private static final int MAX_CACHED_LIST_SIZE = 1000;
+
+    private final String name;
+    private final String template;
+    private final String tablePlaceholder;
+    private final String listPlaceholder;
+
+    private final ConcurrentMap<String, ConcurrentMap<Integer, String>> variants = new ConcurrentHashMap<>();
+
+    private final AtomicLong executions = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    SqlStatement(String name, String template, String tablePlaceholder, String listPlaceholder) {
+        this.name = name;
+        this.template = template;
+        this.tablePlaceholder = tablePlaceholder;
+        this.listPlaceholder = listPlaceholder;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String sql() {
+        return sql(null, 0);
+    }
+
+    public String sql(String table) {
+        return sql(table, 0);
+    }
+
+    public String sql(String table, int listSize) {
+        if (listSize > MAX_CACHED_LIST_SIZE) {
+            return build(table, listSize);
+        }
+        ConcurrentMap<Integer, String> byListSize = variants.get(table == null ? NO_TABLE : table);
+        if (byListSize == null) {
+            byListSize = new ConcurrentHashMap<>();
+            ConcurrentMap<Integer, String> existing = variants.putIfAbsent(table == null ? NO_TABLE : table, byListSize);
+            if (existing != null) byListSize = existing;
+        }
+        String sql = byListSize.get(listSize);
+        if (sql == null) {
+            sql = build(table, listSize);
+            byListSize.putIfAbsent(listSize, sql);
+        }
+        return sql;
+    }
+
+    // builds the variants of every table for list sizes 0..maxListSize
+    void precompute(Iterable<String> tables, int maxListSize) {
+        for (String table : tables) {
+            for (int listSize = 0; listSize <= maxListSize; listSize++) {
+                sql(table, listSize);
+            }
+        }
+    }
+
+    private String build(String table, int listSize) {
+        String sql = template;
+        if (tablePlaceholder != null && table != null) {
+            sql = sql.replace(tablePlaceholder, table);
+        }
+        if (listPlaceholder != null) {
+            sql = sql.replace(listPlaceholder, StringUtils.repeat("?", ",", listSize));
+        }
+        return sql;
+    }
+
+    public void record(long nanos) {
+        executions.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getExecutions() {
+        return executions.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    void resetStatistics() {
+        executions.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        long count = executions.get();
+        long total = totalNanos.get();
+        return name + ": executions=" + count +
+                ", total=" + total / 1000000 + " ms" +
+                ", avg=" + (count == 0 ? 0 : total / count / 1000) + " us" +
+                ", max=" + maxNanos.get() / 1000 + " us";
+    }
+}
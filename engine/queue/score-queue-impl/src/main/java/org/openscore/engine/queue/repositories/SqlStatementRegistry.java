@@ -0,0 +1,78 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Date: 18/10/26
+ *
+ * Holds the sql statements of the queue repository and a JdbcTemplate for every max rows,
+ * both are built on first use and then handed out without regex or locking.
+ */
+public class SqlStatementRegistry {
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final ConcurrentMap<String, SqlStatement> statements = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Integer, JdbcTemplate> templates = new ConcurrentHashMap<>();
+
+    public SqlStatement register(String name, String template) {
+        return register(name, template, null, null);
+    }
+
+    public SqlStatement register(String name, String template, String tablePlaceholder, String listPlaceholder) {
+        SqlStatement statement = new SqlStatement(name, template, tablePlaceholder, listPlaceholder);
+        SqlStatement existing = statements.putIfAbsent(name, statement);
+        return existing == null ? statement : existing;
+    }
+
+    /**
+     * builds the variants of a statement for all the tables of its partition group
+     */
+    public void precompute(SqlStatement statement, List<String> tables, int maxListSize) {
+        if (tables != null) {
+            statement.precompute(tables, maxListSize);
+        }
+    }
+
+    public JdbcTemplate template(int maxRows) {
+        JdbcTemplate template = templates.get(maxRows);
+        if (template == null) {
+            template = new JdbcTemplate(dataSource);
+            template.setFetchSize(maxRows);
+            template.setMaxRows(maxRows);
+            JdbcTemplate existing = templates.putIfAbsent(maxRows, template);
+            if (existing != null) template = existing;
+        }
+        return template;
+    }
+
+    public Collection<SqlStatement> getStatements() {
+        return new ArrayList<>(statements.values());
+    }
+
+    public void resetStatistics() {
+        for (SqlStatement statement : statements.values()) {
+            statement.resetStatistics();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Date: 18/10/26
+ */
+@ManagedResource(description = "Queue SQL statements statistics")
+public class SqlStatementsMBean {
+
+	@Autowired
+	private SqlStatementRegistry statementRegistry;
+
+	@ManagedOperation(description = "Returns the executions count and timings of every queue statement")
+	public String showStatements() {
+		StringBuilder result = new StringBuilder();
+		for (SqlStatement statement : statementRegistry.getStatements()) {
+			result.append(statement).append('\n');
+		}
+		return result.toString();
+	}
+
+	@ManagedOperation(description = "Resets the executions count and timings of the queue statements")
+	public void resetStatistics() {
+		statementRegistry.resetStatistics();
+	}
+}
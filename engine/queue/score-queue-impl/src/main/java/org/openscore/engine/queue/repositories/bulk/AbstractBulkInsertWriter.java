@@ -0,0 +1,66 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.bulk;
+
+import org.apache.commons.lang.StringUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Date: 18/10/26
+ */
+abstract class AbstractBulkInsertWriter implements BulkInsertWriter {
+
+    protected final JdbcTemplate jdbcTemplate;
+
+    AbstractBulkInsertWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    protected String insertInto(String table, String[] columns) {
+        return "INSERT INTO " + table + " (" + StringUtils.join(columns, ", ") + ") VALUES ";
+    }
+
+    // (?, ?, CURRENT_TIMESTAMP, ?)
+    protected void appendValues(StringBuilder sql, Object[] row) {
+        sql.append('(');
+        for (int i = 0; i < row.length; i++) {
+            if (i > 0) sql.append(", ");
+            sql.append(row[i] instanceof Expression ? row[i].toString() : "?");
+        }
+        sql.append(')');
+    }
+
+    // sets the parameters of a single row, returns the next parameter index
+    protected int setValues(PreparedStatement ps, int index, Object[] row) throws SQLException {
+        for (Object value : row) {
+            if (value instanceof Expression) continue;
+
+            if (value instanceof byte[]) {
+                ps.setBytes(index, (byte[]) value);
+            } else if (value instanceof String) {
+                ps.setString(index, (String) value);
+            } else if (value instanceof Long) {
+                ps.setLong(index, (Long) value);
+            } else if (value instanceof Integer) {
+                ps.setInt(index, (Integer) value);
+            } else {
+                StatementCreatorUtils.setParameterValue(ps, index, SqlTypeValue.TYPE_UNKNOWN, value);
+            }
+            index++;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,51 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.bulk;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ *
+ * A JDBC batch of single row inserts, used for databases without a faster bulk insert.
+ */
+public class BatchInsertWriter extends AbstractBulkInsertWriter {
+
+    public BatchInsertWriter(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate);
+    }
+
+    @Override
+    public int insert(String table, String[] columns, final List<Object[]> rows) {
+        if (rows.isEmpty()) return 0;
+
+        StringBuilder sql = new StringBuilder(insertInto(table, columns));
+        appendValues(sql, rows.get(0));
+
+        jdbcTemplate.batchUpdate(sql.toString(), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                BatchInsertWriter.this.setValues(ps, 1, rows.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+        return rows.size();
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.bulk;
+
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ *
+ * Writes a bulk of rows into a table, every implementation uses the fastest way its database supports.
+ */
+public interface BulkInsertWriter {
+
+    /**
+     * values that are evaluated by the database
+     */
+    enum Expression {
+        CURRENT_TIMESTAMP
+    }
+
+    /**
+     *
+     * insert the given rows
+     *
+     * @param table the table to insert into
+     * @param columns the names of the columns
+     * @param rows the values of every row, in the order of the columns.
+     *             an {@link Expression} must be at the same column in all the rows
+     * @return the number of inserted rows
+     */
+    int insert(String table, String[] columns, List<Object[]> rows);
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.bulk;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ *
+ * Inserts many rows with a single INSERT ... VALUES (...), (...) statement.
+ * Drivers that execute a batch as a statement per row (MySQL without rewriteBatchedStatements, jTDS)
+ * do a single round trip for every statement.
+ */
+public class MultiRowInsertWriter extends AbstractBulkInsertWriter {
+
+    // sql server allows up to 1000 rows and 2100 parameters in a single statement
+    static final int MAX_ROWS = 1000;
+    static final int MAX_PARAMETERS = 2000;
+
+    // the payloads of the rows are sent in the statement, it must stay below max_allowed_packet of mysql and the statement limits of the others
+    static final int MAX_BYTES = Integer.getInteger("queue.bulk.insert.max.bytes", 1024 * 1024);
+
+    // the size taken for a value that is not a blob or a string
+    private static final int VALUE_BYTES = 16;
+
+    private final int maxBytes;
+
+    public MultiRowInsertWriter(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, MAX_BYTES);
+    }
+
+    MultiRowInsertWriter(JdbcTemplate jdbcTemplate, int maxBytes) {
+        super(jdbcTemplate);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int insert(String table, String[] columns, List<Object[]> rows) {
+        if (rows.isEmpty()) return 0;
+
+        int rowsPerStatement = Math.max(1, Math.min(MAX_ROWS, MAX_PARAMETERS / columns.length));
+        String insertInto = insertInto(table, columns);
+        int inserted = 0;
+        int from = 0;
+        while (from < rows.size()) {
+            // a statement takes at least one row, however large it is
+            int to = from + 1;
+            long bytes = sizeOf(rows.get(from));
+            while (to < rows.size() && to - from < rowsPerStatement) {
+                long rowBytes = sizeOf(rows.get(to));
+                if (bytes + rowBytes > maxBytes) break;
+                bytes += rowBytes;
+                to++;
+            }
+            inserted += insertChunk(insertInto, rows.subList(from, to));
+            from = to;
+        }
+        return inserted;
+    }
+
+    private int insertChunk(String insertInto, final List<Object[]> chunk) {
+        StringBuilder sql = new StringBuilder(insertInto);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (i > 0) sql.append(", ");
+            appendValues(sql, chunk.get(i));
+        }
+
+        return jdbcTemplate.update(sql.toString(), new PreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps) throws SQLException {
+                int index = 1;
+                for (Object[] row : chunk) {
+                    index = MultiRowInsertWriter.this.setValues(ps, index, row);
+                }
+            }
+        });
+    }
+
+    static long sizeOf(Object[] row) {
+        long bytes = 0;
+        for (Object value : row) {
+            if (value instanceof byte[]) {
+                bytes += ((byte[]) value).length;
+            } else if (value instanceof String) {
+                // up to 4 bytes a character in utf-8
+                bytes += ((String) value).length() * 4L;
+            } else {
+                bytes += VALUE_BYTES;
+            }
+        }
+        return bytes;
+    }
+}
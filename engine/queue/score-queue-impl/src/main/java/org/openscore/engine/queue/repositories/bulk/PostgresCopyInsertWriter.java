@@ -0,0 +1,122 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.bulk;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ *
+ * Streams the rows with COPY FROM STDIN, in the text format, on the connection of the current transaction.
+ * COPY takes no expressions, the time of the database is read once per batch and written instead of CURRENT_TIMESTAMP.
+ * A pool that does not expose the driver connection falls back to multi row inserts.
+ */
+public class PostgresCopyInsertWriter implements BulkInsertWriter {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BulkInsertWriter fallback;
+
+    public PostgresCopyInsertWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fallback = new MultiRowInsertWriter(jdbcTemplate);
+    }
+
+    @Override
+    public int insert(String table, String[] columns, List<Object[]> rows) {
+        if (rows.isEmpty()) return 0;
+
+        final String sql = "COPY " + table + " (" + StringUtils.join(columns, ", ") + ") FROM STDIN";
+        final List<Object[]> copiedRows = rows;
+        Long copied = jdbcTemplate.execute(new ConnectionCallback<Long>() {
+            @Override
+            public Long doInConnection(Connection connection) throws SQLException, DataAccessException {
+                if (!connection.isWrapperFor(PGConnection.class)) return null;
+                String data = encode(copiedRows, databaseTime(connection));
+                try {
+                    return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, new StringReader(data));
+                } catch (IOException ex) {
+                    throw new SQLException("Failed to copy rows", ex);
+                }
+            }
+        });
+        if (copied == null) {
+            if (logger.isDebugEnabled()) logger.debug("COPY is not available on this connection, using multi row insert");
+            return fallback.insert(table, columns, rows);
+        }
+        return copied.intValue();
+    }
+
+    // the time of the database, as CURRENT_TIMESTAMP of the other writers - the clocks of the nodes may differ
+    private static Timestamp databaseTime(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT CURRENT_TIMESTAMP")) {
+            resultSet.next();
+            return resultSet.getTimestamp(1);
+        }
+    }
+
+    static String encode(List<Object[]> rows, Timestamp now) {
+        StringBuilder data = new StringBuilder(rows.size() * 64);
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) data.append('\t');
+                appendValue(data, row[i], now);
+            }
+            data.append('\n');
+        }
+        return data.toString();
+    }
+
+    private static void appendValue(StringBuilder data, Object value, Timestamp now) {
+        if (value == null) {
+            data.append("\\N");
+        } else if (value == Expression.CURRENT_TIMESTAMP) {
+            data.append(now);
+        } else if (value instanceof byte[]) {
+            // bytea in the hex format, the backslash itself is escaped for COPY
+            data.append("\\\\x");
+            for (byte b : (byte[]) value) {
+                data.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        } else {
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '\\': data.append("\\\\"); break;
+                    case '\t': data.append("\\t"); break;
+                    case '\n': data.append("\\n"); break;
+                    case '\r': data.append("\\r"); break;
+                    default: data.append(c);
+                }
+            }
+        }
+    }
+}
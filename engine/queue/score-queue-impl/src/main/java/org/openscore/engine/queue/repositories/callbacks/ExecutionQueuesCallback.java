@@ -0,0 +1,33 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.callbacks;
+
+/**
+ * Date: 18/10/26
+ *
+ * Carries the queue history of steps that are still running into the active partition,
+ * the history of finished steps is dropped when its partition is truncated.
+ */
+public class ExecutionQueuesCallback extends AbstractCallback {
+
+	final private String ROLLING_QUEUE_TABLES = " INSERT INTO :OO_EXECUTION_QUEUES_TARGET ( ID, EXEC_STATE_ID, ASSIGNED_WORKER, EXEC_GROUP, STATUS, MSG_SEQ_ID, CREATE_TIME, MSG_VERSION, PRIORITY, PRIORITY_ORDER, NOT_BEFORE )" +
+			" SELECT  q.ID, q.EXEC_STATE_ID, q.ASSIGNED_WORKER, q.EXEC_GROUP, q.STATUS, q.MSG_SEQ_ID, q.CREATE_TIME, q.MSG_VERSION, q.PRIORITY, q.PRIORITY_ORDER, q.NOT_BEFORE" +
+			" FROM    :OO_EXECUTION_QUEUES_SOURCE q" +
+			" WHERE EXISTS (SELECT h.ID FROM OO_EXECUTION_QUEUE_HEAD h WHERE h.EXEC_STATE_ID = q.EXEC_STATE_ID and h.STATUS NOT IN (6,7,8))" +
+			" AND NOT EXISTS (SELECT qq.ID FROM :OO_EXECUTION_QUEUES_TARGET qq WHERE q.ID = qq.ID)";
+
+	@Override
+	public String getSql(String previousTable, String activeTable) {
+		return ROLLING_QUEUE_TABLES
+				.replaceAll(":OO_EXECUTION_QUEUES_SOURCE", previousTable)
+				.replaceAll(":OO_EXECUTION_QUEUES_TARGET", activeTable);
+	}
+}
@@ -21,8 +21,7 @@ public class ExecutionStatesCallback  extends AbstractCallback{
 	final private String ROLLING_STATE_TABLES = " INSERT INTO :OO_EXECUTION_STATES_TARGET ( ID, MSG_ID, PAYLOAD, CREATE_TIME )" +
 			" SELECT  s.ID, s.MSG_ID,  s.PAYLOAD, s.CREATE_TIME" +
 			" FROM    :OO_EXECUTION_STATES_SOURCE s" +
-			" WHERE EXISTS (SELECT ID FROM OO_EXECUTION_QUEUES_1 q WHERE q.EXEC_STATE_ID = s.ID )" +
-            " AND NOT EXISTS (SELECT ID FROM OO_EXECUTION_QUEUES_1 q WHERE q.EXEC_STATE_ID = s.ID and q.STATUS = 6) " +
+			" WHERE EXISTS (SELECT ID FROM OO_EXECUTION_QUEUE_HEAD q WHERE q.EXEC_STATE_ID = s.ID and q.STATUS <> 6)" +
 			" AND NOT EXISTS (SELECT ss.ID FROM :OO_EXECUTION_STATES_TARGET ss WHERE s.ID = ss.ID)";
 
 
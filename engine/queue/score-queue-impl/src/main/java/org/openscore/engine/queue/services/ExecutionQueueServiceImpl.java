@@ -21,13 +21,23 @@ import org.openscore.engine.versioning.services.VersionService;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * User:
@@ -50,6 +60,26 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 	@Autowired
 	private VersionService versionService;
 
+	@Autowired(required = false)
+	private WorkerNotificationService workerNotificationService;
+
+	@Autowired(required = false)
+	private QueueListenerPipeline listenerPipeline;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	// counting the steps costs an update per enqueue, so it is done only when the depth is needed
+	private final boolean depthTracking = Boolean.getBoolean("queue.depth.tracking");
+
+	private TransactionTemplate depthTransactionTemplate;
+
+	@PostConstruct
+	public void init() {
+		depthTransactionTemplate = new TransactionTemplate(transactionManager);
+		depthTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
 	@Override
 	@Transactional
 	public void enqueue(List<ExecutionMessage> messages) {
@@ -90,24 +120,104 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 
 		long msgVersion = versionService.getCurrentVersion(VersionService.MSG_RECOVERY_VERSION_COUNTER_NAME);
 		executionQueueRepository.insertExecutionQueue(messages, msgVersion);
+		if (depthTracking)
+			updateQueueDepth(stateMessages.size() - countFinishedSteps(messages));
 		if (logger.isDebugEnabled()) logger.debug("Persistency done in " + (stopWatch.getSplitTime()) + " ms");
 
 		if (CollectionUtils.isNotEmpty(listeners)) {
 			stopWatch.split();
-			List<ExecutionMessage> failedMessages = filter(messages, ExecStatus.FAILED);
-			List<ExecutionMessage> terminatedMessages = filter(messages, ExecStatus.TERMINATED);
-			for (QueueListener listener : listeners) {
-				listener.onEnqueue(messages, messages.size());
-				if (failedMessages.size() > 0)
-					listener.onFailed(failedMessages);
-				if (terminatedMessages.size() > 0)
-					listener.onTerminated(terminatedMessages);
+			if (listenerPipeline != null && listenerPipeline.isEnabled()) {
+				// failed and terminated messages are handled after the commit
+				for (QueueListener listener : listeners) {
+					listener.onEnqueue(messages, messages.size());
+				}
+				listenerPipeline.submit(messages);
+			} else {
+				List<ExecutionMessage> failedMessages = filter(messages, ExecStatus.FAILED);
+				List<ExecutionMessage> terminatedMessages = filter(messages, ExecStatus.TERMINATED);
+				for (QueueListener listener : listeners) {
+					listener.onEnqueue(messages, messages.size());
+					if (failedMessages.size() > 0)
+						listener.onFailed(failedMessages);
+					if (terminatedMessages.size() > 0)
+						listener.onTerminated(terminatedMessages);
+				}
 			}
 			if (logger.isDebugEnabled()) logger.debug("Listeners done in " + (stopWatch.getSplitTime()) + " ms");
 		}
+		notifyAssignedWorkers(messages);
 		if (logger.isDebugEnabled()) logger.debug("Enqueue done in " + (stopWatch.getTime()) + " ms");
 	}
 
+	private void notifyAssignedWorkers(List<ExecutionMessage> messages) {
+		if (workerNotificationService == null)
+			return;
+
+		final Set<String> workers = new HashSet<>();
+		for (ExecutionMessage msg : messages) {
+			if (msg.getStatus() == ExecStatus.ASSIGNED && !ExecutionMessage.EMPTY_WORKER.equals(msg.getWorkerId())) {
+				workers.add(msg.getWorkerId());
+			}
+		}
+		if (workers.isEmpty())
+			return;
+
+		// the workers may poll only after the messages are committed
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					workerNotificationService.notifyWorkers(workers);
+				}
+			});
+		} else {
+			workerNotificationService.notifyWorkers(workers);
+		}
+	}
+
+	// the stripe is updated in a transaction of its own once the messages are committed, so it is not locked
+	// for the rest of the enqueue, an update that is lost is corrected by the next reconciliation
+	private void updateQueueDepth(final long delta) {
+		if (delta == 0)
+			return;
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					addToQueueDepth(delta);
+				}
+			});
+		} else {
+			addToQueueDepth(delta);
+		}
+	}
+
+	private void addToQueueDepth(final long delta) {
+		try {
+			depthTransactionTemplate.execute(new TransactionCallbackWithoutResult() {
+				@Override
+				protected void doInTransactionWithoutResult(TransactionStatus status) {
+					executionQueueRepository.updateQueueDepth(delta);
+				}
+			});
+		} catch (RuntimeException ex) {
+			logger.warn("Failed to update the queue depth by " + delta, ex);
+		}
+	}
+
+	// a step may end with more than one message, e.g. finished and terminated
+	private int countFinishedSteps(List<ExecutionMessage> messages) {
+		Set<Long> finishedSteps = new HashSet<>();
+		for (ExecutionMessage msg : messages) {
+			ExecStatus status = msg.getStatus();
+			if (status == ExecStatus.FINISHED || status == ExecStatus.TERMINATED || status == ExecStatus.FAILED) {
+				finishedSteps.add(msg.getExecStateId());
+			}
+		}
+		return finishedSteps.size();
+	}
+
 	private List<ExecutionMessage> filter(List<ExecutionMessage> messages, ExecStatus status) {
 		List<ExecutionMessage> result = new ArrayList<>();
 		for (ExecutionMessage msg : messages) {
@@ -137,6 +247,32 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 		return executionQueueRepository.poll(workerId, maxSize, statuses);
 	}
 
+	@Override
+	@Transactional
+	public List<ExecutionMessage> claim(String workerId, int maxSize) {
+		long msgVersion = versionService.getCurrentVersion(VersionService.MSG_RECOVERY_VERSION_COUNTER_NAME);
+		List<ExecutionMessage> result = executionQueueRepository.claim(workerId, maxSize, msgVersion);
+
+		for (QueueListener listener : listeners) {
+			listener.onPoll(result, result.size());
+		}
+
+		return result;
+	}
+
+	@Override
+	@Transactional
+	public int releaseDueMessages(int maxSize) {
+		List<ExecutionMessage> dueMessages = executionQueueRepository.claimDueMessages(System.currentTimeMillis(), maxSize);
+		if (dueMessages.isEmpty())
+			return 0;
+
+		if (logger.isDebugEnabled()) logger.debug("Releasing " + dueMessages.size() + " due messages");
+		// pending and no longer delayed, so they are assigned to workers like any new message
+		enqueue(dueMessages);
+		return dueMessages.size();
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	public List<ExecutionMessage> pollMessagesWithoutAck(int maxSize, long minVersionAllowed) {
@@ -163,6 +299,23 @@ final public class ExecutionQueueServiceImpl implements ExecutionQueueService {
 		return executionQueueRepository.findByStatuses(maxSize, statuses);
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public long getQueueDepth() {
+		return depthTracking ? executionQueueRepository.getQueueDepth() : 0;
+	}
+
+	@Override
+	@Transactional
+	public long reconcileQueueDepth() {
+		if (!depthTracking)
+			return 0;
+
+		long depth = executionQueueRepository.countUnfinishedSteps();
+		executionQueueRepository.resetQueueDepth(depth);
+		return depth;
+	}
+
     @Override
     @Transactional(readOnly = true)
     public int countMessagesWithoutAckForWorker(int maxSize, long minVersionAllowed, String workerUuid) {
@@ -53,26 +53,21 @@ public final class QueueDispatcherServiceImpl implements QueueDispatcherService
 
 	@Transactional
 	@Override
+	@Deprecated
 	public List<ExecutionMessage> poll(String workerId, int maxSize, Date createDate) {
+		return poll(workerId, maxSize);
+	}
+
+	@Transactional
+	@Override
+	public List<ExecutionMessage> poll(String workerId, int maxSize) {
 		if (logger.isDebugEnabled()) logger.debug("Polling messages for worker [" + workerId + "], max size " + maxSize);
-		// poll assigned messages to workerID
+		// claim the assigned messages of the worker, they are returned already in SENT status
 		long t = System.currentTimeMillis();
-		List<ExecutionMessage> result = execQueue.poll(createDate,workerId,maxSize,ExecStatus.ASSIGNED);
+		List<ExecutionMessage> result = execQueue.claim(workerId, maxSize);
 		t = System.currentTimeMillis()-t;
 		if (logger.isDebugEnabled()) logger.debug("Poll: " + result.size() + "/" + t + " messages/ms");
 
-		if (!result.isEmpty()){
-			t = System.currentTimeMillis();
-			// change status to SENT
-			for(ExecutionMessage msg:result){
-				msg.setStatus(ExecStatus.SENT);
-				msg.incMsgSeqId();
-			}
-			// update the queue
-			execQueue.enqueue(result);
-			t = System.currentTimeMillis()-t;
-			if (logger.isDebugEnabled()) logger.debug("Enqueue: " + result.size() + "/" + t + " messages/ms");
-		}
 		// send the result to the worker
 		if (logger.isDebugEnabled()) logger.debug("Polled " + result.size() + " messages for worker [" + workerId + ']');
 		return result;
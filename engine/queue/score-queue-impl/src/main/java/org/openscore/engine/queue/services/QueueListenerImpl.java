@@ -10,18 +10,20 @@
 
 package org.openscore.engine.queue.services;
 
+import org.openscore.engine.queue.entities.ExecutionHeader;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.entities.codec.ExecutionHeaders;
 import org.openscore.events.EventBus;
 import org.openscore.events.ScoreEvent;
 import org.openscore.facade.entities.Execution;
 import org.openscore.facade.execution.ExecutionSummary;
 import org.openscore.facade.execution.PauseReason;
+import org.openscore.orchestrator.services.AdmissionControlService;
 import org.openscore.orchestrator.services.ExecutionStateService;
 import org.openscore.orchestrator.services.PauseResumeService;
 import org.openscore.orchestrator.services.SplitJoinService;
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -57,6 +59,9 @@ public class QueueListenerImpl implements QueueListener {
 	@Autowired
 	private PauseResumeService pauseResumeService;
 
+	@Autowired
+	private AdmissionControlService admissionControlService;
+
 	@Override
     public void prePersist(List<ExecutionMessage> messages) {
     }
@@ -104,15 +109,15 @@ public class QueueListenerImpl implements QueueListener {
         List<Execution> branches = new ArrayList<>();
 
 		for (ExecutionMessage executionMessage : messages) {
-            Execution execution = extractExecution(executionMessage);
-            Boolean isBranch = isBranch(execution);
-            if(!isBranch){
-                scoreEvents.add(scoreEventFactory.createFinishedEvent(execution));
+            RoutedMessage message = new RoutedMessage(executionMessage);
+            if(!isBranch(message)){
+                scoreEvents.add(scoreEventFactory.createFinishedEvent(message.getExecution()));
                 executionStateService.deleteExecutionState(Long.valueOf(executionMessage.getMsgId()), ExecutionSummary.EMPTY_BRANCH);
+                executionFinished(message);
             }
             else{
-                branches.add(execution);
-                scoreEvents.add(scoreEventFactory.createFinishedBranchEvent(execution));
+                branches.add(message.getExecution());
+                scoreEvents.add(scoreEventFactory.createFinishedBranchEvent(message.getExecution()));
             }
 		}
 
@@ -127,8 +132,9 @@ public class QueueListenerImpl implements QueueListener {
 	 * Returns true when the execution is a branch with the new branch mechanism
 	 * It will return true for executions of parallel, multi-instance, sub-flows and non blocking
 	 */
-	private boolean isBranch(Execution execution) {
-		return execution != null && !StringUtils.isEmpty(execution.getSystemContext().getBranchId());
+	private boolean isBranch(RoutedMessage message) {
+		ExecutionHeader header = message.getHeader();
+		return header != null && header.isBranch();
 	}
 
 	private Execution extractExecution(ExecutionMessage executionMessage) {
@@ -141,7 +147,11 @@ public class QueueListenerImpl implements QueueListener {
 	}
 
 	@Override
-	public void onFailed(List<ExecutionMessage> messages) {
+	public void onFailed(List<ExecutionMessage> executionMessages) {
+		List<RoutedMessage> messages = new ArrayList<>(executionMessages.size());
+		for (ExecutionMessage executionMessage : executionMessages) {
+			messages.add(new RoutedMessage(executionMessage));
+		}
 		deleteExecutionStateObjects(messages);
 		ScoreEvent[] events = createFailureEvents(messages);
 		if (events.length > 0) {
@@ -171,15 +181,15 @@ public class QueueListenerImpl implements QueueListener {
 		return pauseId;
 	}
 
-	private ScoreEvent[] createFailureEvents(List<ExecutionMessage> messages) {
+	private ScoreEvent[] createFailureEvents(List<RoutedMessage> messages) {
 		Execution execution;
 		List<ScoreEvent> events = new ArrayList<>(messages.size());
-		for (ExecutionMessage executionMessage : messages) {
-			execution = extractExecution(executionMessage);
-			if (failedBecauseNoWorker(execution)) {
+		for (RoutedMessage message : messages) {
+			execution = message.getExecution();
+			if (failedBecauseNoWorker(message)) {
 				Long pauseID = pauseExecution(execution);
 				events.add(scoreEventFactory.createNoWorkerEvent(execution, pauseID));
-			} else if (isBranch(execution)) {
+			} else if (isBranch(message)) {
 				splitJoinService.endBranch(Arrays.asList(execution));
 				events.add(scoreEventFactory.createFailedBranchEvent(execution));
 			} else {
@@ -189,16 +199,59 @@ public class QueueListenerImpl implements QueueListener {
 		return events.toArray(new ScoreEvent[events.size()]);
 	}
 
-	private void deleteExecutionStateObjects(List<ExecutionMessage> messages) {
-		for (ExecutionMessage executionMessage : messages) {
-			if (!failedBecauseNoWorker(extractExecution(executionMessage))) {
-				executionStateService.deleteExecutionState(Long.valueOf(executionMessage.getMsgId()), ExecutionSummary.EMPTY_BRANCH);
+	private void deleteExecutionStateObjects(List<RoutedMessage> messages) {
+		for (RoutedMessage message : messages) {
+			if (!failedBecauseNoWorker(message)) {
+				executionStateService.deleteExecutionState(Long.valueOf(message.executionMessage.getMsgId()), ExecutionSummary.EMPTY_BRANCH);
+				if (!isBranch(message)) {
+					executionFinished(message);
+				}
 			}
 		}
 	}
 
-	private boolean failedBecauseNoWorker(Execution execution) {
-		return execution != null && !StringUtils.isEmpty(execution.getSystemContext().getNoWorkerInGroupName());
+	// the admission counters are released by the header, without decoding the execution
+	private void executionFinished(RoutedMessage message) {
+		ExecutionHeader header = message.getHeader();
+		if (header != null) {
+			admissionControlService.executionFinished(header.getExecutionId(), header.getAdmittedFlowUuid());
+		}
+	}
+
+	private boolean failedBecauseNoWorker(RoutedMessage message) {
+		ExecutionHeader header = message.getHeader();
+		return header != null && header.isFailedBecauseNoWorker();
+	}
+
+	/**
+	 * A message with its routing header, the execution is decoded only when it is needed and only once.
+	 * Payloads written without a header are decoded to get the header.
+	 */
+	private class RoutedMessage {
+		private final ExecutionMessage executionMessage;
+		private ExecutionHeader header;
+		private Execution execution;
+		private boolean decoded;
+
+		RoutedMessage(ExecutionMessage executionMessage) {
+			this.executionMessage = executionMessage;
+			this.header = ExecutionHeaders.read(executionMessage.getPayload().getData());
+		}
+
+		ExecutionHeader getHeader() {
+			if (header == null && getExecution() != null) {
+				header = ExecutionHeader.of(execution);
+			}
+			return header;
+		}
+
+		Execution getExecution() {
+			if (!decoded) {
+				execution = extractExecution(executionMessage);
+				decoded = true;
+			}
+			return execution;
+		}
 	}
 
 }
@@ -0,0 +1,272 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services;
+
+import org.apache.log4j.Logger;
+import org.openscore.engine.queue.entities.ExecStatus;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+import org.openscore.engine.queue.repositories.ExecutionQueueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Date: 18/10/26
+ *
+ * The messages are written to an outbox table in the enqueue transaction and handed to a bounded in memory queue after the commit.
+ * A batch deletes its outbox rows in the same transaction as the listeners work, so a message is handled once even if the
+ * recovery job picks up its row too. Rows that were not handled, because the queue was full, the listeners failed or the
+ * process went down, are picked up by {@link #recover()}.
+ * A batch that failed is retried one message at a time, a message that still fails has its attempts counted and is left
+ * in the outbox as a dead letter once it reaches the max attempts, so it does not hold back the messages behind it.
+ */
+public class QueueListenerPipelineImpl implements QueueListenerPipeline {
+
+	private final Logger logger = Logger.getLogger(getClass());
+
+	private final boolean enabled = Boolean.getBoolean("queue.listeners.async");
+
+	private final int threadsCount = Integer.getInteger("queue.listeners.threads", 2);
+
+	private final int capacity = Integer.getInteger("queue.listeners.capacity", 10000);
+
+	private final int batchSize = Integer.getInteger("queue.listeners.batch.size", 100);
+
+	// rows older than this were not handled by the in memory queue
+	private final long recoveryDelay = Long.getLong("queue.listeners.outbox.recovery.delay", 60000L);
+
+	private final int maxAttempts = Integer.getInteger("queue.listeners.outbox.max.attempts", 5);
+
+	@Autowired
+	private ExecutionQueueRepository executionQueueRepository;
+
+	@Autowired(required = false)
+	private List<QueueListener> listeners = Collections.emptyList();
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private BlockingQueue<OutboxEntry> queue;
+
+	private List<Thread> threads = Collections.emptyList();
+
+	private volatile boolean running;
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		if (!enabled)
+			return;
+
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		queue = new ArrayBlockingQueue<>(capacity);
+		running = true;
+		threads = new ArrayList<>(threadsCount);
+		for (int i = 0; i < threadsCount; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					drain();
+				}
+			}, "queue-listeners-" + i);
+			thread.setDaemon(true);
+			thread.start();
+			threads.add(thread);
+		}
+		logger.info("Queue listeners run asynchronously on " + threadsCount + " threads");
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		running = false;
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void submit(List<ExecutionMessage> messages) {
+		List<ExecutionMessage> outboxMessages = new ArrayList<>();
+		for (ExecutionMessage msg : messages) {
+			if (msg.getStatus() == ExecStatus.FAILED || msg.getStatus() == ExecStatus.TERMINATED) {
+				outboxMessages.add(msg);
+			}
+		}
+		if (outboxMessages.isEmpty())
+			return;
+
+		List<Long> ids = executionQueueRepository.insertListenerOutbox(outboxMessages);
+		final List<OutboxEntry> entries = new ArrayList<>(ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			entries.add(new OutboxEntry(ids.get(i), outboxMessages.get(i)));
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					offer(entries);
+				}
+			});
+		} else {
+			offer(entries);
+		}
+	}
+
+	private void offer(List<OutboxEntry> entries) {
+		for (OutboxEntry entry : entries) {
+			if (!queue.offer(entry)) {
+				// the row stays in the outbox for the recovery job
+				if (rejected.incrementAndGet() % 1000 == 1)
+					logger.warn("Queue listeners pipeline is full, " + rejected.get() + " messages were left to the outbox recovery");
+			}
+		}
+	}
+
+	private void drain() {
+		List<OutboxEntry> batch = new ArrayList<>(batchSize);
+		while (running) {
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch, batchSize - 1);
+				process(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (Exception ex) {
+				logger.error("Queue listeners failed on " + batch.size() + " messages, they are left to the outbox recovery", ex);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	@Override
+	public int recover() {
+		if (!enabled)
+			return 0;
+
+		Map<Long, ExecutionMessage> rows = executionQueueRepository.findListenerOutbox(new Date(System.currentTimeMillis() - recoveryDelay), maxAttempts, batchSize);
+		if (rows.isEmpty())
+			return 0;
+
+		List<OutboxEntry> batch = new ArrayList<>(rows.size());
+		for (Map.Entry<Long, ExecutionMessage> row : rows.entrySet()) {
+			batch.add(new OutboxEntry(row.getKey(), row.getValue()));
+		}
+		if (logger.isDebugEnabled()) logger.debug("Recovering " + batch.size() + " queue listener outbox messages");
+		return process(batch);
+	}
+
+	private int process(List<OutboxEntry> batch) {
+		try {
+			return processBatch(batch);
+		} catch (RuntimeException ex) {
+			if (batch.size() == 1) {
+				attemptFailed(batch.get(0), ex);
+				return 0;
+			}
+			logger.warn("Queue listeners failed on " + batch.size() + " messages, retrying them one by one", ex);
+		}
+		int processed = 0;
+		for (OutboxEntry entry : batch) {
+			try {
+				processed += processBatch(Collections.singletonList(entry));
+			} catch (RuntimeException ex) {
+				attemptFailed(entry, ex);
+			}
+		}
+		return processed;
+	}
+
+	private void attemptFailed(final OutboxEntry entry, RuntimeException cause) {
+		logger.error("Queue listeners failed on the outbox message " + entry.id + " of execution " + entry.message.getMsgId() +
+				", it is skipped by the recovery after " + maxAttempts + " attempts", cause);
+		try {
+			transactionTemplate.execute(new TransactionCallback<Integer>() {
+				@Override
+				public Integer doInTransaction(TransactionStatus status) {
+					return executionQueueRepository.incrementListenerOutboxAttempts(entry.id);
+				}
+			});
+		} catch (RuntimeException ex) {
+			logger.error("Failed to count the attempt of the outbox message " + entry.id, ex);
+		}
+	}
+
+	private int processBatch(final List<OutboxEntry> batch) {
+		return transactionTemplate.execute(new TransactionCallback<Integer>() {
+			@Override
+			public Integer doInTransaction(TransactionStatus status) {
+				List<Long> ids = new ArrayList<>(batch.size());
+				for (OutboxEntry entry : batch) {
+					ids.add(entry.id);
+				}
+				// a row that is already gone was handled by another thread or node, a SUCCESS_NO_INFO count is taken as deleted
+				int[] deleted = executionQueueRepository.deleteListenerOutbox(ids);
+				List<ExecutionMessage> failedMessages = new ArrayList<>();
+				List<ExecutionMessage> terminatedMessages = new ArrayList<>();
+				for (int i = 0; i < deleted.length; i++) {
+					if (deleted[i] == 0)
+						continue;
+					ExecutionMessage msg = batch.get(i).message;
+					if (msg.getStatus() == ExecStatus.FAILED) {
+						failedMessages.add(msg);
+					} else {
+						terminatedMessages.add(msg);
+					}
+				}
+				for (QueueListener listener : listeners) {
+					if (failedMessages.size() > 0)
+						listener.onFailed(failedMessages);
+					if (terminatedMessages.size() > 0)
+						listener.onTerminated(terminatedMessages);
+				}
+				return failedMessages.size() + terminatedMessages.size();
+			}
+		});
+	}
+
+	private static class OutboxEntry {
+		private final long id;
+		private final ExecutionMessage message;
+
+		OutboxEntry(long id, ExecutionMessage message) {
+			this.id = id;
+			this.message = message;
+		}
+	}
+}
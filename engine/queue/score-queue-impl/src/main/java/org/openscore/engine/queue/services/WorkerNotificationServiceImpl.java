@@ -0,0 +1,209 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.engine.queue.services;
+
+import org.apache.log4j.Logger;
+import org.openscore.engine.queue.repositories.ExecutionQueueRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Date: 18/10/26
+ *
+ * Notifies the workers through the OO_WORKER_NOTIFICATIONS table, so a worker is notified of the messages assigned
+ * to it by any engine node. A notification adds one to the rows of the workers, and every node watches the rows of
+ * the workers that wait on it and wakes a worker once its count grew.
+ * A worker that waits on the same node the messages were assigned on is woken right away.
+ */
+public final class WorkerNotificationServiceImpl implements WorkerNotificationService {
+
+    private final Logger logger = Logger.getLogger(getClass());
+
+    private final long watchInterval = Long.getLong("worker.notification.watch.interval", 100L);
+
+    @Autowired
+    private ExecutionQueueRepository executionQueueRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final ConcurrentMap<String, Signal> signals = new ConcurrentHashMap<>();
+
+    // the workers that wait on this node
+    private final Set<String> registered = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // the last count seen of every registered worker, null until the first read
+    private final ConcurrentMap<String, Long> seenNotifications = new ConcurrentHashMap<>();
+
+    private Thread watcher;
+
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        if (watcher != null) watcher.interrupt();
+    }
+
+    @Override
+    public void notifyWorkers(final Collection<String> workerUuids) {
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    executionQueueRepository.incrementWorkerNotifications(workerUuids);
+                }
+            });
+        } catch (RuntimeException ex) {
+            // the workers of the other nodes find the messages on their next idle poll
+            logger.warn("Failed to notify workers " + workerUuids, ex);
+        }
+        for (String workerUuid : workerUuids) {
+            getSignal(workerUuid).signal();
+        }
+        if (logger.isDebugEnabled()) logger.debug("Notified workers " + workerUuids);
+    }
+
+    @Override
+    public boolean waitForWork(String workerUuid, long timeoutMillis) throws InterruptedException {
+        if (registered.add(workerUuid)) {
+            register(workerUuid);
+        }
+        return getSignal(workerUuid).await(timeoutMillis);
+    }
+
+    private void register(final String workerUuid) {
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    executionQueueRepository.insertWorkerNotifications(workerUuid);
+                }
+            });
+            seenNotifications.putIfAbsent(workerUuid, 0L);
+        } catch (DataIntegrityViolationException ex) {
+            // registered by another node, or before a restart
+        } catch (RuntimeException ex) {
+            // the worker waits for the notifications of this node only until the next wait registers it
+            registered.remove(workerUuid);
+            logger.warn("Failed to register worker " + workerUuid + " for notifications", ex);
+        }
+        startWatcher();
+    }
+
+    private synchronized void startWatcher() {
+        if (watcher != null || !running)
+            return;
+
+        watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "worker-notifications-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        logger.info("Watching worker notifications every " + watchInterval + " ms");
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                Map<String, Long> notifications = transactionTemplate.execute(new TransactionCallback<Map<String, Long>>() {
+                    @Override
+                    public Map<String, Long> doInTransaction(TransactionStatus status) {
+                        return executionQueueRepository.findWorkerNotifications();
+                    }
+                });
+                signalNotified(notifications);
+                Thread.sleep(watchInterval);
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                logger.error("Failed to read worker notifications", ex);
+                try {
+                    Thread.sleep(watchInterval);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    void signalNotified(Map<String, Long> notifications) {
+        for (String workerUuid : registered) {
+            Long count = notifications.get(workerUuid);
+            if (count == null)
+                continue;
+
+            Long seen = seenNotifications.put(workerUuid, count);
+            if (seen != null && count > seen) {
+                getSignal(workerUuid).signal();
+            }
+        }
+    }
+
+    private Signal getSignal(String workerUuid) {
+        Signal signal = signals.get(workerUuid);
+        if (signal == null) {
+            Signal newSignal = new Signal();
+            signal = signals.putIfAbsent(workerUuid, newSignal);
+            if (signal == null) signal = newSignal;
+        }
+        return signal;
+    }
+
+    // a notification that arrives while nobody waits is kept for the next wait
+    private static class Signal {
+        private boolean pending;
+
+        synchronized void signal() {
+            pending = true;
+            notifyAll();
+        }
+
+        synchronized boolean await(long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long remaining = timeoutMillis;
+            while (!pending && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            boolean notified = pending;
+            pending = false;
+            return notified;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Date: 18/10/26
+ */
+@ManagedResource(description = "Execution affinity of the consistent hash worker assignment")
+public class AssignmentAffinityMBean {
+
+	@Autowired
+	private AssignmentAffinityStatistics statistics;
+
+	@ManagedAttribute(description = "Number of messages assigned by consistent hash")
+	public long getAssignments() {
+		return statistics.getAssignments();
+	}
+
+	@ManagedAttribute(description = "Percents of the messages that were assigned to the worker owning their execution")
+	public double getAffinityHitRate() {
+		long assignments = statistics.getAssignments();
+		return assignments == 0 ? 0 : 100.0 * statistics.getOwnerAssignments() / assignments;
+	}
+
+	@ManagedAttribute(description = "Number of messages moved off a saturated owner")
+	public long getRebalancedAssignments() {
+		return statistics.getRebalancedAssignments();
+	}
+
+	@ManagedAttribute(description = "Number of times a group ring was built for a changed set of workers")
+	public long getRingBuilds() {
+		return statistics.getRingBuilds();
+	}
+
+	@ManagedOperation(description = "Resets the affinity statistics")
+	public void resetStatistics() {
+		statistics.resetStatistics();
+	}
+}
@@ -0,0 +1,62 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Date: 18/10/26
+ *
+ * Counts how often the consistent hash assignment kept an execution on the worker that owns it.
+ */
+public class AssignmentAffinityStatistics {
+
+    private final AtomicLong assignments = new AtomicLong();
+    private final AtomicLong ownerAssignments = new AtomicLong();
+    private final AtomicLong rebalancedAssignments = new AtomicLong();
+    private final AtomicLong ringBuilds = new AtomicLong();
+
+    void assigned(boolean toOwner) {
+        assignments.incrementAndGet();
+        if (toOwner) {
+            ownerAssignments.incrementAndGet();
+        } else {
+            rebalancedAssignments.incrementAndGet();
+        }
+    }
+
+    void ringBuilt() {
+        ringBuilds.incrementAndGet();
+    }
+
+    public long getAssignments() {
+        return assignments.get();
+    }
+
+    public long getOwnerAssignments() {
+        return ownerAssignments.get();
+    }
+
+    public long getRebalancedAssignments() {
+        return rebalancedAssignments.get();
+    }
+
+    public long getRingBuilds() {
+        return ringBuilds.get();
+    }
+
+    public void resetStatistics() {
+        assignments.set(0);
+        ownerAssignments.set(0);
+        rebalancedAssignments.set(0);
+        ringBuilds.set(0);
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Date: 18/10/26
+ *
+ * Keeps the steps of an execution on the same worker, where its running execution plans, reflection caches and session data are warm.
+ *
+ * The workers of a group are placed on a hash ring with queue.assignment.hash.virtual.nodes points each,
+ * and an execution is assigned to the worker that owns the hash of its execution id.
+ * When a worker leaves the group only the executions it owned move.
+ * An owner that has at least one task per thread and more than queue.assignment.hash.load.bound times the average load of the group
+ * is skipped for the next worker on the ring that is under the bound.
+ */
+public class ConsistentHashAssignmentStrategy implements AssignmentStrategy {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+    private final int virtualNodes = Integer.getInteger("queue.assignment.hash.virtual.nodes", 100);
+
+    private final double loadBound = Double.parseDouble(System.getProperty("queue.assignment.hash.load.bound", "1.25"));
+
+    private final ConcurrentMap<String, Ring> rings = new ConcurrentHashMap<>();
+
+    private final AssignmentAffinityStatistics statistics;
+
+    public ConsistentHashAssignmentStrategy(AssignmentAffinityStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public boolean isLoadAware() {
+        return true;
+    }
+
+    @Override
+    public String chooseWorker(ExecutionMessage message, List<String> workers, AssignmentLoads loads, Random random) {
+        if (workers.size() == 1) {
+            statistics.assigned(true);
+            return workers.get(0);
+        }
+        Ring ring = ring(message.getWorkerGroup(), workers);
+        int position = ring.position(hash(message.getMsgId()));
+        String owner = ring.owners[position];
+
+        double maxLoad = loadBound * averageLoad(workers, loads);
+        if (isUnderBound(owner, maxLoad, loads)) {
+            statistics.assigned(true);
+            return owner;
+        }
+        for (int i = 1; i < ring.owners.length; i++) {
+            String next = ring.owners[(position + i) % ring.owners.length];
+            if (isUnderBound(next, maxLoad, loads)) {
+                statistics.assigned(false);
+                return next;
+            }
+        }
+        // every worker is over the bound, stay on the owner
+        statistics.assigned(true);
+        return owner;
+    }
+
+    private static boolean isUnderBound(String worker, double maxLoad, AssignmentLoads loads) {
+        double load = loads.loadFactor(worker);
+        // workers with spare threads are never rebalanced
+        return load < 1 || load <= maxLoad;
+    }
+
+    private static double averageLoad(List<String> workers, AssignmentLoads loads) {
+        double total = 0;
+        for (String worker : workers) {
+            total += loads.loadFactor(worker);
+        }
+        return total / workers.size();
+    }
+
+    private Ring ring(String groupName, List<String> workers) {
+        Ring ring = rings.get(groupName);
+        // the workers list is the same instance for the rest of the assignment iteration, or until the cached workers are reloaded
+        if (ring != null && ring.workers != workers) {
+            if (ring.workers.equals(workers)) {
+                ring.workers = workers;
+            } else {
+                ring = null;
+            }
+        }
+        if (ring == null) {
+            ring = new Ring(workers, virtualNodes);
+            rings.put(groupName, ring);
+            statistics.ringBuilt();
+        }
+        return ring;
+    }
+
+    private static int hash(String key) {
+        return HASH_FUNCTION.hashString(key, Charsets.UTF_8).asInt();
+    }
+
+    private static class Ring {
+        private volatile List<String> workers;
+        private final int[] hashes;
+        private final String[] owners;
+
+        Ring(List<String> workers, int virtualNodes) {
+            this.workers = workers;
+            long[] points = new long[workers.size() * virtualNodes];
+            int p = 0;
+            for (int w = 0; w < workers.size(); w++) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    // the hash in the high bits, the worker index in the low bits
+                    points[p++] = ((long) hash(workers.get(w) + "#" + v) << 32) | w;
+                }
+            }
+            Arrays.sort(points);
+            hashes = new int[points.length];
+            owners = new String[points.length];
+            for (int i = 0; i < points.length; i++) {
+                hashes[i] = (int) (points[i] >> 32);
+                owners[i] = workers.get((int) points[i]);
+            }
+        }
+
+        // the first point at or after the hash, wrapping around the ring
+        int position(int hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index == hashes.length ? 0 : index;
+        }
+    }
+}
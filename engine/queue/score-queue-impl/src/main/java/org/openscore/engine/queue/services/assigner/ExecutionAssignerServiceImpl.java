@@ -23,6 +23,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.*;
 
@@ -33,6 +34,18 @@ import java.util.*;
  */
 final public class ExecutionAssignerServiceImpl implements ExecutionAssignerService {
 
+	private static final String RANDOM_STRATEGY = "random";
+	private static final String POWER_OF_TWO_STRATEGY = "power-of-two";
+	private static final String LEAST_LOADED_STRATEGY = "least-loaded";
+	private static final String CONSISTENT_HASH_STRATEGY = "consistent-hash";
+
+	private static final Comparator<ExecutionMessage> HIGHER_PRIORITY_FIRST = new Comparator<ExecutionMessage>() {
+		@Override
+		public int compare(ExecutionMessage m1, ExecutionMessage m2) {
+			return Integer.compare(m2.getPriority(), m1.getPriority());
+		}
+	};
+
 	private Logger logger = Logger.getLogger(getClass());
 
 	@Autowired
@@ -44,6 +57,12 @@ final public class ExecutionAssignerServiceImpl implements ExecutionAssignerServ
 	@Autowired
 	private ExecutionMessageConverter converter;
 
+	@Autowired(required = false)
+	private AssignmentStrategy assignmentStrategy;
+
+	@Autowired(required = false)
+	private AssignmentAffinityStatistics affinityStatistics;
+
 
 	private void addErrorMessage(ExecutionMessage message) {
 		try {
@@ -68,10 +87,19 @@ final public class ExecutionAssignerServiceImpl implements ExecutionAssignerServ
 		}
 	}
 
-    private String chooseWorker(String groupName, Multimap<String, String> groupWorkersMap,Random randIntGenerator) {
-		Collection<String> workerNames = groupWorkersMap.get(groupName);
+    @SuppressWarnings("unchecked")
+    private String chooseWorker(ExecutionMessage msg, Multimap<String, String> groupWorkersMap, Map<String, List<String>> groupWorkersLists,
+                                AssignmentLoads loads, Random randIntGenerator) {
+		String groupName = msg.getWorkerGroup();
+		List<String> workerNames = groupWorkersLists.get(groupName);
+		if (workerNames == null) {
+			Collection<String> workers = groupWorkersMap.get(groupName);
+			// read once per group and iteration instead of copying the group for every message
+			workerNames = workers instanceof List ? (List<String>) workers : new ArrayList<>(workers);
+			groupWorkersLists.put(groupName, workerNames);
+		}
 
-		if (workerNames == null || workerNames.size() == 0) {
+		if (workerNames.isEmpty()) {
 			// this returns a worker UUID in case of the group defined on specific worker (private group)
 			if (groupName.startsWith("Worker_")) {
 				return groupName.substring("Worker_".length());
@@ -80,16 +108,51 @@ final public class ExecutionAssignerServiceImpl implements ExecutionAssignerServ
 			}
 		}
 
-		Object[] workerArr = workerNames.toArray();
+		String workerId = assignmentStrategy.chooseWorker(msg, workerNames, loads, randIntGenerator);
+		if (loads != null) {
+			loads.assigned(workerId);
+		}
+		return workerId;
+	}
 
-		// we assign the worker using random algorithm
-		int groupIndex = randIntGenerator.nextInt(workerArr.length);
-		groupIndex = groupIndex % workerArr.length;
+    private AssignmentStrategy createAssignmentStrategy(String name) {
+        switch (name) {
+            case RANDOM_STRATEGY:
+                return new RandomAssignmentStrategy();
+            case POWER_OF_TWO_STRATEGY:
+                return new PowerOfTwoChoicesAssignmentStrategy();
+            case LEAST_LOADED_STRATEGY:
+                return new LeastLoadedAssignmentStrategy();
+            case CONSISTENT_HASH_STRATEGY:
+                return new ConsistentHashAssignmentStrategy(affinityStatistics != null ? affinityStatistics : new AssignmentAffinityStatistics());
+            default:
+                logger.warn("Unknown assignment strategy " + name + ", assigning workers at random");
+                return new RandomAssignmentStrategy();
+        }
+    }
 
-		return (String) workerArr[groupIndex];
-	}
+    @PostConstruct
+    private void initAssignmentStrategy() {
+        if (assignmentStrategy == null) {
+            assignmentStrategy = createAssignmentStrategy(System.getProperty("queue.assignment.strategy", RANDOM_STRATEGY));
+        }
+        logger.info("Assigning workers with " + assignmentStrategy.getClass().getSimpleName());
+    }
 
 
+    // a stable sort, the messages of one execution share its priority and keep their order
+    private List<ExecutionMessage> byPriority(List<ExecutionMessage> messages) {
+        int priority = messages.get(0).getPriority();
+        for (ExecutionMessage msg : messages) {
+            if (msg.getPriority() != priority) {
+                List<ExecutionMessage> sorted = new ArrayList<>(messages);
+                Collections.sort(sorted, HIGHER_PRIORITY_FIRST);
+                return sorted;
+            }
+        }
+        return messages;
+    }
+
     @Override
     @Transactional
     public List<ExecutionMessage> assignWorkers(List<ExecutionMessage> messages) {
@@ -101,15 +164,23 @@ final public class ExecutionAssignerServiceImpl implements ExecutionAssignerServ
         }
         List<ExecutionMessage> assignMessages = new ArrayList<>(messages.size());
         Multimap<String, String> groupWorkersMap  = null;
-        Random randIntGenerator = new Random(System.currentTimeMillis());
+        Map<String, List<String>> groupWorkersLists = new HashMap<>();
+        AssignmentLoads loads = null;
+        long now = System.currentTimeMillis();
+        Random randIntGenerator = new Random(now);
 
-        for (ExecutionMessage msg : messages) {
+        // higher priorities are assigned first and get the less loaded workers
+        for (ExecutionMessage msg : byPriority(messages)) {
 
-            if ( msg.getWorkerId().equals(ExecutionMessage.EMPTY_WORKER) && msg.getStatus() == ExecStatus.PENDING) {
+            // a delayed message stays pending until it is due
+            if ( msg.getWorkerId().equals(ExecutionMessage.EMPTY_WORKER) && msg.getStatus() == ExecStatus.PENDING && !msg.isDelayed(now)) {
                 if (groupWorkersMap == null) {
                     groupWorkersMap = workerNodeService.readGroupWorkersMapActiveAndRunning();
+                    if (assignmentStrategy.isLoadAware()) {
+                        loads = new AssignmentLoads(workerNodeService.readWorkersLoadActiveAndRunning());
+                    }
                 }
-                String workerId = chooseWorker(msg.getWorkerGroup(), groupWorkersMap,randIntGenerator);
+                String workerId = chooseWorker(msg, groupWorkersMap, groupWorkersLists, loads, randIntGenerator);
                 if (workerId == null) {
                     // error on assigning worker, no available worker
                     logger.warn("Can't assign worker for group name: " + msg.getWorkerGroup() + " , because there are no available workers for that group.");
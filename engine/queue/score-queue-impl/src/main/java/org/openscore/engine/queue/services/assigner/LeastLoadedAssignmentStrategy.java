@@ -0,0 +1,48 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Date: 18/10/26
+ *
+ * Assigns the worker of the group with the fewest tasks per execution thread, so workers with more threads get more messages.
+ * Ties are broken at random.
+ */
+public class LeastLoadedAssignmentStrategy implements AssignmentStrategy {
+
+    @Override
+    public boolean isLoadAware() {
+        return true;
+    }
+
+    @Override
+    public String chooseWorker(ExecutionMessage message, List<String> workers, AssignmentLoads loads, Random random) {
+        String chosen = null;
+        double minLoad = Double.MAX_VALUE;
+        int ties = 0;
+        for (String worker : workers) {
+            double load = loads.loadFactor(worker);
+            if (load < minLoad) {
+                minLoad = load;
+                chosen = worker;
+                ties = 1;
+            } else if (load == minLoad && random.nextInt(++ties) == 0) {
+                chosen = worker;
+            }
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Date: 18/10/26
+ *
+ * Samples two different workers of the group and assigns the less loaded one.
+ * Unlike always taking the least loaded worker, two workers that look idle on a stale load report
+ * do not receive all the messages until their next keep alive.
+ */
+public class PowerOfTwoChoicesAssignmentStrategy implements AssignmentStrategy {
+
+    @Override
+    public boolean isLoadAware() {
+        return true;
+    }
+
+    @Override
+    public String chooseWorker(ExecutionMessage message, List<String> workers, AssignmentLoads loads, Random random) {
+        int size = workers.size();
+        if (size == 1) {
+            return workers.get(0);
+        }
+        int first = random.nextInt(size);
+        // a second index different from the first one
+        int second = (first + 1 + random.nextInt(size - 1)) % size;
+        String firstWorker = workers.get(first);
+        String secondWorker = workers.get(second);
+        return loads.loadFactor(secondWorker) < loads.loadFactor(firstWorker) ? secondWorker : firstWorker;
+    }
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Date: 18/10/26
+ *
+ * Assigns a uniformly random worker of the group, the default strategy.
+ */
+public class RandomAssignmentStrategy implements AssignmentStrategy {
+
+    @Override
+    public boolean isLoadAware() {
+        return false;
+    }
+
+    @Override
+    public String chooseWorker(ExecutionMessage message, List<String> workers, AssignmentLoads loads, Random random) {
+        return workers.get(random.nextInt(workers.size()));
+    }
+}
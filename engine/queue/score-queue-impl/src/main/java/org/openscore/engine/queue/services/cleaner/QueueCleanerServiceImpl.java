@@ -34,6 +34,12 @@ final public class QueueCleanerServiceImpl  implements QueueCleanerService {
         return executionQueueRepository.getFinishedExecStateIds();
     }
 
+    @Override
+    @Transactional
+    public Set<Long> getFinishedExecStateIds(int maxSize) {
+        return executionQueueRepository.getFinishedExecStateIds(maxSize);
+    }
+
     @Override
     @Transactional
     public void cleanFinishedSteps(Set<Long> ids) {
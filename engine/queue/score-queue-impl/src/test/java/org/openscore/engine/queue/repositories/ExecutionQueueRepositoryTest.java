@@ -16,8 +16,11 @@ import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.entities.Payload;
 import org.openscore.engine.queue.repositories.ExecutionQueueRepository;
 import org.openscore.engine.queue.repositories.ExecutionQueueRepositoryImpl;
+import org.openscore.engine.queue.repositories.SqlStatementRegistry;
+import org.openscore.engine.queue.repositories.callbacks.ExecutionQueuesCallback;
 import org.openscore.engine.versioning.services.VersionService;
 import org.openscore.engine.partitions.services.PartitionTemplate;
+import org.openscore.engine.data.DataBaseDetector;
 import org.openscore.engine.data.IdentityGenerator;
 import junit.framework.Assert;
 import liquibase.integration.spring.SpringLiquibase;
@@ -30,6 +33,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.DataSourceTransactionManager;
 import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
 import org.springframework.test.context.ContextConfiguration;
@@ -41,8 +45,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Mockito.when;
 
@@ -64,11 +71,22 @@ public class ExecutionQueueRepositoryTest {
     @Qualifier("OO_EXECUTION_STATES")
     private PartitionTemplate partitionTemplate;
 
+    @Autowired
+    @Qualifier("OO_EXECUTION_QUEUES")
+    private PartitionTemplate queuePartitionTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
     @Before
     public void init(){
         Mockito.reset(partitionTemplate);
         when(partitionTemplate.activeTable()).thenReturn("OO_EXECUTION_STATES_1");
         when(partitionTemplate.previousTable()).thenReturn("OO_EXECUTION_STATES_2");
+        Mockito.reset(queuePartitionTemplate);
+        when(queuePartitionTemplate.activeTable()).thenReturn("OO_EXECUTION_QUEUES_1");
+        when(queuePartitionTemplate.previousTable()).thenReturn("OO_EXECUTION_QUEUES_2");
+        when(queuePartitionTemplate.reversedTables()).thenReturn(Arrays.asList("OO_EXECUTION_QUEUES_1", "OO_EXECUTION_QUEUES_2"));
     }
 
     @Test
@@ -244,18 +262,312 @@ public class ExecutionQueueRepositoryTest {
         Assert.assertFalse(result.isEmpty());
     }
 
+    @Test
+    public void testHeadKeepsLatestMessage(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        ExecutionMessage execMsg = generateMessageForWorker("group1","msg1","worker1");
+        msg.add(execMsg);
+        executionQueueRepository.insertExecutionStates(msg);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        ExecutionMessage inProgress = (ExecutionMessage) execMsg.clone();
+        inProgress.setStatus(ExecStatus.IN_PROGRESS);
+        inProgress.incMsgSeqId();
+        msg.clear();
+        msg.add(inProgress);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        //an older message that arrives late does not override the head
+        msg.clear();
+        msg.add(execMsg);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        Assert.assertTrue(executionQueueRepository.poll(new Date(0), "worker1", 10, ExecStatus.SENT).isEmpty());
+        List<ExecutionMessage> result = executionQueueRepository.poll(new Date(0), "worker1", 10, ExecStatus.IN_PROGRESS);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(2, result.get(0).getMsgSeqId());
+
+        //the history is kept for audit
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Assert.assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUES_1 WHERE EXEC_STATE_ID = ?", Integer.class, execMsg.getExecStateId()).intValue());
+        Assert.assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUE_HEAD WHERE EXEC_STATE_ID = ?", Integer.class, execMsg.getExecStateId()).intValue());
+    }
+
+    @Test
+    public void testHeadWithSeveralMessagesInBulk(){
+        ExecutionMessage execMsg = generateMessageForWorker("group1","msg1","worker1");
+        ExecutionMessage finished = (ExecutionMessage) execMsg.clone();
+        finished.setStatus(ExecStatus.FINISHED);
+        finished.incMsgSeqId();
+        List<ExecutionMessage> msg = new ArrayList<>();
+        msg.add(execMsg);
+        msg.add(finished);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        Assert.assertTrue(executionQueueRepository.findByStatuses(10, ExecStatus.SENT).isEmpty());
+        Assert.assertEquals(1, executionQueueRepository.findByStatuses(10, ExecStatus.FINISHED).size());
+
+        executionQueueRepository.deleteFinishedSteps(executionQueueRepository.getFinishedExecStateIds());
+        Assert.assertTrue(executionQueueRepository.findByStatuses(10, ExecStatus.FINISHED).isEmpty());
+    }
+
+    @Test
+    public void testInsertToActiveQueuePartition(){
+        when(queuePartitionTemplate.activeTable()).thenReturn("OO_EXECUTION_QUEUES_2");
+        ExecutionMessage execMsg = generateMessageForWorker("group1","msg1","worker1");
+        List<ExecutionMessage> msg = new ArrayList<>();
+        msg.add(execMsg);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Assert.assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUES_1 WHERE EXEC_STATE_ID = ?", Integer.class, execMsg.getExecStateId()).intValue());
+        Assert.assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUES_2 WHERE EXEC_STATE_ID = ?", Integer.class, execMsg.getExecStateId()).intValue());
+        Assert.assertEquals(1, executionQueueRepository.findByStatuses(10, ExecStatus.SENT).size());
+    }
+
+    @Test
+    public void testRollingQueuePartitionKeepsPriority(){
+        ExecutionMessage execMsg = generateMessageForWorker("group1","msg1","worker1");
+        execMsg.setPriority(5);
+        List<ExecutionMessage> msg = new ArrayList<>();
+        msg.add(execMsg);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update(new ExecutionQueuesCallback().getSql("OO_EXECUTION_QUEUES_1", "OO_EXECUTION_QUEUES_2"));
+
+        Map<String, Object> source = jdbcTemplate.queryForMap("SELECT PRIORITY, PRIORITY_ORDER FROM OO_EXECUTION_QUEUES_1 WHERE EXEC_STATE_ID = ?", execMsg.getExecStateId());
+        Map<String, Object> rolled = jdbcTemplate.queryForMap("SELECT PRIORITY, PRIORITY_ORDER FROM OO_EXECUTION_QUEUES_2 WHERE EXEC_STATE_ID = ?", execMsg.getExecStateId());
+        Assert.assertEquals(5, ((Number) rolled.get("PRIORITY")).intValue());
+        Assert.assertEquals(((Number) source.get("PRIORITY_ORDER")).longValue(), ((Number) rolled.get("PRIORITY_ORDER")).longValue());
+    }
+
+    @Test
+    public void testRollingQueuePartitionKeepsNotBefore(){
+        ExecutionMessage execMsg = generateMessageForWorker("group1","msg1","worker1");
+        long notBefore = System.currentTimeMillis() + 60000L;
+        execMsg.setNotBefore(notBefore);
+        List<ExecutionMessage> msg = new ArrayList<>();
+        msg.add(execMsg);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update(new ExecutionQueuesCallback().getSql("OO_EXECUTION_QUEUES_1", "OO_EXECUTION_QUEUES_2"));
+
+        //a delayed step is not released early once its partition is rolled
+        Assert.assertEquals(notBefore, jdbcTemplate.queryForObject("SELECT NOT_BEFORE FROM OO_EXECUTION_QUEUES_2 WHERE EXEC_STATE_ID = ?", Long.class, execMsg.getExecStateId()).longValue());
+    }
+
+    @Test
+    public void testGetFinishedExecStateIdsIsBounded(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ExecutionMessage finished = generateMessageForWorker("group1","msg" + i,"worker1");
+            finished.setStatus(ExecStatus.FINISHED);
+            msg.add(finished);
+        }
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        Assert.assertEquals(2, executionQueueRepository.getFinishedExecStateIds(2).size());
+        executionQueueRepository.deleteFinishedSteps(executionQueueRepository.getFinishedExecStateIds(2));
+        Assert.assertEquals(3, executionQueueRepository.getFinishedExecStateIds(10).size());
+
+        //the history of finished steps stays until its partition is truncated
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Assert.assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OO_EXECUTION_QUEUES_1 WHERE STATUS = ?", Integer.class, ExecStatus.FINISHED.getNumber()).intValue());
+    }
+
+    @Test
+    public void testClaim(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        ExecutionMessage execMsg = generateMessageForWorker("group1","msg1","worker1");
+        execMsg.setStatus(ExecStatus.ASSIGNED);
+        msg.add(execMsg);
+        msg.add(generateMessageForWorker("group1","msg2","worker2"));
+        msg.get(1).setStatus(ExecStatus.ASSIGNED);
+        executionQueueRepository.insertExecutionStates(msg);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        List<ExecutionMessage> result = executionQueueRepository.claim("worker1", 10, 5L);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals(ExecStatus.SENT, result.get(0).getStatus());
+        Assert.assertEquals(2, result.get(0).getMsgSeqId());
+        Assert.assertEquals("msg1", result.get(0).getMsgId());
+        Assert.assertNotNull(result.get(0).getPayload());
+
+        //already claimed messages are not returned again
+        Assert.assertTrue(executionQueueRepository.claim("worker1", 10, 5L).isEmpty());
+
+        //the claimed message waits for its ack with the current version
+        Assert.assertEquals(1, executionQueueRepository.countMessagesWithoutAckForWorker(100, 6L, "worker1").intValue());
+        Assert.assertEquals(0, executionQueueRepository.countMessagesWithoutAckForWorker(100, 5L, "worker1").intValue());
+    }
+
+    @Test
+    public void testClaimInQueueOrder(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            ExecutionMessage execMsg = generateMessageForWorker("group1", "msg" + i, "worker1");
+            execMsg.setStatus(ExecStatus.ASSIGNED);
+            msg.clear();
+            msg.add(execMsg);
+            executionQueueRepository.insertExecutionStates(msg);
+            executionQueueRepository.insertExecutionQueue(msg,1L);
+        }
+
+        List<ExecutionMessage> result = executionQueueRepository.claim("worker1", 2, 1L);
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals("msg1", result.get(0).getMsgId());
+        Assert.assertEquals("msg2", result.get(1).getMsgId());
+
+        //only the message that was not claimed yet is read
+        result = executionQueueRepository.claim("worker1", 2, 1L);
+        Assert.assertEquals(1, result.size());
+        Assert.assertEquals("msg3", result.get(0).getMsgId());
+    }
+
+    @Test
+    public void testClaimHigherPriorityFirst(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            ExecutionMessage execMsg = generateMessageForWorker("group1", "msg" + i, "worker1");
+            execMsg.setStatus(ExecStatus.ASSIGNED);
+            execMsg.setPriority(i == 3 ? 5 : ExecutionMessage.DEFAULT_PRIORITY);
+            msg.clear();
+            msg.add(execMsg);
+            executionQueueRepository.insertExecutionStates(msg);
+            executionQueueRepository.insertExecutionQueue(msg,1L);
+        }
+
+        List<ExecutionMessage> result = executionQueueRepository.claim("worker1", 2, 1L);
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals("msg3", result.get(0).getMsgId());
+        Assert.assertEquals(5, result.get(0).getPriority());
+        Assert.assertEquals("msg1", result.get(1).getMsgId());
+        Assert.assertEquals(ExecutionMessage.DEFAULT_PRIORITY, result.get(1).getPriority());
+    }
+
+    @Test
+    public void testClaimSkipsMessagesChangedByOthers(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        ExecutionMessage execMsg = generateMessageForWorker("group1","msg1","worker1");
+        execMsg.setStatus(ExecStatus.ASSIGNED);
+        msg.add(execMsg);
+        executionQueueRepository.insertExecutionStates(msg);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        //the message was recovered after it was read and before it was claimed
+        ExecutionMessage recovered = (ExecutionMessage) execMsg.clone();
+        recovered.setStatus(ExecStatus.RECOVERED);
+        recovered.incMsgSeqId();
+        msg.clear();
+        msg.add(recovered);
+        executionQueueRepository.insertExecutionQueue(msg,1L);
+
+        Assert.assertTrue(executionQueueRepository.claim("worker1", 10, 1L).isEmpty());
+        Assert.assertEquals(1, executionQueueRepository.findByStatuses(10, ExecStatus.RECOVERED).size());
+    }
+
+    @Test
+    public void testListenerOutbox(){
+        List<ExecutionMessage> msg = new ArrayList<>();
+        ExecutionMessage execMsg = generateMessage("group1","msg1");
+        execMsg.setStatus(ExecStatus.TERMINATED);
+        msg.add(execMsg);
+
+        List<Long> ids = executionQueueRepository.insertListenerOutbox(msg);
+        Assert.assertEquals(1, ids.size());
+
+        Assert.assertTrue(executionQueueRepository.findListenerOutbox(new Date(0), 5, 10).isEmpty());
+        Map<Long, ExecutionMessage> rows = executionQueueRepository.findListenerOutbox(new Date(System.currentTimeMillis() + 1000), 5, 10);
+        Assert.assertEquals(1, rows.size());
+        ExecutionMessage row = rows.get(ids.get(0));
+        Assert.assertEquals(ExecStatus.TERMINATED, row.getStatus());
+        Assert.assertEquals("msg1", row.getMsgId());
+        Assert.assertTrue(Arrays.equals(execMsg.getPayload().getData(), row.getPayload().getData()));
+
+        //the second delete of the same row claims nothing
+        Assert.assertEquals(1, executionQueueRepository.deleteListenerOutbox(ids)[0]);
+        Assert.assertEquals(0, executionQueueRepository.deleteListenerOutbox(ids)[0]);
+        Assert.assertTrue(executionQueueRepository.findListenerOutbox(new Date(System.currentTimeMillis() + 1000), 5, 10).isEmpty());
+    }
+
+    @Test
+    public void testListenerOutboxMaxAttempts(){
+        ExecutionMessage execMsg = generateMessage("group1","msg1");
+        execMsg.setStatus(ExecStatus.FAILED);
+        List<Long> ids = executionQueueRepository.insertListenerOutbox(Collections.singletonList(execMsg));
+        Date createdBefore = new Date(System.currentTimeMillis() + 1000);
+
+        Assert.assertEquals(1, executionQueueRepository.incrementListenerOutboxAttempts(ids.get(0)));
+        Assert.assertEquals(1, executionQueueRepository.findListenerOutbox(createdBefore, 2, 10).size());
+
+        //a message that reached the max attempts is left in the outbox but is not recovered anymore
+        Assert.assertEquals(1, executionQueueRepository.incrementListenerOutboxAttempts(ids.get(0)));
+        Assert.assertTrue(executionQueueRepository.findListenerOutbox(createdBefore, 2, 10).isEmpty());
+        Assert.assertEquals(1, executionQueueRepository.findListenerOutbox(createdBefore, 3, 10).size());
+    }
+
+    @Test
+    public void testQueueDepth(){
+        long depth = executionQueueRepository.getQueueDepth();
+
+        //every update lands on one of the stripes, the depth is their sum
+        for (int i = 0; i < 20; i++) {
+            executionQueueRepository.updateQueueDepth(3);
+        }
+        executionQueueRepository.updateQueueDepth(-10);
+        Assert.assertEquals(depth + 50, executionQueueRepository.getQueueDepth());
+    }
+
+    @Test
+    public void testResetQueueDepth(){
+        long unfinished = executionQueueRepository.countUnfinishedSteps();
+        List<ExecutionMessage> msgs = new ArrayList<>();
+        ExecutionMessage running = generateMessage("group1", "msg1");
+        ExecutionMessage finished = generateMessage("group1", "msg2");
+        msgs.add(running);
+        msgs.add(finished);
+        executionQueueRepository.insertExecutionQueue(msgs, 1);
+        ExecutionMessage finishedMsg = (ExecutionMessage) finished.clone();
+        finishedMsg.setStatus(ExecStatus.FINISHED);
+        finishedMsg.incMsgSeqId();
+        executionQueueRepository.insertExecutionQueue(Collections.singletonList(finishedMsg), 1);
+
+        //only the step that did not finish is counted
+        Assert.assertEquals(unfinished + 1, executionQueueRepository.countUnfinishedSteps());
+
+        //the drift is dropped
+        executionQueueRepository.updateQueueDepth(-7);
+        executionQueueRepository.resetQueueDepth(unfinished + 1);
+        Assert.assertEquals(unfinished + 1, executionQueueRepository.getQueueDepth());
+    }
+
+    @Test
+    public void testWorkerNotifications(){
+        executionQueueRepository.insertWorkerNotifications("notified worker");
+
+        //a worker without a row is left out
+        Assert.assertEquals(1, executionQueueRepository.incrementWorkerNotifications(Arrays.asList("notified worker", "unknown worker")));
+        executionQueueRepository.incrementWorkerNotifications(Collections.singleton("notified worker"));
+
+        Map<String, Long> notifications = executionQueueRepository.findWorkerNotifications();
+        Assert.assertEquals(Long.valueOf(2), notifications.get("notified worker"));
+        Assert.assertFalse(notifications.containsKey("unknown worker"));
+    }
+
     private ExecutionMessage generateMessage(String groupName,String msgId) {
         byte[] payloadData;
         payloadData = "This is just a test".getBytes();
         Payload payload = new Payload(false, false, payloadData);
-        return new ExecutionMessage(-1, ExecutionMessage.EMPTY_WORKER, groupName, msgId , ExecStatus.SENT, payload, 1);
+        return new ExecutionMessage(executionQueueRepository.generateExecStateId(), ExecutionMessage.EMPTY_WORKER, groupName, msgId , ExecStatus.SENT, payload, 1);
     }
 
     private ExecutionMessage generateMessageForWorker(String groupName,String msgId, String workerUuid) {
         byte[] payloadData;
         payloadData = "This is just a test".getBytes();
         Payload payload = new Payload(false, false, payloadData);
-        return new ExecutionMessage(-1, workerUuid, groupName, msgId , ExecStatus.SENT, payload, 1);
+        return new ExecutionMessage(executionQueueRepository.generateExecStateId(), workerUuid, groupName, msgId , ExecStatus.SENT, payload, 1);
     }
 
     @Configuration
@@ -298,8 +610,12 @@ public class ExecutionQueueRepositoryTest {
                 }
 
                 @Override
-                public List<Long> bulk(int bulkSize) {
-                    return null;
+                public synchronized List<Long> bulk(int bulkSize) {
+                    List<Long> ids = new ArrayList<>(bulkSize);
+                    for (int i = 0; i < bulkSize; i++) {
+                        ids.add(next());
+                    }
+                    return ids;
                 }
             };
         }
@@ -309,6 +625,16 @@ public class ExecutionQueueRepositoryTest {
             return new ExecutionQueueRepositoryImpl();
         }
 
+        @Bean
+        DataBaseDetector dataBaseDetector(){
+            return new DataBaseDetector();
+        }
+
+        @Bean
+        SqlStatementRegistry sqlStatementRegistry(){
+            return new SqlStatementRegistry();
+        }
+
         @Bean
         WorkerNodeService workerNodeService(){
             return Mockito.mock(WorkerNodeService.class);
@@ -0,0 +1,85 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Date: 18/10/26
+ */
+public class SqlStatementRegistryTest {
+
+    private static final String TEMPLATE = "SELECT ID FROM :TABLE WHERE STATUS IN (:status)";
+
+    @InjectMocks
+    private SqlStatementRegistry registry = new SqlStatementRegistry();
+
+    @Mock
+    private DataSource dataSource;
+
+    @Before
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    @Test
+    public void testVariantsAreCached() {
+        SqlStatement statement = registry.register("SELECT_IDS", TEMPLATE, ":TABLE", ":status");
+        registry.precompute(statement, Arrays.asList("T_1", "T_2"), 3);
+
+        String sql = statement.sql("T_2", 3);
+        assertEquals("SELECT ID FROM T_2 WHERE STATUS IN (?,?,?)", sql);
+        assertSame(sql, statement.sql("T_2", 3));
+        assertSame(statement, registry.register("SELECT_IDS", TEMPLATE, ":TABLE", ":status"));
+    }
+
+    @Test
+    public void testLongListIsNotCached() {
+        SqlStatement statement = registry.register("SELECT_IDS", TEMPLATE, ":TABLE", ":status");
+
+        String sql = statement.sql("T_1", 2000);
+        assertEquals(sql, statement.sql("T_1", 2000));
+        assertNotSame(sql, statement.sql("T_1", 2000));
+    }
+
+    @Test
+    public void testTemplateIsCachedPerMaxRows() {
+        assertSame(registry.template(100), registry.template(100));
+        assertNotSame(registry.template(100), registry.template(200));
+        assertEquals(200, registry.template(200).getMaxRows());
+    }
+
+    @Test
+    public void testStatistics() {
+        SqlStatement statement = registry.register("SELECT_IDS", TEMPLATE);
+        statement.record(3000);
+        statement.record(1000);
+
+        assertEquals(2, statement.getExecutions());
+        assertEquals(4000, statement.getTotalNanos());
+        assertEquals(3000, statement.getMaxNanos());
+
+        registry.resetStatistics();
+        assertEquals(0, statement.getExecutions());
+        assertEquals(0, statement.getMaxNanos());
+    }
+}
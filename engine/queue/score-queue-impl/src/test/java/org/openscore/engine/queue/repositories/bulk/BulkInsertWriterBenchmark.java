@@ -0,0 +1,79 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.bulk;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Date: 18/10/26
+ *
+ * Compares the bulk insert strategies on H2, COPY needs PostgreSQL and is not part of it.
+ * Not part of the regular build, run it with: mvn test -Dtest=BulkInsertWriterBenchmark
+ */
+public class BulkInsertWriterBenchmark {
+
+	private static final String[] COLUMNS = {"ID", "EXEC_STATE_ID", "ASSIGNED_WORKER", "EXEC_GROUP", "STATUS", "MSG_SEQ_ID", "CREATE_TIME", "MSG_VERSION"};
+	private static final int[] BULK_SIZES = {10, 100, 1000};
+	private static final int ROWS_PER_RUN = 100000;
+
+	private EmbeddedDatabase dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@Before
+	public void init() {
+		dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE OO_EXECUTION_QUEUES_1 (ID BIGINT PRIMARY KEY, EXEC_STATE_ID BIGINT NOT NULL, ASSIGNED_WORKER VARCHAR(40), " +
+				"EXEC_GROUP VARCHAR(255) NOT NULL, STATUS INTEGER, MSG_SEQ_ID INTEGER NOT NULL, CREATE_TIME TIMESTAMP, MSG_VERSION BIGINT)");
+	}
+
+	@After
+	public void shutdown() {
+		dataSource.shutdown();
+	}
+
+	@Test
+	public void benchmark() {
+		BulkInsertWriter[] writers = {new BatchInsertWriter(jdbcTemplate), new MultiRowInsertWriter(jdbcTemplate)};
+		for (int bulkSize : BULK_SIZES) {
+			for (BulkInsertWriter writer : writers) {
+				// warm up
+				run(writer, bulkSize, ROWS_PER_RUN / 10);
+				long t = System.nanoTime();
+				run(writer, bulkSize, ROWS_PER_RUN);
+				t = System.nanoTime() - t;
+				System.out.println(String.format("%-22s bulk %5d: %,10d rows/sec",
+						writer.getClass().getSimpleName(), bulkSize, ROWS_PER_RUN * 1000000000L / t));
+			}
+		}
+	}
+
+	private void run(BulkInsertWriter writer, int bulkSize, int totalRows) {
+		jdbcTemplate.execute("TRUNCATE TABLE OO_EXECUTION_QUEUES_1");
+		long id = 0;
+		for (int done = 0; done < totalRows; done += bulkSize) {
+			List<Object[]> rows = new ArrayList<>(bulkSize);
+			for (int i = 0; i < bulkSize; i++, id++) {
+				rows.add(new Object[]{id, id, "worker", "group", 1, 0, BulkInsertWriter.Expression.CURRENT_TIMESTAMP, 1L});
+			}
+			writer.insert("OO_EXECUTION_QUEUES_1", COLUMNS, rows);
+		}
+	}
+}
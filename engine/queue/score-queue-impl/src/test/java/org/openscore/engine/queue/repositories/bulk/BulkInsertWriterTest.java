@@ -0,0 +1,108 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.repositories.bulk;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Date: 18/10/26
+ */
+public class BulkInsertWriterTest {
+
+	private static final String[] COLUMNS = {"ID", "NAME", "DATA", "CREATE_TIME"};
+
+	private EmbeddedDatabase dataSource;
+	private JdbcTemplate jdbcTemplate;
+
+	@Before
+	public void init() {
+		dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).build();
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE BULK_TEST (ID BIGINT PRIMARY KEY, NAME VARCHAR(40), DATA BLOB, CREATE_TIME TIMESTAMP)");
+	}
+
+	@After
+	public void shutdown() {
+		dataSource.shutdown();
+	}
+
+	@Test
+	public void testBatchInsert() {
+		checkInsert(new BatchInsertWriter(jdbcTemplate), 10);
+	}
+
+	@Test
+	public void testMultiRowInsert() {
+		checkInsert(new MultiRowInsertWriter(jdbcTemplate), 10);
+	}
+
+	@Test
+	public void testMultiRowInsertInSeveralStatements() {
+		checkInsert(new MultiRowInsertWriter(jdbcTemplate), MultiRowInsertWriter.MAX_PARAMETERS);
+	}
+
+	@Test
+	public void testMultiRowInsertBytesCap() {
+		// a row takes about 50 bytes, so each of them is inserted by its own statement
+		MultiRowInsertWriter writer = new MultiRowInsertWriter(jdbcTemplate, 60);
+		checkInsert(writer, 5);
+		Assert.assertEquals(25, MultiRowInsertWriter.sizeOf(new Object[]{"ab", new byte[1], 1L}));
+	}
+
+	@Test
+	public void testEmptyInsert() {
+		Assert.assertEquals(0, new MultiRowInsertWriter(jdbcTemplate).insert("BULK_TEST", COLUMNS, new ArrayList<Object[]>()));
+	}
+
+	@Test
+	public void testCopyEncoding() {
+		List<Object[]> rows = new ArrayList<>();
+		rows.add(new Object[]{1L, "a\tb\\c\nd", new byte[]{0, 15, (byte) 255}, BulkInsertWriter.Expression.CURRENT_TIMESTAMP});
+		rows.add(new Object[]{2L, null, new byte[0], BulkInsertWriter.Expression.CURRENT_TIMESTAMP});
+
+		Timestamp now = Timestamp.valueOf("2026-10-18 10:00:00.0");
+		String data = PostgresCopyInsertWriter.encode(rows, now);
+		Assert.assertEquals(
+				"1\ta\\tb\\\\c\\nd\t\\\\x000fff\t2026-10-18 10:00:00.0\n" +
+				"2\t\\N\t\\\\x\t2026-10-18 10:00:00.0\n", data);
+	}
+
+	private void checkInsert(BulkInsertWriter writer, int size) {
+		List<Object[]> rows = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			rows.add(new Object[]{(long) i, i % 2 == 0 ? null : "name" + i, new byte[]{(byte) i}, BulkInsertWriter.Expression.CURRENT_TIMESTAMP});
+		}
+		Assert.assertEquals(size, writer.insert("BULK_TEST", COLUMNS, rows));
+
+		List<Map<String, Object>> result = jdbcTemplate.queryForList("SELECT * FROM BULK_TEST ORDER BY ID");
+		Assert.assertEquals(size, result.size());
+		for (int i = 0; i < size; i++) {
+			Map<String, Object> row = result.get(i);
+			Assert.assertEquals((long) i, row.get("ID"));
+			Assert.assertEquals(i % 2 == 0 ? null : "name" + i, row.get("NAME"));
+			Assert.assertTrue(Arrays.equals(new byte[]{(byte) i}, jdbcTemplate.queryForObject("SELECT DATA FROM BULK_TEST WHERE ID = ?", byte[].class, (long) i)));
+			Assert.assertNotNull(row.get("CREATE_TIME"));
+		}
+	}
+}
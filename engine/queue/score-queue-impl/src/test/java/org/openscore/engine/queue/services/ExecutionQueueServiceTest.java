@@ -19,12 +19,14 @@ import org.openscore.engine.queue.entities.ExecutionMessageConverter;
 import org.openscore.engine.queue.entities.Payload;
 import org.openscore.engine.queue.repositories.ExecutionQueueRepository;
 import org.openscore.engine.queue.repositories.ExecutionQueueRepositoryImpl;
+import org.openscore.engine.queue.repositories.SqlStatementRegistry;
 import org.openscore.engine.queue.services.ExecutionQueueService;
 import org.openscore.engine.queue.services.ExecutionQueueServiceImpl;
 import org.openscore.engine.queue.services.assigner.ExecutionAssignerService;
 import org.openscore.engine.queue.services.assigner.ExecutionAssignerServiceImpl;
 import org.openscore.engine.versioning.services.VersionService;
 import org.openscore.engine.partitions.services.PartitionTemplate;
+import org.openscore.engine.data.DataBaseDetector;
 import org.openscore.engine.data.IdentityGenerator;
 import org.openscore.engine.data.SimpleHiloIdentifierGenerator;
 import junit.framework.Assert;
@@ -87,6 +89,7 @@ public class ExecutionQueueServiceTest {
 	@Before
 	public void before() {
 		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUES_1");
+		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUE_HEAD");
 		jdbcTemplate.execute("delete from OO_EXECUTION_STATES_2");
 		jdbcTemplate.execute("delete from OO_EXECUTION_STATES_1");
 		// init queuePartitionTemplate
@@ -158,6 +161,30 @@ public class ExecutionQueueServiceTest {
 
 	}
 
+	@Test
+	public void releaseDueMessagesTest() throws Exception {
+		Multimap<String, String> groupWorkerMap = ArrayListMultimap.create();
+		groupWorkerMap.put("group1", "worker4");
+		when(workerNodeService.readGroupWorkersMapActiveAndRunning()).thenReturn(groupWorkerMap);
+
+		ExecutionMessage message = generateMessage("group1", "21").setNotBefore(System.currentTimeMillis() + 300);
+		executionQueueService.enqueue(Arrays.asList(message));
+
+		// the delayed message waits in the queue, pending
+		Assert.assertEquals(0, executionQueueService.poll("worker4", 100, ExecStatus.ASSIGNED).size());
+		Assert.assertEquals(0, executionQueueService.releaseDueMessages(100));
+
+		Thread.sleep(400);
+		Assert.assertEquals(1, executionQueueService.releaseDueMessages(100));
+		List<ExecutionMessage> msgFromQueue = executionQueueService.poll("worker4", 100, ExecStatus.ASSIGNED);
+		Assert.assertEquals(1, msgFromQueue.size());
+		Assert.assertEquals("21", msgFromQueue.get(0).getMsgId());
+		Assert.assertNotNull(msgFromQueue.get(0).getPayload().getData());
+
+		// released once
+		Assert.assertEquals(0, executionQueueService.releaseDueMessages(100));
+	}
+
 	@Test
 	public void pollWithoutAckTest() throws Exception {
 		Multimap<String, String> groupWorkerMap = ArrayListMultimap.create();
@@ -330,8 +357,12 @@ public class ExecutionQueueServiceTest {
 				}
 
 				@Override
-				public List<Long> bulk(int bulkSize) {
-					return null;
+				public synchronized List<Long> bulk(int bulkSize) {
+					List<Long> ids = new ArrayList<>(bulkSize);
+					for (int i = 0; i < bulkSize; i++) {
+						ids.add(next());
+					}
+					return ids;
 				}
 			};
 		}
@@ -361,6 +392,16 @@ public class ExecutionQueueServiceTest {
 			return new ExecutionQueueRepositoryImpl();
 		}
 
+		@Bean
+		DataBaseDetector dataBaseDetector(){
+			return new DataBaseDetector();
+		}
+
+		@Bean
+		SqlStatementRegistry sqlStatementRegistry(){
+			return new SqlStatementRegistry();
+		}
+
 		@Bean
 		ExecutionQueueService executionQueueService(){
 			return new ExecutionQueueServiceImpl();
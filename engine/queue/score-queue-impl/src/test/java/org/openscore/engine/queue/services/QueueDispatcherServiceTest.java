@@ -10,7 +10,6 @@
 
 package org.openscore.engine.queue.services;
 
-import org.openscore.engine.queue.entities.ExecStatus;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import junit.framework.Assert;
 import org.junit.Before;
@@ -82,24 +81,22 @@ public class QueueDispatcherServiceTest {
 
     @Test
     public void testPoll() throws Exception {
-        Date now = new Date();
-        queueDispatcherService.poll("workerId",5,now);
-        verify(executionQueueService,times(1)).poll(now,"workerId",5, ExecStatus.ASSIGNED);
+        queueDispatcherService.poll("workerId",5);
+        verify(executionQueueService,times(1)).claim("workerId",5);
+        verify(executionQueueService,never()).enqueue(anyList());
     }
 
     @Test
     public void testPollEmptyResult() throws Exception {
-        Date now = new Date();
         List<ExecutionMessage> msg = new ArrayList<>();
 
-        when(executionQueueService.poll(now,"workerId",5, ExecStatus.ASSIGNED)).thenReturn(msg);
-        List<ExecutionMessage> result = queueDispatcherService.poll("workerId",5,now);
+        when(executionQueueService.claim("workerId",5)).thenReturn(msg);
+        List<ExecutionMessage> result = queueDispatcherService.poll("workerId",5);
         Assert.assertTrue(result.isEmpty());
     }
 
     @Test
     public void testPollWithResult() throws Exception {
-        Date now = new Date();
         List<ExecutionMessage> msg = new ArrayList<>();
 
         msg.add(new ExecutionMessage());
@@ -108,10 +105,16 @@ public class QueueDispatcherServiceTest {
         msg.add(new ExecutionMessage());
         msg.get(1).setMsgId("id2");
 
-        when(executionQueueService.poll(now, "workerId", 5, ExecStatus.ASSIGNED)).thenReturn(msg);
-        List<ExecutionMessage> result = queueDispatcherService.poll("workerId",5,now);
+        when(executionQueueService.claim("workerId", 5)).thenReturn(msg);
+        List<ExecutionMessage> result = queueDispatcherService.poll("workerId",5);
         Assert.assertEquals(2,result.size());
         Assert.assertEquals("id1",result.get(0).getMsgId());
         Assert.assertEquals("id2",result.get(1).getMsgId());
     }
+
+    @Test
+    public void testDeprecatedPollIgnoresCreateDate() throws Exception {
+        queueDispatcherService.poll("workerId",5,new Date());
+        verify(executionQueueService,times(1)).claim("workerId",5);
+    }
 }
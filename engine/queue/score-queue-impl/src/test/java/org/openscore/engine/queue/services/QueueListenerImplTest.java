@@ -17,6 +17,7 @@ import org.openscore.events.ScoreEvent;
 import org.openscore.facade.entities.Execution;
 import org.openscore.facade.execution.ExecutionSummary;
 import org.openscore.lang.SystemContext;
+import org.openscore.orchestrator.services.AdmissionControlService;
 import org.openscore.orchestrator.services.ExecutionStateService;
 import org.openscore.orchestrator.services.PauseResumeService;
 import org.openscore.orchestrator.services.SplitJoinService;
@@ -39,6 +40,7 @@ import java.util.UUID;
 import static org.junit.matchers.JUnitMatchers.hasItem;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
@@ -72,9 +74,12 @@ public class QueueListenerImplTest {
 	@Autowired
 	private SplitJoinService splitJoinService;
 
+	@Autowired
+	private AdmissionControlService admissionControlService;
+
 	@Before
 	public void setup() throws IOException {
-		reset(eventBus);
+		reset(eventBus, admissionControlService);
 	}
 
 	@Test
@@ -112,6 +117,7 @@ public class QueueListenerImplTest {
 
 		verify(executionStateService, times(1)).deleteExecutionState(Long.valueOf(messages.get(0).getMsgId()), ExecutionSummary.EMPTY_BRANCH);
 		verify(executionStateService, times(1)).deleteExecutionState(Long.valueOf(messages.get(1).getMsgId()), ExecutionSummary.EMPTY_BRANCH);
+		verify(admissionControlService, times(2)).executionFinished(any(Long.class), any(String.class));
 	}
 
 	@Test
@@ -126,6 +132,7 @@ public class QueueListenerImplTest {
 
 		verify(splitJoinService, times(1)).endBranch((List<Execution>) argThat(hasItem(execution1)));
 		verify(splitJoinService, times(1)).endBranch((List<Execution>) argThat(hasItem(execution2)));
+		verify(admissionControlService, never()).executionFinished(any(Long.class), any(String.class));
 	}
 
 	private Execution createBranchExecution() {
@@ -182,6 +189,31 @@ public class QueueListenerImplTest {
 		verify(executionStateService, times(1)).deleteExecutionState(Long.valueOf(messages.get(1).getMsgId()), ExecutionSummary.EMPTY_BRANCH);
 	}
 
+	@Test
+	public void testOnFailedFinishesAdmittedExecution() {
+		Execution execution = new Execution(5L, 0L, 0L, new HashMap<String, String>(0), new SystemContext());
+		execution.getSystemContext().setAdmittedFlowUuid("flowA");
+		List<ExecutionMessage> messages = new ArrayList<>();
+		messages.add(createExecutionMessage(execution));
+
+		queueListener.onFailed(messages);
+
+		verify(admissionControlService, times(1)).executionFinished(5L, "flowA");
+	}
+
+	@Test
+	public void testOnFailedNoWorkerKeepsExecutionState() {
+		Execution execution = createBranchExecution();
+		execution.getSystemContext().setNoWorkerInGroup("group");
+		List<ExecutionMessage> messages = new ArrayList<>();
+		messages.add(createExecutionMessage(execution));
+
+		queueListener.onFailed(messages);
+
+		verify(executionStateService, never()).deleteExecutionState(Long.valueOf(messages.get(0).getMsgId()), ExecutionSummary.EMPTY_BRANCH);
+		verify(scoreEventFactory, times(1)).createNoWorkerEvent(eq(execution), any(Long.class));
+	}
+
 	@Test
 	public void testOnFailedBranchExecution() {
 		List<ExecutionMessage> messages = new ArrayList<>();
@@ -233,6 +265,11 @@ public class QueueListenerImplTest {
 		PauseResumeService pauseResumeService() {
 			return mock(PauseResumeService.class);
 		}
+
+		@Bean
+		AdmissionControlService admissionControlService() {
+			return mock(AdmissionControlService.class);
+		}
 	}
 
 }
@@ -0,0 +1,166 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openscore.engine.queue.entities.ExecStatus;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+import org.openscore.engine.queue.repositories.ExecutionQueueRepository;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Date: 18/10/26
+ */
+public class QueueListenerPipelineTest {
+
+    @Mock
+    private ExecutionQueueRepository executionQueueRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private QueueListener queueListener;
+
+    @InjectMocks
+    private QueueListenerPipelineImpl pipeline;
+
+    @Before
+    public void setUp() {
+        System.setProperty("queue.listeners.async", "true");
+        // no threads, the tests drive the pipeline through recover
+        System.setProperty("queue.listeners.threads", "0");
+        pipeline = new QueueListenerPipelineImpl();
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(pipeline, "listeners", Collections.singletonList(queueListener));
+        pipeline.init();
+    }
+
+    @After
+    public void tearDown() {
+        pipeline.shutdown();
+        System.clearProperty("queue.listeners.async");
+        System.clearProperty("queue.listeners.threads");
+    }
+
+    @Test
+    public void testSubmitWritesOnlyFailedAndTerminatedMessages() {
+        ExecutionMessage failed = createMessage(ExecStatus.FAILED);
+        ExecutionMessage terminated = createMessage(ExecStatus.TERMINATED);
+        List<ExecutionMessage> outbox = Arrays.asList(failed, terminated);
+        when(executionQueueRepository.insertListenerOutbox(outbox)).thenReturn(Arrays.asList(1L, 2L));
+
+        pipeline.submit(Arrays.asList(createMessage(ExecStatus.SENT), failed, terminated));
+
+        verify(executionQueueRepository).insertListenerOutbox(outbox);
+        verifyZeroInteractions(queueListener);
+    }
+
+    @Test
+    public void testSubmitWithoutFailedOrTerminatedMessages() {
+        pipeline.submit(Arrays.asList(createMessage(ExecStatus.SENT), createMessage(ExecStatus.FINISHED)));
+        verify(executionQueueRepository, never()).insertListenerOutbox(anyListOf(ExecutionMessage.class));
+    }
+
+    @Test
+    public void testRecoverHandsOnlyClaimedRowsToListeners() {
+        ExecutionMessage failed = createMessage(ExecStatus.FAILED);
+        ExecutionMessage terminated = createMessage(ExecStatus.TERMINATED);
+        Map<Long, ExecutionMessage> rows = new LinkedHashMap<>();
+        rows.put(1L, failed);
+        rows.put(2L, terminated);
+        when(executionQueueRepository.findListenerOutbox(any(Date.class), anyInt(), anyInt())).thenReturn(rows);
+        // the terminated row was already handled by another node
+        when(executionQueueRepository.deleteListenerOutbox(Arrays.asList(1L, 2L))).thenReturn(new int[]{1, 0});
+
+        assertEquals(1, pipeline.recover());
+
+        verify(queueListener).onFailed(Collections.singletonList(failed));
+        verify(queueListener, never()).onTerminated(anyListOf(ExecutionMessage.class));
+    }
+
+    @Test
+    public void testRecoverTakesNoInfoCountsAsDeleted() {
+        ExecutionMessage terminated = createMessage(ExecStatus.TERMINATED);
+        Map<Long, ExecutionMessage> rows = new LinkedHashMap<>();
+        rows.put(1L, terminated);
+        when(executionQueueRepository.findListenerOutbox(any(Date.class), anyInt(), anyInt())).thenReturn(rows);
+        when(executionQueueRepository.deleteListenerOutbox(Arrays.asList(1L))).thenReturn(new int[]{Statement.SUCCESS_NO_INFO});
+
+        assertEquals(1, pipeline.recover());
+
+        verify(queueListener).onTerminated(Collections.singletonList(terminated));
+    }
+
+    @Test
+    public void testRecoverIsolatesFailedMessage() {
+        ExecutionMessage poison = createMessage(ExecStatus.FAILED);
+        poison.setMsgId("1");
+        ExecutionMessage failed = createMessage(ExecStatus.FAILED);
+        failed.setMsgId("2");
+        Map<Long, ExecutionMessage> rows = new LinkedHashMap<>();
+        rows.put(1L, poison);
+        rows.put(2L, failed);
+        when(executionQueueRepository.findListenerOutbox(any(Date.class), anyInt(), anyInt())).thenReturn(rows);
+        when(executionQueueRepository.deleteListenerOutbox(Arrays.asList(1L, 2L))).thenReturn(new int[]{1, 1});
+        when(executionQueueRepository.deleteListenerOutbox(Collections.singletonList(1L))).thenReturn(new int[]{1});
+        when(executionQueueRepository.deleteListenerOutbox(Collections.singletonList(2L))).thenReturn(new int[]{1});
+        doThrow(new RuntimeException("poison")).when(queueListener).onFailed(Arrays.asList(poison, failed));
+        doThrow(new RuntimeException("poison")).when(queueListener).onFailed(Collections.singletonList(poison));
+
+        // the batch is retried one message at a time, only the poison message has its attempt counted
+        assertEquals(1, pipeline.recover());
+
+        verify(queueListener).onFailed(Collections.singletonList(failed));
+        verify(executionQueueRepository).incrementListenerOutboxAttempts(1L);
+        verify(executionQueueRepository, never()).incrementListenerOutboxAttempts(2L);
+    }
+
+    @Test
+    public void testDisabledPipelineDoesNotRecover() {
+        System.clearProperty("queue.listeners.async");
+        QueueListenerPipelineImpl disabled = new QueueListenerPipelineImpl();
+        ReflectionTestUtils.setField(disabled, "executionQueueRepository", executionQueueRepository);
+
+        assertEquals(0, disabled.recover());
+        verifyZeroInteractions(executionQueueRepository);
+    }
+
+    private ExecutionMessage createMessage(ExecStatus status) {
+        ExecutionMessage msg = new ExecutionMessage();
+        msg.setStatus(status);
+        return msg;
+    }
+}
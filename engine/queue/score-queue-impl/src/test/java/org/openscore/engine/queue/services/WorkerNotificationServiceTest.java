@@ -0,0 +1,131 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openscore.engine.queue.repositories.ExecutionQueueRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Date: 18/10/26
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class WorkerNotificationServiceTest {
+
+    @InjectMocks
+    private WorkerNotificationServiceImpl workerNotificationService = new WorkerNotificationServiceImpl();
+
+    @Mock
+    private ExecutionQueueRepository executionQueueRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void init() {
+        workerNotificationService.init();
+    }
+
+    @After
+    public void shutdown() {
+        workerNotificationService.shutdown();
+    }
+
+    @Test
+    public void testWaitWithoutNotification() throws Exception {
+        long t = System.currentTimeMillis();
+        Assert.assertFalse(workerNotificationService.waitForWork("worker1", 50));
+        Assert.assertTrue(System.currentTimeMillis() - t >= 50);
+    }
+
+    @Test
+    public void testNotificationBeforeWaitIsKept() throws Exception {
+        workerNotificationService.notifyWorkers(Arrays.asList("worker1", "worker2"));
+        Assert.assertTrue(workerNotificationService.waitForWork("worker1", 5000));
+        Assert.assertTrue(workerNotificationService.waitForWork("worker2", 5000));
+        //the notification was consumed
+        Assert.assertFalse(workerNotificationService.waitForWork("worker1", 10));
+    }
+
+    @Test(timeout = 5000)
+    public void testNotificationWakesWaitingWorker() throws Exception {
+        final CountDownLatch notified = new CountDownLatch(1);
+        Thread waiting = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (workerNotificationService.waitForWork("worker1", 10000)) notified.countDown();
+                } catch (InterruptedException ignore) {
+                }
+            }
+        });
+        waiting.start();
+
+        workerNotificationService.notifyWorkers(Collections.singleton("other worker"));
+        Assert.assertFalse(notified.await(100, TimeUnit.MILLISECONDS));
+
+        workerNotificationService.notifyWorkers(Collections.singleton("worker1"));
+        Assert.assertTrue(notified.await(4000, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNotificationsAreWrittenToTheTable() throws Exception {
+        workerNotificationService.waitForWork("worker1", 1);
+        verify(executionQueueRepository).insertWorkerNotifications("worker1");
+
+        workerNotificationService.notifyWorkers(Collections.singleton("worker1"));
+        verify(executionQueueRepository).incrementWorkerNotifications(Collections.singleton("worker1"));
+    }
+
+    @Test(timeout = 5000)
+    public void testNotificationOfOtherNodeWakesWaitingWorker() throws Exception {
+        final Map<String, Long> notifications = new HashMap<>();
+        notifications.put("worker1", 0L);
+        when(executionQueueRepository.findWorkerNotifications()).thenReturn(notifications);
+        Assert.assertFalse(workerNotificationService.waitForWork("worker1", 10));
+
+        //another node notified worker1
+        Map<String, Long> notified = new HashMap<>();
+        notified.put("worker1", 1L);
+        when(executionQueueRepository.findWorkerNotifications()).thenReturn(notified);
+        Assert.assertTrue(workerNotificationService.waitForWork("worker1", 4000));
+    }
+
+    @Test
+    public void testUnchangedCountDoesNotWakeWorker() throws Exception {
+        Assert.assertFalse(workerNotificationService.waitForWork("worker1", 1));
+        Map<String, Long> notifications = new HashMap<>();
+        notifications.put("worker1", 3L);
+        workerNotificationService.signalNotified(notifications);
+        //the row was created by this node with no notifications
+        Assert.assertTrue(workerNotificationService.waitForWork("worker1", 10));
+
+        workerNotificationService.signalNotified(notifications);
+        Assert.assertFalse(workerNotificationService.waitForWork("worker1", 10));
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscore.engine.node.entities.WorkerLoad;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Date: 18/10/26
+ */
+public class AssignmentStrategyTest {
+
+    private static final List<String> WORKERS = Arrays.asList("worker1", "worker2");
+
+    private static final ExecutionMessage MESSAGE = new ExecutionMessage("1", null);
+
+    @Test
+    public void testLoadFactorCountsAssignedMessages() {
+        Map<String, WorkerLoad> reported = new HashMap<>();
+        reported.put("worker1", new WorkerLoad(2, 2, 4, 0));
+        AssignmentLoads loads = new AssignmentLoads(reported);
+        Assert.assertEquals(1.0, loads.loadFactor("worker1"), 0.001);
+
+        loads.assigned("worker1");
+        loads.assigned("worker1");
+        Assert.assertEquals(1.5, loads.loadFactor("worker1"), 0.001);
+
+        // no report, an idle worker with one thread
+        Assert.assertEquals(0.0, loads.loadFactor("worker2"), 0.001);
+        loads.assigned("worker2");
+        Assert.assertEquals(1.0, loads.loadFactor("worker2"), 0.001);
+    }
+
+    @Test
+    public void testFullOutBufferAddsLoad() {
+        Assert.assertTrue(new WorkerLoad(1, 0, 2, 100).loadFactor(0) > new WorkerLoad(1, 0, 2, 0).loadFactor(0));
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesPicksLessLoaded() {
+        AssignmentLoads loads = new AssignmentLoads(loads(new WorkerLoad(10, 5, 4, 0), new WorkerLoad(1, 0, 4, 0)));
+        AssignmentStrategy strategy = new PowerOfTwoChoicesAssignmentStrategy();
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            // with two workers both of them are always sampled
+            Assert.assertEquals("worker2", strategy.chooseWorker(MESSAGE, WORKERS, loads, random));
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesSingleWorker() {
+        AssignmentStrategy strategy = new PowerOfTwoChoicesAssignmentStrategy();
+        Assert.assertEquals("worker1", strategy.chooseWorker(MESSAGE, Arrays.asList("worker1"), new AssignmentLoads(new HashMap<String, WorkerLoad>()), new Random()));
+    }
+
+    @Test
+    public void testLeastLoadedWeighsByThreads() {
+        // 8 tasks on 16 threads is less loaded than 2 tasks on 2 threads
+        AssignmentLoads loads = new AssignmentLoads(loads(new WorkerLoad(2, 0, 2, 0), new WorkerLoad(8, 0, 16, 0)));
+        AssignmentStrategy strategy = new LeastLoadedAssignmentStrategy();
+        Random random = new Random(1);
+
+        int worker2Assigned = 0;
+        for (int i = 0; i < 12; i++) {
+            String worker = strategy.chooseWorker(MESSAGE, WORKERS, loads, random);
+            loads.assigned(worker);
+            if (worker.equals("worker2")) {
+                worker2Assigned++;
+            }
+        }
+        // worker2 takes the messages until it reaches the load of worker1, then they alternate
+        Assert.assertTrue(worker2Assigned >= 8);
+    }
+
+    @Test
+    public void testRandomIsNotLoadAware() {
+        AssignmentStrategy strategy = new RandomAssignmentStrategy();
+        Assert.assertFalse(strategy.isLoadAware());
+        Assert.assertTrue(WORKERS.contains(strategy.chooseWorker(MESSAGE, WORKERS, null, new Random())));
+    }
+
+    private Map<String, WorkerLoad> loads(WorkerLoad worker1, WorkerLoad worker2) {
+        Map<String, WorkerLoad> loads = new HashMap<>();
+        loads.put("worker1", worker1);
+        loads.put("worker2", worker2);
+        return loads;
+    }
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.engine.queue.services.assigner;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscore.engine.node.entities.WorkerLoad;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Date: 18/10/26
+ */
+public class ConsistentHashAssignmentStrategyTest {
+
+    private static final List<String> WORKERS = Arrays.asList("worker1", "worker2", "worker3", "worker4");
+
+    private final AssignmentAffinityStatistics statistics = new AssignmentAffinityStatistics();
+
+    private final ConsistentHashAssignmentStrategy strategy = new ConsistentHashAssignmentStrategy(statistics);
+
+    private final Random random = new Random();
+
+    @Test
+    public void testExecutionStaysOnWorker() {
+        AssignmentLoads loads = new AssignmentLoads(new HashMap<String, WorkerLoad>());
+        Map<String, Integer> perWorker = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            String worker = strategy.chooseWorker(message(i), WORKERS, loads, random);
+            Assert.assertEquals(worker, strategy.chooseWorker(message(i), Arrays.asList("worker1", "worker2", "worker3", "worker4"), loads, random));
+            Integer count = perWorker.get(worker);
+            perWorker.put(worker, count == null ? 1 : count + 1);
+        }
+        // spread over all the workers
+        Assert.assertEquals(4, perWorker.size());
+        Assert.assertEquals(800, statistics.getOwnerAssignments());
+        Assert.assertEquals(1, statistics.getRingBuilds());
+    }
+
+    @Test
+    public void testLeavingWorkerMovesOnlyItsExecutions() {
+        AssignmentLoads loads = new AssignmentLoads(new HashMap<String, WorkerLoad>());
+        List<String> remaining = Arrays.asList("worker1", "worker2", "worker4");
+        for (int i = 0; i < 400; i++) {
+            String before = strategy.chooseWorker(message(i), WORKERS, loads, random);
+            String after = strategy.chooseWorker(message(i), remaining, loads, random);
+            if (!before.equals("worker3")) {
+                Assert.assertEquals(before, after);
+            }
+        }
+    }
+
+    @Test
+    public void testSaturatedOwnerIsRebalanced() {
+        ExecutionMessage message = message(7);
+        String owner = strategy.chooseWorker(message, WORKERS, new AssignmentLoads(new HashMap<String, WorkerLoad>()), random);
+
+        Map<String, WorkerLoad> reported = new HashMap<>();
+        for (String worker : WORKERS) {
+            reported.put(worker, worker.equals(owner) ? new WorkerLoad(8, 20, 4, 0) : new WorkerLoad(1, 0, 4, 0));
+        }
+        statistics.resetStatistics();
+        Assert.assertFalse(owner.equals(strategy.chooseWorker(message, WORKERS, new AssignmentLoads(reported), random)));
+        Assert.assertEquals(1, statistics.getRebalancedAssignments());
+    }
+
+    private ExecutionMessage message(long executionId) {
+        return new ExecutionMessage(String.valueOf(executionId), null);
+    }
+}
@@ -86,6 +86,35 @@ public class ExecutionAssignerServiceTest {
 
     }
 
+    @Test
+    public void delayedMessageStaysPending() throws Exception {
+
+        Multimap<String, String> groupWorkersMap = ArrayListMultimap.create();
+        groupWorkersMap.put("DefaultGroup", "worker1");
+
+        List<ExecutionMessage> assignMessages = new ArrayList<>();
+        ExecutionMessage msg1 = new ExecutionMessage(1, ExecutionMessage.EMPTY_WORKER, "DefaultGroup", "msg1", ExecStatus.PENDING, null, 0, new Date(0));
+        msg1.setNotBefore(System.currentTimeMillis() + 60000);
+        ExecutionMessage msg2 = new ExecutionMessage(2, ExecutionMessage.EMPTY_WORKER, "DefaultGroup", "msg2", ExecStatus.PENDING, null, 0, new Date(0));
+        msg2.setNotBefore(System.currentTimeMillis() - 1);
+        assignMessages.add(msg1);
+        assignMessages.add(msg2);
+
+        Mockito.reset(executionQueueService);
+        Mockito.reset(workerNodeService);
+        Mockito.when(workerNodeService.readGroupWorkersMapActiveAndRunning()).thenReturn(groupWorkersMap);
+
+        final List<ExecutionMessage> messagesInQ = executionAssignerService.assignWorkers(assignMessages);
+
+        Assert.assertEquals(2, messagesInQ.size());
+        Assert.assertEquals(ExecStatus.PENDING, messagesInQ.get(0).getStatus());
+        Assert.assertEquals(ExecutionMessage.EMPTY_WORKER, messagesInQ.get(0).getWorkerId());
+        Assert.assertEquals(0, messagesInQ.get(0).getMsgSeqId());
+        // a message that is already due is assigned
+        Assert.assertEquals(ExecStatus.ASSIGNED, messagesInQ.get(1).getStatus());
+        Assert.assertEquals("worker1", messagesInQ.get(1).getWorkerId());
+    }
+
     @Test
     public void assignWhenHaveNoWorkers() throws Exception {
 
@@ -17,6 +17,7 @@ import org.openscore.engine.queue.entities.ExecutionMessageConverter;
 import org.openscore.engine.queue.entities.Payload;
 import org.openscore.engine.queue.repositories.ExecutionQueueRepository;
 import org.openscore.engine.queue.repositories.ExecutionQueueRepositoryImpl;
+import org.openscore.engine.queue.repositories.SqlStatementRegistry;
 import org.openscore.engine.queue.services.ExecutionQueueService;
 import org.openscore.engine.queue.services.ExecutionQueueServiceImpl;
 import org.openscore.engine.queue.services.assigner.ExecutionAssignerService;
@@ -25,6 +26,7 @@ import org.openscore.engine.queue.services.cleaner.QueueCleanerService;
 import org.openscore.engine.queue.services.cleaner.QueueCleanerServiceImpl;
 import org.openscore.engine.versioning.services.VersionService;
 import org.openscore.engine.partitions.services.PartitionTemplate;
+import org.openscore.engine.data.DataBaseDetector;
 import org.openscore.engine.data.IdentityGenerator;
 import org.openscore.engine.data.SimpleHiloIdentifierGenerator;
 import junit.framework.Assert;
@@ -84,6 +86,7 @@ public class QueueCleanerServiceTest {
 	@Before
 	public void before() {
 		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUES_1");
+		jdbcTemplate.execute("delete from OO_EXECUTION_QUEUE_HEAD");
 		jdbcTemplate.execute("delete from OO_EXECUTION_STATES_2");
 		jdbcTemplate.execute("delete from OO_EXECUTION_STATES_1");
 		// init queuePartitionTemplate
@@ -198,8 +201,12 @@ public class QueueCleanerServiceTest {
 				}
 
 				@Override
-				public List<Long> bulk(int bulkSize) {
-					return null;
+				public synchronized List<Long> bulk(int bulkSize) {
+					List<Long> ids = new ArrayList<>(bulkSize);
+					for (int i = 0; i < bulkSize; i++) {
+						ids.add(next());
+					}
+					return ids;
 				}
 			};
 		}
@@ -234,6 +241,16 @@ public class QueueCleanerServiceTest {
 			return new ExecutionQueueRepositoryImpl();
 		}
 
+		@Bean
+		DataBaseDetector dataBaseDetector(){
+			return new DataBaseDetector();
+		}
+
+		@Bean
+		SqlStatementRegistry sqlStatementRegistry(){
+			return new SqlStatementRegistry();
+		}
+
 		@Bean
 		ExecutionQueueService executionQueueService(){
 			return new ExecutionQueueServiceImpl();
@@ -23,7 +23,7 @@ public interface ScoreEngineJobs {
     void cleanQueueJob();
 
     /**
-     * job that join all the suspended execution of brunches that finished
+     * job that join all the suspended execution of brunches that finished and were not joined by their last branch
      */
     void joinFinishedSplitsJob();
 
@@ -32,6 +32,11 @@ public interface ScoreEngineJobs {
      */
     void statesRollingJob();
 
+    /**
+     * job that create rolling in the queue partition tables, the retired partition is truncated
+     */
+    void queuesRollingJob();
+
     /**
      * job that update version number - we use it instead of time
      */
@@ -42,4 +47,24 @@ public interface ScoreEngineJobs {
      */
     void executionRecoveryJob();
 
+    /**
+     * job that hands the queue listener outbox rows that were left behind to the listeners
+     */
+    void listenerOutboxJob();
+
+    /**
+     * job that assigns workers to the delayed messages that are due
+     */
+    void delayedMessagesJob();
+
+    /**
+     * job that enqueues the parked executions as the admission limits free up
+     */
+    void parkedTriggersJob();
+
+    /**
+     * job that sets the counted queue depth to the number of steps that did not finish
+     */
+    void queueDepthJob();
+
 }
@@ -10,9 +10,12 @@
 
 package org.openscore.job;
 
+import org.openscore.engine.queue.services.ExecutionQueueService;
+import org.openscore.engine.queue.services.QueueListenerPipeline;
 import org.openscore.engine.queue.services.cleaner.QueueCleanerService;
 import org.openscore.engine.queue.services.recovery.ExecutionRecoveryService;
 import org.openscore.engine.versioning.services.VersionService;
+import org.openscore.orchestrator.services.AdmissionControlService;
 import org.openscore.orchestrator.services.SplitJoinService;
 import org.openscore.engine.partitions.services.PartitionTemplate;
 import org.apache.commons.lang.time.StopWatch;
@@ -21,7 +24,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
 import java.util.Date;
-import java.util.HashSet;
 import java.util.Set;
 
 /**
@@ -44,40 +46,63 @@ public class ScoreEngineJobsImpl implements ScoreEngineJobs {
     @Autowired
     private ExecutionRecoveryService executionRecoveryService;
 
+    @Autowired(required = false)
+    private QueueListenerPipeline queueListenerPipeline;
+
+    @Autowired
+    private ExecutionQueueService executionQueueService;
+
+    @Autowired
+    private AdmissionControlService admissionControlService;
+
     @Autowired
     @Qualifier("OO_EXECUTION_STATES")
     private PartitionTemplate execStatesPartitionTemplate;
 
+    @Autowired
+    @Qualifier("OO_EXECUTION_QUEUES")
+    private PartitionTemplate execQueuesPartitionTemplate;
+
     private final Logger logger = Logger.getLogger(getClass());
 
     final private int QUEUE_BULK_SIZE = 500;
 
+    private final Integer QUEUE_CLEAN_ITERATIONS = Integer.getInteger("queue.cleaner.job.iterations", 2000);
+
+    private final boolean QUEUE_PARTITIONS_ROLLING = Boolean.valueOf(System.getProperty("queue.partitions.rolling", "true"));
+
     private final Integer SPLIT_JOIN_BULK_SIZE = Integer.getInteger("splitjoin.job.bulk.size", 25);
 
     private final Integer SPLIT_JOIN_ITERATIONS = Integer.getInteger("splitjoin.job.iterations", 20);
 
+    private final Integer LISTENER_OUTBOX_ITERATIONS = Integer.getInteger("queue.listeners.outbox.job.iterations", 20);
+
+    private final Integer DELAYED_MESSAGES_BULK_SIZE = Integer.getInteger("queue.delayed.job.bulk.size", 500);
+
+    private final Integer DELAYED_MESSAGES_ITERATIONS = Integer.getInteger("queue.delayed.job.iterations", 20);
+
+    private final Integer PARKED_TRIGGERS_BULK_SIZE = Integer.getInteger("admission.parked.job.bulk.size", 100);
+
+    private final Integer PARKED_TRIGGERS_ITERATIONS = Integer.getInteger("admission.parked.job.iterations", 10);
+
     /**
      * Job that will handle the cleaning of queue table.
      */
     @Override
     public void cleanQueueJob(){
         try {
-            Set<Long> ids = queueCleanerService.getFinishedExecStateIds();
-            if(logger.isDebugEnabled()) logger.debug("Will clean from queue the next Exec state ids amount:"+ids.size());
-
-            Set<Long> execIds = new HashSet<>();
-
-            for (Long id : ids) {
-                execIds.add(id);
-                if (execIds.size() >= QUEUE_BULK_SIZE) {
-                    queueCleanerService.cleanFinishedSteps(execIds);
-                    execIds.clear();
+            // read and delete one bulk at a time, the next read returns the ids that are still left
+            int cleaned = 0;
+            boolean moreToClean = true;
+            for (int i = 0; i < QUEUE_CLEAN_ITERATIONS && moreToClean; i++) {
+                Set<Long> ids = queueCleanerService.getFinishedExecStateIds(QUEUE_BULK_SIZE);
+                if (!ids.isEmpty()) {
+                    queueCleanerService.cleanFinishedSteps(ids);
+                    cleaned += ids.size();
                 }
+                moreToClean = (ids.size() == QUEUE_BULK_SIZE);
             }
-
-            if (execIds.size() > 0) {
-                queueCleanerService.cleanFinishedSteps(execIds);
-            }
+            if(logger.isDebugEnabled()) logger.debug("Cleaned from queue the next Exec state ids amount:"+cleaned);
         } catch (Exception e) {
             logger.error("Can't run queue cleaner job.", e);
         }
@@ -116,6 +141,16 @@ public class ScoreEngineJobsImpl implements ScoreEngineJobs {
         execStatesPartitionTemplate.onRolling();
     }
 
+    /**
+     * Job that will handle the rolling of Execution queues rolling tables.
+     */
+    @Override
+    public void queuesRollingJob(){
+        if (QUEUE_PARTITIONS_ROLLING) {
+            execQueuesPartitionTemplate.onRolling();
+        }
+    }
+
     /**
      * Job that will increment the recovery version
      */
@@ -143,4 +178,65 @@ public class ScoreEngineJobsImpl implements ScoreEngineJobs {
         }
     }
 
+    /**
+     * Job that will hand the listener outbox rows that were left behind to the queue listeners.
+     */
+    @Override
+    public void listenerOutboxJob(){
+        if (queueListenerPipeline == null || !queueListenerPipeline.isEnabled())
+            return;
+
+        try {
+            boolean moreToRecover = true;
+            for (int i = 0; i < LISTENER_OUTBOX_ITERATIONS && moreToRecover; i++) {
+                moreToRecover = queueListenerPipeline.recover() > 0;
+            }
+        } catch (Exception e) {
+            logger.error("Can't run queue listener outbox job.", e);
+        }
+    }
+
+    /**
+     * Job that will release the delayed messages that are due to the workers.
+     */
+    @Override
+    public void delayedMessagesJob(){
+        try {
+            // the due messages are read by the head index on their not before time
+            boolean moreToRelease = true;
+            for (int i = 0; i < DELAYED_MESSAGES_ITERATIONS && moreToRelease; i++) {
+                moreToRelease = executionQueueService.releaseDueMessages(DELAYED_MESSAGES_BULK_SIZE) == DELAYED_MESSAGES_BULK_SIZE;
+            }
+        } catch (Exception e) {
+            logger.error("Can't run delayed messages job.", e);
+        }
+    }
+
+    /**
+     * Job that will enqueue the parked executions that fit in the admission limits.
+     */
+    @Override
+    public void parkedTriggersJob(){
+        try {
+            boolean moreToRelease = true;
+            for (int i = 0; i < PARKED_TRIGGERS_ITERATIONS && moreToRelease; i++) {
+                moreToRelease = admissionControlService.releaseParkedTriggers(PARKED_TRIGGERS_BULK_SIZE) == PARKED_TRIGGERS_BULK_SIZE;
+            }
+        } catch (Exception e) {
+            logger.error("Can't run parked triggers job.", e);
+        }
+    }
+
+    /**
+     * Job that will correct the drift of the counted queue depth.
+     */
+    @Override
+    public void queueDepthJob(){
+        try {
+            long depth = executionQueueService.reconcileQueueDepth();
+            if (logger.isDebugEnabled()) logger.debug("Queue depth was reconciled to " + depth);
+        } catch (Exception e) {
+            logger.error("Can't run queue depth job.", e);
+        }
+    }
 }
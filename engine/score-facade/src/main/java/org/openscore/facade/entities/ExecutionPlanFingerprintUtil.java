@@ -0,0 +1,90 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.facade.entities;
+
+import org.openscore.api.ExecutionPlan;
+import org.openscore.api.ExecutionStep;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Date: 18/10/26
+ *
+ * Computes the content fingerprint of an execution plan: the SHA-256 of its serialized fields,
+ * with the steps, the subflows and the system account paths in sorted order, so equal plans built in a different order get the same fingerprint.
+ */
+public class ExecutionPlanFingerprintUtil {
+    private static final Logger logger = Logger.getLogger(ExecutionPlanFingerprintUtil.class);
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * @param executionPlan the execution plan
+     * @return the fingerprint of the execution plan, 64 hex digits
+     */
+    public static String getFingerprint(ExecutionPlan executionPlan) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (ObjectOutputStream oos = new ObjectOutputStream(new DigestOutputStream(new NullOutputStream(), digest))) {
+                oos.writeObject(executionPlan.getFlowUuid());
+                oos.writeObject(executionPlan.getBeginStep());
+                oos.writeObject(executionPlan.getName());
+                oos.writeObject(executionPlan.getLanguage());
+                oos.writeObject(sorted(executionPlan.getSubflowsUUIDs()));
+                oos.writeObject(sorted(executionPlan.getSysAccPaths()));
+                Map<Long, ExecutionStep> steps = executionPlan.getSteps();
+                if (steps != null) {
+                    for (Map.Entry<Long, ExecutionStep> step : new TreeMap<>(steps).entrySet()) {
+                        oos.writeObject(step.getKey());
+                        oos.writeObject(step.getValue());
+                    }
+                }
+            }
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            logger.error("Failed to compute the fingerprint of execution plan. Error: ", ex);
+            throw new RuntimeException("Failed to compute the fingerprint of execution plan. Error: ", ex);
+        }
+    }
+
+    private static TreeSet<String> sorted(Set<String> values) {
+        return values != null ? new TreeSet<>(values) : null;
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
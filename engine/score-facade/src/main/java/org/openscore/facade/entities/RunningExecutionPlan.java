@@ -12,7 +12,6 @@ package org.openscore.facade.entities;
 
 import org.openscore.api.ExecutionPlan;
 import org.openscore.engine.data.AbstractIdentifiable;
-import org.apache.commons.lang.SerializationUtils;
 import org.hibernate.annotations.Cache;
 import org.hibernate.annotations.CacheConcurrencyStrategy;
 
@@ -47,6 +46,10 @@ public class RunningExecutionPlan extends AbstractIdentifiable {
     @Column(name = "UUID", nullable = false)
     private String flowUUID;
 
+    // the content fingerprint of the execution plan, null for the plans that were created before the fingerprint
+    @Column(name = "FINGERPRINT", length = 64)
+    private String fingerprint;
+
     public byte[] getExecutionPlanZipped() {
         return executionPlanZipped;
     }
@@ -63,9 +66,9 @@ public class RunningExecutionPlan extends AbstractIdentifiable {
     }
 
     public void setExecutionPlan(ExecutionPlan executionPlan) {
-
-        this.executionPlan = (ExecutionPlan) SerializationUtils.clone(executionPlan);
-        executionPlanZipped = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(this.executionPlan);
+        // the zipped bytes are a copy of the plan already, it is read back from them only if asked for
+        executionPlanZipped = ExecutionPlanCompressUtil.getBytesFromExecutionPlan(executionPlan);
+        this.executionPlan = null;
     }
 
     public String getFlowUUID() {
@@ -76,6 +79,14 @@ public class RunningExecutionPlan extends AbstractIdentifiable {
         this.flowUUID = flowUUID;
     }
 
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
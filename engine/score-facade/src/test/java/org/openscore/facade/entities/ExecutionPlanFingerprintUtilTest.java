@@ -0,0 +1,65 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.facade.entities;
+
+import org.openscore.api.ControlActionMetadata;
+import org.openscore.api.ExecutionPlan;
+import org.openscore.api.ExecutionStep;
+import junit.framework.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Date: 18/10/26
+ */
+public class ExecutionPlanFingerprintUtilTest {
+
+    @Test
+    public void testEqualPlansHaveEqualFingerprints() {
+        ExecutionPlan plan = createExecutionPlan(0L, 1L);
+        ExecutionPlan samePlanOtherOrder = createExecutionPlan(1L, 0L);
+
+        Assert.assertEquals(plan, samePlanOtherOrder);
+        Assert.assertEquals(plan.hashCode(), samePlanOtherOrder.hashCode());
+        Assert.assertEquals(ExecutionPlanFingerprintUtil.getFingerprint(plan), ExecutionPlanFingerprintUtil.getFingerprint(samePlanOtherOrder));
+        Assert.assertEquals(64, ExecutionPlanFingerprintUtil.getFingerprint(plan).length());
+    }
+
+    @Test
+    public void testDifferentPlansHaveDifferentFingerprints() {
+        ExecutionPlan plan = createExecutionPlan(0L, 1L);
+        ExecutionPlan otherPlan = createExecutionPlan(0L, 1L);
+        otherPlan.getStep(1L).setActionData(new HashMap<String, String>());
+
+        Assert.assertFalse(ExecutionPlanFingerprintUtil.getFingerprint(plan).equals(ExecutionPlanFingerprintUtil.getFingerprint(otherPlan)));
+    }
+
+    private ExecutionPlan createExecutionPlan(Long... stepIds) {
+        ExecutionPlan exePlan = new ExecutionPlan();
+        exePlan.setBeginStep(0L);
+        exePlan.setFlowUuid("flow uuid");
+        exePlan.setLanguage("afl");
+        exePlan.setName("Test flow");
+        for (Long stepId : stepIds) {
+            Map<String, String> map = new HashMap<>();
+            map.put("key", "value" + stepId);
+
+            ExecutionStep exeStep = new ExecutionStep();
+            exeStep.setAction(new ControlActionMetadata("className", "methodName"));
+            exeStep.setActionData(map);
+            exeStep.setExecStepId(stepId);
+            exePlan.addStep(exeStep);
+        }
+        return exePlan;
+    }
+}
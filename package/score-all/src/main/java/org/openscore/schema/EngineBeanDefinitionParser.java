@@ -11,23 +11,36 @@
 package org.openscore.schema;
 
 import org.openscore.engine.node.services.WorkerLockServiceImpl;
+import org.openscore.engine.node.services.WorkerNodeCache;
 import org.openscore.engine.node.services.WorkerNodeServiceImpl;
 import org.openscore.engine.node.services.WorkersMBean;
 import org.openscore.engine.queue.entities.ExecutionMessageConverter;
+import org.openscore.engine.queue.entities.codec.PayloadCompressionMBean;
+import org.openscore.engine.queue.entities.codec.PayloadCompressor;
 import org.openscore.engine.queue.repositories.ExecutionQueueRepositoryImpl;
+import org.openscore.engine.queue.repositories.SqlStatementRegistry;
+import org.openscore.engine.queue.repositories.SqlStatementsMBean;
+import org.openscore.engine.queue.repositories.callbacks.ExecutionQueuesCallback;
 import org.openscore.engine.queue.repositories.callbacks.ExecutionStatesCallback;
 import org.openscore.engine.queue.services.ExecutionQueueServiceImpl;
 import org.openscore.engine.queue.services.QueueDispatcherServiceImpl;
 import org.openscore.engine.queue.services.QueueListenerImpl;
+import org.openscore.engine.queue.services.QueueListenerPipelineImpl;
 import org.openscore.engine.queue.services.QueueStateIdGeneratorServiceImpl;
+import org.openscore.engine.queue.services.WorkerNotificationServiceImpl;
 import org.openscore.engine.queue.services.ScoreEventFactoryImpl;
+import org.openscore.engine.queue.services.assigner.AssignmentAffinityMBean;
+import org.openscore.engine.queue.services.assigner.AssignmentAffinityStatistics;
 import org.openscore.engine.queue.services.assigner.ExecutionAssignerServiceImpl;
 import org.openscore.engine.queue.services.cleaner.QueueCleanerServiceImpl;
 import org.openscore.engine.queue.services.recovery.ExecutionRecoveryServiceImpl;
 import org.openscore.engine.queue.services.recovery.MessageRecoveryServiceImpl;
 import org.openscore.engine.queue.services.recovery.WorkerRecoveryServiceImpl;
 import org.openscore.engine.versioning.services.VersionServiceImpl;
+import org.openscore.orchestrator.services.AdmissionControlServiceImpl;
 import org.openscore.orchestrator.services.CancelExecutionServiceImpl;
+import org.openscore.orchestrator.services.DispatchGroupCommitMBean;
+import org.openscore.orchestrator.services.DispatchGroupCommitter;
 import org.openscore.orchestrator.services.ExecutionSerializationUtil;
 import org.openscore.orchestrator.services.OrchestratorDispatcherServiceImpl;
 import org.openscore.orchestrator.services.RunningExecutionPlanServiceImpl;
@@ -76,17 +89,21 @@ public class EngineBeanDefinitionParser extends AbstractBeanDefinitionParser {
 	private Map<Class<?>,String> beans = new HashMap<Class<?>,String>(){{
 		put(ScorePauseResumeImpl.class, null);
         put(OrchestratorDispatcherServiceImpl.class, "orchestratorDispatcherService");
+        put(DispatchGroupCommitter.class, null);
         put(ExecutionStateServiceImpl.class, null);
 		put(QueueDispatcherServiceImpl.class, "queueDispatcherService");
 		put(ExecutionQueueServiceImpl.class, "executionQueueService");
 		put(ExecutionAssignerServiceImpl.class, "executionAssignerService");
+		put(AssignmentAffinityStatistics.class, null);
 		put(PartitionServiceImpl.class, null);
 		put(RunningExecutionPlanServiceImpl.class, "runningEP");
 		put(WorkerNodeServiceImpl.class, null);
+		put(WorkerNodeCache.class, null);
 		put(VersionServiceImpl.class, null);
 		put(CancelExecutionServiceImpl.class, "cancelExecutionService");
 		put(ScoreEventFactoryImpl.class, "scoreEventFactory");
 		put(QueueListenerImpl.class, "scoreQueueListenenerImpl");
+		put(QueueListenerPipelineImpl.class, null);
 		put(SplitJoinServiceImpl.class, "splitJoinService");
 		put(ExecutionRecoveryServiceImpl.class, null);
 		put(WorkerRecoveryServiceImpl.class, null);
@@ -94,18 +111,27 @@ public class EngineBeanDefinitionParser extends AbstractBeanDefinitionParser {
         put(WorkerLockServiceImpl.class, null);
 		put(QueueCleanerServiceImpl.class, null);
 		put(QueueStateIdGeneratorServiceImpl.class, null);
+		put(WorkerNotificationServiceImpl.class, "workerNotificationService");
         put(ScoreTriggeringImpl.class,null);
+        put(AdmissionControlServiceImpl.class, null);
 
 		put(PartitionUtils.class, null);
 		put(ExecutionMessageConverter.class, null);
+		put(PayloadCompressor.class, null);
+		put(PayloadCompressionMBean.class, "org.openscore.engine.queue.entities.codec.PayloadCompressionMBean");
 		put(ExecutionSerializationUtil.class, null);
 		put(SqlUtils.class, null);
 		put(SqlInQueryReader.class, null);
 		put(DataBaseDetector.class, null);
 		put(ExecutionQueueRepositoryImpl.class, null);
+		put(SqlStatementRegistry.class, null);
+		put(SqlStatementsMBean.class, "org.openscore.engine.queue.repositories.SqlStatementsMBean");
 		put(HiloFactoryBean.class, "scoreHiloFactoryBean");
 		put(WorkersMBean.class, "org.openscore.engine.node.services.WorkersMBean");
+		put(DispatchGroupCommitMBean.class, "org.openscore.orchestrator.services.DispatchGroupCommitMBean");
+		put(AssignmentAffinityMBean.class, "org.openscore.engine.queue.services.assigner.AssignmentAffinityMBean");
 		put(ExecutionStatesCallback.class, "executionStatesCallback");
+		put(ExecutionQueuesCallback.class, "executionQueuesCallback");
         put(WorkerDbSupportServiceImpl.class, null);
         put(ScoreDeprecatedImpl.class, null);
         put(ScoreEngineJobsImpl.class,"scoreEngineJobs");
@@ -165,6 +191,7 @@ public class EngineBeanDefinitionParser extends AbstractBeanDefinitionParser {
 
 	private void registerPartitionTemplates(ParserContext parserContext) {
 		registerPartitionTemplate("OO_EXECUTION_STATES", 2, 50000, -1, parserContext,ExecutionStatesCallback.class);
+		registerPartitionTemplate("OO_EXECUTION_QUEUES", 2, 200000, -1, parserContext,ExecutionQueuesCallback.class);
 	}
 
 	private void registerPartitionTemplate(String name, int groupSize, long sizeThreshold, long timeThreshold,
@@ -46,6 +46,7 @@ public class ScoreDatabaseContext {
         props.setProperty("hibernate.cache.use_second_level_cache", Boolean.FALSE.toString());
         props.setProperty("hibernate.order_updates", Boolean.TRUE.toString());
         props.setProperty("hibernate.order_inserts", Boolean.TRUE.toString());
+        props.setProperty("hibernate.jdbc.batch_size", System.getProperty("hibernate.jdbc.batch_size", "30"));
         props.setProperty("hibernate.dialect_resolvers", "org.openscore.engine.dialects.ScoreDialectResolver");
         return props;
     }
@@ -0,0 +1,41 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.api;
+
+import org.apache.commons.lang.Validate;
+
+import java.io.Serializable;
+
+/**
+ * Date: 18/10/26
+ *
+ * The result of a split whose branch results could not be reduced.
+ * Once a reducer returns an error, the result of the split stays this error, and the split fails its parent on join.
+ */
+public final class BranchResultError implements Serializable {
+    private static final long serialVersionUID = 3327316481930248572L;
+
+    private final String message;
+
+    public BranchResultError(String message) {
+        Validate.notEmpty(message, "message cannot be empty");
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "BranchResultError{" + message + "}";
+    }
+}
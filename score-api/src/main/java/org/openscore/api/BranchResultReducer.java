@@ -0,0 +1,35 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.api;
+
+import java.io.Serializable;
+
+/**
+ * Date: 18/10/26
+ *
+ * Folds the results of the branches of a split into one result, as each branch ends.
+ * A split step with a reducer hands only the reduced result to the parent, instead of the contexts of all of its branches.
+ * The reducer is serialized with the parent execution, so it must be serializable and keep no state of its own.
+ * It runs in the transaction that ends the branch, so it must not throw - a branch result it cannot fold is
+ * returned as a {@link BranchResultError}, which fails the parent on join.
+ */
+public interface BranchResultReducer extends Serializable {
+
+    /**
+     *
+     * folds the result of one finished branch into the accumulated result
+     *
+     * @param accumulator the result of the branches that ended before, null for the first branch
+     * @param branchResult the contexts and the exception of the finished branch
+     * @return the new accumulated result, a new value - the accumulator itself must not be changed
+     */
+    Serializable reduce(Serializable accumulator, EndBranchDataContainer branchResult);
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.api;
+
+import org.apache.commons.lang.Validate;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Date: 18/10/26
+ *
+ * The common branch result reducers.
+ * A branch context of the wrong type is reduced to a {@link BranchResultError}, which the later branches keep.
+ */
+public final class BranchResultReducers {
+
+    private BranchResultReducers() {
+    }
+
+    /**
+     * @return a reducer that collects the given context of the branches to an ArrayList, in the order the branches end
+     */
+    public static BranchResultReducer collectContext(String contextName) {
+        return new CollectContextReducer(contextName);
+    }
+
+    /**
+     * @return a reducer that sums the given context of the branches, a Number, to a BigDecimal
+     */
+    public static BranchResultReducer sumContext(String contextName) {
+        return new SumContextReducer(contextName);
+    }
+
+    /**
+     * @return a reducer that merges the given context of the branches, a Map, to a HashMap - a later branch overrides the keys of an earlier one
+     */
+    public static BranchResultReducer mergeContext(String contextName) {
+        return new MergeContextReducer(contextName);
+    }
+
+    /**
+     * @return a reducer that keeps the exception of the first failed branch only, null if no branch failed
+     */
+    public static BranchResultReducer firstError() {
+        return new FirstErrorReducer();
+    }
+
+    private static class CollectContextReducer implements BranchResultReducer {
+        private static final long serialVersionUID = -4392081763284961712L;
+
+        private final String contextName;
+
+        CollectContextReducer(String contextName) {
+            Validate.notEmpty(contextName, "context name cannot be empty");
+            this.contextName = contextName;
+        }
+
+        @Override
+        public Serializable reduce(Serializable accumulator, EndBranchDataContainer branchResult) {
+            if (accumulator instanceof BranchResultError) {
+                return accumulator;
+            }
+            @SuppressWarnings("unchecked")
+            ArrayList<Serializable> values = accumulator != null ? new ArrayList<>((ArrayList<Serializable>) accumulator) : new ArrayList<Serializable>();
+            values.add(branchResult.getContexts().get(contextName));
+            return values;
+        }
+    }
+
+    private static class SumContextReducer implements BranchResultReducer {
+        private static final long serialVersionUID = 6058839571350327142L;
+
+        private final String contextName;
+
+        SumContextReducer(String contextName) {
+            Validate.notEmpty(contextName, "context name cannot be empty");
+            this.contextName = contextName;
+        }
+
+        @Override
+        public Serializable reduce(Serializable accumulator, EndBranchDataContainer branchResult) {
+            if (accumulator instanceof BranchResultError) {
+                return accumulator;
+            }
+            BigDecimal sum = accumulator != null ? (BigDecimal) accumulator : BigDecimal.ZERO;
+            Serializable value = branchResult.getContexts().get(contextName);
+            if (value == null) {
+                return sum;
+            }
+            if (!(value instanceof Number)) {
+                return new BranchResultError("context " + contextName + " of a branch is not a number: " + value.getClass().getName());
+            }
+            try {
+                return sum.add(new BigDecimal(value.toString()));
+            } catch (NumberFormatException ex) {
+                // NaN and infinite doubles have no decimal value
+                return new BranchResultError("context " + contextName + " of a branch is not a finite number: " + value);
+            }
+        }
+    }
+
+    private static class MergeContextReducer implements BranchResultReducer {
+        private static final long serialVersionUID = 2960455286041737465L;
+
+        private final String contextName;
+
+        MergeContextReducer(String contextName) {
+            Validate.notEmpty(contextName, "context name cannot be empty");
+            this.contextName = contextName;
+        }
+
+        @Override
+        public Serializable reduce(Serializable accumulator, EndBranchDataContainer branchResult) {
+            if (accumulator instanceof BranchResultError) {
+                return accumulator;
+            }
+            Serializable value = branchResult.getContexts().get(contextName);
+            if (value == null) {
+                return accumulator != null ? accumulator : new HashMap<>();
+            }
+            if (!(value instanceof Map)) {
+                return new BranchResultError("context " + contextName + " of a branch is not a map: " + value.getClass().getName());
+            }
+            @SuppressWarnings("unchecked")
+            HashMap<Object, Object> merged = accumulator != null ? new HashMap<>((HashMap<Object, Object>) accumulator) : new HashMap<>();
+            merged.putAll((Map<?, ?>) value);
+            return merged;
+        }
+    }
+
+    private static class FirstErrorReducer implements BranchResultReducer {
+        private static final long serialVersionUID = -1823554037418617734L;
+
+        @Override
+        public Serializable reduce(Serializable accumulator, EndBranchDataContainer branchResult) {
+            return accumulator != null ? accumulator : branchResult.getException();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.api;
+
+import org.openscore.lang.SystemContext;
+import org.apache.commons.lang.Validate;
+import org.apache.commons.lang.builder.EqualsBuilder;
+import org.apache.commons.lang.builder.HashCodeBuilder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Date: 18/10/26
+ *
+ * A POJO containing the data of a streaming split: one template branch and the items it runs for.
+ * The orchestrator creates the branch of each item only when it starts it, a branch gets the template contexts
+ * plus its item under the item context key.
+ */
+public class BranchSourceDataContainer implements Serializable {
+
+    private static final long serialVersionUID = 2718079124603318445L;
+
+    private final Long startPosition;
+    private final Long executionPlanId;
+    private final Map<String, Serializable> contexts;
+    private final SystemContext systemContext;
+    private final String itemContextKey;
+    private final List<Serializable> items;
+    private final int maxInFlight;
+    private String splitId;
+
+    public BranchSourceDataContainer(Long startPosition, Long executionPlanId, Map<String, Serializable> contexts, SystemContext systemContext,
+                                     String itemContextKey, List<? extends Serializable> items, int maxInFlight) {
+        Validate.notNull(startPosition);
+        Validate.notNull(executionPlanId);
+        Validate.notNull(contexts);
+        Validate.notNull(systemContext);
+        Validate.notEmpty(itemContextKey, "item context key cannot be empty");
+        Validate.notEmpty(items, "cannot create a split without any items");
+        Validate.isTrue(maxInFlight >= 0, "max in flight branches cannot be negative");
+
+        this.startPosition = startPosition;
+        this.executionPlanId = executionPlanId;
+        this.contexts = new HashMap<>(contexts);
+        this.systemContext = new SystemContext(systemContext);
+        this.itemContextKey = itemContextKey;
+        this.items = new ArrayList<Serializable>(items);
+        this.maxInFlight = maxInFlight;
+    }
+
+    private BranchSourceDataContainer(BranchSourceDataContainer source, List<Serializable> items) {
+        this.startPosition = source.startPosition;
+        this.executionPlanId = source.executionPlanId;
+        this.contexts = source.contexts;
+        this.systemContext = source.systemContext;
+        this.itemContextKey = source.itemContextKey;
+        this.items = items;
+        this.maxInFlight = source.maxInFlight;
+        this.splitId = source.splitId;
+    }
+
+    /**
+     * @return the branch source without its items, the orchestrator keeps it with the suspended split and stores the items apart
+     */
+    public BranchSourceDataContainer withoutItems() {
+        return new BranchSourceDataContainer(this, new ArrayList<Serializable>(0));
+    }
+
+    public Long getStartPosition() {
+        return startPosition;
+    }
+
+    public Long getExecutionPlanId() {
+        return executionPlanId;
+    }
+
+    public Map<String, Serializable> getContexts() {
+        return Collections.unmodifiableMap(contexts);
+    }
+
+    public SystemContext getSystemContext() {
+        return systemContext;
+    }
+
+    public String getItemContextKey() {
+        return itemContextKey;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public List<Serializable> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * @return the maximum number of branches of the split that run at once, 0 for the default of the orchestrator
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public String getSplitId() {
+        return splitId;
+    }
+
+    public void setSplitId(String splitId) {
+        Validate.isTrue(this.splitId == null, "not allowed to overwrite split id");
+        this.splitId = splitId;
+    }
+
+    /**
+     * @param index the index of the branch, from 0
+     * @return the contexts of the branch: the template contexts and the item of the branch
+     */
+    public Map<String, Serializable> createContexts(int index) {
+        return createContexts(items.get(index));
+    }
+
+    /**
+     * @param item the item of the branch
+     * @return the contexts of the branch: the template contexts and the given item
+     */
+    public Map<String, Serializable> createContexts(Serializable item) {
+        Map<String, Serializable> branchContexts = new HashMap<>(contexts);
+        branchContexts.put(itemContextKey, item);
+        return branchContexts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BranchSourceDataContainer)) return false;
+
+        BranchSourceDataContainer that = (BranchSourceDataContainer) o;
+
+        return new EqualsBuilder()
+                .append(this.startPosition, that.startPosition)
+                .append(this.executionPlanId, that.executionPlanId)
+                .append(this.contexts, that.contexts)
+                .append(this.itemContextKey, that.itemContextKey)
+                .append(this.items, that.items)
+                .append(this.splitId, that.splitId)
+                .isEquals();
+    }
+
+    @Override
+    public int hashCode() {
+        return new HashCodeBuilder()
+                .append(this.startPosition)
+                .append(this.executionPlanId)
+                .append(this.splitId)
+                .toHashCode();
+    }
+}
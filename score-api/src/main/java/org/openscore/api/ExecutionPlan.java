@@ -164,6 +164,6 @@ public class ExecutionPlan implements Serializable {
         hashCodeBuilder.append(this.getSysAccPaths());
         hashCodeBuilder.append(this.getSteps());
 
-        return new HashCodeBuilder().toHashCode();
+        return hashCodeBuilder.toHashCode();
     }
 }
@@ -11,6 +11,7 @@
 package org.openscore.api;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -28,6 +29,17 @@ public interface Score {
      */
     public Long trigger(TriggeringProperties triggeringProperties);
 
+    /**
+     * Trigger many flows by score in one batch & return their execution IDs.
+     * With no admission limits the bulk is triggered in one transaction, as before.
+     * With admission limits a trigger rejected by the limits does not fail the others.
+     * Note that its execution ID is null, before the admission limits every returned ID was set.
+     *
+     * @param triggeringPropertiesList the properties of each of the triggers, the triggers that share an execution plan object resolve it once
+     * @return the execution IDs, in the order of the triggering properties, null for a rejected trigger
+     */
+    public List<Long> triggerBulk(List<TriggeringProperties> triggeringPropertiesList);
+
     /**
      * Requests Score to pause the given execution. Only executions in status RUNNING can be paused.
      *
@@ -26,6 +26,7 @@ public class TriggeringProperties {
     private Map<String, ? extends Serializable> context = new HashMap<>();
     private Map<String, ? extends Serializable> runtimeValues = new HashMap<>();
     private Long startStep;
+    private int priority;
 
     private TriggeringProperties(ExecutionPlan executionPlan){
         this.executionPlan = executionPlan;
@@ -56,6 +57,15 @@ public class TriggeringProperties {
         return this;
     }
 
+    /**
+     * @param priority the priority of the execution and of its branches, higher priorities are executed first.
+     *                 the default is 0, negative values are allowed for background executions
+     */
+    public TriggeringProperties setPriority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
     public ExecutionPlan getExecutionPlan() {
         return executionPlan;
     }
@@ -75,4 +85,8 @@ public class TriggeringProperties {
     public Long getStartStep() {
         return startStep;
     }
+
+    public int getPriority() {
+        return priority;
+    }
 }
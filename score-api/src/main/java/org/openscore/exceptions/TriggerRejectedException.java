@@ -0,0 +1,26 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.exceptions;
+
+/**
+ * Date: 18/10/26
+ *
+ * Thrown when a trigger is refused because score runs as many executions, or holds as many steps in its queue,
+ * as its admission limits allow. The execution was not created and the trigger may be retried later.
+ */
+public class TriggerRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = -4178823551936741702L;
+
+    public TriggerRejectedException(String message) {
+        super(message);
+    }
+}
@@ -10,6 +10,8 @@
 
 package org.openscore.lang;
 
+import org.openscore.api.BranchResultReducer;
+import org.openscore.api.BranchSourceDataContainer;
 import org.openscore.api.EndBranchDataContainer;
 import org.openscore.events.ScoreEvent;
 import org.openscore.api.StartBranchDataContainer;
@@ -39,6 +41,12 @@ public class ExecutionRuntimeServices implements Serializable {
 
     private static final String BRANCH_DATA = "BRANCH_DATA";
 
+    private static final String BRANCH_SOURCE = "BRANCH_SOURCE";
+
+    private static final String BRANCH_RESULT_REDUCER = "BRANCH_RESULT_REDUCER";
+
+    private static final String REDUCED_BRANCHES_RESULT = "REDUCED_BRANCHES_RESULT";
+
 	protected static final String SCORE_EVENTS_QUEUE = "SCORE_EVENTS_QUEUE";
 
 	protected static final String NO_WORKERS_IN_GROUP = "NO_WORKERS_IN_GROUP";
@@ -61,18 +69,25 @@ public class ExecutionRuntimeServices implements Serializable {
 
     private static final String REQUESTED_EXECUTION_PLAN_ID = "REQUESTED_EXECUTION_PLAN_ID";
 
+    private static final String EXECUTION_PRIORITY = "EXECUTION_PRIORITY";
+
+    private static final String NEXT_STEP_NOT_BEFORE = "NEXT_STEP_NOT_BEFORE";
+
+    private static final String ADMITTED_FLOW_UUID = "ADMITTED_FLOW_UUID";
+
     protected Map<String, Serializable> contextMap = new HashMap<>();
 
     public ExecutionRuntimeServices(){}
 
     /**
-     * copy constructor that clean the NEW_SPLIT_ID & BRANCH_ID keys
+     * copy constructor that clean the NEW_SPLIT_ID, BRANCH_ID & BRANCH_RESULT_REDUCER keys
      * @param executionRuntimeServices
      */
     public ExecutionRuntimeServices(ExecutionRuntimeServices executionRuntimeServices){
         contextMap.putAll(executionRuntimeServices.contextMap);
         contextMap.remove(NEW_SPLIT_ID);
         contextMap.remove(BRANCH_ID);
+        contextMap.remove(BRANCH_RESULT_REDUCER);
     }
 
     /**
@@ -84,6 +99,44 @@ public class ExecutionRuntimeServices implements Serializable {
         contextMap.put(FINISHED_CHILD_BRANCHES_DATA, data);
     }
 
+    /**
+     * sets the reducer of the split - the parent gets the result the reducer folded from its branches
+     * instead of the finished child brunches data
+     * @param reducer - the reducer of the branch results
+     */
+    public void setBranchResultReducer(BranchResultReducer reducer) {
+        contextMap.put(BRANCH_RESULT_REDUCER, reducer);
+    }
+
+    /**
+     * @return the reducer of the split, null if the parent gets the data of all of its finished brunches
+     */
+    public BranchResultReducer getBranchResultReducer() {
+        return getFromMap(BRANCH_RESULT_REDUCER);
+    }
+
+    /**
+     * Removes the reducer of the split and returns it
+     */
+    public BranchResultReducer removeBranchResultReducer() {
+        return removeFromMap(BRANCH_RESULT_REDUCER);
+    }
+
+    /**
+     *  setter for the result the reducer of the split folded from its brunches
+     * @param result  - the reduced result
+     */
+    public void setReducedBranchesResult(Serializable result) {
+        contextMap.put(REDUCED_BRANCHES_RESULT, result);
+    }
+
+    /**
+     * @return the result the reducer of the split folded from its brunches, null if there is none
+     */
+    public Serializable getReducedBranchesResult() {
+        return removeFromMap(REDUCED_BRANCHES_RESULT);
+    }
+
     /**
      * put all the data relevant for sub flows: map of runningPlanIds and list of BeginStepIds
      * @param runningPlansIds  - map of flowUUID to runningPlanId
@@ -211,6 +264,56 @@ public class ExecutionRuntimeServices implements Serializable {
         contextMap.put(EXECUTION_ID_CONTEXT, executionId);
     }
 
+    /**
+     *
+     * @return the priority of the execution, 0 if none was set
+     */
+    public int getPriority(){
+        Integer priority = getFromMap(EXECUTION_PRIORITY);
+        return priority != null ? priority : 0;
+    }
+
+    /**
+     * set the priority of the execution - called in score triggering, branches inherit it
+     * @param priority
+     */
+    public void setPriority(int priority) {
+        contextMap.put(EXECUTION_PRIORITY, priority);
+    }
+
+    /**
+     *
+     * @return the flow uuid the execution was counted for by the admission control, null if it was not counted
+     */
+    public String getAdmittedFlowUuid() {
+        return getFromMap(ADMITTED_FLOW_UUID);
+    }
+
+    /**
+     * set the flow uuid the execution is counted for as running - called in score triggering
+     * @param flowUuid
+     */
+    public void setAdmittedFlowUuid(String flowUuid) {
+        contextMap.put(ADMITTED_FLOW_UUID, flowUuid);
+    }
+
+    /**
+     * asks score to run the next step not before the given time. the execution goes back to the queue
+     * and holds no worker thread until then - use it instead of sleeping in a control action
+     * @param notBeforeMillis the time in millis
+     */
+    public void setNextStepNotBefore(long notBeforeMillis) {
+        contextMap.put(NEXT_STEP_NOT_BEFORE, notBeforeMillis);
+    }
+
+    /**
+     * clean the time the next step waits for
+     * @return the time in millis, null if the next step does not wait
+     */
+    public Long removeNextStepNotBefore() {
+        return (Long) removeFromMap(NEXT_STEP_NOT_BEFORE);
+    }
+
     /**
      *
      * @return the split id
@@ -314,6 +417,38 @@ public class ExecutionRuntimeServices implements Serializable {
 		branchesData.add(new StartBranchDataContainer(startPosition, executionPlanId, context, new SystemContext(executionRuntimeServices.contextMap)));
 	}
 
+    /**
+     * add the branches of a streaming split - one branch for each of the items, created by the orchestrator
+     * only when it starts them, so a split over many items does not carry all of its branches at once
+     * @param startPosition  - the position in the execution plan the new brunches will point to
+     * @param flowUuid - the flow uuid
+     * @param context - the context the created brunches share
+     * @param itemContextKey - the key of the item in the context of each brunch
+     * @param items - the items, one brunch for each
+     * @param maxInFlight - the maximum number of brunches that run at once, 0 for the default of the orchestrator
+     */
+    public void addBranches(Long startPosition, String flowUuid, Map<String, Serializable> context, String itemContextKey, List<? extends Serializable> items, int maxInFlight){
+        Validate.isTrue(!contextMap.containsKey(BRANCH_DATA), "not allowed to mix a streaming split with added brunches");
+        Map<String, Long> runningPlansIds = getFromMap(RUNNING_PLANS_MAP);
+        Long runningPlanId = runningPlansIds.get(flowUuid);
+        SystemContext template = new SystemContext(new ExecutionRuntimeServices(this).contextMap);
+        contextMap.put(BRANCH_SOURCE, new BranchSourceDataContainer(startPosition, runningPlanId, context, template, itemContextKey, items, maxInFlight));
+    }
+
+    /**
+     * @return the branch source of a streaming split, null if the split added its branches one by one
+     */
+    public BranchSourceDataContainer getBranchSource() {
+        return getFromMap(BRANCH_SOURCE);
+    }
+
+    /**
+     * Removes the branch source of a streaming split and returns it
+     */
+    public BranchSourceDataContainer removeBranchSource() {
+        return removeFromMap(BRANCH_SOURCE);
+    }
+
 	/**
 	 * Removes the branches data and returns it
 	 */
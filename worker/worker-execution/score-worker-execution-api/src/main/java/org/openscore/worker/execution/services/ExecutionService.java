@@ -39,7 +39,8 @@ public interface ExecutionService {
      * Handles execution of split step
      *
      * @param execution the split {@link org.openscore.facade.entities.Execution} to execute
-     * @return the List of {@link org.openscore.facade.entities.Execution} that the split returns
+     * @return the List of {@link org.openscore.facade.entities.Execution} that the split returns,
+     * empty for a streaming split, whose branches are created by the orchestrator from the branch source of the execution
      * returns null in case this execution is paused or cancelled and the split was not done
      * @throws InterruptedException
      */
@@ -11,6 +11,7 @@
 package org.openscore.worker.execution.services;
 
 import org.openscore.api.ExecutionStep;
+import org.openscore.api.BranchSourceDataContainer;
 import org.openscore.api.StartBranchDataContainer;
 import org.openscore.api.execution.ExecutionParametersConsts;
 import org.openscore.events.EventBus;
@@ -123,7 +124,15 @@ public final class ExecutionServiceImpl implements ExecutionService {
 
             // Run the split step
 			List<StartBranchDataContainer> newBranches = execution.getSystemContext().removeBranchesData();
-			List<Execution> newExecutions = createChildExecutions(execution.getExecutionId(), newBranches);
+			List<Execution> newExecutions;
+			BranchSourceDataContainer branchSource = execution.getSystemContext().getBranchSource();
+			if(newBranches == null && branchSource != null) {
+				// streaming split - the branch source stays on the parent, the orchestrator creates the branches from it
+				branchSource.setSplitId(UUID.randomUUID().toString());
+				newExecutions = new ArrayList<>();
+			} else {
+				newExecutions = createChildExecutions(execution.getExecutionId(), newBranches);
+			}
 			// Run the navigation
 			navigate(execution, currStep);
 
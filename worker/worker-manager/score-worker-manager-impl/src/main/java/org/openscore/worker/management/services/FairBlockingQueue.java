@@ -0,0 +1,317 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.worker.management.services;
+
+import org.openscore.worker.management.services.PriorityThreadPoolExecutor.PriorityTask;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Date: 18/10/26
+ *
+ * The in buffer of the worker: a sub queue per fair share key, served by weighted rounds.
+ * In a round every key takes as many tasks as its weight, 1 unless set by the worker.fair.weights property (key=weight,...).
+ * Among the keys that did not use their weight yet the task of the highest aged priority is taken first,
+ * so priorities hold across keys while no key takes more than its share while the others wait.
+ * A key that runs out of tasks leaves the round and gets its whole weight when it has tasks again.
+ */
+class FairBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final Map<String, Integer> weights;
+
+    // the keys that have tasks, in the order they got them
+    private final Map<String, SubQueue> subQueues = new LinkedHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private int count;
+
+    public FairBlockingQueue() {
+        this(Collections.<String, Integer>emptyMap());
+    }
+
+    public FairBlockingQueue(Map<String, Integer> weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * @param value the worker.fair.weights property, key=weight pairs separated by commas
+     * @return the weights of the keys, keys with no weight weigh 1
+     */
+    static Map<String, Integer> parseWeights(String value) {
+        Map<String, Integer> weights = new HashMap<>();
+        if (value == null) return weights;
+        for (String pair : value.split(",")) {
+            int index = pair.lastIndexOf('=');
+            if (index > 0) {
+                weights.put(pair.substring(0, index).trim(), Math.max(Integer.parseInt(pair.substring(index + 1).trim()), 1));
+            }
+        }
+        return weights;
+    }
+
+    @Override
+    public boolean offer(Runnable runnable) {
+        String key = ((PriorityTask<?>) runnable).getKey();
+        lock.lock();
+        try {
+            SubQueue subQueue = subQueues.get(key);
+            if (subQueue == null) {
+                subQueue = new SubQueue(weightOf(key));
+                subQueues.put(key, subQueue);
+            }
+            subQueue.tasks.add(runnable);
+            count++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable runnable) {
+        offer(runnable);
+    }
+
+    @Override
+    public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+        return offer(runnable);
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count > 0 ? dequeue() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            if (count == 0) return null;
+            String key = nextKey(false);
+            if (key == null) {
+                // the task dequeue takes first in the next round, the credits are reset only when it is taken
+                key = nextKey(true);
+            }
+            return subQueues.get(key).tasks.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Runnable dequeue() {
+        String key = nextKey(false);
+        if (key == null) {
+            // every key used its weight, the next round starts
+            for (SubQueue subQueue : subQueues.values()) {
+                subQueue.credit = subQueue.weight;
+            }
+            key = nextKey(false);
+        }
+        SubQueue subQueue = subQueues.get(key);
+        Runnable runnable = subQueue.tasks.poll();
+        subQueue.credit--;
+        if (subQueue.tasks.isEmpty()) {
+            subQueues.remove(key);
+        }
+        count--;
+        return runnable;
+    }
+
+    // the key of the highest priority task among the keys with credit left in this round,
+    // or among all the keys at the start of a new round, when every key has its whole weight again
+    private String nextKey(boolean newRound) {
+        String next = null;
+        PriorityTask<?> nextTask = null;
+        for (Map.Entry<String, SubQueue> entry : subQueues.entrySet()) {
+            if (newRound || entry.getValue().credit > 0) {
+                PriorityTask<?> head = (PriorityTask<?>) entry.getValue().tasks.peek();
+                if (nextTask == null || head.compareTo(nextTask) < 0) {
+                    next = entry.getKey();
+                    nextTask = head;
+                }
+            }
+        }
+        return next;
+    }
+
+    private int weightOf(String key) {
+        Integer weight = weights.get(key);
+        return weight != null ? weight : 1;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof PriorityTask)) return false;
+        String key = ((PriorityTask<?>) o).getKey();
+        lock.lock();
+        try {
+            SubQueue subQueue = subQueues.get(key);
+            if (subQueue == null || !subQueue.tasks.remove(o)) return false;
+            if (subQueue.tasks.isEmpty()) {
+                subQueues.remove(key);
+            }
+            count--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (count > 0 && drained < maxElements) {
+                c.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return an iterator over a snapshot of the waiting tasks, its remove takes the task out of this queue
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (SubQueue subQueue : subQueues.values()) {
+                snapshot.addAll(subQueue.tasks);
+            }
+        } finally {
+            lock.unlock();
+        }
+        final Iterator<Runnable> iterator = snapshot.iterator();
+        return new Iterator<Runnable>() {
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) throw new IllegalStateException();
+                FairBlockingQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * @return the number of keys that have waiting tasks
+     */
+    public int getKeysCount() {
+        lock.lock();
+        try {
+            return subQueues.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class SubQueue {
+
+        private final PriorityQueue<Runnable> tasks = new PriorityQueue<>();
+
+        private final int weight;
+
+        private int credit;
+
+        SubQueue(int weight) {
+            this.weight = weight;
+            this.credit = weight;
+        }
+    }
+}
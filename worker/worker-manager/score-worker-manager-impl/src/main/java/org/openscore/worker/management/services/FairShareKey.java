@@ -0,0 +1,102 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.worker.management.services;
+
+import org.apache.log4j.Logger;
+import org.openscore.facade.entities.Execution;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Date: 18/10/26
+ *
+ * The key the worker shares its execution threads by, set by the worker.fair.key property, none by default.
+ * Each key gets its own sub queue, so one execution that fans out into many branches does not hold all the threads.
+ */
+enum FairShareKey {
+
+    /**
+     * all the executions share one queue
+     */
+    NONE {
+        @Override
+        String keyOf(SimpleExecutionRunnable runnable) {
+            return SHARED;
+        }
+    },
+
+    /**
+     * the root execution, its branches included
+     */
+    EXECUTION {
+        @Override
+        String keyOf(SimpleExecutionRunnable runnable) {
+            return runnable.getExecutionMessage().getMsgId();
+        }
+    },
+
+    /**
+     * the running execution plan, the flow version the step belongs to
+     */
+    FLOW {
+        @Override
+        String keyOf(SimpleExecutionRunnable runnable) throws IOException {
+            return String.valueOf(runnable.getExecution().getRunningExecutionPlanId());
+        }
+    },
+
+    /**
+     * the system context value under the worker.fair.tenant.key property, TENANT by default
+     */
+    TENANT {
+        @Override
+        String keyOf(SimpleExecutionRunnable runnable) throws IOException {
+            Execution execution = runnable.getExecution();
+            Serializable tenant = execution.getSystemContext().get(TENANT_CONTEXT_KEY);
+            return tenant != null ? tenant.toString() : SHARED;
+        }
+    };
+
+    static final String SHARED = "";
+
+    private static final String TENANT_CONTEXT_KEY = System.getProperty("worker.fair.tenant.key", "TENANT");
+
+    private static final Logger logger = Logger.getLogger(FairShareKey.class);
+
+    abstract String keyOf(SimpleExecutionRunnable runnable) throws IOException;
+
+    /**
+     * @return the key of the task, the shared key if the task is not an execution or its key cannot be read
+     */
+    String of(Runnable runnable) {
+        if (!(runnable instanceof SimpleExecutionRunnable) || ((SimpleExecutionRunnable) runnable).getExecutionMessage() == null) {
+            return SHARED;
+        }
+        try {
+            String key = keyOf((SimpleExecutionRunnable) runnable);
+            return key != null ? key : SHARED;
+        } catch (IOException ex) {
+            logger.warn("Failed to read the fair share key of an execution, it shares the common queue", ex);
+            return SHARED;
+        }
+    }
+
+    static FairShareKey fromProperty(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            logger.warn("Unknown fair share key " + value + ", the threads are not shared by any key");
+            return NONE;
+        }
+    }
+}
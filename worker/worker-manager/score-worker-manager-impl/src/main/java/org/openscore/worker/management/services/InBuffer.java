@@ -13,6 +13,7 @@ package org.openscore.worker.management.services;
 import org.openscore.engine.queue.entities.ExecStatus;
 import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.services.QueueDispatcherService;
+import org.openscore.engine.queue.services.WorkerNotificationService;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,7 +25,6 @@ import org.springframework.context.event.ContextRefreshedEvent;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
-import java.util.Date;
 import java.util.List;
 
 /**
@@ -52,6 +52,15 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
 	@Qualifier("coolDownPollingMillis")
 	private Integer coolDownPollingMillis = 200;
 
+	// max time to wait for a notification when the queue is empty - the messages assigned by every node are notified,
+	// the wait only bounds how late a delayed message, whose time came, is picked up
+	@Autowired(required = false)
+	@Qualifier("idlePollingMillis")
+	private Integer idlePollingMillis = 1000;
+
+	@Autowired(required = false)
+	private WorkerNotificationService workerNotificationService;
+
 	private Thread fillBufferThread = new Thread(this);
 
 	private boolean inShutdown;
@@ -70,26 +79,19 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
 	@Autowired
 	private SynchronizationManager syncManager;
 
-    private Date currentCreateDate = new Date(0);
-
     @PostConstruct
     private void init(){
         capacity = Integer.getInteger("worker.inbuffer.capacity",capacity);
         coolDownPollingMillis = Integer.getInteger("worker.inbuffer.coolDownPollingMillis",coolDownPollingMillis);
+        idlePollingMillis = Integer.getInteger("worker.inbuffer.idlePollingMillis",idlePollingMillis);
         logger.info("InBuffer capacity is set to :" + capacity + ", coolDownPollingMillis is set to :"+ coolDownPollingMillis);
+        if (workerNotificationService != null) logger.info("InBuffer waits for work notifications, idlePollingMillis is set to :" + idlePollingMillis);
     }
 
 
 
     private void fillBufferPeriodically() {
-        long pollCounter = 0;
         while (!inShutdown) {
-            pollCounter = pollCounter + 1;
-            // we reset the currentCreateDate every 100 queries , for the theoretical problem of records
-            // with wrong order of create_time in the queue table.
-            if ((pollCounter % 100) == 0) {
-                currentCreateDate = new Date(0);
-            }
             try {
                 boolean workerUp = workerManager.isUp();
                 if(!workerUp) {
@@ -108,27 +110,23 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
                         int messagesToGet = capacity - workerManager.getInBufferSize();
 
                         if (logger.isDebugEnabled()) logger.debug("Polling messages from queue (max " + messagesToGet + ")");
-                        List<ExecutionMessage> newMessages = queueDispatcher.poll(workerUuid, messagesToGet, currentCreateDate);
+                        // polled messages are claimed by the queue, so every poll returns only new messages
+                        List<ExecutionMessage> newMessages = queueDispatcher.poll(workerUuid, messagesToGet);
                         if (logger.isDebugEnabled()) logger.debug("Received " + newMessages.size() + " messages from queue");
 
                         if (!newMessages.isEmpty()) {
-                            // update currentCreateDate;
-                            currentCreateDate = new Date(newMessages.get(newMessages.size()-1).getCreateDate().getTime() - 100);
-
                             //we must acknowledge the messages that we took from the queue
                             ackMessages(newMessages);
                             for(ExecutionMessage msg :newMessages){
                                 addExecutionMessageInner(msg);
                             }
 
-                            syncManager.finishGetMessages(); //release all locks before going to sleep!!!
-
-							Thread.sleep(coolDownPollingMillis/8); //cool down - sleep a while
+                            syncManager.finishGetMessages(); //release all locks - there may be more work, poll again right away
                         }
                         else {
                             syncManager.finishGetMessages(); //release all locks before going to sleep!!!
 
-                            Thread.sleep(coolDownPollingMillis); //if there are no messages - sleep a while
+                            waitForWork(); //if there are no messages - wait for new work a while
                         }
                     }
                     else {
@@ -152,6 +150,15 @@ public class InBuffer implements WorkerRecoveryListener, ApplicationListener, Ru
         }
     }
 
+    private void waitForWork() throws InterruptedException {
+        if (workerNotificationService == null) {
+            Thread.sleep(coolDownPollingMillis);
+        } else {
+            boolean notified = workerNotificationService.waitForWork(workerUuid, idlePollingMillis);
+            if (logger.isDebugEnabled()) logger.debug(notified? "Notified on new work": "No work notification, polling again");
+        }
+    }
+
     private boolean needToPoll(){
         int bufferSize = workerManager.getInBufferSize();
 
@@ -0,0 +1,93 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.worker.management.services;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Date: 18/10/26
+ *
+ * A fixed thread pool that runs the waiting executions of a higher priority first.
+ * A waiting task ages by one priority level every aging period, so lower priorities are not starved.
+ * The tasks carry their fair share key for a {@link FairBlockingQueue}, any other queue orders them by priority alone.
+ */
+class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final long agingMillis;
+
+    private final FairShareKey fairShareKey;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    public PriorityThreadPoolExecutor(int numberOfThreads, BlockingQueue<Runnable> queue, ThreadFactory threadFactory, long agingMillis) {
+        this(numberOfThreads, queue, threadFactory, agingMillis, FairShareKey.NONE);
+    }
+
+    public PriorityThreadPoolExecutor(int numberOfThreads, BlockingQueue<Runnable> queue, ThreadFactory threadFactory, long agingMillis, FairShareKey fairShareKey) {
+        super(numberOfThreads, numberOfThreads, Long.MAX_VALUE, TimeUnit.NANOSECONDS, queue, threadFactory);
+        this.agingMillis = agingMillis;
+        this.fairShareKey = fairShareKey;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        long order = System.currentTimeMillis() - priorityOf(runnable) * agingMillis;
+        return new PriorityTask<>(runnable, value, order, sequence.getAndIncrement(), fairShareKey.of(runnable));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        // the queue orders prioritized tasks only
+        super.execute(command instanceof PriorityTask ? command : newTaskFor(command, null));
+    }
+
+    private int priorityOf(Runnable runnable) {
+        if (runnable instanceof SimpleExecutionRunnable) {
+            SimpleExecutionRunnable executionRunnable = (SimpleExecutionRunnable) runnable;
+            if (executionRunnable.getExecutionMessage() != null) {
+                return executionRunnable.getExecutionMessage().getPriority();
+            }
+        }
+        return 0;
+    }
+
+    static class PriorityTask<T> extends FutureTask<T> implements Comparable<PriorityTask<?>> {
+
+        private final long order;
+
+        private final long seq;
+
+        private final String key;
+
+        PriorityTask(Runnable runnable, T value, long order, long seq, String key) {
+            super(runnable, value);
+            this.order = order;
+            this.seq = seq;
+            this.key = key;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        @Override
+        public int compareTo(PriorityTask<?> other) {
+            int result = Long.compare(order, other.order);
+            return result != 0 ? result : Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.openscore.worker.management.WorkerConfigurationService;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -84,6 +85,15 @@ public class SimpleExecutionRunnable implements Runnable {
         this.executionMessage = executionMessage;
     }
 
+    public Execution getExecution() throws IOException {
+        //If we got here because of te shortcut we have the object
+        if (executionMessage.getExecutionObject() == null) {
+            //If we got here form DB - we need to extract the object from bytes, once
+            executionMessage.setExecutionObject(converter.<Execution>extractExecution(executionMessage.getPayload()));
+        }
+        return executionMessage.getExecutionObject();
+    }
+
     @Override
     public void run() {
         String executionId = executionMessage.getMsgId();
@@ -93,16 +103,7 @@ public class SimpleExecutionRunnable implements Runnable {
         Thread.currentThread().setName(origThreadName + "_" + executionId);
 
         try {
-            Execution execution;
-            //If we got here because of te shortcut we have the object
-            if(executionMessage.getExecutionObject() != null){
-                execution = executionMessage.getExecutionObject();
-
-            }
-            //If we got here form DB - we need to extract the object from bytes
-            else {
-                execution = converter.extractExecution(executionMessage.getPayload());
-            }
+            Execution execution = getExecution();
 
             //Check which logic to trigger - regular execution or split
             if (executionService.isSplitStep(execution)) {
@@ -155,14 +156,16 @@ public class SimpleExecutionRunnable implements Runnable {
         //2. execution was paused
         //3. we should stop and go to queue
         //4. The execution is terminating
-        //5. The nextStepExecution is a splitStep
-        //6. Running too long
+        //5. The next step should wait in the queue
+        //6. The nextStepExecution is a splitStep
+        //7. Running too long
 
         //The order is important!!!
 
         return isInterrupted() ||
                 isExecutionPaused(nextStepExecution) ||
                 isExecutionTerminating(nextStepExecution) ||
+                isDelayed(nextStepExecution) ||
                 isSplitStep(nextStepExecution) ||
                 shouldChangeWorkerGroup(nextStepExecution) ||
                 isRecoveryCheckpoint(nextStepExecution) ||
@@ -223,6 +226,27 @@ public class SimpleExecutionRunnable implements Runnable {
         }
     }
 
+    //If the next step should not run before a given time it waits in the queue and not in this thread
+    private boolean isDelayed(Execution nextStepExecution) {
+        Long notBefore = nextStepExecution.getSystemContext().removeNextStepNotBefore();
+        if (notBefore == null || notBefore <= System.currentTimeMillis()) {
+            return false;
+        }
+        //set current step to finished
+        executionMessage.setStatus(ExecStatus.FINISHED);
+        executionMessage.incMsgSeqId();
+        executionMessage.setPayload(null);
+
+        ExecutionMessage pendingMessage = createPendingExecutionMessage(nextStepExecution).setNotBefore(notBefore);
+        ExecutionMessage[] executionMessagesToSend = new ExecutionMessage[]{executionMessage, pendingMessage};//Messages that we will send to OutBuffer
+        try {
+            outBuffer.put(executionMessagesToSend);
+        } catch (InterruptedException e) {
+            logger.warn("Thread was interrupted! Exiting the execution... ", e);
+        }
+        return true;
+    }
+
     private boolean isSplitStep(Execution nextStepExecution){
         if(executionService.isSplitStep(nextStepExecution)){
             //set current step to finished
@@ -341,7 +365,8 @@ public class SimpleExecutionRunnable implements Runnable {
                 executionMessage.getMsgId(),
                 ExecStatus.PENDING,
                 converter.createPayload(nextStepExecution),
-                0).setWorkerKey(executionMessage.getWorkerKey());
+                0).setWorkerKey(executionMessage.getWorkerKey())
+                .setPriority(nextStepExecution.getSystemContext().getPriority());
     }
 
     // Creates InProgress execution message for the next step, base on current execution message - used for short cut!
@@ -361,7 +386,8 @@ public class SimpleExecutionRunnable implements Runnable {
                 ExecStatus.IN_PROGRESS,
                 nextStepExecution,
                 converter.createPayload(nextStepExecution),
-                0).setWorkerKey(executionMessage.getWorkerKey());
+                0).setWorkerKey(executionMessage.getWorkerKey())
+                .setPriority(nextStepExecution.getSystemContext().getPriority());
     }
 
 
@@ -373,8 +399,13 @@ public class SimpleExecutionRunnable implements Runnable {
         executionMessage.setStatus(ExecStatus.FINISHED);
         executionMessage.incMsgSeqId();
         executionMessage.setPayload(null);
-        String splitId = getSplitId(newExecutions);
-        SplitMessage splitMessage = new SplitMessage(splitId, execution, newExecutions);
+        SplitMessage splitMessage;
+        if (newExecutions != null && newExecutions.isEmpty() && execution.getSystemContext().getBranchSource() != null) {
+            splitMessage = new SplitMessage(execution.getSystemContext().getBranchSource().getSplitId(), execution);
+        } else {
+            String splitId = getSplitId(newExecutions);
+            splitMessage = new SplitMessage(splitId, execution, newExecutions);
+        }
         try {
             outBuffer.put(executionMessage, splitMessage);
         } catch (InterruptedException e) {
@@ -16,7 +16,6 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -33,6 +32,7 @@ import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 
+import org.openscore.engine.node.entities.WorkerLoad;
 import org.openscore.engine.node.services.WorkerNodeService;
 
 import static ch.lambdaj.Lambda.max;
@@ -58,7 +58,13 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
 	protected WorkerConfigurationService workerConfigurationService;
 	@Autowired
 	protected WorkerRecoveryManager recoveryManager;
-	private LinkedBlockingQueue<Runnable> inBuffer;
+	@Autowired(required = false)
+	private OutboundBuffer outBuffer;
+	private FairBlockingQueue inBuffer;
+	// a waiting execution is run before a new execution of one priority higher after this many ms
+	private final long priorityAgingMillis = Long.getLong("queue.priority.aging", 10000L);
+	// the threads are shared fairly between the executions, flows or tenants
+	private FairShareKey fairShareKey;
 	@Autowired
 	@Qualifier("numberOfExecutionThreads")
 	private Integer numberOfThreads;
@@ -79,13 +85,15 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
 	private void init() {
 		logger.info("Initialize worker with UUID: " + workerUuid);
 		System.setProperty("worker.uuid", workerUuid); //do not remove!!!
-        inBuffer = new LinkedBlockingQueue<>();
+        fairShareKey = FairShareKey.fromProperty(System.getProperty("worker.fair.key", "none"));
+        inBuffer = new FairBlockingQueue(FairBlockingQueue.parseWeights(System.getProperty("worker.fair.weights")));
+		logger.info("Worker execution threads are shared by " + fairShareKey.name().toLowerCase());
 
-		executorService = new ThreadPoolExecutor(numberOfThreads,
-				numberOfThreads,
-				Long.MAX_VALUE, TimeUnit.NANOSECONDS,
+		executorService = new PriorityThreadPoolExecutor(numberOfThreads,
 				inBuffer,
-				new WorkerThreadFactory("WorkerExecutionThread"));
+				new WorkerThreadFactory("WorkerExecutionThread"),
+				priorityAgingMillis,
+				fairShareKey);
 
 		mapOfRunningTasks = new ConcurrentHashMap<>(numberOfThreads);
 	}
@@ -104,13 +112,17 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
 		return inBuffer.size();
 	}
 
+	public int getInBufferKeysCount() {
+		return inBuffer.getKeysCount();
+	}
+
 	@SuppressWarnings("unused")
     //scheduled in xml
     public void workerKeepAlive() {
         if (!recoveryManager.isInRecovery()) {
             if (endOfInit) {
                 try {
-                    String newWrv = workerNodeService.keepAlive(workerUuid);
+                    String newWrv = workerNodeService.keepAlive(workerUuid, currentLoad());
                     String currentWrv = recoveryManager.getWRV();
                     //do not update it!!! if it is different than we have - restart worker (clean state)
                     if(!currentWrv.equals(newWrv)){
@@ -133,6 +145,20 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
         }
 	}
 
+	// reported with the keep alive for the load aware assignment of the orchestrator,
+	// the running tasks map holds the queued tasks too so the running tasks are counted by the busy threads
+	private WorkerLoad currentLoad() {
+		int outBufferFill = 0;
+		if (outBuffer != null && outBuffer.getCapacity() > 0) {
+			outBufferFill = Math.min(100, outBuffer.getWeight() * 100 / outBuffer.getCapacity());
+		}
+		return new WorkerLoad(getActiveThreadsCount(), getInBufferSize(), getExecutionThreadsCount(), outBufferFill);
+	}
+
+	private int getActiveThreadsCount() {
+		return ((ThreadPoolExecutor) executorService).getActiveCount();
+	}
+
 	@SuppressWarnings("unused") // called by scheduler
 	public void logStatistics() {
 		if (logger.isDebugEnabled()) {
@@ -258,10 +284,10 @@ public class WorkerManager implements ApplicationListener, EndExecutionCallback,
         mapOfRunningTasks.clear();
 
         //Make new executor
-        executorService = new ThreadPoolExecutor(numberOfThreads,
-                numberOfThreads,
-                Long.MAX_VALUE, TimeUnit.NANOSECONDS,
+        executorService = new PriorityThreadPoolExecutor(numberOfThreads,
                 inBuffer,
-                new WorkerThreadFactory("WorkerExecutionThread"));
+                new WorkerThreadFactory("WorkerExecutionThread"),
+                priorityAgingMillis,
+                fairShareKey);
     }
 }
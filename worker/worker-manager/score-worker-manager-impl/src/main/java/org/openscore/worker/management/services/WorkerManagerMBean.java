@@ -32,6 +32,11 @@ public class WorkerManagerMBean {
 		return workerManager.getInBufferSize();
 	}
 
+	@ManagedAttribute(description = "Keys Sharing the In-Buffer")
+	public int getInBufferKeysCount(){
+		return workerManager.getInBufferKeysCount();
+	}
+
 	@ManagedAttribute(description = "Current Out-Buffer Size")
 	public int getOutBufferSize(){
 		return outBuffer.getSize();
@@ -0,0 +1,128 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+
+package org.openscore.worker.management.services;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openscore.worker.management.services.PriorityThreadPoolExecutor.PriorityTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Date: 18/10/26
+ */
+public class FairBlockingQueueTest {
+
+    private long seq;
+
+    @Test
+    public void testKeysAreServedInTurns() throws Exception {
+        FairBlockingQueue queue = new FairBlockingQueue();
+        // a fan out of one execution is queued before a single step of another
+        for (int i = 0; i < 4; i++) {
+            queue.offer(task("a", 0));
+        }
+        queue.offer(task("b", 0));
+
+        Assert.assertEquals(5, queue.size());
+        Assert.assertEquals(2, queue.getKeysCount());
+        Assert.assertEquals(Arrays.asList("a", "b", "a", "a", "a"), takeKeys(queue, 5));
+        Assert.assertEquals(0, queue.getKeysCount());
+    }
+
+    @Test
+    public void testHigherPriorityFirstWithinARound() throws Exception {
+        FairBlockingQueue queue = new FairBlockingQueue();
+        queue.offer(task("a", 0));
+        queue.offer(task("a", 1));
+        queue.offer(task("b", 2));
+        queue.offer(task("c", -5));
+
+        Assert.assertEquals(Arrays.asList("b", "a", "c", "a"), takeKeys(queue, 4));
+    }
+
+    @Test
+    public void testWeights() throws Exception {
+        Map<String, Integer> weights = FairBlockingQueue.parseWeights("a=3, b = 1");
+        Assert.assertEquals(Integer.valueOf(3), weights.get("a"));
+        FairBlockingQueue queue = new FairBlockingQueue(weights);
+        for (int i = 0; i < 4; i++) {
+            queue.offer(task("b", 0));
+        }
+        for (int i = 0; i < 6; i++) {
+            queue.offer(task("a", 0));
+        }
+
+        Assert.assertEquals(Arrays.asList("b", "a", "a", "a", "b", "a", "a", "a", "b", "b"), takeKeys(queue, 10));
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testRemoveAndDrain() {
+        FairBlockingQueue queue = new FairBlockingQueue();
+        PriorityTask<?> first = task("a", 0);
+        queue.offer(first);
+        queue.offer(task("a", 0));
+        queue.offer(task("b", 0));
+
+        Assert.assertTrue(queue.remove(first));
+        Assert.assertFalse(queue.remove(first));
+        Assert.assertEquals(2, queue.size());
+
+        List<Runnable> drained = new ArrayList<>();
+        Assert.assertEquals(2, queue.drainTo(drained));
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertEquals(0, queue.getKeysCount());
+    }
+
+    @Test
+    public void testPeekWhenEveryKeyUsedItsWeight() throws Exception {
+        FairBlockingQueue queue = new FairBlockingQueue();
+        queue.offer(task("a", 0));
+        queue.offer(task("a", 1));
+        queue.offer(task("b", 0));
+        queue.offer(task("b", 0));
+        Assert.assertEquals(Arrays.asList("a", "b"), takeKeys(queue, 2));
+
+        //the round is over, peek shows the task of the next round without starting it
+        Runnable peeked = queue.peek();
+        Assert.assertNotNull(peeked);
+        Assert.assertSame(peeked, queue.peek());
+        Assert.assertEquals(2, queue.size());
+        Assert.assertSame(peeked, queue.take());
+    }
+
+    @Test
+    public void testFairShareKeyIsOptIn() {
+        Assert.assertEquals(FairShareKey.NONE, FairShareKey.fromProperty("unknown"));
+        Assert.assertEquals(FairShareKey.EXECUTION, FairShareKey.fromProperty("execution"));
+    }
+
+    private List<String> takeKeys(FairBlockingQueue queue, int count) throws InterruptedException {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(((PriorityTask<?>) queue.take()).getKey());
+        }
+        return keys;
+    }
+
+    private PriorityTask<?> task(String key, int priority) {
+        return new PriorityTask<>(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, null, 1000L - priority * 100L, seq++, key);
+    }
+}
@@ -10,7 +10,9 @@
 
 package org.openscore.worker.management.services;
 
+import org.openscore.engine.queue.entities.ExecutionMessage;
 import org.openscore.engine.queue.services.QueueDispatcherService;
+import org.openscore.engine.queue.services.WorkerNotificationService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -23,7 +25,14 @@ import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -56,6 +65,9 @@ public class InBufferTest {
     @Mock
     private SynchronizationManager synchronizationManager;
 
+    @Mock
+    private WorkerNotificationService workerNotificationService;
+
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
@@ -89,4 +101,24 @@ public class InBufferTest {
 	        Thread.sleep(100L);
         }
     }
+
+    @Test(timeout = 5000)
+    public void testWaitForWorkWhenQueueIsEmpty() throws Exception {
+        ReflectionTestUtils.setField(inBuffer, "capacity", 100);
+        ReflectionTestUtils.setField(inBuffer, "workerUuid", "worker1");
+        ContextRefreshedEvent refreshEvent =  mock(ContextRefreshedEvent.class);
+        inBuffer.onApplicationEvent(refreshEvent);
+
+        when(workerManager.isUp()).thenReturn(true);
+        when(queueDispatcher.poll(anyString(), anyInt())).thenReturn(new ArrayList<ExecutionMessage>());
+        Thread thread = new Thread(inBuffer);
+        thread.start();
+
+        verify(workerNotificationService,timeout(1000).atLeastOnce()).waitForWork(eq("worker1"), anyLong());
+
+        inBuffer.onApplicationEvent(mock(ContextClosedEvent.class));
+        while(thread.isAlive()){
+            Thread.sleep(100L);
+        }
+    }
 }
@@ -0,0 +1,111 @@
+/*******************************************************************************
+* (c) Copyright 2014 Hewlett-Packard Development Company, L.P.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Apache License v2.0 which accompany this distribution.
+*
+* The Apache License is available at
+* http://www.apache.org/licenses/LICENSE-2.0
+*
+*******************************************************************************/
+
+package org.openscore.worker.management.services;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openscore.engine.queue.entities.ExecutionMessage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Date: 18/10/26
+ */
+public class PriorityThreadPoolExecutorTest {
+
+    private PriorityThreadPoolExecutor executor;
+
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public void testHigherPriorityRunsFirst() throws Exception {
+        executor = new PriorityThreadPoolExecutor(1, new PriorityBlockingQueue<Runnable>(), new WorkerThreadFactory("test"), 60000L);
+        CountDownLatch release = blockThread();
+
+        executor.submit(execution("low", 0));
+        executor.submit(execution("high", 2));
+        executor.submit(execution("normal", 1));
+        release.countDown();
+
+        awaitExecuted(3);
+        Assert.assertEquals(Arrays.asList("high", "normal", "low"), executed);
+    }
+
+    @Test(timeout = 10000)
+    public void testWaitingExecutionAges() throws Exception {
+        executor = new PriorityThreadPoolExecutor(1, new PriorityBlockingQueue<Runnable>(), new WorkerThreadFactory("test"), 10L);
+        CountDownLatch release = blockThread();
+
+        executor.submit(execution("old", 0));
+        Thread.sleep(50);
+        executor.submit(execution("new", 1));
+        executor.submit(execution("later", 0));
+        release.countDown();
+
+        awaitExecuted(3);
+        Assert.assertEquals(Arrays.asList("old", "new", "later"), executed);
+    }
+
+    private CountDownLatch blockThread() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        started.await();
+        return release;
+    }
+
+    private void awaitExecuted(int count) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        Assert.assertEquals(count, executed.size());
+    }
+
+    private SimpleExecutionRunnable execution(final String name, int priority) {
+        SimpleExecutionRunnable runnable = mock(SimpleExecutionRunnable.class);
+        when(runnable.getExecutionMessage()).thenReturn(new ExecutionMessage(name, null).setPriority(priority));
+        doAnswer(new Answer() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                executed.add(name);
+                return null;
+            }
+        }).when(runnable).run();
+        return runnable;
+    }
+}
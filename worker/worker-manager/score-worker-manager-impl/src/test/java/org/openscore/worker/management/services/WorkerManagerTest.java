@@ -22,16 +22,22 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import org.openscore.engine.node.entities.WorkerLoad;
 import org.openscore.engine.node.services.WorkerNodeService;
 
+import java.util.concurrent.CountDownLatch;
+
 import static org.fest.assertions.Assertions.assertThat;
 import static org.fest.assertions.Fail.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 /**
@@ -114,7 +120,7 @@ public class WorkerManagerTest {
 
 	@Test(timeout = 10000)
 	public void testKeepAliveFailTriggerRecovery() {
-		doThrow(new RuntimeException("Network Error")).when(workerNodeService).keepAlive(CREDENTIAL_UUID);
+		doThrow(new RuntimeException("Network Error")).when(workerNodeService).keepAlive(eq(CREDENTIAL_UUID), any(WorkerLoad.class));
 		for (int i = 0; i < 5; i++) {
 			workerManager.workerKeepAlive();
 		}
@@ -123,6 +129,48 @@ public class WorkerManagerTest {
 		reset(workerNodeService);
 	}
 
+	@Test
+	public void testKeepAliveReportsLoad() {
+		when(workerNodeService.keepAlive(eq(CREDENTIAL_UUID), any(WorkerLoad.class))).thenReturn("1");
+		when(workerRecoveryManager.getWRV()).thenReturn("1");
+		workerManager.workerKeepAlive();
+		verify(workerNodeService).keepAlive(CREDENTIAL_UUID, new WorkerLoad(0, 0, 2, 0));
+	}
+
+	@Test(timeout = 10000)
+	public void testKeepAliveDoesNotCountQueuedTasksAsRunning() throws InterruptedException {
+		when(workerNodeService.keepAlive(eq(CREDENTIAL_UUID), any(WorkerLoad.class))).thenReturn("1");
+		when(workerRecoveryManager.getWRV()).thenReturn("1");
+		final CountDownLatch release = new CountDownLatch(1);
+		Runnable blocking = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		// 2 execution threads, the third task waits in the in buffer
+		for (long i = 1; i <= 3; i++) {
+			workerManager.addExecution(i, blocking);
+		}
+		try {
+			while (workerManager.getInBufferSize() != 1 || workerManager.getRunningTasksCount() != 3) {
+				Thread.sleep(10L);
+			}
+			Thread.sleep(100L); // let both threads pick up their tasks
+			workerManager.workerKeepAlive();
+			verify(workerNodeService).keepAlive(CREDENTIAL_UUID, new WorkerLoad(2, 1, 2, 0));
+		} finally {
+			release.countDown();
+			for (long i = 1; i <= 3; i++) {
+				workerManager.endExecution(i);
+			}
+		}
+	}
+
 	@Test
 	public void shutDown() {
 		workerManager.onApplicationEvent(mock(ContextRefreshedEvent.class));